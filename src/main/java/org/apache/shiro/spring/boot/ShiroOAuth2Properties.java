@@ -15,6 +15,7 @@
  */
 package org.apache.shiro.spring.boot;
 
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -23,6 +24,7 @@ import org.apache.shiro.biz.web.filter.authc.AbstractCaptchaAuthenticatingFilter
 import org.apache.shiro.biz.web.filter.authc.KickoutSessionControlFilter;
 import org.apache.shiro.cache.Cache;
 import org.apache.shiro.cache.CacheManager;
+import org.apache.shiro.spring.boot.oauth.cache.OAuth2TokenCache;
 import org.scribe.up.provider.OAuthProvider;
 import org.scribe.up.provider.ProvidersDefinition;
 import org.springframework.boot.context.properties.ConfigurationProperties;
@@ -82,6 +84,39 @@ public class ShiroOAuth2Properties {
     
     // default permissions applied to authenticated user
     private String defaultPermissions;
+    
+    /** Oltu Realm 与 QQ、微信、新浪微博请求共用的连接池配置 */
+    private Http http = new Http();
+    
+    /** 以 Access Token 为键的用户信息缓存配置 */
+    private TokenCache tokenCache = new TokenCache();
+    
+    /** 认证服务器调用的舱壁与熔断器配置 */
+    private Guard guard = new Guard();
+    
+    /** QQ、微信 Access Token 后台续期配置 */
+    private TokenRefresh tokenRefresh = new TokenRefresh();
+    
+    /** 第三方账号绑定关系的缓存配置 */
+    private PrincipalBinding principalBinding = new PrincipalBinding();
+    
+    /** 获取用户信息等幂等请求的对冲与重试配置 */
+    private Retry retry = new Retry();
+    
+    /** QQ、微信、新浪微博响应体的压缩与大小限制配置 */
+    private Response response = new Response();
+    
+    /** 启动后预热认证服务器连接的配置 */
+    private Warmup warmup = new Warmup();
+    
+    /** QQ、微信、新浪微博 Profile 的属性处理配置 */
+    private Profile profile = new Profile();
+    
+    /** 会话中只保存精简身份的配置 */
+    private ThinPrincipal thinPrincipal = new ThinPrincipal();
+    
+    /** 回调地址异步登录的配置 */
+    private AsyncLogin asyncLogin = new AsyncLogin();
 	
 	public boolean isEnabled() {
 		return enabled;
@@ -313,5 +348,835 @@ public class ShiroOAuth2Properties {
 		this.defaultPermissions = defaultPermissions;
 	}
 
-}
+	public Http getHttp() {
+		return http;
+	}
+
+	public void setHttp(Http http) {
+		this.http = http;
+	}
+
+	public TokenCache getTokenCache() {
+		return tokenCache;
+	}
+
+	public void setTokenCache(TokenCache tokenCache) {
+		this.tokenCache = tokenCache;
+	}
+
+	public Guard getGuard() {
+		return guard;
+	}
+
+	public void setGuard(Guard guard) {
+		this.guard = guard;
+	}
+
+	public TokenRefresh getTokenRefresh() {
+		return tokenRefresh;
+	}
+
+	public void setTokenRefresh(TokenRefresh tokenRefresh) {
+		this.tokenRefresh = tokenRefresh;
+	}
+
+	public PrincipalBinding getPrincipalBinding() {
+		return principalBinding;
+	}
+
+	public void setPrincipalBinding(PrincipalBinding principalBinding) {
+		this.principalBinding = principalBinding;
+	}
+
+	public Retry getRetry() {
+		return retry;
+	}
+
+	public void setRetry(Retry retry) {
+		this.retry = retry;
+	}
+
+	public Response getResponse() {
+		return response;
+	}
+
+	public void setResponse(Response response) {
+		this.response = response;
+	}
+
+	public Warmup getWarmup() {
+		return warmup;
+	}
+
+	public void setWarmup(Warmup warmup) {
+		this.warmup = warmup;
+	}
+
+	public Profile getProfile() {
+		return profile;
+	}
+
+	public void setProfile(Profile profile) {
+		this.profile = profile;
+	}
+
+	public ThinPrincipal getThinPrincipal() {
+		return thinPrincipal;
+	}
+
+	public void setThinPrincipal(ThinPrincipal thinPrincipal) {
+		this.thinPrincipal = thinPrincipal;
+	}
+
+	public AsyncLogin getAsyncLogin() {
+		return asyncLogin;
+	}
+
+	public void setAsyncLogin(AsyncLogin asyncLogin) {
+		this.asyncLogin = asyncLogin;
+	}
+
+	/**
+	 * 访问认证服务器（token/userinfo）时使用的 HTTP 连接池配置：Oltu Realm 与 QQ、微信、新浪微博的传输层共用同一个连接池，
+	 * Provider 设置的代理与超时按请求覆盖
+	 */
+	public static class Http {
+
+		/** QQ、微信、新浪微博的传输层实现：HTTP_COMPONENTS 使用共享连接池，URL_CONNECTION 与 scribe 原有方式一致 */
+		private TransportType transportType = TransportType.HTTP_COMPONENTS;
+		/** 每个路由（host:port）最大连接数 */
+		private int maxConnectionsPerRoute = 20;
+		/** 连接池最大连接数 */
+		private int maxConnectionsTotal = 200;
+		/** 建立连接超时时间（毫秒） */
+		private int connectTimeout = 5000;
+		/** 读取数据超时时间（毫秒） */
+		private int readTimeout = 10000;
+		/** 从连接池获取连接的超时时间（毫秒） */
+		private int connectionRequestTimeout = 2000;
+		/** 空闲连接回收时间（毫秒） */
+		private long maxIdleTime = 30000;
+		/** 传输层执行异步请求的线程数 */
+		private int asyncPoolSize = 16;
+
+		public TransportType getTransportType() {
+			return transportType;
+		}
+
+		public void setTransportType(TransportType transportType) {
+			this.transportType = transportType;
+		}
+
+		public int getMaxConnectionsPerRoute() {
+			return maxConnectionsPerRoute;
+		}
+
+		public void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+			this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+		}
+
+		public int getMaxConnectionsTotal() {
+			return maxConnectionsTotal;
+		}
+
+		public void setMaxConnectionsTotal(int maxConnectionsTotal) {
+			this.maxConnectionsTotal = maxConnectionsTotal;
+		}
+
+		public int getConnectTimeout() {
+			return connectTimeout;
+		}
+
+		public void setConnectTimeout(int connectTimeout) {
+			this.connectTimeout = connectTimeout;
+		}
+
+		public int getReadTimeout() {
+			return readTimeout;
+		}
+
+		public void setReadTimeout(int readTimeout) {
+			this.readTimeout = readTimeout;
+		}
+
+		public int getConnectionRequestTimeout() {
+			return connectionRequestTimeout;
+		}
+
+		public void setConnectionRequestTimeout(int connectionRequestTimeout) {
+			this.connectionRequestTimeout = connectionRequestTimeout;
+		}
+
+		public long getMaxIdleTime() {
+			return maxIdleTime;
+		}
+
+		public void setMaxIdleTime(long maxIdleTime) {
+			this.maxIdleTime = maxIdleTime;
+		}
+
+		public int getAsyncPoolSize() {
+			return asyncPoolSize;
+		}
+
+		public void setAsyncPoolSize(int asyncPoolSize) {
+			this.asyncPoolSize = asyncPoolSize;
+		}
+
+	}
+
+	/**
+	 * 以 Access Token 为键的用户信息缓存配置：Token 有效期内重复获取用户信息时直接读取缓存
+	 */
+	public static class TokenCache {
+
+		/** 是否启用缓存 */
+		private boolean enabled = false;
+		/** 缓存名称 */
+		private String cacheName = OAuth2TokenCache.DEFAULT_CACHE_NAME;
+		/** 最大缓存条目数 */
+		private int maxSize = 10000;
+		/** 认证服务器未返回 expires_in 时使用的存活时间（秒） */
+		private long defaultExpiresIn = 300;
+		/** 从 expires_in 中扣除的安全余量（秒） */
+		private long expiresInSkew = 60;
+
+		public boolean isEnabled() {
+			return enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public String getCacheName() {
+			return cacheName;
+		}
+
+		public void setCacheName(String cacheName) {
+			this.cacheName = cacheName;
+		}
+
+		public int getMaxSize() {
+			return maxSize;
+		}
+
+		public void setMaxSize(int maxSize) {
+			this.maxSize = maxSize;
+		}
+
+		public long getDefaultExpiresIn() {
+			return defaultExpiresIn;
+		}
+
+		public void setDefaultExpiresIn(long defaultExpiresIn) {
+			this.defaultExpiresIn = defaultExpiresIn;
+		}
+
+		public long getExpiresInSkew() {
+			return expiresInSkew;
+		}
+
+		public void setExpiresInSkew(long expiresInSkew) {
+			this.expiresInSkew = expiresInSkew;
+		}
+
+	}
+
+	/**
+	 * 认证服务器调用保护：每个认证服务器独立的舱壁（最大并发调用数）与熔断器
+	 */
+	public static class Guard {
+
+		/** 是否启用 */
+		private boolean enabled = false;
+		/** 每个认证服务器的最大并发调用数 */
+		private int maxConcurrentCalls = 50;
+		/** 舱壁已满时的最长等待时间（毫秒），0 表示立即拒绝 */
+		private long maxWaitDuration = 0;
+		/** 打开熔断器的连续失败次数 */
+		private int failureThreshold = 5;
+		/** 熔断器打开状态持续时间（毫秒） */
+		private long openDuration = 30000;
+		/** 半开状态允许的试探调用数 */
+		private int halfOpenMaxCalls = 1;
+
+		public boolean isEnabled() {
+			return enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public int getMaxConcurrentCalls() {
+			return maxConcurrentCalls;
+		}
+
+		public void setMaxConcurrentCalls(int maxConcurrentCalls) {
+			this.maxConcurrentCalls = maxConcurrentCalls;
+		}
+
+		public long getMaxWaitDuration() {
+			return maxWaitDuration;
+		}
+
+		public void setMaxWaitDuration(long maxWaitDuration) {
+			this.maxWaitDuration = maxWaitDuration;
+		}
+
+		public int getFailureThreshold() {
+			return failureThreshold;
+		}
+
+		public void setFailureThreshold(int failureThreshold) {
+			this.failureThreshold = failureThreshold;
+		}
+
+		public long getOpenDuration() {
+			return openDuration;
+		}
+
+		public void setOpenDuration(long openDuration) {
+			this.openDuration = openDuration;
+		}
+
+		public int getHalfOpenMaxCalls() {
+			return halfOpenMaxCalls;
+		}
+
+		public void setHalfOpenMaxCalls(int halfOpenMaxCalls) {
+			this.halfOpenMaxCalls = halfOpenMaxCalls;
+		}
+
+	}
+
+	/**
+	 * Access Token 后台续期：临近过期时使用 refresh_token 刷新，刷新时间随机打散并分批执行
+	 */
+	public static class TokenRefresh {
+
+		/** 是否启用 */
+		private boolean enabled = false;
+		/** 在过期前多久刷新（毫秒） */
+		private long refreshAhead = 600000;
+		/** 刷新时间的随机提前量上限（毫秒） */
+		private long jitter = 300000;
+		/** 每批最多刷新的 Token 数 */
+		private int batchSize = 50;
+		/** 两批之间的间隔（毫秒） */
+		private long batchInterval = 1000;
+		/** 刷新失败后的重试间隔（毫秒） */
+		private long retryDelay = 60000;
+		/** 最多登记的 Token 数，小于等于0表示不限制 */
+		private int maxEntries = 100000;
+		/** 自登录起持续续期的最长时间（毫秒），小于等于0表示不限制 */
+		private long maxLifetime = 86400000;
+
+		public boolean isEnabled() {
+			return enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public long getRefreshAhead() {
+			return refreshAhead;
+		}
+
+		public void setRefreshAhead(long refreshAhead) {
+			this.refreshAhead = refreshAhead;
+		}
+
+		public long getJitter() {
+			return jitter;
+		}
+
+		public void setJitter(long jitter) {
+			this.jitter = jitter;
+		}
+
+		public int getBatchSize() {
+			return batchSize;
+		}
+
+		public void setBatchSize(int batchSize) {
+			this.batchSize = batchSize;
+		}
+
+		public long getBatchInterval() {
+			return batchInterval;
+		}
+
+		public void setBatchInterval(long batchInterval) {
+			this.batchInterval = batchInterval;
+		}
+
+		public long getRetryDelay() {
+			return retryDelay;
+		}
+
+		public void setRetryDelay(long retryDelay) {
+			this.retryDelay = retryDelay;
+		}
 
+		public int getMaxEntries() {
+			return maxEntries;
+		}
+
+		public void setMaxEntries(int maxEntries) {
+			this.maxEntries = maxEntries;
+		}
+
+		public long getMaxLifetime() {
+			return maxLifetime;
+		}
+
+		public void setMaxLifetime(long maxLifetime) {
+			this.maxLifetime = maxLifetime;
+		}
+
+	}
+
+	/**
+	 * 第三方账号绑定关系的缓存：容器中存在 OauthPrincipalBinder 时，登录时的绑定查询先读缓存
+	 */
+	public static class PrincipalBinding {
+
+		/** 是否缓存绑定关系 */
+		private boolean cacheEnabled = true;
+		/** 最大缓存条目数 */
+		private int maxSize = 10000;
+		/** 已绑定关系的存活时间（毫秒） */
+		private long ttl = 600000;
+		/** 未绑定结果的存活时间（毫秒） */
+		private long negativeTtl = 60000;
+
+		public boolean isCacheEnabled() {
+			return cacheEnabled;
+		}
+
+		public void setCacheEnabled(boolean cacheEnabled) {
+			this.cacheEnabled = cacheEnabled;
+		}
+
+		public int getMaxSize() {
+			return maxSize;
+		}
+
+		public void setMaxSize(int maxSize) {
+			this.maxSize = maxSize;
+		}
+
+		public long getTtl() {
+			return ttl;
+		}
+
+		public void setTtl(long ttl) {
+			this.ttl = ttl;
+		}
+
+		public long getNegativeTtl() {
+			return negativeTtl;
+		}
+
+		public void setNegativeTtl(long negativeTtl) {
+			this.negativeTtl = negativeTtl;
+		}
+
+	}
+
+	/**
+	 * 幂等请求的对冲与重试：对冲与重试共用全局重试额度，换取 Access Token 的请求不对冲、不重试
+	 */
+	public static class Retry {
+
+		/** 是否启用 */
+		private boolean enabled = false;
+		/** 最多尝试次数（含首次） */
+		private int maxAttempts = 3;
+		/** 首次重试前的等待时间（毫秒） */
+		private long initialBackoff = 100;
+		/** 重试等待时间上限（毫秒） */
+		private long maxBackoff = 2000;
+		/** 是否发送对冲请求 */
+		private boolean hedgeEnabled = true;
+		/** 对冲请求的等待时间取近期耗时的分位数 */
+		private double hedgePercentile = 0.95;
+		/** 样本不足时对冲请求的等待时间（毫秒） */
+		private long hedgeDelay = 200;
+		/** 对冲请求的最短等待时间（毫秒） */
+		private long minHedgeDelay = 20;
+		/** 执行对冲请求的线程数 */
+		private int poolSize = 32;
+		/** 每个请求积累的重试额度 */
+		private double budgetRatio = 0.1;
+		/** 每秒保底的重试次数 */
+		private int minRetriesPerSecond = 10;
+
+		public boolean isEnabled() {
+			return enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public int getMaxAttempts() {
+			return maxAttempts;
+		}
+
+		public void setMaxAttempts(int maxAttempts) {
+			this.maxAttempts = maxAttempts;
+		}
+
+		public long getInitialBackoff() {
+			return initialBackoff;
+		}
+
+		public void setInitialBackoff(long initialBackoff) {
+			this.initialBackoff = initialBackoff;
+		}
+
+		public long getMaxBackoff() {
+			return maxBackoff;
+		}
+
+		public void setMaxBackoff(long maxBackoff) {
+			this.maxBackoff = maxBackoff;
+		}
+
+		public boolean isHedgeEnabled() {
+			return hedgeEnabled;
+		}
+
+		public void setHedgeEnabled(boolean hedgeEnabled) {
+			this.hedgeEnabled = hedgeEnabled;
+		}
+
+		public double getHedgePercentile() {
+			return hedgePercentile;
+		}
+
+		public void setHedgePercentile(double hedgePercentile) {
+			this.hedgePercentile = hedgePercentile;
+		}
+
+		public long getHedgeDelay() {
+			return hedgeDelay;
+		}
+
+		public void setHedgeDelay(long hedgeDelay) {
+			this.hedgeDelay = hedgeDelay;
+		}
+
+		public long getMinHedgeDelay() {
+			return minHedgeDelay;
+		}
+
+		public void setMinHedgeDelay(long minHedgeDelay) {
+			this.minHedgeDelay = minHedgeDelay;
+		}
+
+		public int getPoolSize() {
+			return poolSize;
+		}
+
+		public void setPoolSize(int poolSize) {
+			this.poolSize = poolSize;
+		}
+
+		public double getBudgetRatio() {
+			return budgetRatio;
+		}
+
+		public void setBudgetRatio(double budgetRatio) {
+			this.budgetRatio = budgetRatio;
+		}
+
+		public int getMinRetriesPerSecond() {
+			return minRetriesPerSecond;
+		}
+
+		public void setMinRetriesPerSecond(int minRetriesPerSecond) {
+			this.minRetriesPerSecond = minRetriesPerSecond;
+		}
+
+	}
+
+	/**
+	 * 读取认证服务器响应体：协商 gzip 压缩，超过大小上限时中止读取
+	 */
+	public static class Response {
+
+		/** 是否发送 Accept-Encoding: gzip */
+		private boolean gzipEnabled = true;
+		/** 响应体的最大字节数（解压后），小于等于0表示不限制 */
+		private long maxBodySize = 1024 * 1024;
+
+		public boolean isGzipEnabled() {
+			return gzipEnabled;
+		}
+
+		public void setGzipEnabled(boolean gzipEnabled) {
+			this.gzipEnabled = gzipEnabled;
+		}
+
+		public long getMaxBodySize() {
+			return maxBodySize;
+		}
+
+		public void setMaxBodySize(long maxBodySize) {
+			this.maxBodySize = maxBodySize;
+		}
+
+	}
+
+	/**
+	 * 启动预热：ApplicationReadyEvent 后解析认证服务器域名、预先建立连接并执行解析代码，结束前健康检查为 OUT_OF_SERVICE
+	 */
+	public static class Warmup {
+
+		/** 是否启用 */
+		private boolean enabled = false;
+		/** 连接池使用的 DNS 缓存有效期（毫秒） */
+		private long dnsCacheTtl = 300000;
+		/** 每个域名预先建立的连接数 */
+		private int connectionsPerHost = 2;
+		/** 预热请求的连接超时时间（毫秒） */
+		private int connectTimeout = 3000;
+		/** 预热请求的读取超时时间（毫秒） */
+		private int readTimeout = 3000;
+		/** 预热的最长时间（毫秒），超过后直接标记为就绪 */
+		private long timeout = 30000;
+		/** 需要额外预热的地址 */
+		private List<String> urls = new ArrayList<String>();
+
+		public boolean isEnabled() {
+			return enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public long getDnsCacheTtl() {
+			return dnsCacheTtl;
+		}
+
+		public void setDnsCacheTtl(long dnsCacheTtl) {
+			this.dnsCacheTtl = dnsCacheTtl;
+		}
+
+		public int getConnectionsPerHost() {
+			return connectionsPerHost;
+		}
+
+		public void setConnectionsPerHost(int connectionsPerHost) {
+			this.connectionsPerHost = connectionsPerHost;
+		}
+
+		public int getConnectTimeout() {
+			return connectTimeout;
+		}
+
+		public void setConnectTimeout(int connectTimeout) {
+			this.connectTimeout = connectTimeout;
+		}
+
+		public int getReadTimeout() {
+			return readTimeout;
+		}
+
+		public void setReadTimeout(int readTimeout) {
+			this.readTimeout = readTimeout;
+		}
+
+		public long getTimeout() {
+			return timeout;
+		}
+
+		public void setTimeout(long timeout) {
+			this.timeout = timeout;
+		}
+
+		public List<String> getUrls() {
+			return urls;
+		}
+
+		public void setUrls(List<String> urls) {
+			this.urls = urls;
+		}
+
+	}
+
+	public enum TransportType {
+		HTTP_COMPONENTS, URL_CONNECTION
+	}
+
+	/**
+	 * 解析用户信息得到的 Profile：属性的转换方式、保留的属性与各 Provider 获取 Profile 的方式
+	 */
+	public static class Profile {
+
+		/** 是否延迟转换属性：登录时只保存原始值，首次读取属性时才转换 */
+		private boolean lazyConversion = false;
+		/** 各 Provider 保留的属性，键为 Provider 的 type；未配置的 Provider 保留全部属性，openid 始终保留 */
+		private Map<String, List<String>> attributes = new LinkedHashMap<String, List<String>>();
+		/** QQ 换取 Access Token 时一并获取 openid，省去一次 /oauth2.0/me 请求 */
+		private boolean qqFusedOpenId = false;
+		/** 新浪微博改用 users/show 获取 Profile，只保留 SinaAttributesDefinition 中定义的属性 */
+		private boolean sinaLightweight = false;
+		/** 会话复制时读取 Profile 允许的单个字符串最大字节数 */
+		private int maxStringLength = 1 << 20;
+		/** 会话复制时读取 Profile 允许的角色、权限与属性的最大个数 */
+		private int maxElements = 10000;
+
+		public boolean isLazyConversion() {
+			return lazyConversion;
+		}
+
+		public void setLazyConversion(boolean lazyConversion) {
+			this.lazyConversion = lazyConversion;
+		}
+
+		public Map<String, List<String>> getAttributes() {
+			return attributes;
+		}
+
+		public void setAttributes(Map<String, List<String>> attributes) {
+			this.attributes = attributes;
+		}
+
+		public boolean isQqFusedOpenId() {
+			return qqFusedOpenId;
+		}
+
+		public void setQqFusedOpenId(boolean qqFusedOpenId) {
+			this.qqFusedOpenId = qqFusedOpenId;
+		}
+
+		public boolean isSinaLightweight() {
+			return sinaLightweight;
+		}
+
+		public void setSinaLightweight(boolean sinaLightweight) {
+			this.sinaLightweight = sinaLightweight;
+		}
+
+		public int getMaxStringLength() {
+			return maxStringLength;
+		}
+
+		public void setMaxStringLength(int maxStringLength) {
+			this.maxStringLength = maxStringLength;
+		}
+
+		public int getMaxElements() {
+			return maxElements;
+		}
+
+		public void setMaxElements(int maxElements) {
+			this.maxElements = maxElements;
+		}
+
+	}
+
+	/**
+	 * 精简身份：会话与 RememberMe Cookie 中只保存认证服务器类型 + openid，完整的 Profile 从有界缓存或账号仓库加载
+	 */
+	public static class ThinPrincipal {
+
+		/** 是否启用；启用时容器中必须有实现了 getProfile 的 OauthPrincipalRepository */
+		private boolean enabled = false;
+		/** 缓存的 Profile 数量上限 */
+		private int cacheSize = 10000;
+		/** Profile 在缓存中的存活时间（毫秒），一般与会话超时时间一致 */
+		private long ttl = 1800000;
+
+		public boolean isEnabled() {
+			return enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public int getCacheSize() {
+			return cacheSize;
+		}
+
+		public void setCacheSize(int cacheSize) {
+			this.cacheSize = cacheSize;
+		}
+
+		public long getTtl() {
+			return ttl;
+		}
+
+		public void setTtl(long ttl) {
+			this.ttl = ttl;
+		}
+
+	}
+
+	/**
+	 * 异步登录：回调地址的 subject.login（code → token → 用户信息）在独立线程池中执行，不占用容器线程
+	 */
+	public static class AsyncLogin {
+
+		/** 是否启用；需要 Servlet 3 异步支持 */
+		private boolean enabled = false;
+		/** 登录超时时间（毫秒），超时后重定向到失败地址 */
+		private long timeout = 30000;
+		/** 线程池大小 */
+		private int poolSize = 32;
+		/** 等待队列长度，队列满时直接登录失败；使用虚拟线程时 poolSize + queueCapacity 为并发登录数上限 */
+		private int queueCapacity = 1000;
+		/** 是否使用虚拟线程（需要 JDK 21+），不支持时回退为有界线程池 */
+		private boolean virtualThreads = false;
+
+		public boolean isEnabled() {
+			return enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public long getTimeout() {
+			return timeout;
+		}
+
+		public void setTimeout(long timeout) {
+			this.timeout = timeout;
+		}
+
+		public int getPoolSize() {
+			return poolSize;
+		}
+
+		public void setPoolSize(int poolSize) {
+			this.poolSize = poolSize;
+		}
+
+		public int getQueueCapacity() {
+			return queueCapacity;
+		}
+
+		public void setQueueCapacity(int queueCapacity) {
+			this.queueCapacity = queueCapacity;
+		}
+
+		public boolean isVirtualThreads() {
+			return virtualThreads;
+		}
+
+		public void setVirtualThreads(boolean virtualThreads) {
+			this.virtualThreads = virtualThreads;
+		}
+
+	}
+
+}
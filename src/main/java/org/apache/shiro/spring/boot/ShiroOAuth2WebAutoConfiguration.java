@@ -1,11 +1,34 @@
 package org.apache.shiro.spring.boot;
 
+import java.util.List;
 import java.util.Map;
 
 import org.apache.commons.collections.MapUtils;
+import org.apache.oltu.oauth2.client.HttpClient;
+import org.apache.shiro.spring.boot.oauth.buji.scribe.http.HttpComponentsTransport;
+import org.apache.shiro.spring.boot.oauth.buji.scribe.http.OAuthTransport;
+import org.apache.shiro.spring.boot.oauth.buji.scribe.http.ResponseReader;
+import org.apache.shiro.spring.boot.oauth.buji.scribe.http.UrlConnectionTransport;
+import org.apache.shiro.spring.boot.oauth.buji.scribe.token.TokenRefreshListener;
+import org.apache.shiro.spring.boot.oauth.buji.scribe.token.TokenRefreshScheduler;
+import org.apache.shiro.spring.boot.oauth.cache.ExpiringMapCacheManager;
+import org.apache.shiro.spring.boot.oauth.cache.OAuth2TokenCache;
+import org.apache.shiro.spring.boot.oauth.metrics.MicrometerOAuth2Metrics;
+import org.apache.shiro.spring.boot.oauth.metrics.OAuth2Metrics;
+import org.apache.shiro.spring.boot.oauth.oltu.OltuOauth2BeanPostProcessor;
+import org.apache.shiro.spring.boot.oauth.oltu.client.PoolingHttpClient;
+import org.apache.shiro.spring.boot.oauth.principal.OAuthProfileResolver;
+import org.apache.shiro.spring.boot.oauth.principal.OauthPrincipalRepository;
+import org.apache.shiro.spring.boot.oauth.resilience.HedgedRetryPolicy;
+import org.apache.shiro.spring.boot.oauth.resilience.ProviderGuardRegistry;
+import org.apache.shiro.spring.boot.oauth.resilience.RetryBudget;
+import org.apache.shiro.spring.boot.oauth.warmup.CachingDnsResolver;
+import org.apache.shiro.spring.boot.oauth.warmup.IdpWarmup;
+import org.apache.shiro.spring.boot.oauth.warmup.WarmupHealthIndicator;
 import org.apache.shiro.spring.web.config.AbstractShiroWebConfiguration;
 import org.apache.shiro.spring.web.config.DefaultShiroFilterChainDefinition;
 import org.apache.shiro.spring.web.config.ShiroFilterChainDefinition;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.AutoConfigureBefore;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
@@ -16,6 +39,8 @@ import org.springframework.boot.context.properties.EnableConfigurationProperties
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import io.micrometer.core.instrument.MeterRegistry;
+
 @Configuration
 @AutoConfigureBefore( name = {
 	"org.apache.shiro.spring.config.web.autoconfigure.ShiroWebAutoConfiguration",  // shiro-spring-boot-web-starter
@@ -47,5 +72,236 @@ public class ShiroOAuth2WebAutoConfiguration extends AbstractShiroWebConfigurati
 		chainDefinition.addPathDefinition("/**", "authc");
 		return chainDefinition;
 	}
+	
+	/**
+	 * 过滤器未设置交换模板时使用 Oltu Realm 的模板，异步登录与同步登录共用同一套配置；
+	 * Oltu Realm 未设置 HttpClient 时注入共享的 oltuHttpClient
+	 */
+	@Bean
+	@ConditionalOnMissingBean
+	public static OltuOauth2BeanPostProcessor oltuOauth2BeanPostProcessor() {
+		return new OltuOauth2BeanPostProcessor();
+	}
+	
+	/**
+	 * 共享的连接池 HttpClient ：多个 Oltu Realm 实例以及 QQ、微信、新浪微博的传输层复用同一个 keep-alive 连接池
+	 */
+	@Bean(destroyMethod = "shutdown")
+	@ConditionalOnMissingBean
+	public HttpClient oltuHttpClient(ObjectProvider<CachingDnsResolver> dnsResolverProvider) {
+		return newPoolingHttpClient(dnsResolverProvider.getIfAvailable());
+	}
+	
+	private PoolingHttpClient newPoolingHttpClient(CachingDnsResolver dnsResolver) {
+		ShiroOAuth2Properties.Http http = properties.getHttp();
+		PoolingHttpClient httpClient = new PoolingHttpClient();
+		httpClient.setDnsResolver(dnsResolver);
+		httpClient.setMaxConnectionsPerRoute(http.getMaxConnectionsPerRoute());
+		httpClient.setMaxConnectionsTotal(http.getMaxConnectionsTotal());
+		httpClient.setConnectTimeout(http.getConnectTimeout());
+		httpClient.setReadTimeout(http.getReadTimeout());
+		httpClient.setConnectionRequestTimeout(http.getConnectionRequestTimeout());
+		httpClient.setMaxIdleTime(http.getMaxIdleTime());
+		return httpClient;
+	}
+	
+	/**
+	 * 认证服务器域名的 DNS 缓存 ：启动预热时解析，连接池在有效期内直接使用解析结果
+	 */
+	@Bean
+	@ConditionalOnMissingBean
+	@ConditionalOnProperty(prefix = ShiroOAuth2Properties.PREFIX + ".warmup", value = "enabled", havingValue = "true")
+	public CachingDnsResolver oauth2DnsResolver() {
+		CachingDnsResolver dnsResolver = new CachingDnsResolver();
+		dnsResolver.setTtl(properties.getWarmup().getDnsCacheTtl());
+		return dnsResolver;
+	}
+	
+	/**
+	 * 启动预热 ：应用就绪后解析认证服务器域名、预先建立连接并执行解析代码
+	 */
+	@Bean
+	@ConditionalOnMissingBean
+	@ConditionalOnProperty(prefix = ShiroOAuth2Properties.PREFIX + ".warmup", value = "enabled", havingValue = "true")
+	public IdpWarmup idpWarmup(ObjectProvider<CachingDnsResolver> dnsResolverProvider) {
+		ShiroOAuth2Properties.Warmup config = properties.getWarmup();
+		IdpWarmup warmup = new IdpWarmup();
+		warmup.setDnsResolver(dnsResolverProvider.getIfAvailable());
+		warmup.setConnectionsPerHost(config.getConnectionsPerHost());
+		warmup.setConnectTimeout(config.getConnectTimeout());
+		warmup.setReadTimeout(config.getReadTimeout());
+		warmup.setTimeout(config.getTimeout());
+		warmup.setUrls(config.getUrls());
+		return warmup;
+	}
+	
+	/**
+	 * 以 Access Token 为键的用户信息缓存 ：存活时间取自 expires_in，容量有界
+	 */
+	@Bean
+	@ConditionalOnMissingBean
+	@ConditionalOnProperty(prefix = ShiroOAuth2Properties.PREFIX + ".token-cache", value = "enabled", havingValue = "true")
+	public OAuth2TokenCache oauth2TokenCache() {
+		ShiroOAuth2Properties.TokenCache config = properties.getTokenCache();
+		OAuth2TokenCache tokenCache = new OAuth2TokenCache(new ExpiringMapCacheManager(config.getMaxSize(), 0));
+		tokenCache.setCacheName(config.getCacheName());
+		tokenCache.setDefaultExpiresIn(config.getDefaultExpiresIn());
+		tokenCache.setExpiresInSkew(config.getExpiresInSkew());
+		return tokenCache;
+	}
+	
+	/**
+	 * 认证服务器调用保护 ：每个认证服务器独立的舱壁与熔断器，认证服务器不可用时快速失败
+	 */
+	@Bean
+	@ConditionalOnMissingBean
+	@ConditionalOnProperty(prefix = ShiroOAuth2Properties.PREFIX + ".guard", value = "enabled", havingValue = "true")
+	public ProviderGuardRegistry providerGuardRegistry() {
+		ShiroOAuth2Properties.Guard config = properties.getGuard();
+		ProviderGuardRegistry registry = new ProviderGuardRegistry();
+		registry.setMaxConcurrentCalls(config.getMaxConcurrentCalls());
+		registry.setMaxWaitDuration(config.getMaxWaitDuration());
+		registry.setFailureThreshold(config.getFailureThreshold());
+		registry.setOpenDuration(config.getOpenDuration());
+		registry.setHalfOpenMaxCalls(config.getHalfOpenMaxCalls());
+		return registry;
+	}
+	
+	/**
+	 * 认证服务器响应体的读取 ：gzip 解压并限制响应体大小，所有 Provider 共用
+	 */
+	@Bean
+	@ConditionalOnMissingBean
+	public ResponseReader responseReader() {
+		ShiroOAuth2Properties.Response config = properties.getResponse();
+		ResponseReader reader = new ResponseReader();
+		reader.setGzipEnabled(config.isGzipEnabled());
+		reader.setMaxBodySize(config.getMaxBodySize());
+		return reader;
+	}
+	
+	/**
+	 * QQ、微信、新浪微博请求的传输层 ：默认复用 Oltu Realm 的 HttpComponents 连接池，代理与超时取自各 Provider
+	 */
+	@Bean
+	@ConditionalOnMissingBean
+	public OAuthTransport oauth2Transport(ObjectProvider<HttpClient> httpClientProvider,
+			ObjectProvider<CachingDnsResolver> dnsResolverProvider) {
+		ShiroOAuth2Properties.Http config = properties.getHttp();
+		if (config.getTransportType() == ShiroOAuth2Properties.TransportType.URL_CONNECTION) {
+			UrlConnectionTransport transport = new UrlConnectionTransport();
+			transport.setAsyncPoolSize(config.getAsyncPoolSize());
+			return transport;
+		}
+		HttpComponentsTransport transport = new HttpComponentsTransport();
+		HttpClient httpClient = httpClientProvider.getIfAvailable();
+		if (httpClient instanceof PoolingHttpClient) {
+			transport.setHttpClient((PoolingHttpClient) httpClient);
+		} else {
+			// 容器中的 HttpClient 不是连接池实现时，传输层单独创建连接池并在销毁时关闭
+			transport.setHttpClient(newPoolingHttpClient(dnsResolverProvider.getIfAvailable()));
+			transport.setHttpClientOwner(true);
+		}
+		transport.setAsyncPoolSize(config.getAsyncPoolSize());
+		return transport;
+	}
+	
+	/**
+	 * 幂等请求的对冲与重试 ：获取用户信息超过近期耗时分位仍未返回时发出对冲请求，失败时在全局重试额度内退避重试
+	 */
+	@Bean
+	@ConditionalOnMissingBean
+	@ConditionalOnProperty(prefix = ShiroOAuth2Properties.PREFIX + ".retry", value = "enabled", havingValue = "true")
+	public HedgedRetryPolicy hedgedRetryPolicy() {
+		ShiroOAuth2Properties.Retry config = properties.getRetry();
+		RetryBudget retryBudget = new RetryBudget();
+		retryBudget.setRatio(config.getBudgetRatio());
+		retryBudget.setMinRetriesPerSecond(config.getMinRetriesPerSecond());
+		HedgedRetryPolicy policy = new HedgedRetryPolicy();
+		policy.setMaxAttempts(config.getMaxAttempts());
+		policy.setInitialBackoff(config.getInitialBackoff());
+		policy.setMaxBackoff(config.getMaxBackoff());
+		policy.setHedgeEnabled(config.isHedgeEnabled());
+		policy.setHedgePercentile(config.getHedgePercentile());
+		policy.setHedgeDelay(config.getHedgeDelay());
+		policy.setMinHedgeDelay(config.getMinHedgeDelay());
+		policy.setPoolSize(config.getPoolSize());
+		policy.setRetryBudget(retryBudget);
+		return policy;
+	}
+	
+	/**
+	 * QQ、微信 Access Token 后台续期 ：刷新结果通知到容器中的 {@link TokenRefreshListener}
+	 */
+	@Bean
+	@ConditionalOnMissingBean
+	@ConditionalOnProperty(prefix = ShiroOAuth2Properties.PREFIX + ".token-refresh", value = "enabled", havingValue = "true")
+	public TokenRefreshScheduler tokenRefreshScheduler(ObjectProvider<List<TokenRefreshListener>> listenersProvider) {
+		ShiroOAuth2Properties.TokenRefresh config = properties.getTokenRefresh();
+		TokenRefreshScheduler scheduler = new TokenRefreshScheduler();
+		scheduler.setRefreshAhead(config.getRefreshAhead());
+		scheduler.setJitter(config.getJitter());
+		scheduler.setBatchSize(config.getBatchSize());
+		scheduler.setBatchInterval(config.getBatchInterval());
+		scheduler.setRetryDelay(config.getRetryDelay());
+		scheduler.setMaxEntries(config.getMaxEntries());
+		scheduler.setMaxLifetime(config.getMaxLifetime());
+		List<TokenRefreshListener> listeners = listenersProvider.getIfAvailable();
+		if (listeners != null) {
+			scheduler.setListeners(listeners);
+		}
+		return scheduler;
+	}
+	
+	/**
+	 * 精简身份模式下加载完整 Profile ：有界缓存未命中时查询容器中的 {@link OauthPrincipalRepository}；
+	 * 容器中没有实现了 getProfile 的仓库时拒绝启动，避免 Profile 过期后静默丢失
+	 */
+	@Bean
+	@ConditionalOnMissingBean
+	@ConditionalOnProperty(prefix = ShiroOAuth2Properties.PREFIX + ".thin-principal", value = "enabled", havingValue = "true")
+	public OAuthProfileResolver oauth2ProfileResolver(ObjectProvider<OauthPrincipalRepository> repositoryProvider) {
+		ShiroOAuth2Properties.ThinPrincipal config = properties.getThinPrincipal();
+		OAuthProfileResolver resolver = new OAuthProfileResolver(config.getCacheSize(), config.getTtl());
+		OauthPrincipalRepository repository = repositoryProvider.getIfUnique();
+		if (repository == null) {
+			throw new IllegalStateException(ShiroOAuth2Properties.PREFIX
+					+ ".thin-principal.enabled requires an OauthPrincipalRepository bean that implements getProfile(provider, openid)");
+		}
+		resolver.setRepository(repository);
+		return resolver;
+	}
+	
+	/**
+	 * OAuth 交换各阶段的耗时统计 ：存在 MeterRegistry 时记录到 Micrometer，否则不记录
+	 */
+	@Configuration
+	@ConditionalOnClass(name = "io.micrometer.core.instrument.MeterRegistry")
+	protected static class OAuth2MetricsConfiguration {
+
+		@Bean
+		@ConditionalOnMissingBean
+		public OAuth2Metrics oauth2Metrics(ObjectProvider<MeterRegistry> registryProvider) {
+			MeterRegistry registry = registryProvider.getIfAvailable();
+			return registry == null ? OAuth2Metrics.NOOP : new MicrometerOAuth2Metrics(registry);
+		}
+
+	}
+	
+	/**
+	 * 预热状态健康检查 ：存在 Actuator 时，预热结束前健康状态为 OUT_OF_SERVICE
+	 */
+	@Configuration
+	@ConditionalOnClass(name = "org.springframework.boot.actuate.health.HealthIndicator")
+	@ConditionalOnProperty(prefix = ShiroOAuth2Properties.PREFIX + ".warmup", value = "enabled", havingValue = "true")
+	protected static class WarmupHealthConfiguration {
+
+		@Bean
+		@ConditionalOnMissingBean(name = "oauth2WarmupHealthIndicator")
+		public WarmupHealthIndicator oauth2WarmupHealthIndicator(IdpWarmup warmup) {
+			return new WarmupHealthIndicator(warmup);
+		}
+
+	}
 
 }
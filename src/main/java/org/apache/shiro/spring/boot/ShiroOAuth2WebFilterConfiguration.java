@@ -18,6 +18,26 @@ import org.apache.shiro.biz.web.filter.authc.LogoutListener;
 import org.apache.shiro.cache.CacheManager;
 import org.apache.shiro.realm.Realm;
 import org.apache.shiro.spring.boot.oauth.ShiroOAuth2FilterFactoryBean;
+import org.apache.shiro.spring.boot.oauth.buji.filter.AsyncOAuthFilter;
+import org.apache.shiro.spring.boot.oauth.buji.realm.ThinPrincipalOAuthRealm;
+import org.apache.shiro.spring.boot.oauth.buji.scribe.http.OAuthTransport;
+import org.apache.shiro.spring.boot.oauth.buji.scribe.http.ResponseReader;
+import org.apache.shiro.spring.boot.oauth.buji.scribe.profile.CompactOAuthProfile;
+import org.apache.shiro.spring.boot.oauth.buji.scribe.provider.AbstractOAuth20Provider;
+import org.apache.shiro.spring.boot.oauth.buji.scribe.provider.QQProvider;
+import org.apache.shiro.spring.boot.oauth.buji.scribe.provider.SinaWeiboProvider;
+import org.apache.shiro.spring.boot.oauth.buji.scribe.token.TokenRefreshCleanupListener;
+import org.apache.shiro.spring.boot.oauth.buji.scribe.token.TokenRefreshScheduler;
+import org.apache.shiro.spring.boot.oauth.cache.OAuth2TokenCache;
+import org.apache.shiro.spring.boot.oauth.metrics.OAuth2Metrics;
+import org.apache.shiro.spring.boot.oauth.principal.CachingOauthPrincipalBinder;
+import org.apache.shiro.spring.boot.oauth.principal.OAuthProfileResolver;
+import org.apache.shiro.spring.boot.oauth.principal.OAuthSubjectListener;
+import org.apache.shiro.spring.boot.oauth.principal.OAuthSubjectListenerRegistrar;
+import org.apache.shiro.spring.boot.oauth.principal.OauthPrincipalBinder;
+import org.apache.shiro.spring.boot.oauth.principal.ProfileResolverCleanupListener;
+import org.apache.shiro.spring.boot.oauth.resilience.HedgedRetryPolicy;
+import org.apache.shiro.spring.boot.oauth.resilience.ProviderGuardRegistry;
 import org.apache.shiro.spring.web.ShiroFilterFactoryBean;
 import org.apache.shiro.spring.web.config.AbstractShiroWebFilterConfiguration;
 import org.apache.shiro.web.servlet.AbstractShiroFilter;
@@ -26,6 +46,7 @@ import org.scribe.up.provider.ProvidersDefinition;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.AutoConfigureBefore;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
@@ -255,7 +276,19 @@ public class ShiroOAuth2WebFilterConfiguration extends AbstractShiroWebFilterCon
 		FilterRegistrationBean registration = new FilterRegistrationBean(); 
 		OAuthFilter oauthFilter = new OAuthFilter();
 		//oauthFilter.setFailureUrl(properties.getFailureUrl());
-		registration.setFilter(oauthFilter);
+		ShiroOAuth2Properties.AsyncLogin asyncLogin = properties.getAsyncLogin();
+		if (asyncLogin.isEnabled()) {
+			// scribe 提供者在 Realm 中同步访问认证服务器，异步登录时由独立线程池执行 subject.login
+			AsyncOAuthFilter asyncFilter = new AsyncOAuthFilter();
+			asyncFilter.setDelegate(oauthFilter);
+			asyncFilter.setAsyncTimeout(asyncLogin.getTimeout());
+			asyncFilter.setAsyncPoolSize(asyncLogin.getPoolSize());
+			asyncFilter.setAsyncQueueCapacity(asyncLogin.getQueueCapacity());
+			asyncFilter.setAsyncVirtualThreads(asyncLogin.isVirtualThreads());
+			registration.setFilter(asyncFilter);
+		} else {
+			registration.setFilter(oauthFilter);
+		}
 	    registration.setEnabled(false); 
 	    return registration;
 	}
@@ -271,7 +304,79 @@ public class ShiroOAuth2WebFilterConfiguration extends AbstractShiroWebFilterCon
 	}
 	
 	@Bean
-	public ProvidersDefinition providersDefinition(List<OAuthProvider> providers) {
+	public ProvidersDefinition providersDefinition(List<OAuthProvider> providers,
+			ObjectProvider<OAuth2TokenCache> tokenCacheProvider, ObjectProvider<OAuth2Metrics> metricsProvider,
+			ObjectProvider<ProviderGuardRegistry> guardRegistryProvider,
+			ObjectProvider<TokenRefreshScheduler> refreshSchedulerProvider,
+			ObjectProvider<OauthPrincipalBinder> principalBinderProvider,
+			ObjectProvider<HedgedRetryPolicy> retryPolicyProvider,
+			ObjectProvider<ResponseReader> responseReaderProvider,
+			ObjectProvider<OAuthTransport> transportProvider) {
+		
+		OAuth2TokenCache tokenCache = tokenCacheProvider.getIfAvailable();
+		OAuth2Metrics metrics = metricsProvider.getIfAvailable();
+		ProviderGuardRegistry guardRegistry = guardRegistryProvider.getIfAvailable();
+		TokenRefreshScheduler refreshScheduler = refreshSchedulerProvider.getIfAvailable();
+		HedgedRetryPolicy retryPolicy = retryPolicyProvider.getIfAvailable();
+		ResponseReader responseReader = responseReaderProvider.getIfAvailable();
+		OAuthTransport transport = transportProvider.getIfAvailable();
+		OauthPrincipalBinder principalBinder = principalBinder(principalBinderProvider.getIfUnique());
+		//会话复制时读取 Profile 的长度限制：在反序列化中生效，只能全局设置
+		CompactOAuthProfile.setMaxStringLength(properties.getProfile().getMaxStringLength());
+		CompactOAuthProfile.setMaxElements(properties.getProfile().getMaxElements());
+		for (OAuthProvider provider : providers) {
+			if (provider instanceof AbstractOAuth20Provider) {
+				AbstractOAuth20Provider oauth20Provider = (AbstractOAuth20Provider) provider;
+				//用户信息缓存：未单独指定时使用共享的缓存
+				if (oauth20Provider.getTokenCache() == null) {
+					oauth20Provider.setTokenCache(tokenCache);
+				}
+				//各阶段耗时统计：未单独指定时使用共享的实现
+				if (metrics != null && oauth20Provider.getMetrics() == OAuth2Metrics.NOOP) {
+					oauth20Provider.setMetrics(metrics);
+				}
+				//舱壁与熔断器：每个 Provider 使用独立的实例
+				if (guardRegistry != null && oauth20Provider.getGuard() == null) {
+					oauth20Provider.setGuard(guardRegistry.getGuard(oauth20Provider.getType()));
+				}
+				//获取用户信息的对冲与重试：共享同一个全局重试额度
+				if (oauth20Provider.getRetryPolicy() == null) {
+					oauth20Provider.setRetryPolicy(retryPolicy);
+				}
+				//响应体读取：统一使用配置的 gzip 与大小限制
+				if (responseReader != null) {
+					oauth20Provider.setResponseReader(responseReader);
+				}
+				//传输层：所有 Provider 共享同一个连接池，代理与超时仍按各自的配置
+				if (transport != null) {
+					oauth20Provider.setTransport(transport);
+				}
+				//Profile 属性延迟转换
+				if (properties.getProfile().isLazyConversion()) {
+					oauth20Provider.setLazyProfile(true);
+				}
+				//Profile 保留的属性：未单独指定时使用按 type 配置的列表
+				if (oauth20Provider.getAllowedAttributes() == null) {
+					oauth20Provider.setAllowedAttributes(properties.getProfile().getAttributes().get(oauth20Provider.getType()));
+				}
+				//QQ 换取 Access Token 时一并获取 openid
+				if (properties.getProfile().isQqFusedOpenId() && oauth20Provider instanceof QQProvider) {
+					((QQProvider) oauth20Provider).setFusedOpenId(true);
+				}
+				//新浪微博轻量模式
+				if (properties.getProfile().isSinaLightweight() && oauth20Provider instanceof SinaWeiboProvider) {
+					((SinaWeiboProvider) oauth20Provider).setLightweight(true);
+				}
+				//Access Token 后台续期：未单独指定时使用共享的调度器
+				if (oauth20Provider.getRefreshScheduler() == null) {
+					oauth20Provider.setRefreshScheduler(refreshScheduler);
+				}
+				//账号绑定：所有 Provider 共享同一个带缓存的绑定关系查询
+				if (oauth20Provider.getPrincipalBinder() == null) {
+					oauth20Provider.setPrincipalBinder(principalBinder);
+				}
+			}
+		}
 		
 		ProvidersDefinition definition = new ProvidersDefinition();
 		
@@ -282,6 +387,53 @@ public class ShiroOAuth2WebFilterConfiguration extends AbstractShiroWebFilterCon
 		return definition;
 	}
 	
+	/**
+	 * 用户注销或会话过期时取消 Token 续期
+	 */
+	@Bean
+	@ConditionalOnMissingBean
+	@ConditionalOnProperty(prefix = ShiroOAuth2Properties.PREFIX + ".token-refresh", value = "enabled", havingValue = "true")
+	public TokenRefreshCleanupListener tokenRefreshCleanupListener(TokenRefreshScheduler refreshScheduler,
+			List<OAuthProvider> providers) {
+		return new TokenRefreshCleanupListener(refreshScheduler, providers);
+	}
+	
+	/**
+	 * 精简身份模式下，用户注销或会话过期时移除缓存的 Profile
+	 */
+	@Bean
+	@ConditionalOnMissingBean
+	@ConditionalOnProperty(prefix = ShiroOAuth2Properties.PREFIX + ".thin-principal", value = "enabled", havingValue = "true")
+	public ProfileResolverCleanupListener profileResolverCleanupListener(OAuthProfileResolver profileResolver,
+			List<OAuthProvider> providers) {
+		return new ProfileResolverCleanupListener(profileResolver, providers);
+	}
+	
+	/**
+	 * 把第三方账号的会话结束监听注册到 SecurityManager
+	 */
+	@Bean
+	@ConditionalOnMissingBean
+	public OAuthSubjectListenerRegistrar oauthSubjectListenerRegistrar(
+			ObjectProvider<org.apache.shiro.mgt.SecurityManager> securityManagerProvider,
+			ObjectProvider<List<OAuthSubjectListener>> listenersProvider) {
+		return new OAuthSubjectListenerRegistrar(securityManagerProvider, listenersProvider.getIfAvailable());
+	}
+	
+	/**
+	 * 按配置为绑定关系查询加上缓存
+	 */
+	protected OauthPrincipalBinder principalBinder(OauthPrincipalBinder binder) {
+		ShiroOAuth2Properties.PrincipalBinding config = properties.getPrincipalBinding();
+		if (binder == null || binder instanceof CachingOauthPrincipalBinder || !config.isCacheEnabled()) {
+			return binder;
+		}
+		CachingOauthPrincipalBinder cachingBinder = new CachingOauthPrincipalBinder(binder, config.getMaxSize());
+		cachingBinder.setTtl(config.getTtl());
+		cachingBinder.setNegativeTtl(config.getNegativeTtl());
+		return cachingBinder;
+	}
+	
 	@Bean
 	@ConditionalOnMissingBean
 	public PermissionResolver permissionResolver() {
@@ -296,9 +448,19 @@ public class ShiroOAuth2WebFilterConfiguration extends AbstractShiroWebFilterCon
 	
 	@Bean
 	public Realm oauthRealm(CacheManager cacheManager, PermissionResolver permissionResolver,
-			ProvidersDefinition providersDefinition, RolePermissionResolver permissionRoleResolver) {
+			ProvidersDefinition providersDefinition, RolePermissionResolver permissionRoleResolver,
+			ObjectProvider<OAuthProfileResolver> profileResolverProvider) {
 		
-		OAuthRealm oauthRealm = new OAuthRealm();
+		//精简身份：会话中只保存认证服务器类型 + openid，完整的 Profile 按需加载
+		OAuthProfileResolver profileResolver = profileResolverProvider.getIfAvailable();
+		OAuthRealm oauthRealm;
+		if (profileResolver != null) {
+			ThinPrincipalOAuthRealm thinRealm = new ThinPrincipalOAuthRealm();
+			thinRealm.setProfileResolver(profileResolver);
+			oauthRealm = thinRealm;
+		} else {
+			oauthRealm = new OAuthRealm();
+		}
 		
 		//认证缓存配置
 		oauthRealm.setAuthenticationCachingEnabled(properties.isAuthenticationCachingEnabled());
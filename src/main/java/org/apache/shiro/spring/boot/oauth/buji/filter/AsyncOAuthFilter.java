@@ -0,0 +1,272 @@
+/*
+ * Copyright (c) 2017, vindell (https://github.com/vindell).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.oauth.buji.filter;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+
+import org.apache.shiro.authc.AuthenticationException;
+import org.apache.shiro.authc.AuthenticationToken;
+import org.apache.shiro.spring.boot.oauth.concurrent.IdpExecutors;
+import org.apache.shiro.spring.boot.oauth.exception.OAuth2AuthenticationException;
+import org.apache.shiro.subject.Subject;
+import org.apache.shiro.web.filter.authc.AuthenticatingFilter;
+import org.apache.shiro.web.util.WebUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.buji.oauth.OAuthFilter;
+
+/**
+ * buji 回调地址的异步登录过滤器
+ * <p>scribe 提供者在 Realm 中同步完成 code → token → 用户信息的交换，使用 buji 的 OAuthFilter 时会一直占用容器线程。
+ * 本过滤器仍由 OAuthFilter 从回调请求中解析凭证，但 subject.login 放到独立的有界线程池中执行，
+ * 启动 AsyncContext 后立即归还容器线程（需要 Servlet 3 异步支持，不支持时回退为同步登录）。</p>
+ * @author 		： <a href="https://github.com/vindell">vindell</a>
+ */
+public class AsyncOAuthFilter extends AuthenticatingFilter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AsyncOAuthFilter.class);
+
+    private static final Method CREATE_TOKEN;
+
+    static {
+        try {
+            CREATE_TOKEN = AuthenticatingFilter.class.getDeclaredMethod("createToken", ServletRequest.class, ServletResponse.class);
+            CREATE_TOKEN.setAccessible(true);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    //负责从回调请求中解析凭证的 buji 过滤器，需与 Realm 使用相同的提供者配置
+    private AuthenticatingFilter delegate = new OAuthFilter();
+
+    private String failureUrl;
+
+    //异步登录超时时间（毫秒），超时后重定向到失败地址
+    private long asyncTimeout = 30000;
+    //异步登录线程池大小
+    private int asyncPoolSize = 32;
+    //异步登录等待队列长度，队列满时直接登录失败而不是阻塞容器线程
+    private int asyncQueueCapacity = 1000;
+    //异步登录使用虚拟线程执行阻塞的认证服务器调用（需要 JDK 21+），不支持时回退为上面的有界线程池
+    private boolean asyncVirtualThreads = false;
+    private ExecutorService executor;
+    private boolean executorOwner = false;
+
+    public void setDelegate(AuthenticatingFilter delegate) {
+        this.delegate = delegate;
+    }
+
+    public void setFailureUrl(String failureUrl) {
+        this.failureUrl = failureUrl;
+    }
+
+    public void setAsyncTimeout(long asyncTimeout) {
+        this.asyncTimeout = asyncTimeout;
+    }
+
+    public void setAsyncPoolSize(int asyncPoolSize) {
+        this.asyncPoolSize = asyncPoolSize;
+    }
+
+    public void setAsyncQueueCapacity(int asyncQueueCapacity) {
+        this.asyncQueueCapacity = asyncQueueCapacity;
+    }
+
+    public void setAsyncVirtualThreads(boolean asyncVirtualThreads) {
+        this.asyncVirtualThreads = asyncVirtualThreads;
+    }
+
+    /**
+     * 设置异步登录使用的线程池；外部传入的线程池由调用方负责关闭
+     */
+    public void setExecutor(ExecutorService executor) {
+        this.executor = executor;
+        this.executorOwner = false;
+    }
+
+    protected synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = IdpExecutors.newExecutor(asyncVirtualThreads, "buji-oauth2-login-", asyncPoolSize, asyncQueueCapacity);
+            executorOwner = true;
+        }
+        return executor;
+    }
+
+    @Override
+    protected AuthenticationToken createToken(ServletRequest request, ServletResponse response) throws Exception {
+        try {
+            return (AuthenticationToken) CREATE_TOKEN.invoke(delegate, request, response);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : e;
+        }
+    }
+
+    @Override
+    protected boolean isAccessAllowed(ServletRequest request, ServletResponse response, Object mappedValue) {
+        return false;
+    }
+
+    @Override
+    protected boolean onAccessDenied(ServletRequest request, ServletResponse response) throws Exception {
+        if (request.isAsyncSupported()) {
+            return executeAsyncLogin(request, response);
+        }
+        return executeLogin(request, response);
+    }
+
+    /**
+     * 异步登录：凭证在容器线程中解析（不访问认证服务器），subject.login 在独立线程池中执行，
+     * 完成后在原 Subject 上重定向。
+     */
+    protected boolean executeAsyncLogin(final ServletRequest request, final ServletResponse response) throws Exception {
+
+        final AuthenticationToken token = createToken(request, response);
+        if (token == null) {
+            throw new IllegalStateException("createToken method implementation returned null. A valid non-null AuthenticationToken "
+                    + "must be created in order to execute a login attempt.");
+        }
+        final Subject subject = getSubject(request, response);
+        final AsyncContext asyncContext = request.startAsync(request, response);
+        final AtomicBoolean finished = new AtomicBoolean(false);
+
+        asyncContext.setTimeout(asyncTimeout);
+        asyncContext.addListener(new AsyncListener() {
+
+            @Override
+            public void onTimeout(AsyncEvent event) throws IOException {
+                if (finished.compareAndSet(false, true)) {
+                    final AuthenticationException ae = new AuthenticationException("OAuth login timed out after " + asyncTimeout + " ms");
+                    try {
+                        subject.execute(() -> { onLoginFailure(token, ae, request, response); });
+                    } finally {
+                        asyncContext.complete();
+                    }
+                }
+            }
+
+            @Override
+            public void onError(AsyncEvent event) throws IOException {
+                finished.set(true);
+            }
+
+            @Override
+            public void onComplete(AsyncEvent event) throws IOException {
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) throws IOException {
+            }
+
+        });
+
+        try {
+            getExecutor().execute(() -> {
+                if (finished.get()) {
+                    return;
+                }
+                try {
+                    // 在原 Subject 上下文中登录：SavedRequest 等依赖线程绑定的 Subject
+                    subject.execute(() -> completeLogin(token, subject, finished, asyncContext, request, response));
+                } catch (Throwable e) {
+                    if (finished.compareAndSet(false, true)) {
+                        LOG.error("Failed to run asynchronous OAuth login", e);
+                        asyncContext.complete();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            if (finished.compareAndSet(false, true)) {
+                onLoginFailure(token, new OAuth2AuthenticationException(e), request, response);
+                asyncContext.complete();
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 登录后再抢占完成标记：超时已先行重定向到失败地址时撤销这次登录
+     */
+    protected void completeLogin(AuthenticationToken token, Subject subject, AtomicBoolean finished,
+                                 AsyncContext asyncContext, ServletRequest request, ServletResponse response) {
+        AuthenticationException failure = null;
+        try {
+            subject.login(token);
+        } catch (AuthenticationException e) {
+            failure = e;
+        } catch (Throwable e) {
+            failure = new OAuth2AuthenticationException(e);
+        }
+        if (!finished.compareAndSet(false, true)) {
+            if (failure == null) {
+                subject.logout();
+            }
+            return;
+        }
+        try {
+            if (failure == null) {
+                onLoginSuccess(token, subject, request, response);
+            } else {
+                onLoginFailure(token, failure, request, response);
+            }
+        } catch (Throwable e) {
+            LOG.error("Failed to complete asynchronous OAuth login", e);
+        } finally {
+            asyncContext.complete();
+        }
+    }
+
+    @Override
+    protected boolean onLoginSuccess(AuthenticationToken token, Subject subject, ServletRequest request,
+                                     ServletResponse response) throws Exception {
+        issueSuccessRedirect(request, response);
+        return false;
+    }
+
+    @Override
+    protected boolean onLoginFailure(AuthenticationToken token, AuthenticationException ae, ServletRequest request,
+                                     ServletResponse response) {
+        LOG.debug("OAuth login failed : {}", ae.getMessage());
+        try {
+            WebUtils.issueRedirect(request, response, failureUrl);
+        } catch (IOException e) {
+            LOG.error("Failed to redirect to failure url", e);
+        }
+        return false;
+    }
+
+    @Override
+    public void destroy() {
+        if (executorOwner && executor != null) {
+            executor.shutdown();
+        }
+        super.destroy();
+    }
+
+}
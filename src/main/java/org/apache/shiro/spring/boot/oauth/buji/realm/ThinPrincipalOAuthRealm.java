@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2017, vindell (https://github.com/vindell).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.oauth.buji.realm;
+
+import org.apache.shiro.authc.AuthenticationException;
+import org.apache.shiro.authc.AuthenticationInfo;
+import org.apache.shiro.authc.AuthenticationToken;
+import org.apache.shiro.authc.SimpleAuthenticationInfo;
+import org.apache.shiro.spring.boot.oauth.principal.OAuthPrincipal;
+import org.apache.shiro.spring.boot.oauth.principal.OAuthProfileResolver;
+import org.apache.shiro.subject.PrincipalCollection;
+import org.apache.shiro.subject.SimplePrincipalCollection;
+import org.scribe.up.credential.OAuthCredential;
+import org.scribe.up.profile.UserProfile;
+
+import io.buji.oauth.OAuthRealm;
+
+/**
+ * 精简身份的 {@link OAuthRealm}：身份集合中的完整 Profile 替换为 {@link OAuthPrincipal}（认证服务器类型 + openid）
+ * <p>会话与 RememberMe Cookie 中只保存精简身份，完整的 Profile 放入 {@link OAuthProfileResolver} 的有界缓存，
+ * 需要时通过 {@link OAuthProfileResolver#resolve(PrincipalCollection)} 加载；缓存未命中时从仓库加载，因此初始化时要求解析器配置了仓库。
+ * Profile 中没有 openid 时认证失败。</p>
+ */
+public class ThinPrincipalOAuthRealm extends OAuthRealm {
+
+    private OAuthProfileResolver profileResolver = new OAuthProfileResolver();
+
+    @Override
+    protected AuthenticationInfo doGetAuthenticationInfo(AuthenticationToken token) throws AuthenticationException {
+        AuthenticationInfo info = super.doGetAuthenticationInfo(token);
+        if (info == null || !(token.getCredentials() instanceof OAuthCredential)) {
+            return info;
+        }
+        String provider = ((OAuthCredential) token.getCredentials()).getProviderType();
+        SimplePrincipalCollection principals = new SimplePrincipalCollection();
+        for (Object principal : info.getPrincipals().asList()) {
+            if (principal instanceof UserProfile) {
+                UserProfile profile = (UserProfile) principal;
+                OAuthPrincipal oauthPrincipal = OAuthPrincipal.of(provider, profile);
+                if (oauthPrincipal == null) {
+                    //没有 openid 的 Profile 无法精简，也无法从仓库重新加载
+                    throw new AuthenticationException("No openid in profile returned by provider : " + provider);
+                }
+                profileResolver.put(oauthPrincipal, profile);
+                principals.add(oauthPrincipal, getName());
+            } else {
+                principals.add(principal, getName());
+            }
+        }
+        return new SimpleAuthenticationInfo(principals, info.getCredentials());
+    }
+
+    /**
+     * 缓存淘汰或过期后只能从仓库重新加载 Profile，没有可用的仓库时拒绝启用
+     */
+    @Override
+    protected void onInit() {
+        super.onInit();
+        if (profileResolver == null || profileResolver.getRepository() == null) {
+            throw new IllegalStateException("ThinPrincipalOAuthRealm requires an OAuthProfileResolver backed by an "
+                    + "OauthPrincipalRepository that implements getProfile(provider, openid)");
+        }
+    }
+
+    public OAuthProfileResolver getProfileResolver() {
+        return profileResolver;
+    }
+
+    public void setProfileResolver(OAuthProfileResolver profileResolver) {
+        this.profileResolver = profileResolver;
+    }
+
+}
@@ -23,5 +23,11 @@ public class OAuth2Constants {
 	public static final String OPENID = "openid";
 	public static final String OAUTH_CONSUMER_KEY = "oauth_consumer_key";
 	public static final String GRANT_TYPE = "grant_type";
+	public static final String REFRESH_TOKEN = "refresh_token";
 	public static final String RESPONSE_TYPE = "response_type";
+	public static final String NEED_OPENID = "need_openid";
+	public static final String FMT = "fmt";
+	
+	//第三方账号绑定的本地用户名，保存在 Profile 属性中
+	public static final String BOUND_USERNAME = "bound_username";
 }
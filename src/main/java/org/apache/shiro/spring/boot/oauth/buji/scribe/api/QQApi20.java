@@ -1,6 +1,8 @@
 package org.apache.shiro.spring.boot.oauth.buji.scribe.api;
 
+import org.apache.shiro.spring.boot.oauth.buji.scribe.profile.qq.QQTokenExtractor;
 import org.scribe.builder.api.DefaultApi20;
+import org.scribe.extractors.AccessTokenExtractor;
 import org.scribe.model.OAuthConfig;
 import org.scribe.model.Verb;
 import org.scribe.utils.OAuthEncoder;
@@ -13,6 +15,21 @@ public class QQApi20 extends DefaultApi20 {
 	private static final String AUTHORIZE_URL = "https://graph.qq.com/oauth2.0/authorize?client_id=%s&redirect_uri=%s&scope=%s&response_type=code&state=test";
 	private static final String ACCESS_TOKEN_URL = "https://graph.qq.com/oauth2.0/token";
 	private static final String SCOPED_AUTHORIZE_URL = AUTHORIZE_URL + "&scope=%s";
+	
+	// 换取Access Token时同时返回openid（need_openid=1&fmt=json），省去一次 /oauth2.0/me 请求
+	private final boolean fusedOpenId;
+	
+	public QQApi20() {
+		this(true);
+	}
+	
+	public QQApi20(boolean fusedOpenId) {
+		this.fusedOpenId = fusedOpenId;
+	}
+	
+	public boolean isFusedOpenId() {
+		return fusedOpenId;
+	}
 
 	@Override
 	public Verb getAccessTokenVerb() {
@@ -23,6 +40,11 @@ public class QQApi20 extends DefaultApi20 {
 	public String getAccessTokenEndpoint() {
 		return ACCESS_TOKEN_URL;
 	}
+	
+	@Override
+	public AccessTokenExtractor getAccessTokenExtractor() {
+		return new QQTokenExtractor();
+	}
 
 	
 	@Override
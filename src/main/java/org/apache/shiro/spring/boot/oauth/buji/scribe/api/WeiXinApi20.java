@@ -1,9 +1,9 @@
 package org.apache.shiro.spring.boot.oauth.buji.scribe.api;
 
+import org.apache.shiro.spring.boot.oauth.buji.scribe.profile.weixin.WeiXinJsonTokenExtractor;
 import org.apache.shiro.spring.boot.oauth.buji.scribe.profile.weixin.WeiXinOAuth20ServiceImpl;
 import org.scribe.builder.api.DefaultApi20;
 import org.scribe.extractors.AccessTokenExtractor;
-import org.scribe.extractors.JsonTokenExtractor;
 import org.scribe.model.OAuthConfig;
 import org.scribe.model.Verb;
 import org.scribe.oauth.OAuthService;
@@ -42,7 +42,7 @@ public class WeiXinApi20 extends DefaultApi20 {
     
     @Override
 	public AccessTokenExtractor getAccessTokenExtractor() {
-		return new JsonTokenExtractor();
+		return new WeiXinJsonTokenExtractor();
 	}
 
 }
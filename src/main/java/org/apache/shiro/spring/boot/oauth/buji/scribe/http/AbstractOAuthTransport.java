@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2017, vindell (https://github.com/vindell).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.oauth.buji.scribe.http;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+
+import org.apache.shiro.spring.boot.oauth.concurrent.IdpExecutors;
+import org.apache.shiro.util.Destroyable;
+import org.scribe.model.OAuthRequest;
+import org.scribe.model.Verb;
+
+/**
+ * {@link OAuthTransport} 的公共父类：异步请求在有界线程池中执行同步请求，线程池满时返回以 RejectedExecutionException 失败的 Future
+ * @author 		： <a href="https://github.com/vindell">vindell</a>
+ */
+public abstract class AbstractOAuthTransport implements OAuthTransport, Destroyable {
+
+	protected static final String CONTENT_TYPE = "Content-Type";
+	protected static final String DEFAULT_CONTENT_TYPE = "application/x-www-form-urlencoded";
+
+	//执行异步请求的线程数
+	private int asyncPoolSize = 16;
+	//异步请求的等待队列长度
+	private int asyncQueueCapacity = 256;
+	private volatile ExecutorService executor;
+
+	@Override
+	public CompletableFuture<TransportResponse> executeAsync(final OAuthRequest request, final TransportOptions options) {
+		try {
+			return CompletableFuture.supplyAsync(() -> {
+				try {
+					return execute(request, options);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}, getExecutor());
+		} catch (RuntimeException e) {
+			CompletableFuture<TransportResponse> future = new CompletableFuture<TransportResponse>();
+			future.completeExceptionally(e);
+			return future;
+		}
+	}
+
+	/**
+	 * 请求是否携带请求体（POST、PUT）
+	 */
+	protected static boolean hasBody(OAuthRequest request) {
+		return request.getVerb() == Verb.POST || request.getVerb() == Verb.PUT;
+	}
+
+	protected ExecutorService getExecutor() {
+		if (executor == null) {
+			synchronized (this) {
+				if (executor == null) {
+					executor = IdpExecutors.newBoundedExecutor("oauth2-transport-", asyncPoolSize, asyncQueueCapacity);
+				}
+			}
+		}
+		return executor;
+	}
+
+	@Override
+	public synchronized void destroy() throws Exception {
+		if (executor != null) {
+			executor.shutdownNow();
+			executor = null;
+		}
+	}
+
+	public int getAsyncPoolSize() {
+		return asyncPoolSize;
+	}
+
+	public void setAsyncPoolSize(int asyncPoolSize) {
+		this.asyncPoolSize = asyncPoolSize;
+	}
+
+	public int getAsyncQueueCapacity() {
+		return asyncQueueCapacity;
+	}
+
+	public void setAsyncQueueCapacity(int asyncQueueCapacity) {
+		this.asyncQueueCapacity = asyncQueueCapacity;
+	}
+
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2017, vindell (https://github.com/vindell).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.oauth.buji.scribe.http;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHost;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.RequestBuilder;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.shiro.spring.boot.oauth.oltu.client.PoolingHttpClient;
+import org.scribe.model.OAuthRequest;
+
+/**
+ * 基于 HttpComponents 连接池的传输层：与 Oltu Realm 共用 {@link PoolingHttpClient} 连接池
+ * @author 		： <a href="https://github.com/vindell">vindell</a>
+ */
+public class HttpComponentsTransport extends AbstractOAuthTransport {
+
+	/** 共享的连接池，为空时创建一个默认配置的连接池 */
+	private PoolingHttpClient httpClient;
+	private boolean httpClientOwner = false;
+
+	@Override
+	public TransportResponse execute(OAuthRequest request, TransportOptions options) throws IOException {
+		PoolingHttpClient pool = getHttpClient();
+		RequestConfig.Builder config = RequestConfig.custom()
+				.setConnectTimeout(options.getConnectTimeout() > 0 ? options.getConnectTimeout() : pool.getConnectTimeout())
+				.setSocketTimeout(options.getReadTimeout() > 0 ? options.getReadTimeout() : pool.getReadTimeout())
+				.setConnectionRequestTimeout(pool.getConnectionRequestTimeout());
+		if (options.hasProxy()) {
+			config.setProxy(new HttpHost(options.getProxyHost(), options.getProxyPort()));
+		}
+		RequestBuilder builder = RequestBuilder.create(request.getVerb().name())
+				.setUri(request.getCompleteUrl())
+				.setConfig(config.build());
+		for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+			builder.addHeader(header.getKey(), header.getValue());
+		}
+		if (hasBody(request)) {
+			String contentType = request.getHeaders().get(CONTENT_TYPE);
+			Charset charset = Charset.forName(request.getCharset());
+			builder.setEntity(new ByteArrayEntity(request.getBodyContents().getBytes(charset),
+					contentType == null ? ContentType.create(DEFAULT_CONTENT_TYPE, charset) : null));
+		}
+
+		CloseableHttpResponse response = pool.getHttpClient().execute(builder.build());
+		Map<String, String> headers = new HashMap<String, String>();
+		for (Header header : response.getAllHeaders()) {
+			headers.put(header.getName(), header.getValue());
+		}
+		HttpEntity entity = response.getEntity();
+		try {
+			return new TransportResponse(response.getStatusLine().getStatusCode(), headers,
+					entity == null ? null : entity.getContent(), response);
+		} catch (IOException | RuntimeException e) {
+			response.close();
+			throw e;
+		}
+	}
+
+	protected synchronized PoolingHttpClient getHttpClient() {
+		if (httpClient == null) {
+			httpClient = new PoolingHttpClient();
+			httpClientOwner = true;
+		}
+		return httpClient;
+	}
+
+	/**
+	 * 设置共享的连接池；外部传入的连接池由调用方负责关闭
+	 */
+	public synchronized void setHttpClient(PoolingHttpClient httpClient) {
+		this.httpClient = httpClient;
+		this.httpClientOwner = false;
+	}
+
+	/**
+	 * 传输层销毁时是否关闭连接池
+	 */
+	public synchronized void setHttpClientOwner(boolean httpClientOwner) {
+		this.httpClientOwner = httpClientOwner;
+	}
+
+	@Override
+	public synchronized void destroy() throws Exception {
+		super.destroy();
+		if (httpClientOwner && httpClient != null) {
+			try {
+				httpClient.shutdown();
+			} finally {
+				httpClient = null;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2017, vindell (https://github.com/vindell).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.oauth.buji.scribe.http;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+import org.scribe.model.OAuthRequest;
+
+/**
+ * scribe 请求的传输层，替代直接调用 {@link OAuthRequest#send()}
+ * <p>实现需要是线程安全的，可在多个 Provider 之间共享；调用方负责关闭返回的 {@link TransportResponse}。</p>
+ * @author 		： <a href="https://github.com/vindell">vindell</a>
+ */
+public interface OAuthTransport {
+
+	/**
+	 * 同步发送请求
+	 */
+	TransportResponse execute(OAuthRequest request, TransportOptions options) throws IOException;
+
+	/**
+	 * 异步发送请求，不阻塞调用线程
+	 */
+	CompletableFuture<TransportResponse> executeAsync(OAuthRequest request, TransportOptions options);
+
+}
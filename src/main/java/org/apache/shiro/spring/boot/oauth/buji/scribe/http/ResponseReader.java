@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2017, vindell (https://github.com/vindell).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.oauth.buji.scribe.http;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import org.scribe.exceptions.OAuthException;
+import org.scribe.model.OAuthRequest;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * 读取 {@link OAuthTransport} 返回的响应体：协商 gzip 压缩，并限制响应体大小
+ * <p>响应体超过上限时立即中止读取并抛出 {@link OAuthException}，不会先把整个响应读入内存。</p>
+ * @author 		： <a href="https://github.com/vindell">vindell</a>
+ */
+public class ResponseReader {
+
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+	private static final String GZIP = "gzip";
+
+	//响应体的最大字节数（解压后）
+	private long maxBodySize = 1024 * 1024;
+	//是否发送 Accept-Encoding: gzip
+	private boolean gzipEnabled = true;
+
+	/**
+	 * 为请求添加 Accept-Encoding；只有响应体由本类读取的请求才能调用，{@link UrlConnectionTransport} 不会解压响应
+	 */
+	public void prepare(OAuthRequest request) {
+		if (gzipEnabled) {
+			request.addHeader("Accept-Encoding", GZIP);
+		}
+	}
+
+	/**
+	 * 返回解压后且限制了大小的响应体输入流
+	 */
+	public InputStream openStream(TransportResponse response) throws IOException {
+		InputStream stream = response.getStream();
+		if (stream == null) {
+			throw new OAuthException("Response has no body, code : " + response.getCode());
+		}
+		if (GZIP.equalsIgnoreCase(getHeader(response, "Content-Encoding"))) {
+			stream = new GZIPInputStream(stream);
+		}
+		return new BoundedInputStream(stream, maxBodySize);
+	}
+
+	/**
+	 * 读取响应体文本，按 Content-Type 中的 charset 解码，缺省为 UTF-8
+	 */
+	public String readBody(TransportResponse response) {
+		long contentLength = parseLong(getHeader(response, "Content-Length"));
+		StringBuilder builder = new StringBuilder(contentLength > 0 && contentLength <= maxBodySize ? (int) contentLength : 1024);
+		try (TransportResponse closeable = response;
+				Reader reader = new InputStreamReader(openStream(response), getCharset(response))) {
+			char[] buffer = new char[4096];
+			int read;
+			while ((read = reader.read(buffer)) != -1) {
+				builder.append(buffer, 0, read);
+			}
+			return builder.toString();
+		} catch (IOException e) {
+			throw new OAuthException("Failed to read response body, code : " + response.getCode(), e);
+		}
+	}
+
+	/**
+	 * 从 JSON 响应的顶层对象中流式读取一个字段，读到后不再读取响应的剩余部分
+	 * @return 字段不存在或不是简单值时返回 null
+	 */
+	public String readJsonField(TransportResponse response, String field) {
+		try (TransportResponse closeable = response;
+				JsonParser parser = JSON_FACTORY.createParser(openStream(response))) {
+			if (parser.nextToken() != JsonToken.START_OBJECT) {
+				return null;
+			}
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String name = parser.getCurrentName();
+				JsonToken token = parser.nextToken();
+				if (token.isStructStart()) {
+					parser.skipChildren();
+				} else if (field.equals(name)) {
+					return token == JsonToken.VALUE_NULL ? null : parser.getText();
+				}
+			}
+			return null;
+		} catch (IOException e) {
+			throw new OAuthException("Failed to read response body, code : " + response.getCode(), e);
+		}
+	}
+
+	protected Charset getCharset(TransportResponse response) {
+		String contentType = getHeader(response, "Content-Type");
+		if (contentType != null) {
+			int index = contentType.toLowerCase().indexOf("charset=");
+			if (index >= 0) {
+				String charset = contentType.substring(index + "charset=".length()).replace("\"", "").trim();
+				int end = charset.indexOf(';');
+				try {
+					return Charset.forName(end >= 0 ? charset.substring(0, end).trim() : charset);
+				} catch (RuntimeException e) {
+					//无法识别的字符集按 UTF-8 处理
+				}
+			}
+		}
+		return StandardCharsets.UTF_8;
+	}
+
+	protected static String getHeader(TransportResponse response, String name) {
+		return response.getHeader(name);
+	}
+
+	private static long parseLong(String value) {
+		try {
+			return value == null ? -1 : Long.parseLong(value.trim());
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	public long getMaxBodySize() {
+		return maxBodySize;
+	}
+
+	public void setMaxBodySize(long maxBodySize) {
+		this.maxBodySize = maxBodySize;
+	}
+
+	public boolean isGzipEnabled() {
+		return gzipEnabled;
+	}
+
+	public void setGzipEnabled(boolean gzipEnabled) {
+		this.gzipEnabled = gzipEnabled;
+	}
+
+	/**
+	 * 读取超过上限时抛出异常的输入流
+	 */
+	protected static class BoundedInputStream extends FilterInputStream {
+
+		private final long limit;
+		private long count;
+
+		protected BoundedInputStream(InputStream in, long limit) {
+			super(in);
+			this.limit = limit;
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if (b != -1) {
+				count(1);
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int read = super.read(b, off, len);
+			if (read > 0) {
+				count(read);
+			}
+			return read;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			long skipped = super.skip(n);
+			count(skipped);
+			return skipped;
+		}
+
+		private void count(long read) throws IOException {
+			count += read;
+			if (limit > 0 && count > limit) {
+				throw new IOException("Response body exceeds " + limit + " bytes");
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2017, vindell (https://github.com/vindell).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.oauth.buji.scribe.http;
+
+import java.io.IOException;
+
+import org.scribe.builder.api.DefaultApi20;
+import org.scribe.exceptions.OAuthConnectionException;
+import org.scribe.model.OAuthConfig;
+import org.scribe.model.OAuthRequest;
+import org.scribe.up.provider.exception.HttpException;
+import org.scribe.up.addon_to_scribe.ProxyOAuth20ServiceImpl;
+
+/**
+ * 通过 {@link OAuthTransport} 发送请求的 OAuth 2.0 Service 父类
+ * <p>构造时传入的代理作为默认的 {@link TransportOptions}，由 Provider 初始化时补充超时设置。</p>
+ * @author 		： <a href="https://github.com/vindell">vindell</a>
+ */
+public abstract class TransportOAuth20ServiceImpl extends ProxyOAuth20ServiceImpl {
+
+	// 发送请求的传输层
+	private OAuthTransport transport = new UrlConnectionTransport();
+	// 代理与超时
+	private TransportOptions transportOptions;
+	// 读取响应体：gzip 解压并限制大小
+	private ResponseReader responseReader = new ResponseReader();
+
+	public TransportOAuth20ServiceImpl(DefaultApi20 api, OAuthConfig config, String proxyHost, int proxyPort) {
+		super(api, config, proxyHost, proxyPort);
+		this.transportOptions = new TransportOptions(0, 0, proxyHost, proxyPort);
+	}
+
+	/**
+	 * 发送请求并读取响应体；认证服务器返回 5xx 时抛出以 {@link HttpException} 为原因的 {@link OAuthConnectionException}，
+	 * 而不是交给提取器解析失败后抛出 {@link org.scribe.exceptions.OAuthException}，使熔断器将其计为失败
+	 */
+	protected String sendForBody(OAuthRequest request) {
+		TransportResponse response = send(request);
+		String body = this.responseReader.readBody(response);
+		if (response.getCode() >= 500) {
+			throw new OAuthConnectionException(new HttpException(response.getCode(), body));
+		}
+		return body;
+	}
+
+	/**
+	 * 发送请求，连接失败时抛出 {@link OAuthConnectionException}
+	 */
+	protected TransportResponse send(OAuthRequest request) {
+		this.responseReader.prepare(request);
+		try {
+			return this.transport.execute(request, this.transportOptions);
+		} catch (IOException e) {
+			throw new OAuthConnectionException(e);
+		}
+	}
+
+	public OAuthTransport getTransport() {
+		return transport;
+	}
+
+	public void setTransport(OAuthTransport transport) {
+		this.transport = transport;
+	}
+
+	public TransportOptions getTransportOptions() {
+		return transportOptions;
+	}
+
+	public void setTransportOptions(TransportOptions transportOptions) {
+		this.transportOptions = transportOptions;
+	}
+
+	public ResponseReader getResponseReader() {
+		return responseReader;
+	}
+
+	public void setResponseReader(ResponseReader responseReader) {
+		this.responseReader = responseReader;
+	}
+
+}
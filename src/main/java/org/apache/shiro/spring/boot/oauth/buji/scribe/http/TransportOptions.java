@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2017, vindell (https://github.com/vindell).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.oauth.buji.scribe.http;
+
+/**
+ * 单次请求的传输参数：超时与代理
+ * @author 		： <a href="https://github.com/vindell">vindell</a>
+ */
+public final class TransportOptions {
+
+	/** 不设置超时、不使用代理 */
+	public static final TransportOptions DEFAULT = new TransportOptions(0, 0, null, 0);
+
+	//建立连接超时时间（毫秒），0 表示使用传输层的默认值
+	private final int connectTimeout;
+	//读取数据超时时间（毫秒），0 表示使用传输层的默认值
+	private final int readTimeout;
+	//代理主机，为空表示不使用代理
+	private final String proxyHost;
+	private final int proxyPort;
+
+	public TransportOptions(int connectTimeout, int readTimeout, String proxyHost, int proxyPort) {
+		this.connectTimeout = connectTimeout;
+		this.readTimeout = readTimeout;
+		this.proxyHost = proxyHost;
+		this.proxyPort = proxyPort;
+	}
+
+	public boolean hasProxy() {
+		return proxyHost != null && !proxyHost.isEmpty();
+	}
+
+	public int getConnectTimeout() {
+		return connectTimeout;
+	}
+
+	public int getReadTimeout() {
+		return readTimeout;
+	}
+
+	public String getProxyHost() {
+		return proxyHost;
+	}
+
+	public int getProxyPort() {
+		return proxyPort;
+	}
+
+}
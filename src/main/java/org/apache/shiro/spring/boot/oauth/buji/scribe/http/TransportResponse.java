@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2017, vindell (https://github.com/vindell).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.oauth.buji.scribe.http;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * {@link OAuthTransport} 返回的响应：状态码、响应头（名称不区分大小写）与响应体输入流
+ * <p>关闭响应时释放底层连接；响应体完整读取后关闭，连接才能被复用。</p>
+ * @author 		： <a href="https://github.com/vindell">vindell</a>
+ */
+public class TransportResponse implements Closeable {
+
+	private final int code;
+	private final Map<String, String> headers;
+	private final InputStream stream;
+	private final Closeable resource;
+
+	/**
+	 * @param code 状态码
+	 * @param headers 响应头，同名的多个值只保留一个
+	 * @param stream 响应体，没有响应体时为空
+	 * @param resource 关闭响应时需要一并释放的资源，可以为空
+	 */
+	public TransportResponse(int code, Map<String, String> headers, InputStream stream, Closeable resource) {
+		this.code = code;
+		Map<String, String> copy = new TreeMap<String, String>(String.CASE_INSENSITIVE_ORDER);
+		if (headers != null) {
+			for (Map.Entry<String, String> header : headers.entrySet()) {
+				if (header.getKey() != null) {
+					copy.put(header.getKey(), header.getValue());
+				}
+			}
+		}
+		this.headers = Collections.unmodifiableMap(copy);
+		this.stream = stream;
+		this.resource = resource;
+	}
+
+	public int getCode() {
+		return code;
+	}
+
+	public String getHeader(String name) {
+		return headers.get(name);
+	}
+
+	public Map<String, String> getHeaders() {
+		return headers;
+	}
+
+	public InputStream getStream() {
+		return stream;
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			if (stream != null) {
+				stream.close();
+			}
+		} finally {
+			if (resource != null) {
+				resource.close();
+			}
+		}
+	}
+
+}
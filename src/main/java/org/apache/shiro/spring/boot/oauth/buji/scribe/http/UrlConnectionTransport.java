@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2017, vindell (https://github.com/vindell).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.oauth.buji.scribe.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.scribe.model.OAuthRequest;
+
+/**
+ * 基于 {@link HttpURLConnection} 的传输层，与 scribe 的 {@link OAuthRequest#send()} 行为一致
+ * @author 		： <a href="https://github.com/vindell">vindell</a>
+ */
+public class UrlConnectionTransport extends AbstractOAuthTransport {
+
+	@Override
+	public TransportResponse execute(OAuthRequest request, TransportOptions options) throws IOException {
+		URL url = new URL(request.getCompleteUrl());
+		HttpURLConnection connection = (HttpURLConnection) (options.hasProxy()
+				? url.openConnection(new Proxy(Proxy.Type.HTTP, new InetSocketAddress(options.getProxyHost(), options.getProxyPort())))
+				: url.openConnection());
+		connection.setRequestMethod(request.getVerb().name());
+		if (options.getConnectTimeout() > 0) {
+			connection.setConnectTimeout(options.getConnectTimeout());
+		}
+		if (options.getReadTimeout() > 0) {
+			connection.setReadTimeout(options.getReadTimeout());
+		}
+		for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+			connection.setRequestProperty(header.getKey(), header.getValue());
+		}
+		if (hasBody(request)) {
+			byte[] body = request.getBodyContents().getBytes(request.getCharset());
+			if (connection.getRequestProperty(CONTENT_TYPE) == null) {
+				connection.setRequestProperty(CONTENT_TYPE, DEFAULT_CONTENT_TYPE);
+			}
+			connection.setDoOutput(true);
+			connection.setFixedLengthStreamingMode(body.length);
+			try (OutputStream out = connection.getOutputStream()) {
+				out.write(body);
+			}
+		}
+		int code = connection.getResponseCode();
+		InputStream stream = code >= 400 ? connection.getErrorStream() : connection.getInputStream();
+		Map<String, String> headers = new HashMap<String, String>();
+		for (Map.Entry<String, List<String>> header : connection.getHeaderFields().entrySet()) {
+			if (header.getKey() != null && !header.getValue().isEmpty()) {
+				headers.put(header.getKey(), header.getValue().get(0));
+			}
+		}
+		return new TransportResponse(code, headers, stream, null);
+	}
+
+}
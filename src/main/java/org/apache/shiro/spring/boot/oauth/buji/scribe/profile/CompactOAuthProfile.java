@@ -0,0 +1,543 @@
+/*
+ * Copyright (c) 2017, vindell (https://github.com/vindell).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.oauth.buji.scribe.profile;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.StreamCorruptedException;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.apache.shiro.spring.boot.oauth.buji.scribe.OAuth2Constants;
+import org.scribe.up.profile.AttributesDefinition;
+import org.scribe.up.profile.BaseOAuthProfile;
+
+/**
+ * 按 {@link ProfileSchema} 保存属性的 Profile：属性值按下标存放在数组中，不再为每个 Profile 创建 HashMap 及其 Entry
+ * <p>整数属性以 int 保存，不创建 Integer 对象；位置表之外的属性（如微信的 privilege）保存在按需创建的 Map 中。
+ * {@link #getAttributes()} 返回基于数组的只读视图，调用方的用法不变。</p>
+ * <p>会话复制时按 {@link Externalizable} 写出紧凑的二进制格式：首字节为格式版本，之后是 id、记住我标记、角色、权限
+ * 与按名称写出的属性，属性值带类型标记；字符串写为长度与 UTF-8 字节，不受 writeUTF 的 64KB 限制。
+ * 按名称写出使属性定义增删属性后仍能读取旧数据：已删除的属性进入位置表之外的 Map。
+ * 读取时字符串长度与角色、权限、属性的个数分别受 {@link #setMaxStringLength(int)} 与 {@link #setMaxElements(int)} 限制，
+ * 超出时抛出 {@link StreamCorruptedException}，损坏或伪造的数据不会导致分配超大的数组。</p>
+ * <p>{@link #setLazy(boolean) 延迟转换} 时先保存原始值，首次读取时才经过属性定义转换并替换原始值，
+ * 登录时不再为应用不读取的属性（如新浪的日期）付出解析开销。转换在 Profile 上加锁进行，先写入转换结果，
+ * 再清除 volatile 的待转换标记，并发读取的线程看到标记已清除时一定能看到转换结果。</p>
+ * @author 		： <a href="https://github.com/vindell">vindell</a>
+ */
+public abstract class CompactOAuthProfile extends BaseOAuthProfile implements Externalizable {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * 二进制格式的版本，格式变化时递增，读取时兼容所有不高于当前版本的数据；
+	 * 版本 2 增加记住我标记、角色与权限，字符串改为长度与字节
+	 */
+	protected static final byte FORMAT_VERSION = 2;
+
+	private static final byte TYPE_STRING = 1;
+	private static final byte TYPE_INT = 2;
+	private static final byte TYPE_LONG = 3;
+	private static final byte TYPE_BOOLEAN = 4;
+	private static final byte TYPE_DOUBLE = 5;
+	private static final byte TYPE_DATE = 6;
+	private static final byte TYPE_OBJECT = 127;
+
+	private static volatile int maxStringLength = 1 << 20;
+	private static volatile int maxElements = 10000;
+
+	/**
+	 * 数组中的占位标记：实际的值在 int 数组中
+	 */
+	private enum Slot {
+		PRIMITIVE
+	}
+
+	private final ProfileSchema schema;
+	private Object[] values;
+	private int[] ints;
+	private Map<String, Object> extra;
+	//尚未转换的属性，按下标置位；只有前 64 个属性支持延迟转换。只在持有锁时修改，写入属性值之后才清除
+	private volatile long pending;
+	private boolean lazy;
+
+	protected CompactOAuthProfile(ProfileSchema schema) {
+		this.schema = schema;
+	}
+
+	@Override
+	public void addAttribute(final String key, Object value) {
+		if (key == null || value == null) {
+			return;
+		}
+		if (lazy && setRawValue(key, value)) {
+			return;
+		}
+		AttributesDefinition definition = getAttributesDefinition();
+		if (definition != null) {
+			value = definition.convert(key, value);
+			if (value == null) {
+				return;
+			}
+		}
+		setValue(key, value);
+	}
+
+	/**
+	 * 保存未转换的原始值
+	 * @return 属性不支持延迟转换时返回 false
+	 */
+	protected synchronized boolean setRawValue(String key, Object value) {
+		int index = schema.indexOf(key);
+		if (index < 0 || index >= Long.SIZE) {
+			return false;
+		}
+		if (values == null) {
+			values = new Object[schema.size()];
+		}
+		values[index] = value;
+		pending |= 1L << index;
+		return true;
+	}
+
+	protected void setValue(String key, Object value) {
+		int index = schema.indexOf(key);
+		if (index < 0) {
+			if (extra == null) {
+				extra = new HashMap<String, Object>(4);
+			}
+			extra.put(key, value);
+			return;
+		}
+		storeValue(index, value);
+		if (index < Long.SIZE && (pending & (1L << index)) != 0) {
+			synchronized (this) {
+				pending &= ~(1L << index);
+			}
+		}
+	}
+
+	/**
+	 * 写入位置表中的属性值，不修改待转换标记
+	 */
+	private void storeValue(int index, Object value) {
+		if (values == null) {
+			values = new Object[schema.size()];
+		}
+		int slot = schema.primitiveSlot(index);
+		if (slot >= 0) {
+			Integer number = toInteger(value);
+			if (number != null) {
+				if (ints == null) {
+					ints = new int[schema.getPrimitiveCount()];
+				}
+				ints[slot] = number;
+				values[index] = Slot.PRIMITIVE;
+				return;
+			}
+		}
+		values[index] = value;
+	}
+
+	protected Object getValue(int index) {
+		if (values == null) {
+			return null;
+		}
+		if (isPending(index)) {
+			convert(index);
+		}
+		Object value = values[index];
+		return value == Slot.PRIMITIVE ? Integer.valueOf(ints[schema.primitiveSlot(index)]) : value;
+	}
+
+	/**
+	 * 转换延迟保存的原始值：优先使用 {@link #getAttributesDefinition()}，其次是创建位置表的属性定义
+	 */
+	private synchronized void convert(int index) {
+		long bit = 1L << index;
+		if ((pending & bit) == 0) {
+			//其他线程已完成转换
+			return;
+		}
+		String name = schema.name(index);
+		Object raw = values[index];
+		AttributesDefinition definition = getAttributesDefinition();
+		if (definition == null) {
+			definition = schema.getDefinition();
+		}
+		//先计算并写入转换结果，最后清除标记：读取方看到标记清除时，转换结果已经可见
+		storeValue(index, definition == null ? raw : definition.convert(name, raw));
+		pending &= ~bit;
+	}
+
+	/**
+	 * 转换所有延迟保存的原始值
+	 */
+	protected synchronized void convertAll() {
+		for (int index = 0; pending != 0 && index < Long.SIZE; index++) {
+			if (isPending(index)) {
+				convert(index);
+			}
+		}
+	}
+
+	private boolean isPending(int index) {
+		return index < Long.SIZE && (pending & (1L << index)) != 0;
+	}
+
+	/**
+	 * 读取整数属性，不存在时返回 defaultValue；以 int 保存的属性不会创建 Integer 对象
+	 */
+	public int getInt(String name, int defaultValue) {
+		int index = schema.indexOf(name);
+		//先读取 volatile 的待转换标记，保证之后读到的属性值是转换后的结果
+		if (index >= 0 && !isPending(index) && values != null && values[index] == Slot.PRIMITIVE) {
+			return ints[schema.primitiveSlot(index)];
+		}
+		Integer number = toInteger(get(name));
+		return number == null ? defaultValue : number;
+	}
+
+	@Override
+	public Object get(final String name) {
+		int index = schema.indexOf(name);
+		if (index >= 0) {
+			return getValue(index);
+		}
+		return extra == null ? null : extra.get(name);
+	}
+
+	@Override
+	public Map<String, Object> getAttributes() {
+		return new AttributesView();
+	}
+
+	/**
+	 * 第三方账号绑定的本地用户名，未绑定时返回 null；Profile 的 id 仍为 openid
+	 */
+	public String getBoundUsername() {
+		Object username = get(OAuth2Constants.BOUND_USERNAME);
+		return username == null ? null : username.toString();
+	}
+
+	/**
+	 * 记录绑定的本地用户名，不经过属性定义转换
+	 */
+	public void setBoundUsername(String username) {
+		if (username != null) {
+			setValue(OAuth2Constants.BOUND_USERNAME, username);
+		}
+	}
+
+	public ProfileSchema getSchema() {
+		return schema;
+	}
+
+	public boolean isLazy() {
+		return lazy;
+	}
+
+	/**
+	 * 设置之后添加的属性是否延迟转换，须在添加属性之前设置
+	 */
+	public void setLazy(boolean lazy) {
+		this.lazy = lazy;
+	}
+
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		out.writeByte(FORMAT_VERSION);
+		Object id = getId();
+		out.writeBoolean(id != null);
+		if (id != null) {
+			writeString(out, id.toString());
+		}
+		out.writeBoolean(isRemembered());
+		writeStrings(out, getRoles());
+		writeStrings(out, getPermissions());
+		//先转换并取得快照，写出的条目数与条目一致
+		List<Map.Entry<String, Object>> attributes = new ArrayList<Map.Entry<String, Object>>(getAttributes().entrySet());
+		out.writeInt(attributes.size());
+		for (Map.Entry<String, Object> entry : attributes) {
+			writeString(out, entry.getKey());
+			writeValue(out, entry.getValue());
+		}
+	}
+
+	@Override
+	public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+		byte version = in.readByte();
+		if (version < 1 || version > FORMAT_VERSION) {
+			throw new InvalidClassException(getClass().getName(), "Unsupported profile format version : " + version);
+		}
+		if (version == 1) {
+			readVersion1(in);
+			return;
+		}
+		if (in.readBoolean()) {
+			setId(readString(in));
+		}
+		setRemembered(in.readBoolean());
+		addRoles(readStrings(in));
+		addPermissions(readStrings(in));
+		int size = readSize(in);
+		for (int i = 0; i < size; i++) {
+			String name = readString(in);
+			// 已转换过的值直接保存，不再经过属性定义
+			setValue(name, readValue(in, version));
+		}
+	}
+
+	/**
+	 * 读取版本 1 的数据：只有 id 与属性，字符串以 writeUTF 写出
+	 */
+	private void readVersion1(ObjectInput in) throws IOException, ClassNotFoundException {
+		if (in.readBoolean()) {
+			setId(in.readUTF());
+		}
+		int size = in.readUnsignedShort();
+		for (int i = 0; i < size; i++) {
+			String name = in.readUTF();
+			setValue(name, readValue(in, (byte) 1));
+		}
+	}
+
+	/**
+	 * 写出字符串：UTF-8 字节数与字节
+	 */
+	protected static void writeString(ObjectOutput out, String value) throws IOException {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	protected static String readString(ObjectInput in) throws IOException {
+		int length = in.readInt();
+		if (length < 0 || length > maxStringLength) {
+			throw new StreamCorruptedException("Invalid string length : " + length + ", max : " + maxStringLength);
+		}
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static void writeStrings(ObjectOutput out, List<String> values) throws IOException {
+		out.writeInt(values == null ? 0 : values.size());
+		if (values != null) {
+			for (String value : values) {
+				writeString(out, value);
+			}
+		}
+	}
+
+	private static List<String> readStrings(ObjectInput in) throws IOException {
+		int size = readSize(in);
+		List<String> values = new ArrayList<String>(Math.max(0, Math.min(size, 64)));
+		for (int i = 0; i < size; i++) {
+			values.add(readString(in));
+		}
+		return values;
+	}
+
+	private static int readSize(ObjectInput in) throws IOException {
+		int size = in.readInt();
+		if (size < 0 || size > maxElements) {
+			throw new StreamCorruptedException("Invalid element count : " + size + ", max : " + maxElements);
+		}
+		return size;
+	}
+
+	protected void writeValue(ObjectOutput out, Object value) throws IOException {
+		if (value instanceof String) {
+			out.writeByte(TYPE_STRING);
+			writeString(out, (String) value);
+		} else if (value instanceof Integer) {
+			out.writeByte(TYPE_INT);
+			out.writeInt((Integer) value);
+		} else if (value instanceof Long) {
+			out.writeByte(TYPE_LONG);
+			out.writeLong((Long) value);
+		} else if (value instanceof Boolean) {
+			out.writeByte(TYPE_BOOLEAN);
+			out.writeBoolean((Boolean) value);
+		} else if (value instanceof Double) {
+			out.writeByte(TYPE_DOUBLE);
+			out.writeDouble((Double) value);
+		} else if (value instanceof Date) {
+			out.writeByte(TYPE_DATE);
+			out.writeLong(((Date) value).getTime());
+		} else {
+			out.writeByte(TYPE_OBJECT);
+			out.writeObject(value);
+		}
+	}
+
+	/**
+	 * @param version 数据的格式版本，版本 1 的字符串以 writeUTF 写出
+	 */
+	protected Object readValue(ObjectInput in, byte version) throws IOException, ClassNotFoundException {
+		byte type = in.readByte();
+		switch (type) {
+		case TYPE_STRING:
+			return version == 1 ? in.readUTF() : readString(in);
+		case TYPE_INT:
+			return in.readInt();
+		case TYPE_LONG:
+			return in.readLong();
+		case TYPE_BOOLEAN:
+			return in.readBoolean();
+		case TYPE_DOUBLE:
+			return in.readDouble();
+		case TYPE_DATE:
+			return new Date(in.readLong());
+		case TYPE_OBJECT:
+			return in.readObject();
+		default:
+			throw new InvalidClassException(getClass().getName(), "Unknown attribute type : " + type);
+		}
+	}
+
+	private static Integer toInteger(Object value) {
+		if (value instanceof Integer) {
+			return (Integer) value;
+		}
+		if (value instanceof String) {
+			try {
+				return Integer.valueOf(((String) value).trim());
+			} catch (NumberFormatException e) {
+				return null;
+			}
+		}
+		return null;
+	}
+
+	public static int getMaxStringLength() {
+		return maxStringLength;
+	}
+
+	/**
+	 * 读取时单个字符串的最大 UTF-8 字节数，默认 1MB
+	 */
+	public static void setMaxStringLength(int maxStringLength) {
+		CompactOAuthProfile.maxStringLength = maxStringLength;
+	}
+
+	public static int getMaxElements() {
+		return maxElements;
+	}
+
+	/**
+	 * 读取时角色、权限与属性的最大个数，默认 10000
+	 */
+	public static void setMaxElements(int maxElements) {
+		CompactOAuthProfile.maxElements = maxElements;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[id: " + getId() + ", attributes: " + getAttributes() + "]";
+	}
+
+	/**
+	 * 基于数组的只读属性视图，按位置表顺序遍历，之后是位置表之外的属性
+	 */
+	private class AttributesView extends AbstractMap<String, Object> {
+
+		@Override
+		public Object get(Object key) {
+			return key instanceof String ? CompactOAuthProfile.this.get((String) key) : null;
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return get(key) != null;
+		}
+
+		@Override
+		public Set<Map.Entry<String, Object>> entrySet() {
+			convertAll();
+			return new AbstractSet<Map.Entry<String, Object>>() {
+
+				@Override
+				public Iterator<Map.Entry<String, Object>> iterator() {
+					return new EntryIterator();
+				}
+
+				@Override
+				public int size() {
+					int size = extra == null ? 0 : extra.size();
+					if (values != null) {
+						for (Object value : values) {
+							if (value != null) {
+								size++;
+							}
+						}
+					}
+					return size;
+				}
+
+			};
+		}
+
+	}
+
+	private class EntryIterator implements Iterator<Map.Entry<String, Object>> {
+
+		private final Iterator<Map.Entry<String, Object>> extraIterator = extra == null ? null : extra.entrySet().iterator();
+		private int index = advance(0);
+
+		private int advance(int from) {
+			while (values != null && from < values.length && values[from] == null) {
+				from++;
+			}
+			return from;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return (values != null && index < values.length) || (extraIterator != null && extraIterator.hasNext());
+		}
+
+		@Override
+		public Map.Entry<String, Object> next() {
+			if (values != null && index < values.length) {
+				Map.Entry<String, Object> entry = new SimpleImmutableEntry<String, Object>(schema.name(index), getValue(index));
+				index = advance(index + 1);
+				return entry;
+			}
+			if (extraIterator != null) {
+				Map.Entry<String, Object> entry = extraIterator.next();
+				return new SimpleImmutableEntry<String, Object>(entry.getKey(), entry.getValue());
+			}
+			throw new NoSuchElementException();
+		}
+
+	}
+
+}
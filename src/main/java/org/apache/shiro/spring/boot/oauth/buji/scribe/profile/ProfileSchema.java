@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2017, vindell (https://github.com/vindell).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.oauth.buji.scribe.profile;
+
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.scribe.up.profile.AttributesDefinition;
+
+/**
+ * Profile 属性的位置表：每个属性名对应 {@link CompactOAuthProfile} 中数组的一个下标，属性名字符串由所有 Profile 共享
+ * <p>转换结果为 Integer 的属性（如 QQ 的 vip、level）额外分配一个 int 下标，以基本类型保存。
+ * 同一 id 只存在一个实例，反序列化时替换为已注册的实例。</p>
+ * @author 		： <a href="https://github.com/vindell">vindell</a>
+ */
+public final class ProfileSchema implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+	private static final ConcurrentMap<String, ProfileSchema> SCHEMAS = new ConcurrentHashMap<String, ProfileSchema>();
+
+	private final String id;
+	private final String[] names;
+	private final int[] primitiveSlots;
+	private final int primitiveCount;
+	private transient Map<String, Integer> indexes;
+	//创建位置表的属性定义，延迟转换时使用
+	private transient AttributesDefinition definition;
+
+	private ProfileSchema(String id, AttributesDefinition definition, String[] names, int[] primitiveSlots) {
+		this.id = id;
+		this.definition = definition;
+		this.names = names;
+		this.primitiveSlots = primitiveSlots;
+		int count = 0;
+		for (int slot : primitiveSlots) {
+			if (slot >= 0) {
+				count++;
+			}
+		}
+		this.primitiveCount = count;
+		this.indexes = buildIndexes(names);
+	}
+
+	/**
+	 * 按属性定义创建位置表，同一 id 只创建一次
+	 * @param id 唯一标识，一般为 Profile 类名
+	 * @param definition 属性定义，其中的全部属性按顺序分配下标
+	 * @param extraNames 属性定义之外需要分配下标的属性，如 access_token
+	 */
+	public static ProfileSchema of(String id, AttributesDefinition definition, String... extraNames) {
+		ProfileSchema schema = SCHEMAS.get(id);
+		if (schema != null) {
+			return schema;
+		}
+		Set<String> names = new LinkedHashSet<String>(definition.getAllAttributes());
+		names.addAll(Arrays.asList(extraNames));
+		String[] array = names.toArray(new String[names.size()]);
+		int[] primitiveSlots = new int[array.length];
+		int slot = 0;
+		for (int i = 0; i < array.length; i++) {
+			// 转换器对数字字符串返回 Integer 的属性按 int 保存
+			primitiveSlots[i] = isInteger(definition, array[i]) ? slot++ : -1;
+		}
+		schema = new ProfileSchema(id, definition, array, primitiveSlots);
+		ProfileSchema existing = SCHEMAS.putIfAbsent(id, schema);
+		return existing == null ? schema : existing;
+	}
+
+	private static boolean isInteger(AttributesDefinition definition, String name) {
+		try {
+			return definition.convert(name, "1") instanceof Integer;
+		} catch (RuntimeException e) {
+			return false;
+		}
+	}
+
+	private static Map<String, Integer> buildIndexes(String[] names) {
+		Map<String, Integer> indexes = new HashMap<String, Integer>(names.length * 2);
+		for (int i = 0; i < names.length; i++) {
+			indexes.put(names[i], i);
+		}
+		return indexes;
+	}
+
+	/**
+	 * @return 属性的下标，不在位置表中时返回 -1
+	 */
+	public int indexOf(String name) {
+		Integer index = indexes.get(name);
+		return index == null ? -1 : index;
+	}
+
+	/**
+	 * @return 属性在 int 数组中的下标，不以基本类型保存时返回 -1
+	 */
+	public int primitiveSlot(int index) {
+		return primitiveSlots[index];
+	}
+
+	public String name(int index) {
+		return names[index];
+	}
+
+	public int size() {
+		return names.length;
+	}
+
+	public int getPrimitiveCount() {
+		return primitiveCount;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	/**
+	 * @return 创建位置表的属性定义；反序列化且未注册同一 id 的位置表时为 null
+	 */
+	public AttributesDefinition getDefinition() {
+		return definition;
+	}
+
+	private Object readResolve() throws ObjectStreamException {
+		ProfileSchema existing = SCHEMAS.putIfAbsent(id, this);
+		if (existing != null) {
+			return existing;
+		}
+		this.indexes = buildIndexes(names);
+		return this;
+	}
+
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2017, vindell (https://github.com/vindell).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.oauth.buji.scribe.profile;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.scribe.up.profile.converter.AttributeConverter;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * 将 JSON 数组属性（如微信的 privilege）转换为字符串列表：支持 Jackson 的数组节点与流式解析得到的集合
+ * @author 		： <a href="https://github.com/vindell">vindell</a>
+ */
+public final class StringListConverter implements AttributeConverter<List<String>> {
+
+    @Override
+    public List<String> convert(final Object attribute) {
+        if (attribute == null) {
+            return null;
+        }
+        if (attribute instanceof JsonNode) {
+            JsonNode node = (JsonNode) attribute;
+            if (node.isNull()) {
+                return null;
+            }
+            if (!node.isArray()) {
+                return Collections.singletonList(node.asText());
+            }
+            List<String> values = new ArrayList<String>(node.size());
+            for (JsonNode element : node) {
+                values.add(element.asText());
+            }
+            return values;
+        }
+        if (attribute instanceof Collection) {
+            List<String> values = new ArrayList<String>(((Collection<?>) attribute).size());
+            for (Object element : (Collection<?>) attribute) {
+                values.add(String.valueOf(element));
+            }
+            return values;
+        }
+        return Collections.singletonList(attribute.toString());
+    }
+
+}
@@ -1,22 +1,19 @@
 package org.apache.shiro.spring.boot.oauth.buji.scribe.profile.qq;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
 import org.apache.shiro.spring.boot.oauth.buji.scribe.OAuth2Constants;
+import org.apache.shiro.spring.boot.oauth.buji.scribe.api.QQApi20;
+import org.apache.shiro.spring.boot.oauth.buji.scribe.http.TransportOAuth20ServiceImpl;
+import org.apache.shiro.spring.boot.oauth.buji.scribe.token.OAuth2AccessToken;
+import org.apache.shiro.spring.boot.oauth.buji.scribe.token.OAuth2TokenRefresher;
 import org.scribe.builder.api.DefaultApi20;
 import org.scribe.exceptions.OAuthException;
 import org.scribe.model.OAuthConfig;
 import org.scribe.model.OAuthConstants;
 import org.scribe.model.OAuthRequest;
-import org.scribe.model.Response;
 import org.scribe.model.Token;
 import org.scribe.model.Verifier;
-import org.scribe.up.addon_to_scribe.ProxyOAuth20ServiceImpl;
-
-public class QQOAuth20ServiceImpl extends ProxyOAuth20ServiceImpl {
 
-	private static Pattern openIdPattern = Pattern.compile("\"openid\":\\s*\"(\\S*?)\"");
+public class QQOAuth20ServiceImpl extends TransportOAuth20ServiceImpl implements OAuth2TokenRefresher {
 
 	public QQOAuth20ServiceImpl(DefaultApi20 api, OAuthConfig config, String proxyHost, int proxyPort) {
 		super(api, config, proxyHost, proxyPort);
@@ -113,20 +110,45 @@ public class QQOAuth20ServiceImpl extends ProxyOAuth20ServiceImpl {
 		request.addBodyParameter(OAuthConstants.CLIENT_SECRET, this.config.getApiSecret());
 		request.addBodyParameter(OAuthConstants.CODE, verifier.getValue());
 		request.addBodyParameter(OAuthConstants.REDIRECT_URI, this.config.getCallback());
+		if (this.api instanceof QQApi20 && ((QQApi20) this.api).isFusedOpenId()) {
+			// 以JSON格式返回，并在返回包中附带openid
+			request.addBodyParameter(OAuth2Constants.NEED_OPENID, "1");
+			request.addBodyParameter(OAuth2Constants.FMT, "json");
+		}
+		
+		return this.api.getAccessTokenExtractor().extract(sendForBody(request));
+	}
+
+	/**
+	 * 权限自动续期：grant_type=refresh_token；刷新结果不含openid，沿用原Token的openid
+	 * http://wiki.connect.qq.com/%E4%BD%BF%E7%94%A8authorization_code%E8%8E%B7%E5%8F%96access_token
+	 */
+	@Override
+	public OAuth2AccessToken refreshAccessToken(final OAuth2AccessToken accessToken) {
+		if (accessToken.getRefreshToken() == null) {
+			throw new OAuthException(" not found refresh_token: " + accessToken.getRawResponse());
+		}
+		final OAuthRequest request = new OAuthRequest(this.api.getAccessTokenVerb(), this.api.getAccessTokenEndpoint());
+		
+		request.addBodyParameter(OAuth2Constants.GRANT_TYPE, OAuth2Constants.REFRESH_TOKEN);
+		request.addBodyParameter(OAuthConstants.CLIENT_ID, this.config.getApiKey());
+		request.addBodyParameter(OAuthConstants.CLIENT_SECRET, this.config.getApiSecret());
+		request.addBodyParameter(OAuth2Constants.REFRESH_TOKEN, accessToken.getRefreshToken());
+		if (this.api instanceof QQApi20 && ((QQApi20) this.api).isFusedOpenId()) {
+			request.addBodyParameter(OAuth2Constants.FMT, "json");
+		}
 		
-		final Response response = request.send();
-		return this.api.getAccessTokenExtractor().extract(response.getBody());
+		return OAuth2AccessToken.parse(sendForBody(request)).withDefaults(accessToken);
 	}
 
 	@Override
 	public void signRequest(final Token accessToken, final OAuthRequest request) {
 		request.addQuerystringParameter(OAuthConstants.ACCESS_TOKEN, accessToken.getToken());
-		String response = accessToken.getRawResponse();
-		Matcher matcher = openIdPattern.matcher(response);
-		if (matcher.find()) {
-			request.addQuerystringParameter(OAuth2Constants.OPENID, matcher.group(1));
+		String openId = OAuth2AccessToken.of(accessToken).getOpenId();
+		if (openId != null) {
+			request.addQuerystringParameter(OAuth2Constants.OPENID, openId);
 		} else {
-			throw new OAuthException(" not found openid: " + response);
+			throw new OAuthException(" not found openid: " + accessToken.getRawResponse());
 		}
 	}
 }
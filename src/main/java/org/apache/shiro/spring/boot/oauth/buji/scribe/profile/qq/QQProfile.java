@@ -1,16 +1,18 @@
 package org.apache.shiro.spring.boot.oauth.buji.scribe.profile.qq;
 
-import java.util.Locale;
-
-import org.scribe.up.profile.BaseOAuthProfile;
-import org.scribe.up.profile.CommonProfile;
-import org.scribe.up.profile.Gender;
+import org.apache.shiro.spring.boot.oauth.buji.scribe.profile.CompactOAuthProfile;
+import org.apache.shiro.spring.boot.oauth.buji.scribe.profile.ProfileSchema;
+import org.scribe.model.OAuthConstants;
 
 /**
  * http://wiki.connect.qq.com/get_user_info
  */
-public class QQProfile extends BaseOAuthProfile {
+public class QQProfile extends CompactOAuthProfile {
  
+	private static final long serialVersionUID = 1L;
+	
+	private static final ProfileSchema SCHEMA = ProfileSchema.of(QQProfile.class.getName(), new QQAttributesDefinition(), OAuthConstants.ACCESS_TOKEN);
+	
 	public static final String OPEN_ID = "openid";
 	// 用户在QQ空间的昵称。
 	public static final String NICK_NAME = "nickname";
@@ -37,4 +39,8 @@ public class QQProfile extends BaseOAuthProfile {
 	// 标识是否为年费黄钻用户（0：不是； 1：是）
 	public static final String IS_YELLOW_YEAR_VIP = "is_yellow_year_vip";
 	
+	public QQProfile() {
+		super(SCHEMA);
+	}
+	
 }
@@ -0,0 +1,19 @@
+package org.apache.shiro.spring.boot.oauth.buji.scribe.profile.qq;
+
+import org.apache.shiro.spring.boot.oauth.buji.scribe.token.OAuth2AccessToken;
+import org.scribe.extractors.AccessTokenExtractor;
+import org.scribe.model.Token;
+
+/**
+ * 用于获取QQ返回的ACCESS_TOKEN
+ * <p>同时兼容 fmt=json 的 JSON 格式与默认的 access_token=xx&amp;expires_in=xx 格式；
+ * 解析为 {@link OAuth2AccessToken}，携带 need_openid=1 时可直接取得 openid。</p>
+ */
+public class QQTokenExtractor implements AccessTokenExtractor {
+
+	@Override
+	public Token extract(String response) {
+		return OAuth2AccessToken.parse(response);
+	}
+
+}
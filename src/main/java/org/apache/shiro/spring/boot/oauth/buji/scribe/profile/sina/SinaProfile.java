@@ -18,8 +18,10 @@ package org.apache.shiro.spring.boot.oauth.buji.scribe.profile.sina;
 import java.util.Date;
 import java.util.Locale;
 
+import org.apache.shiro.spring.boot.oauth.buji.scribe.profile.CompactOAuthProfile;
+import org.apache.shiro.spring.boot.oauth.buji.scribe.profile.ProfileSchema;
+import org.scribe.model.OAuthConstants;
 import org.scribe.up.profile.AttributesDefinition;
-import org.scribe.up.profile.BaseOAuthProfile;
 import org.scribe.up.profile.CommonProfile;
 import org.scribe.up.profile.Gender;
 import org.scribe.up.profile.OAuthAttributesDefinitions;
@@ -27,10 +29,16 @@ import org.scribe.up.profile.OAuthAttributesDefinitions;
 /**
  * http://open.weibo.com/wiki/2/statuses/user_timeline
  */
-public class SinaProfile extends BaseOAuthProfile implements CommonProfile {
+public class SinaProfile extends CompactOAuthProfile implements CommonProfile {
     
     private static final long serialVersionUID = -4727966916198223807L;
     
+    private static final ProfileSchema SCHEMA = ProfileSchema.of(SinaProfile.class.getName(), new SinaAttributesDefinition(), OAuthConstants.ACCESS_TOKEN);
+    
+    public SinaProfile() {
+        super(SCHEMA);
+    }
+    
     @Override
     protected AttributesDefinition getAttributesDefinition() {
         return OAuthAttributesDefinitions.githubDefinition;
@@ -1,5 +1,6 @@
 package org.apache.shiro.spring.boot.oauth.buji.scribe.profile.weixin;
 
+import org.apache.shiro.spring.boot.oauth.buji.scribe.profile.StringListConverter;
 import org.scribe.up.profile.OAuthAttributesDefinition;
 import org.scribe.up.profile.converter.Converters;
 
@@ -30,6 +31,8 @@ public class WeiXinAttributesDefinition extends OAuthAttributesDefinition {
         addAttribute(PROVINCE, Converters.stringConverter);
         addAttribute(CITY, Converters.stringConverter);
         addAttribute(HEAD_IMG_URL, Converters.stringConverter);
+        /** 用户特权信息，JSON 数组，如微信沃卡用户为 chinaunicom */
+        addAttribute(PRIVILEGE, new StringListConverter());
         addAttribute(UNION_ID, Converters.stringConverter);
         addAttribute(APP_NAME, Converters.stringConverter);
         addAttribute(SUID, Converters.longConverter);
@@ -1,27 +1,17 @@
 package org.apache.shiro.spring.boot.oauth.buji.scribe.profile.weixin;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
-import org.scribe.exceptions.OAuthException;
+import org.apache.shiro.spring.boot.oauth.buji.scribe.token.OAuth2AccessToken;
+import org.scribe.extractors.AccessTokenExtractor;
 import org.scribe.model.Token;
-import org.scribe.utils.Preconditions;
 
 /**
  * 用于获取微信返回的ACCESS_TOKEN
  */
-public class WeiXinJsonTokenExtractor {
-
-	private Pattern accessTokenPattern = Pattern.compile("\"access_token\":\\s*\"(\\S*?)\"");
+public class WeiXinJsonTokenExtractor implements AccessTokenExtractor {
 
+	@Override
 	public Token extract(String response) {
-		Preconditions.checkEmptyString(response, "Cannot extract a token from a null or empty String");
-		Matcher matcher = accessTokenPattern.matcher(response);
-		if (matcher.find()) {
-			return new Token(matcher.group(1), "", response);
-		} else {
-			throw new OAuthException("Cannot extract an acces token. Response was: " + response);
-		}
+		return OAuth2AccessToken.parse(response);
 	}
 
 }
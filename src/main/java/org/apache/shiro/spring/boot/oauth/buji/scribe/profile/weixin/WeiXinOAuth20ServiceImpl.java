@@ -1,24 +1,24 @@
 package org.apache.shiro.spring.boot.oauth.buji.scribe.profile.weixin;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
+import org.apache.shiro.spring.boot.oauth.buji.scribe.OAuth2Constants;
+import org.apache.shiro.spring.boot.oauth.buji.scribe.http.TransportOAuth20ServiceImpl;
+import org.apache.shiro.spring.boot.oauth.buji.scribe.token.OAuth2AccessToken;
+import org.apache.shiro.spring.boot.oauth.buji.scribe.token.OAuth2TokenRefresher;
 import org.scribe.builder.api.DefaultApi20;
 import org.scribe.exceptions.OAuthException;
 import org.scribe.model.OAuthConfig;
 import org.scribe.model.OAuthConstants;
 import org.scribe.model.OAuthRequest;
-import org.scribe.model.Response;
 import org.scribe.model.Token;
+import org.scribe.model.Verb;
 import org.scribe.model.Verifier;
-import org.scribe.up.addon_to_scribe.ProxyOAuth20ServiceImpl;
 
 /**
  * 用于添加获取ACCESS_TOKEN与用户信息添加参数并请求微信
  */
-public class WeiXinOAuth20ServiceImpl extends ProxyOAuth20ServiceImpl {
+public class WeiXinOAuth20ServiceImpl extends TransportOAuth20ServiceImpl implements OAuth2TokenRefresher {
 
-	private static Pattern openIdPattern = Pattern.compile("\"openid\":\\s*\"(\\S*?)\"");
+	private static final String REFRESH_TOKEN_URL = "https://api.weixin.qq.com/sns/oauth2/refresh_token";
 
 	public WeiXinOAuth20ServiceImpl(DefaultApi20 api, OAuthConfig config, String proxyHost, int proxyPort) {
 		super(api, config, proxyHost, proxyPort);
@@ -35,19 +35,33 @@ public class WeiXinOAuth20ServiceImpl extends ProxyOAuth20ServiceImpl {
 		request.addBodyParameter(OAuthConstants.CODE, verifier.getValue());
 		request.addBodyParameter(OAuthConstants.REDIRECT_URI, this.config.getCallback());
 		request.addBodyParameter("grant_type", "authorization_code");
-		final Response response = request.send();
-		return this.api.getAccessTokenExtractor().extract(response.getBody());
+		return this.api.getAccessTokenExtractor().extract(sendForBody(request));
+	}
+
+	/**
+	 * 刷新access_token：refresh_token拥有较长的有效期（30天），access_token超时后可以使用refresh_token进行刷新
+	 * https://api.weixin.qq.com/sns/oauth2/refresh_token?appid=APPID&grant_type=refresh_token&refresh_token=REFRESH_TOKEN
+	 */
+	@Override
+	public OAuth2AccessToken refreshAccessToken(final OAuth2AccessToken accessToken) {
+		if (accessToken.getRefreshToken() == null) {
+			throw new OAuthException("微信接口返回数据miss refresh_token: " + accessToken.getRawResponse());
+		}
+		final OAuthRequest request = new OAuthRequest(Verb.GET, REFRESH_TOKEN_URL);
+		request.addQuerystringParameter("appid", this.config.getApiKey());
+		request.addQuerystringParameter(OAuth2Constants.GRANT_TYPE, OAuth2Constants.REFRESH_TOKEN);
+		request.addQuerystringParameter(OAuth2Constants.REFRESH_TOKEN, accessToken.getRefreshToken());
+		return OAuth2AccessToken.parse(sendForBody(request)).withDefaults(accessToken);
 	}
 
 	@Override
 	public void signRequest(final Token accessToken, final OAuthRequest request) {
 		request.addQuerystringParameter(OAuthConstants.ACCESS_TOKEN, accessToken.getToken());
-		String response = accessToken.getRawResponse();
-		Matcher matcher = openIdPattern.matcher(response);
-		if (matcher.find()) {
-			request.addQuerystringParameter("openid", matcher.group(1));
+		String openId = OAuth2AccessToken.of(accessToken).getOpenId();
+		if (openId != null) {
+			request.addQuerystringParameter("openid", openId);
 		} else {
-			throw new OAuthException("微信接口返回数据miss openid: " + response);
+			throw new OAuthException("微信接口返回数据miss openid: " + accessToken.getRawResponse());
 		}
 	}
 }
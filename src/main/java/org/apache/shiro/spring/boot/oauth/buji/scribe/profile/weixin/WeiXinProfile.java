@@ -2,17 +2,25 @@ package org.apache.shiro.spring.boot.oauth.buji.scribe.profile.weixin;
 
 import java.util.Locale;
 
-import org.scribe.up.profile.BaseOAuthProfile;
+import org.apache.shiro.spring.boot.oauth.buji.scribe.profile.CompactOAuthProfile;
+import org.apache.shiro.spring.boot.oauth.buji.scribe.profile.ProfileSchema;
+import org.scribe.model.OAuthConstants;
 import org.scribe.up.profile.CommonProfile;
 import org.scribe.up.profile.Gender;
 
 /**
  * 用于添加返回用户信息
  */
-public class WeiXinProfile extends BaseOAuthProfile implements CommonProfile {
+public class WeiXinProfile extends CompactOAuthProfile implements CommonProfile {
 
     private static final long serialVersionUID = -7969484323692570444L;
 
+    private static final ProfileSchema SCHEMA = ProfileSchema.of(WeiXinProfile.class.getName(), new WeiXinAttributesDefinition(), OAuthConstants.ACCESS_TOKEN);
+
+    public WeiXinProfile() {
+        super(SCHEMA);
+    }
+
 	@Override
 	public String getEmail() {
 		// TODO Auto-generated method stub
@@ -0,0 +1,407 @@
+/*
+ * Copyright (c) 2017, vindell (https://github.com/vindell).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.oauth.buji.scribe.provider;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.shiro.spring.boot.oauth.buji.scribe.OAuth2Constants;
+import org.apache.shiro.spring.boot.oauth.buji.scribe.http.OAuthTransport;
+import org.apache.shiro.spring.boot.oauth.buji.scribe.http.ResponseReader;
+import org.apache.shiro.spring.boot.oauth.buji.scribe.http.TransportOAuth20ServiceImpl;
+import org.apache.shiro.spring.boot.oauth.buji.scribe.http.TransportOptions;
+import org.apache.shiro.spring.boot.oauth.buji.scribe.http.TransportResponse;
+import org.apache.shiro.spring.boot.oauth.buji.scribe.http.UrlConnectionTransport;
+import org.apache.shiro.spring.boot.oauth.buji.scribe.profile.CompactOAuthProfile;
+import org.apache.shiro.spring.boot.oauth.buji.scribe.token.OAuth2AccessToken;
+import org.apache.shiro.spring.boot.oauth.buji.scribe.token.OAuth2TokenRefresher;
+import org.apache.shiro.spring.boot.oauth.buji.scribe.token.TokenRefreshScheduler;
+import org.apache.shiro.spring.boot.oauth.cache.OAuth2TokenCache;
+import org.apache.shiro.spring.boot.oauth.cache.SingleFlight;
+import org.apache.shiro.spring.boot.oauth.exception.ProviderRejectedException;
+import org.apache.shiro.spring.boot.oauth.metrics.OAuth2Metrics;
+import org.apache.shiro.spring.boot.oauth.principal.OAuthPrincipal;
+import org.apache.shiro.spring.boot.oauth.principal.OauthPrincipalBinder;
+import org.apache.shiro.spring.boot.oauth.resilience.HedgedRetryPolicy;
+import org.apache.shiro.spring.boot.oauth.resilience.ProviderGuard;
+import org.scribe.exceptions.OAuthConnectionException;
+import org.scribe.exceptions.OAuthException;
+import org.scribe.model.OAuthRequest;
+import org.scribe.model.Verb;
+import org.scribe.up.credential.OAuthCredential;
+import org.scribe.up.profile.UserProfile;
+import org.scribe.model.Token;
+import org.scribe.up.provider.BaseOAuth20Provider;
+import org.scribe.up.provider.exception.HttpException;
+
+/**
+ * QQ、微信、新浪微博等 OAuth 2.0 Provider 的公共父类
+ * <p>子类在 {@link #doSendRequestForData(Token, String)} 中通过 {@link #execute(OAuthRequest)} 发送获取用户信息的请求；
+ * 授权码只能使用一次，只有获取用户信息等幂等请求会对冲与重试。</p>
+ * @author 		： <a href="https://github.com/vindell">vindell</a>
+ */
+public abstract class AbstractOAuth20Provider extends BaseOAuth20Provider {
+
+	/** 以 Access Token 为键的用户信息缓存，存活时间取自 expires_in；为空时不缓存 */
+	protected OAuth2TokenCache tokenCache;
+	/** 合并同一授权码的交换请求，完成后的结果保留 30 秒供刷新回调页面的请求使用 */
+	private final SingleFlight<String, Token> exchanges = new SingleFlight<String, Token>(30000, 1000);
+	/** 各阶段耗时记录，默认不记录 */
+	protected OAuth2Metrics metrics = OAuth2Metrics.NOOP;
+	/** 舱壁 + 熔断器；为空时不做保护 */
+	protected ProviderGuard guard;
+	/** 幂等请求的对冲与重试；为空时不对冲、不重试 */
+	protected HedgedRetryPolicy retryPolicy;
+	/** Access Token 后台续期；为空时不续期 */
+	protected TokenRefreshScheduler refreshScheduler;
+	/** 第三方账号与本地账号的绑定关系；为空时不查找 */
+	protected OauthPrincipalBinder principalBinder;
+	/** 读取响应体：gzip 解压并限制大小 */
+	protected ResponseReader responseReader = new ResponseReader();
+	/** 发送请求的传输层，代理与超时取自本 Provider 的配置 */
+	protected OAuthTransport transport = new UrlConnectionTransport();
+	protected boolean lazyProfile;
+	/** 允许保留的 Profile 属性；为空时保留全部属性，openid 始终保留 */
+	protected Set<String> allowedAttributes;
+
+	/**
+	 * 重复的回调请求（重复提交、刷新 ?code=... 页面）在交换进行中或完成后 30 秒内共享第一次交换的结果，避免第二次交换以 invalid_grant 失败
+	 */
+	@Override
+	protected Token getAccessToken(final OAuthCredential credential) {
+		return exchanges.execute(getType() + "#" + credential.getVerifier(), () -> doGetAccessToken(credential));
+	}
+
+	protected Token doGetAccessToken(final OAuthCredential credential) {
+		return timed(OAuth2Metrics.STAGE_ACCESS_TOKEN, () -> {
+			Token accessToken = guarded(() -> super.getAccessToken(credential));
+			scheduleRefresh(accessToken);
+			return accessToken;
+		});
+	}
+
+	/**
+	 * 登记 Token 续期，以 type#openid 为键；服务不支持 refresh_token 或响应中没有 refresh_token 时忽略
+	 */
+	protected void scheduleRefresh(final Token accessToken) {
+		if (refreshScheduler == null || !(service instanceof OAuth2TokenRefresher)) {
+			return;
+		}
+		OAuth2AccessToken token = OAuth2AccessToken.of(accessToken);
+		String subject = token.getOpenId() != null ? token.getOpenId() : token.getToken();
+		refreshScheduler.register(TokenRefreshScheduler.key(getType(), subject), token, (OAuth2TokenRefresher) service);
+	}
+
+	@Override
+	protected String sendRequestForData(final Token accessToken, final String dataUrl) throws HttpException {
+		if (tokenCache == null) {
+			return idempotent(() -> guarded(() -> doSendRequestForData(accessToken, dataUrl)));
+		}
+		String cacheKey = dataUrl + "#" + accessToken.getToken();
+		String body = tokenCache.get(cacheKey);
+		if (body != null) {
+			logger.debug("Cache hit for : {}", dataUrl);
+			return body;
+		}
+		body = idempotent(() -> guarded(() -> doSendRequestForData(accessToken, dataUrl)));
+		tokenCache.put(cacheKey, body, getExpiresIn(accessToken));
+		return body;
+	}
+
+	/**
+	 * 发送获取用户信息的远程请求，默认使用 scribe-up 的实现
+	 */
+	protected String doSendRequestForData(final Token accessToken, final String dataUrl) throws HttpException {
+		return timed(OAuth2Metrics.STAGE_USERINFO, () -> super.sendRequestForData(accessToken, dataUrl));
+	}
+
+	@Override
+	protected UserProfile extractUserProfile(final String body) {
+		UserProfile profile = timed(OAuth2Metrics.STAGE_PROFILE, () -> doExtractUserProfile(body));
+		bindPrincipal(profile);
+		return profile;
+	}
+
+	/**
+	 * 查找第三方账号绑定的本地账号，已绑定时通过 {@link CompactOAuthProfile#setBoundUsername(String)} 记录本地用户名；
+	 * Profile 的 id 保持为 openid，会话中的身份、Token 续期与缓存仍以 openid 标识第三方账号
+	 */
+	protected void bindPrincipal(final UserProfile profile) {
+		if (principalBinder == null || profile == null) {
+			return;
+		}
+		String openid = getOpenId(profile);
+		if (openid == null) {
+			return;
+		}
+		timed(OAuth2Metrics.STAGE_BINDING, () -> {
+			String username = principalBinder.getUsername(getType(), openid);
+			if (username != null) {
+				if (profile instanceof CompactOAuthProfile) {
+					((CompactOAuthProfile) profile).setBoundUsername(username);
+				} else {
+					logger.debug("Profile type {} can not record the bound username", profile.getClass().getName());
+				}
+			}
+			return null;
+		});
+	}
+
+	/**
+	 * 按本 Provider 的配置初始化新建的 Profile，子类在添加属性之前调用
+	 */
+	protected <P extends CompactOAuthProfile> P initProfile(P profile) {
+		profile.setLazy(lazyProfile);
+		return profile;
+	}
+
+	/**
+	 * 属性是否需要解析并保存到 Profile 中
+	 */
+	protected boolean isAttributeAllowed(String name) {
+		return allowedAttributes == null || allowedAttributes.contains(name) || OAuth2Constants.OPENID.equals(name);
+	}
+
+	/**
+	 * 第三方账号的唯一标识：优先取属性中的 openid，否则取 Profile 的 id
+	 */
+	protected String getOpenId(final UserProfile profile) {
+		return OAuthPrincipal.getOpenId(profile);
+	}
+
+	/**
+	 * 本 Provider 创建的 Profile 类型，注销或会话过期时据此从身份集合中找出本 Provider 的账号；为空时不识别
+	 */
+	public Class<? extends UserProfile> getProfileType() {
+		return null;
+	}
+
+	/**
+	 * 为 Service 设置传输层、代理与超时以及响应体读取
+	 */
+	protected <S extends TransportOAuth20ServiceImpl> S configure(S service) {
+		service.setTransport(transport);
+		service.setTransportOptions(transportOptions());
+		service.setResponseReader(responseReader);
+		return service;
+	}
+
+	/**
+	 * 本 Provider 的代理与超时设置
+	 */
+	protected TransportOptions transportOptions() {
+		return new TransportOptions(connectTimeout, readTimeout, proxyHost, proxyPort);
+	}
+
+	/**
+	 * 通过传输层发送请求，连接失败时抛出 {@link OAuthConnectionException}；调用方负责读取并关闭响应
+	 */
+	protected TransportResponse execute(final OAuthRequest request) {
+		responseReader.prepare(request);
+		try {
+			return transport.execute(request, transportOptions());
+		} catch (IOException e) {
+			throw new OAuthConnectionException(e);
+		}
+	}
+
+	/**
+	 * 启动预热：初始化服务，并用示例响应执行一次 Token 与 Profile 的解析；不发出远程请求，也不查找绑定关系
+	 */
+	public void warmUp() {
+		init();
+		OAuth2AccessToken.parse(getSampleTokenResponse());
+		doExtractUserProfile(getSampleProfileBody());
+	}
+
+	/**
+	 * 启动预热：通过传输层请求一次 {@link #getWarmupUrl()} 并读完响应，连接留在传输层的连接池或 keep-alive 缓存中
+	 * @return 响应状态码
+	 */
+	public int preconnect() {
+		TransportResponse response = execute(new OAuthRequest(Verb.GET, getWarmupUrl()));
+		responseReader.readBody(response);
+		return response.getCode();
+	}
+
+	/**
+	 * 启动预热时预先建立连接的地址，默认为用户信息地址
+	 */
+	public String getWarmupUrl() {
+		return getProfileUrl();
+	}
+
+	/**
+	 * 预热使用的示例 Token 响应
+	 */
+	protected String getSampleTokenResponse() {
+		return "{\"access_token\":\"warmup\",\"expires_in\":7776000,\"refresh_token\":\"warmup\",\"openid\":\"warmup\"}";
+	}
+
+	/**
+	 * 预热使用的示例用户信息响应，子类可返回包含典型字段的响应
+	 */
+	protected String getSampleProfileBody() {
+		return "{}";
+	}
+
+	/**
+	 * 从用户信息响应中解析 Profile，由子类实现
+	 */
+	protected abstract UserProfile doExtractUserProfile(final String body);
+
+	/**
+	 * 在舱壁与熔断器保护下执行远程调用
+	 */
+	protected <T, E extends Exception> T guarded(ProviderGuard.GuardedCall<T, E> call) throws E {
+		return guard == null ? call.call() : guard.execute(call, this::isProviderFailure);
+	}
+
+	/**
+	 * 按对冲与重试策略执行幂等的 GET 请求（用户信息、OpenID）；授权码只能使用一次，换取 Access Token 时不可使用。
+	 * 传入的调用应自行经过 {@link #guarded}，使每次尝试与对冲各占一个舱壁许可；被舱壁或熔断器拒绝时不重试
+	 */
+	protected <T, E extends Exception> T idempotent(ProviderGuard.GuardedCall<T, E> call) throws E {
+		return retryPolicy == null ? call.call() : retryPolicy.execute(getType(), call,
+				e -> !(e instanceof ProviderRejectedException) && isProviderFailure(e));
+	}
+
+	/**
+	 * 判断异常是否表示认证服务器不可用：连接失败与 5xx 计为失败；
+	 * 认证服务器正常返回的错误（4xx、无法解析的 Token 响应）说明服务可用，不计为失败
+	 */
+	protected boolean isProviderFailure(Throwable e) {
+		if (e instanceof HttpException) {
+			return ((HttpException) e).getCode() >= 500;
+		}
+		//Token 端点的 5xx 由 TransportOAuth20ServiceImpl#sendForBody 包装为连接异常
+		if (e instanceof OAuthConnectionException) {
+			return true;
+		}
+		return !(e instanceof OAuthException);
+	}
+
+	/**
+	 * 执行一个阶段并记录耗时与结果，provider 标签取 {@link #getType()}
+	 */
+	protected <T, E extends Exception> T timed(String stage, ProviderGuard.GuardedCall<T, E> call) throws E {
+		long start = System.nanoTime();
+		Throwable error = null;
+		try {
+			return call.call();
+		} catch (Throwable e) {
+			error = e;
+			throw e;
+		} finally {
+			metrics.record(getType(), stage, System.nanoTime() - start, error);
+		}
+	}
+
+	/**
+	 * 返回 Access Token 的有效期 expires_in（秒），换取 Token 时已解析，未返回时为空
+	 */
+	protected Long getExpiresIn(final Token accessToken) {
+		return OAuth2AccessToken.of(accessToken).getExpiresIn();
+	}
+
+	public SingleFlight<String, Token> getExchanges() {
+		return exchanges;
+	}
+
+	public OAuth2Metrics getMetrics() {
+		return metrics;
+	}
+
+	public void setMetrics(OAuth2Metrics metrics) {
+		this.metrics = metrics == null ? OAuth2Metrics.NOOP : metrics;
+	}
+
+	public ProviderGuard getGuard() {
+		return guard;
+	}
+
+	public void setGuard(ProviderGuard guard) {
+		this.guard = guard;
+	}
+
+	public HedgedRetryPolicy getRetryPolicy() {
+		return retryPolicy;
+	}
+
+	public void setRetryPolicy(HedgedRetryPolicy retryPolicy) {
+		this.retryPolicy = retryPolicy;
+	}
+
+	public TokenRefreshScheduler getRefreshScheduler() {
+		return refreshScheduler;
+	}
+
+	public void setRefreshScheduler(TokenRefreshScheduler refreshScheduler) {
+		this.refreshScheduler = refreshScheduler;
+	}
+
+	public OauthPrincipalBinder getPrincipalBinder() {
+		return principalBinder;
+	}
+
+	public void setPrincipalBinder(OauthPrincipalBinder principalBinder) {
+		this.principalBinder = principalBinder;
+	}
+
+	public ResponseReader getResponseReader() {
+		return responseReader;
+	}
+
+	public void setResponseReader(ResponseReader responseReader) {
+		this.responseReader = responseReader == null ? new ResponseReader() : responseReader;
+	}
+
+	public OAuthTransport getTransport() {
+		return transport;
+	}
+
+	public void setTransport(OAuthTransport transport) {
+		this.transport = transport == null ? new UrlConnectionTransport() : transport;
+	}
+
+	public boolean isLazyProfile() {
+		return lazyProfile;
+	}
+
+	public void setLazyProfile(boolean lazyProfile) {
+		this.lazyProfile = lazyProfile;
+	}
+
+	public Set<String> getAllowedAttributes() {
+		return allowedAttributes;
+	}
+
+	public void setAllowedAttributes(Collection<String> allowedAttributes) {
+		this.allowedAttributes = allowedAttributes == null || allowedAttributes.isEmpty() ? null
+				: new HashSet<String>(allowedAttributes);
+	}
+
+	public OAuth2TokenCache getTokenCache() {
+		return tokenCache;
+	}
+
+	public void setTokenCache(OAuth2TokenCache tokenCache) {
+		this.tokenCache = tokenCache;
+	}
+
+}
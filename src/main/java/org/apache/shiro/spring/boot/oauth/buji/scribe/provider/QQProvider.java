@@ -15,49 +15,60 @@
  */
 package org.apache.shiro.spring.boot.oauth.buji.scribe.provider;
 
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.apache.shiro.spring.boot.oauth.buji.scribe.OAuth2Constants;
 import org.apache.shiro.spring.boot.oauth.buji.scribe.api.QQApi20;
+import org.apache.shiro.spring.boot.oauth.buji.scribe.http.TransportResponse;
 import org.apache.shiro.spring.boot.oauth.buji.scribe.profile.qq.QQAttributesDefinition;
 import org.apache.shiro.spring.boot.oauth.buji.scribe.profile.qq.QQOAuth20ServiceImpl;
 import org.apache.shiro.spring.boot.oauth.buji.scribe.profile.qq.QQProfile;
+import org.apache.shiro.spring.boot.oauth.buji.scribe.token.OAuth2AccessToken;
+import org.apache.shiro.spring.boot.oauth.metrics.OAuth2Metrics;
+import org.scribe.exceptions.OAuthException;
 import org.scribe.model.OAuthConfig;
 import org.scribe.model.OAuthConstants;
 import org.scribe.model.OAuthRequest;
-import org.scribe.model.Response;
 import org.scribe.model.SignatureType;
 import org.scribe.model.Token;
 import org.scribe.model.Verb;
 import org.scribe.up.credential.OAuthCredential;
-import org.scribe.up.profile.JsonHelper;
-import org.scribe.up.provider.BaseOAuth20Provider;
 import org.scribe.up.provider.BaseOAuthProvider;
 import org.scribe.up.provider.exception.HttpException;
 
-import com.alibaba.fastjson.JSONObject;
-import com.fasterxml.jackson.databind.JsonNode;
+import com.alibaba.fastjson.JSON;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 
 /**
  * http://wiki.open.qq.com/wiki/%E3%80%90QQ%E7%99%BB%E5%BD%95%E3%80%91%E5%BC%80%E5%8F%91%E6%94%BB%E7%95%A5_Client-side
  */
-public final class QQProvider extends BaseOAuth20Provider {
+public final class QQProvider extends AbstractOAuth20Provider {
     
 	private static Pattern openIdPattern = Pattern.compile("\"openid\":\\s*\"(\\S*?)\"");
 	private static final String PROFILE_URL = "https://graph.qq.com/user/get_user_info";
 	private static final String OPENID_URL = "https://graph.qq.com/oauth2.0/me?access_token=%s";
 	
 	private final static QQAttributesDefinition QQ_ATTRIBUTES = new QQAttributesDefinition();
+	private final static Set<String> QQ_PRINCIPAL_ATTRIBUTES = new HashSet<String>(QQ_ATTRIBUTES.getPrincipalAttributes());
+	private final static JsonFactory JSON_FACTORY = new JsonFactory();
+	
+	// 换取Access Token时一并获取openid，默认关闭；关闭或未返回openid时仍请求 /oauth2.0/me
+	private boolean fusedOpenId = false;
 	
     @Override
     protected void internalInit() {
        
     	/*this.service = new ServiceBuilder().provider(QQApi20.class).apiKey(this.key).apiSecret(this.secret)
             .callback(this.callbackUrl).build();*/
-    	QQApi20 api = new QQApi20();
-        this.service = new QQOAuth20ServiceImpl(api, new OAuthConfig(this.key, this.secret, this.callbackUrl, SignatureType.Header, null, null),
-                this.proxyHost,this.proxyPort);
+    	QQApi20 api = new QQApi20(fusedOpenId);
+        this.service = configure(new QQOAuth20ServiceImpl(api, new OAuthConfig(this.key, this.secret, this.callbackUrl, SignatureType.Header, null, null),
+                this.proxyHost,this.proxyPort));
         
     }
     
@@ -66,47 +77,32 @@ public final class QQProvider extends BaseOAuth20Provider {
 	 * 此不操作交由 {@link org.apache.shiro.spring.boot.oauth.buji.scribe.profile.qq.QQOAuth20ServiceImpl#getAccessToken(Token, org.scribe.model.Verifier)}
 	 */
 	@Override
-	protected Token getAccessToken(OAuthCredential credential) {
-		return super.getAccessToken(credential);
+	protected Token doGetAccessToken(OAuthCredential credential) {
+		return super.doGetAccessToken(credential);
 	}
 
     @Override
-    protected String sendRequestForData(final Token accessToken, final String dataUrl) throws HttpException {
+    protected String doSendRequestForData(final Token accessToken, final String dataUrl) throws HttpException {
     	
     	logger.debug("accessToken : {} / dataUrl : {}", accessToken, dataUrl);
-        final long t0 = System.currentTimeMillis();
         
-    	// Step3：使用Access Token来获取用户的OpenID
-    	
-    	//  1.发送请求到如下地址（请将access_token等参数值替换为你自己的）： https://graph.qq.com/oauth2.0/me?access_token=YOUR_ACCESS_TOKEN
-        String getOpenIdUrl = String.format(OPENID_URL, accessToken.getToken());
-        OAuthRequest request = new OAuthRequest(Verb.GET, getOpenIdUrl);
-        Response response = request.send();
-        int code = response.getCode();
-        String body = response.getBody();
-        if (code != 200) {
-        	logger.error("Failed to get OpenID, code : " + code + " / body : " + body);
-            throw new HttpException(code, body);
-        }
-        // 2. 获取到用户OpenID，返回包如下： callback( {"client_id":"YOUR_APPID","openid":"YOUR_OPENID"} ); 
-        Matcher matcher = openIdPattern.matcher(body);
-        String openid = "";
-        if(matcher.find()){
-
-        	// Step4：使用Access Token以及OpenID来访问和修改用户数据
-        	
-        	openid = matcher.group(1);
-        	 
+    	// Step3：使用Access Token来获取用户的OpenID；换取Token时已返回openid则直接使用
+        String fusedOpenId = OAuth2AccessToken.of(accessToken).getOpenId();
+        final String openid = fusedOpenId != null ? fusedOpenId : getOpenId(accessToken);
+        
+        // Step4：使用Access Token以及OpenID来访问和修改用户数据
+        final long t0 = System.currentTimeMillis();
+        return timed(OAuth2Metrics.STAGE_USERINFO, () -> {
         	// （1）发送请求到get_user_info的URL（请将access_token，appid等参数值替换为你自己的）：
         	// https://graph.qq.com/user/get_user_info?access_token=YOUR_ACCESS_TOKEN&oauth_consumer_key=YOUR_APP_ID&openid=YOUR_OPENID
-        	request = new OAuthRequest(Verb.GET, dataUrl);
+        	OAuthRequest request = new OAuthRequest(Verb.GET, dataUrl);
             request.addQuerystringParameter(OAuthConstants.ACCESS_TOKEN, accessToken.getToken());
             request.addQuerystringParameter(OAuth2Constants.OAUTH_CONSUMER_KEY, this.getKey());
             request.addQuerystringParameter(OAuth2Constants.OPENID, openid);
             // （2）成功返回后，即可获取到用户数据：
-            response = request.send();
-            code = response.getCode();
-            body = response.getBody();
+            TransportResponse response = execute(request);
+            int code = response.getCode();
+            String body = responseReader.readBody(response);
             final long t1 = System.currentTimeMillis();
             logger.debug("Request took : " + (t1 - t0) + " ms for : " + dataUrl);
             logger.debug("response code : {} / response body : {}", code, body);
@@ -114,13 +110,53 @@ public final class QQProvider extends BaseOAuth20Provider {
                 logger.error("Failed to get data, code : " + code + " / body : " + body);
                 throw new HttpException(code, body);
             }
-            JSONObject json = JSONObject.parseObject(body);
-            json.put(OAuth2Constants.OPENID, openid);
-            json.put(OAuthConstants.ACCESS_TOKEN, accessToken.getToken());
-            return json.toString();
-        }
-        logger.error("Failed to get OpenID, code : " + code + " / body : " + body);
-        throw new HttpException(code, body);
+            return prependFields(body, openid, accessToken.getToken());
+        });
+    }
+    
+    /**
+     * 将 openid 与 access_token 直接拼接到响应 JSON 对象的开头，避免为追加两个字段而解析并重新序列化整个响应
+     */
+    protected static String prependFields(final String body, final String openid, final String accessToken) {
+    	int start = body == null ? -1 : body.indexOf('{');
+    	if (start < 0) {
+    		throw new OAuthException("Unexpected user info response : " + body);
+    	}
+    	StringBuilder builder = new StringBuilder(body.length() + 128).append(body, 0, start + 1)
+    			.append('"').append(OAuth2Constants.OPENID).append("\":").append(JSON.toJSONString(openid)).append(',')
+    			.append('"').append(OAuthConstants.ACCESS_TOKEN).append("\":").append(JSON.toJSONString(accessToken));
+    	int next = start + 1;
+    	while (next < body.length() && Character.isWhitespace(body.charAt(next))) {
+    		next++;
+    	}
+    	if (next < body.length() && body.charAt(next) != '}') {
+    		builder.append(',');
+    	}
+    	return builder.append(body, start + 1, body.length()).toString();
+    }
+    
+    /**
+     * Step3：使用Access Token来获取用户的OpenID
+     */
+    protected String getOpenId(final Token accessToken) throws HttpException {
+    	
+    	return timed(OAuth2Metrics.STAGE_OPENID, () -> {
+        	//  1.发送请求到如下地址（请将access_token等参数值替换为你自己的）： https://graph.qq.com/oauth2.0/me?access_token=YOUR_ACCESS_TOKEN
+            String getOpenIdUrl = String.format(OPENID_URL, accessToken.getToken());
+            OAuthRequest request = new OAuthRequest(Verb.GET, getOpenIdUrl);
+            TransportResponse response = execute(request);
+            int code = response.getCode();
+            String body = responseReader.readBody(response);
+            if (code == 200) {
+            	// 2. 获取到用户OpenID，返回包如下： callback( {"client_id":"YOUR_APPID","openid":"YOUR_OPENID"} ); 
+            	Matcher matcher = openIdPattern.matcher(body);
+            	if (matcher.find()) {
+            		return matcher.group(1);
+            	}
+            }
+            logger.error("Failed to get OpenID, code : " + code + " / body : " + body);
+            throw new HttpException(code, body);
+        });
     }
     
     @Override
@@ -128,30 +164,72 @@ public final class QQProvider extends BaseOAuth20Provider {
         return PROFILE_URL;
     }
     
+    @Override
+    protected String getSampleProfileBody() {
+    	return prependFields("{\"ret\":0,\"msg\":\"\",\"nickname\":\"warmup\",\"gender\":\"男\",\"figureurl_qq_1\":\"\"}", "warmup", "warmup");
+    }
+    
+	/**
+	 * 流式读取用户信息响应，一次遍历直接填充 {@link QQProfile}，不构建中间的 JSON 对象树
+	 */
 	@Override
-    protected QQProfile extractUserProfile(final String body) {
-        QQProfile profile = new QQProfile();
-        final JsonNode json = JsonHelper.getFirstNode(body);
-        if (null != json) {
-        	
-        	profile.setId(JsonHelper.get(json, OAuth2Constants.OPENID));
-        	profile.setAccessToken(String.valueOf(JsonHelper.get(json, OAuthConstants.ACCESS_TOKEN)));
-        	
-            for(final String attribute : QQ_ATTRIBUTES.getPrincipalAttributes()){
-                profile.addAttribute(attribute, JsonHelper.get(json, attribute));
-                if(attribute.equals("headimgurl")) {
-                    profile.addAttribute(attribute, JsonHelper.get(json, "figureurl_qq_1"));
-                }
-            }
-            
+    protected QQProfile doExtractUserProfile(final String body) {
+        QQProfile profile = initProfile(new QQProfile());
+        try (JsonParser parser = JSON_FACTORY.createParser(body)) {
+        	if (parser.nextToken() != JsonToken.START_OBJECT) {
+        		return profile;
+        	}
+        	while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        		String name = parser.getCurrentName();
+        		JsonToken token = parser.nextToken();
+        		if (token.isStructStart()) {
+        			parser.skipChildren();
+        			continue;
+        		}
+        		if (token == JsonToken.VALUE_NULL) {
+        			continue;
+        		}
+        		boolean retained = QQ_PRINCIPAL_ATTRIBUTES.contains(name) && isAttributeAllowed(name);
+        		if (!retained && !OAuth2Constants.OPENID.equals(name) && !OAuthConstants.ACCESS_TOKEN.equals(name)) {
+        			//不需要的属性不读取文本
+        			continue;
+        		}
+        		String value = parser.getText();
+        		if (OAuth2Constants.OPENID.equals(name)) {
+        			profile.setId(value);
+        		} else if (OAuthConstants.ACCESS_TOKEN.equals(name)) {
+        			profile.setAccessToken(value);
+        			continue;
+        		}
+        		if (retained) {
+        			profile.addAttribute(name, value);
+        		}
+        	}
+        } catch (IOException e) {
+        	throw new OAuthException("Cannot parse user info : " + body, e);
         }
         return profile;
     }
 	
     
+    @Override
+    public Class<QQProfile> getProfileType() {
+    	return QQProfile.class;
+    }
+    
     @Override
     protected BaseOAuthProvider newProvider() {
-        return new QQProvider();
+        QQProvider provider = new QQProvider();
+        provider.setFusedOpenId(fusedOpenId);
+        return provider;
     }
     
+    public boolean isFusedOpenId() {
+		return fusedOpenId;
+	}
+
+	public void setFusedOpenId(boolean fusedOpenId) {
+		this.fusedOpenId = fusedOpenId;
+	}
+    
 }
\ No newline at end of file
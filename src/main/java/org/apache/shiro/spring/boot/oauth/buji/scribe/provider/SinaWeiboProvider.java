@@ -15,25 +15,55 @@
  */
 package org.apache.shiro.spring.boot.oauth.buji.scribe.provider;
 
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.shiro.spring.boot.oauth.buji.scribe.http.TransportResponse;
 import org.apache.shiro.spring.boot.oauth.buji.scribe.profile.sina.SinaAttributesDefinition;
 import org.apache.shiro.spring.boot.oauth.buji.scribe.profile.sina.SinaProfile;
+import org.apache.shiro.spring.boot.oauth.buji.scribe.token.OAuth2AccessToken;
+import org.apache.shiro.spring.boot.oauth.metrics.OAuth2Metrics;
 import org.scribe.builder.ServiceBuilder;
 import org.scribe.builder.api.SinaWeiboApi20;
+import org.scribe.exceptions.OAuthException;
+import org.scribe.model.OAuthConstants;
+import org.scribe.model.OAuthRequest;
+import org.scribe.model.Token;
+import org.scribe.model.Verb;
 import org.scribe.up.profile.AttributesDefinition;
 import org.scribe.up.profile.JsonHelper;
 import org.scribe.up.profile.UserProfile;
-import org.scribe.up.provider.BaseOAuth20Provider;
 import org.scribe.up.provider.BaseOAuthProvider;
+import org.scribe.up.provider.exception.HttpException;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
 
 /**
- * http://open.weibo.com/wiki/2/statuses/user_timeline
+ * http://open.weibo.com/wiki/2/users/show
+ * <p>默认沿用 statuses/user_timeline 的实现，后者会下载一整页微博内容；{@link #setLightweight(boolean) 开启轻量模式}后
+ * 通过 Token 响应中的 uid（缺失时调用 get_token_info）获取用户 ID，再请求 users/show，且只保留 {@link SinaAttributesDefinition}
+ * 中定义的属性。轻量模式的 Profile 不再包含 user_timeline 响应中的字段，需按需开启。两种模式都经由传输层与
+ * 响应读取器读取响应，非 200 响应抛出 {@link HttpException}。</p>
  */
-public final class SinaWeiboProvider extends BaseOAuth20Provider {
+public final class SinaWeiboProvider extends AbstractOAuth20Provider {
     
 	private final static AttributesDefinition SINA_ATTRIBUTES = new SinaAttributesDefinition();
+	private final static Set<String> SINA_PRINCIPAL_ATTRIBUTES = new HashSet<String>(SINA_ATTRIBUTES.getPrincipalAttributes());
+	private final static JsonFactory JSON_FACTORY = new JsonFactory();
 	private final static String PROFILE_URL = "https://api.weibo.com/2/statuses/user_timeline.json";
+	private final static String USERS_SHOW_URL = "https://api.weibo.com/2/users/show.json";
+	private final static String TOKEN_INFO_URL = "https://api.weibo.com/oauth2/get_token_info";
+	private final static String UID = "uid";
+	
+	// 轻量模式：get_token_info + users/show，只保留定义的属性；默认关闭
+	private boolean lightweight = false;
+	// 轻量模式使用的地址，可指向代理或测试服务
+	private String usersShowUrl = USERS_SHOW_URL;
+	private String tokenInfoUrl = TOKEN_INFO_URL;
 	 
     @Override
     protected void internalInit() {
@@ -43,16 +73,90 @@ public final class SinaWeiboProvider extends BaseOAuth20Provider {
     
     @Override
     protected String getProfileUrl() {
-        return PROFILE_URL;
+        return lightweight ? usersShowUrl : PROFILE_URL;
+    }
+    
+    @Override
+    protected String getSampleProfileBody() {
+    	return "{\"id\":1,\"idstr\":\"1\",\"screen_name\":\"warmup\",\"status\":{\"text\":\"\"}}";
     }
     
     @Override
-    protected UserProfile extractUserProfile(final String body) {
-    	final SinaProfile profile = new SinaProfile();
+    protected String doSendRequestForData(final Token accessToken, final String dataUrl) throws HttpException {
+    	final String uid = lightweight ? resolveUid(accessToken) : null;
+    	return timed(OAuth2Metrics.STAGE_USERINFO, () -> {
+        	OAuthRequest request = newRequest(Verb.GET, dataUrl);
+        	if (lightweight) {
+        		request.addQuerystringParameter(OAuthConstants.ACCESS_TOKEN, accessToken.getToken());
+        		request.addQuerystringParameter(UID, uid);
+        	} else {
+        		this.service.signRequest(accessToken, request);
+        	}
+        	return send(request, dataUrl);
+        });
+    }
+    
+    /**
+     * 优先使用 Token 响应中的 uid，缺失时调用 get_token_info
+     */
+    protected String resolveUid(final Token accessToken) throws HttpException {
+    	String uid = OAuth2AccessToken.of(accessToken).getOpenId();
+    	return uid != null ? uid : getUid(accessToken);
+    }
+    
+    /**
+     * 通过 get_token_info 查询 Access Token 对应的用户 ID
+     */
+    protected String getUid(final Token accessToken) throws HttpException {
+    	return timed(OAuth2Metrics.STAGE_OPENID, () -> {
+        	OAuthRequest request = newRequest(Verb.POST, tokenInfoUrl);
+        	request.addBodyParameter(OAuthConstants.ACCESS_TOKEN, accessToken.getToken());
+        	// 只需要 uid：直接从响应流中读取该字段，不生成响应字符串
+        	final TransportResponse response = execute(request);
+        	if (response.getCode() != 200) {
+        		final String body = responseReader.readBody(response);
+        		logger.error("Failed to get uid, code : " + response.getCode() + " / body : " + body);
+        		throw new HttpException(response.getCode(), body);
+        	}
+        	String uid = responseReader.readJsonField(response, UID);
+        	if (uid == null) {
+        		throw new OAuthException("Cannot extract uid from : " + tokenInfoUrl);
+        	}
+        	return uid;
+        });
+    }
+    
+    protected OAuthRequest newRequest(Verb verb, String url) {
+    	return new OAuthRequest(verb, url);
+    }
+    
+    protected String send(OAuthRequest request, String url) throws HttpException {
+    	final long t0 = System.currentTimeMillis();
+    	final TransportResponse response = execute(request);
+        final int code = response.getCode();
+        final String body = responseReader.readBody(response);
+        logger.debug("Request took : " + (System.currentTimeMillis() - t0) + " ms for : " + url);
+        logger.debug("response code : {} / response body : {}", code, body);
+        if (code != 200) {
+        	logger.error("Failed to get data, code : " + code + " / body : " + body);
+            throw new HttpException(code, body);
+        }
+        return body;
+    }
+    
+    @Override
+    protected UserProfile doExtractUserProfile(final String body) {
+    	if (lightweight) {
+    		return extractProjectedProfile(body);
+    	}
+    	final SinaProfile profile = initProfile(new SinaProfile());
         JsonNode json = JsonHelper.getFirstNode(body);
         if (json != null) {
             profile.setId(JsonHelper.get(json, "ID"));
             for (final String attribute : SINA_ATTRIBUTES.getPrincipalAttributes()) {
+            	if (!isAttributeAllowed(attribute)) {
+            		continue;
+            	}
                 profile.addAttribute(attribute, JsonHelper.get(json, attribute));
             }
            /* json = json.get("meta");
@@ -64,9 +168,73 @@ public final class SinaWeiboProvider extends BaseOAuth20Provider {
         return profile;
     }
     
+    /**
+     * 流式读取 users/show 响应，只保留 id 与定义的属性，跳过嵌套的最新微博等内容
+     */
+    protected SinaProfile extractProjectedProfile(final String body) {
+    	final SinaProfile profile = initProfile(new SinaProfile());
+    	try (JsonParser parser = JSON_FACTORY.createParser(body)) {
+        	if (parser.nextToken() != JsonToken.START_OBJECT) {
+        		return profile;
+        	}
+        	while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        		String name = parser.getCurrentName();
+        		JsonToken token = parser.nextToken();
+        		if (token.isStructStart()) {
+        			parser.skipChildren();
+        			continue;
+        		}
+        		if (token == JsonToken.VALUE_NULL) {
+        			continue;
+        		}
+        		if ("idstr".equals(name) || ("id".equals(name) && profile.getId() == null)) {
+        			profile.setId(parser.getText());
+        		} else if (SINA_PRINCIPAL_ATTRIBUTES.contains(name) && isAttributeAllowed(name)) {
+        			profile.addAttribute(name, parser.getText());
+        		}
+        	}
+        } catch (IOException e) {
+        	throw new OAuthException("Cannot parse user info : " + body, e);
+        }
+        return profile;
+    }
+    
+    @Override
+    public Class<SinaProfile> getProfileType() {
+    	return SinaProfile.class;
+    }
+    
     @Override
     protected BaseOAuthProvider newProvider() {
-        return new SinaWeiboProvider();
+        SinaWeiboProvider provider = new SinaWeiboProvider();
+        provider.setLightweight(lightweight);
+        provider.setUsersShowUrl(usersShowUrl);
+        provider.setTokenInfoUrl(tokenInfoUrl);
+        return provider;
     }
     
+    public boolean isLightweight() {
+		return lightweight;
+	}
+
+	public void setLightweight(boolean lightweight) {
+		this.lightweight = lightweight;
+	}
+
+	public String getUsersShowUrl() {
+		return usersShowUrl;
+	}
+
+	public void setUsersShowUrl(String usersShowUrl) {
+		this.usersShowUrl = usersShowUrl;
+	}
+
+	public String getTokenInfoUrl() {
+		return tokenInfoUrl;
+	}
+
+	public void setTokenInfoUrl(String tokenInfoUrl) {
+		this.tokenInfoUrl = tokenInfoUrl;
+	}
+    
 }
\ No newline at end of file
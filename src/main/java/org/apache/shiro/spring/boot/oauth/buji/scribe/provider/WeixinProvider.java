@@ -15,23 +15,33 @@
  */
 package org.apache.shiro.spring.boot.oauth.buji.scribe.provider;
 
-import java.util.concurrent.TimeUnit;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
+import org.apache.shiro.spring.boot.oauth.buji.scribe.OAuth2Constants;
 import org.apache.shiro.spring.boot.oauth.buji.scribe.api.WeiXinApi20;
+import org.apache.shiro.spring.boot.oauth.buji.scribe.http.TransportResponse;
 import org.apache.shiro.spring.boot.oauth.buji.scribe.profile.weixin.WeiXinAttributesDefinition;
 import org.apache.shiro.spring.boot.oauth.buji.scribe.profile.weixin.WeiXinOAuth20ServiceImpl;
 import org.apache.shiro.spring.boot.oauth.buji.scribe.profile.weixin.WeiXinProfile;
+import org.apache.shiro.spring.boot.oauth.metrics.OAuth2Metrics;
+import org.scribe.exceptions.OAuthException;
 import org.scribe.model.OAuthConfig;
 import org.scribe.model.OAuthRequest;
-import org.scribe.model.Response;
 import org.scribe.model.SignatureType;
 import org.scribe.model.Token;
 import org.scribe.model.Verb;
 import org.scribe.up.profile.JsonHelper;
-import org.scribe.up.provider.BaseOAuth20Provider;
+import org.scribe.up.profile.UserProfile;
 import org.scribe.up.provider.BaseOAuthProvider;
 import org.scribe.up.provider.exception.HttpException;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
 
 /**
@@ -40,10 +50,12 @@ import com.fasterxml.jackson.databind.JsonNode;
  * @author Jerome Leleu
  * @since 3.5.0
  */
-public final class WeixinProvider extends BaseOAuth20Provider {
+public final class WeixinProvider extends AbstractOAuth20Provider {
     
 	private static final String PROFILE_URL = "https://api.weixin.qq.com/sns/userinfo";
 	private final static WeiXinAttributesDefinition WEI_XIN_ATTRIBUTES = new WeiXinAttributesDefinition();
+	private final static Set<String> WEI_XIN_PRINCIPAL_ATTRIBUTES = new HashSet<String>(WEI_XIN_ATTRIBUTES.getPrincipalAttributes());
+	private final static JsonFactory JSON_FACTORY = new JsonFactory();
 
     @Override
     protected void internalInit() {
@@ -52,8 +64,8 @@ public final class WeixinProvider extends BaseOAuth20Provider {
             .callback(this.callbackUrl).build();*/
         
         WeiXinApi20 api = new WeiXinApi20();
-        this.service = new WeiXinOAuth20ServiceImpl(api, new OAuthConfig(this.key, this.secret, this.callbackUrl, SignatureType.Header, null, null),
-                this.proxyHost, this.proxyPort);
+        this.service = configure(new WeiXinOAuth20ServiceImpl(api, new OAuthConfig(this.key, this.secret, this.callbackUrl, SignatureType.Header, null, null),
+                this.proxyHost, this.proxyPort));
     }
     
     @Override
@@ -61,52 +73,112 @@ public final class WeixinProvider extends BaseOAuth20Provider {
         return PROFILE_URL;
     }
     
+    @Override
+    protected String getSampleProfileBody() {
+    	return "{\"openid\":\"warmup\",\"nickname\":\"warmup\",\"sex\":1,\"headimgurl\":\"\",\"privilege\":[],\"unionid\":\"warmup\"}";
+    }
+    
     protected String getProfileUrl(Token accessToken) {
         return "https://api.weixin.qq.com/sns/userinfo?access_token="+accessToken.getToken()+"&scope=snsapi_userinfo";
     }
     
     @Override
-    protected WeiXinProfile extractUserProfile(String body) {
-        WeiXinProfile weiXinProfile = new WeiXinProfile();
+    protected WeiXinProfile doExtractUserProfile(String body) {
+    	if (lazyProfile) {
+    		return extractLazyProfile(body);
+    	}
+        WeiXinProfile weiXinProfile = initProfile(new WeiXinProfile());
         final JsonNode json = JsonHelper.getFirstNode(body);
         if (null != json) {
             for(final String attribute : WEI_XIN_ATTRIBUTES.getPrincipalAttributes()){
+            	if (!isAttributeAllowed(attribute)) {
+            		continue;
+            	}
                 weiXinProfile.addAttribute(attribute, JsonHelper.get(json, attribute));
             }
-            /** 绑定账号到系统 */
-            String openId = (String) weiXinProfile.getAttributes().get("openid");
-            String nickName = (String) weiXinProfile.getAttributes().get("nickname");
-           /* String userName = getUserNameByOpenId(openId);
-            if (StringUtils.isNotBlank(userName)) {
-                weiXinProfile.setId(userName);
-            }*/
+            /** 绑定账号到系统：由 {@link AbstractOAuth20Provider#bindPrincipal(UserProfile)} 按 openid 查找本地账号 */
+            weiXinProfile.setId(weiXinProfile.getAttributes().get("openid"));
         }
         return weiXinProfile;
     }
     
+    /**
+     * 流式读取用户信息响应，只保存原始文本，属性在首次读取时按 {@link WeiXinAttributesDefinition} 转换；
+     * 数组属性（如 privilege）按元素文本保存为列表，与非延迟方式的结果一致
+     */
+    protected WeiXinProfile extractLazyProfile(final String body) {
+    	WeiXinProfile profile = initProfile(new WeiXinProfile());
+    	try (JsonParser parser = JSON_FACTORY.createParser(body)) {
+        	if (parser.nextToken() != JsonToken.START_OBJECT) {
+        		return profile;
+        	}
+        	while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        		String name = parser.getCurrentName();
+        		JsonToken token = parser.nextToken();
+        		boolean retained = WEI_XIN_PRINCIPAL_ATTRIBUTES.contains(name) && isAttributeAllowed(name);
+        		if (token == JsonToken.START_ARRAY && retained) {
+        			profile.addAttribute(name, readArray(parser));
+        			continue;
+        		}
+        		if (token.isStructStart()) {
+        			parser.skipChildren();
+        			continue;
+        		}
+        		if (token == JsonToken.VALUE_NULL || !retained) {
+        			continue;
+        		}
+        		String value = parser.getText();
+        		if (OAuth2Constants.OPENID.equals(name)) {
+        			profile.setId(value);
+        		}
+        		profile.addAttribute(name, value);
+        	}
+        } catch (IOException e) {
+        	throw new OAuthException("Cannot parse user info : " + body, e);
+        }
+        return profile;
+    }
+    
+    /**
+     * 读取当前数组中的标量元素文本，嵌套的对象与数组跳过
+     */
+    private static List<String> readArray(final JsonParser parser) throws IOException {
+    	List<String> values = new ArrayList<String>();
+    	JsonToken token;
+    	while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+    		if (token.isStructStart()) {
+    			parser.skipChildren();
+    		} else if (token != JsonToken.VALUE_NULL) {
+    			values.add(parser.getText());
+    		}
+    	}
+    	return values;
+    }
+    
     @Override
-    protected String sendRequestForData(Token accessToken, String dataUrl) throws HttpException {
+    protected String doSendRequestForData(Token accessToken, String dataUrl) throws HttpException {
     	logger.debug("accessToken : {} / dataUrl : {}", accessToken, dataUrl);
         final long t0 = System.currentTimeMillis();
-        final OAuthRequest request = new OAuthRequest(Verb.GET, dataUrl);
-        if (this.connectTimeout != 0) {
-            request.setConnectTimeout(this.connectTimeout, TimeUnit.MILLISECONDS);
-        }
-        if (this.readTimeout != 0) {
-            request.setReadTimeout(this.readTimeout, TimeUnit.MILLISECONDS);
-        }
-        this.service.signRequest(accessToken, request);
-        final Response response = request.send();
-        final int code = response.getCode();
-        final String body = response.getBody();
-        final long t1 = System.currentTimeMillis();
-        logger.debug("Request took : " + (t1 - t0) + " ms for : " + dataUrl);
-        logger.debug("response code : {} / response body : {}", code, body);
-        if (code != 200) {
-        	logger.error("Failed to get user data, code : " + code + " / body : " + body);
-            throw new HttpException(code, body);
-        }
-        return body;
+        return timed(OAuth2Metrics.STAGE_USERINFO, () -> {
+            final OAuthRequest request = new OAuthRequest(Verb.GET, dataUrl);
+            this.service.signRequest(accessToken, request);
+            final TransportResponse response = execute(request);
+            final int code = response.getCode();
+            final String body = responseReader.readBody(response);
+            final long t1 = System.currentTimeMillis();
+            logger.debug("Request took : " + (t1 - t0) + " ms for : " + dataUrl);
+            logger.debug("response code : {} / response body : {}", code, body);
+            if (code != 200) {
+            	logger.error("Failed to get user data, code : " + code + " / body : " + body);
+                throw new HttpException(code, body);
+            }
+            return body;
+        });
+    }
+    
+    @Override
+    public Class<WeiXinProfile> getProfileType() {
+    	return WeiXinProfile.class;
     }
     
     @Override
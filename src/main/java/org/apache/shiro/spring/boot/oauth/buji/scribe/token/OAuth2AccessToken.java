@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2017, vindell (https://github.com/vindell).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.oauth.buji.scribe.token;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.shiro.spring.boot.oauth.buji.scribe.OAuth2Constants;
+import org.scribe.exceptions.OAuthException;
+import org.scribe.model.OAuthConstants;
+import org.scribe.model.Token;
+import org.scribe.utils.OAuthEncoder;
+import org.scribe.utils.Preconditions;
+
+import com.alibaba.fastjson.JSONObject;
+
+/**
+ * 换取 Access Token 时解析一次的结构化 Token
+ * <p>同时兼容 JSON 与 access_token=xx&amp;expires_in=xx 两种返回格式，openid、unionid、expires_in、refresh_token、scope
+ * 在换取时即解析为字段，签名请求与解析 Profile 时直接读取，不再对原始响应做正则匹配。</p>
+ * @author 		： <a href="https://github.com/vindell">vindell</a>
+ */
+public class OAuth2AccessToken extends Token {
+
+	private static final long serialVersionUID = 5309442405541004376L;
+
+	private static final String UNIONID = "unionid";
+	private static final String UID = "uid";
+	private static final String EXPIRES_IN = "expires_in";
+
+	private final String openId;
+	private final String unionId;
+	/** 有效期（秒），未返回时为空 */
+	private final Long expiresIn;
+	private final String refreshToken;
+	private final String scope;
+	/** 获取 Token 的时间（毫秒），用于计算过期时间 */
+	private final long issuedAt = System.currentTimeMillis();
+
+	public OAuth2AccessToken(String token, String rawResponse, String openId, String unionId, Long expiresIn,
+			String refreshToken, String scope) {
+		super(token, "", rawResponse);
+		this.openId = openId;
+		this.unionId = unionId;
+		this.expiresIn = expiresIn;
+		this.refreshToken = refreshToken;
+		this.scope = scope;
+	}
+
+	/**
+	 * 解析换取 Access Token 的响应；响应中没有 access_token 时抛出 {@link OAuthException}
+	 */
+	public static OAuth2AccessToken parse(String response) {
+		Preconditions.checkEmptyString(response, "Cannot extract a token from a null or empty String");
+		Map<String, String> fields = response.trim().startsWith("{") ? parseJson(response) : parseForm(response);
+		String token = fields.get(OAuthConstants.ACCESS_TOKEN);
+		if (token == null || token.isEmpty()) {
+			throw new OAuthException("Cannot extract an acces token. Response was: " + response);
+		}
+		String expiresIn = fields.get(EXPIRES_IN);
+		//新浪微博以 uid 标识用户
+		String openId = fields.containsKey(OAuth2Constants.OPENID) ? fields.get(OAuth2Constants.OPENID) : fields.get(UID);
+		return new OAuth2AccessToken(token, response, openId, fields.get(UNIONID),
+				expiresIn == null || expiresIn.isEmpty() ? null : Long.valueOf(expiresIn.trim()),
+				fields.get(OAuth2Constants.REFRESH_TOKEN), fields.get(OAuthConstants.SCOPE));
+	}
+
+	/**
+	 * 返回结构化的 Token；普通 {@link Token}（如旧版本序列化的缓存数据）按其原始响应解析一次
+	 */
+	public static OAuth2AccessToken of(Token token) {
+		if (token instanceof OAuth2AccessToken) {
+			return (OAuth2AccessToken) token;
+		}
+		String rawResponse = token.getRawResponse();
+		if (rawResponse == null || rawResponse.trim().isEmpty()) {
+			return new OAuth2AccessToken(token.getToken(), rawResponse, null, null, null, null, null);
+		}
+		try {
+			return parse(rawResponse);
+		} catch (RuntimeException e) {
+			return new OAuth2AccessToken(token.getToken(), rawResponse, null, null, null, null, null);
+		}
+	}
+
+	/**
+	 * 刷新后的响应中未返回的 openid、unionid、refresh_token、scope 沿用原 Token 的值（如 QQ 刷新时不返回 openid）
+	 */
+	public OAuth2AccessToken withDefaults(OAuth2AccessToken previous) {
+		return new OAuth2AccessToken(getToken(), getRawResponse(),
+				openId != null ? openId : previous.getOpenId(),
+				unionId != null ? unionId : previous.getUnionId(), expiresIn,
+				refreshToken != null ? refreshToken : previous.getRefreshToken(),
+				scope != null ? scope : previous.getScope());
+	}
+
+	private static Map<String, String> parseJson(String response) {
+		JSONObject json = JSONObject.parseObject(response);
+		Map<String, String> fields = new HashMap<String, String>();
+		for (Map.Entry<String, Object> entry : json.entrySet()) {
+			if (entry.getValue() != null) {
+				fields.put(entry.getKey(), String.valueOf(entry.getValue()));
+			}
+		}
+		return fields;
+	}
+
+	private static Map<String, String> parseForm(String response) {
+		Map<String, String> fields = new HashMap<String, String>();
+		for (String pair : response.trim().split("&")) {
+			int index = pair.indexOf('=');
+			if (index > 0) {
+				fields.put(pair.substring(0, index), OAuthEncoder.decode(pair.substring(index + 1)));
+			}
+		}
+		return fields;
+	}
+
+	public String getOpenId() {
+		return openId;
+	}
+
+	public String getUnionId() {
+		return unionId;
+	}
+
+	public Long getExpiresIn() {
+		return expiresIn;
+	}
+
+	public long getIssuedAt() {
+		return issuedAt;
+	}
+
+	/**
+	 * 过期时间（毫秒时间戳），未返回 expires_in 时为空
+	 */
+	public Long getExpiresAt() {
+		return expiresIn == null ? null : issuedAt + expiresIn * 1000L;
+	}
+
+	public String getRefreshToken() {
+		return refreshToken;
+	}
+
+	public String getScope() {
+		return scope;
+	}
+
+}
@@ -0,0 +1,29 @@
+/*
+ * Copyright (c) 2017, vindell (https://github.com/vindell).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.oauth.buji.scribe.token;
+
+/**
+ * 支持使用 refresh_token 续期 Access Token 的 OAuth 2.0 服务
+ * @author 		： <a href="https://github.com/vindell">vindell</a>
+ */
+public interface OAuth2TokenRefresher {
+
+	/**
+	 * 使用 refresh_token 换取新的 Access Token；失败时抛出 {@link org.scribe.exceptions.OAuthException}
+	 */
+	OAuth2AccessToken refreshAccessToken(OAuth2AccessToken accessToken);
+
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2017, vindell (https://github.com/vindell).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.oauth.buji.scribe.token;
+
+import java.util.List;
+
+import org.apache.shiro.spring.boot.oauth.principal.OAuthPrincipal;
+import org.apache.shiro.spring.boot.oauth.principal.OAuthSubjectListener;
+import org.scribe.up.profile.BaseOAuthProfile;
+import org.scribe.up.profile.UserProfile;
+import org.scribe.up.provider.OAuthProvider;
+
+/**
+ * 用户注销或会话过期时取消该账号的 Token 续期，离开的用户不再产生刷新请求
+ * @author 		： <a href="https://github.com/vindell">vindell</a>
+ */
+public class TokenRefreshCleanupListener extends OAuthSubjectListener {
+
+	private final TokenRefreshScheduler scheduler;
+
+	public TokenRefreshCleanupListener(TokenRefreshScheduler scheduler, List<? extends OAuthProvider> providers) {
+		super(providers);
+		this.scheduler = scheduler;
+	}
+
+	@Override
+	protected void onSubjectEnd(OAuthPrincipal principal, UserProfile profile) {
+		scheduler.unregister(TokenRefreshScheduler.key(principal.getProvider(), principal.getOpenid()));
+		//Token 响应中没有 openid 时以登录时的 access_token 登记
+		if (profile instanceof BaseOAuthProfile) {
+			String accessToken = ((BaseOAuthProfile) profile).getAccessToken();
+			if (accessToken != null) {
+				scheduler.unregister(TokenRefreshScheduler.key(principal.getProvider(), accessToken));
+			}
+		}
+	}
+
+}
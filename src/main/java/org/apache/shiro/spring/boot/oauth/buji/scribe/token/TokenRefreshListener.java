@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2017, vindell (https://github.com/vindell).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.oauth.buji.scribe.token;
+
+/**
+ * Access Token 后台刷新结果的监听器，可用于持久化新的 Token
+ * @author 		： <a href="https://github.com/vindell">vindell</a>
+ */
+public interface TokenRefreshListener {
+
+	/**
+	 * 刷新成功
+	 * @param key 注册时的键，形如 qq#openid
+	 */
+	void onRefreshed(String key, OAuth2AccessToken accessToken);
+
+	/**
+	 * 刷新失败；Token 尚未过期时稍后重试，已过期时不再刷新
+	 */
+	default void onRefreshFailure(String key, OAuth2AccessToken accessToken, Exception e) {
+	}
+
+}
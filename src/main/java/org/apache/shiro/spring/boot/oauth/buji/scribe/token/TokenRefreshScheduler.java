@@ -0,0 +1,310 @@
+/*
+ * Copyright (c) 2017, vindell (https://github.com/vindell).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.oauth.buji.scribe.token;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.shiro.util.Destroyable;
+import org.apache.shiro.util.Initializable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 在 Access Token 临近过期时使用 refresh_token 主动续期
+ * <p>刷新时间随机提前，避免同一时间登录的一批 Token 集中刷新；到期的 Token 分批刷新，限制对认证服务器的请求速率。
+ * 用户注销或会话过期时由 {@link TokenRefreshCleanupListener} 取消续期。</p>
+ * @author 		： <a href="https://github.com/vindell">vindell</a>
+ */
+public class TokenRefreshScheduler implements Initializable, Destroyable {
+
+	private static final Logger LOG = LoggerFactory.getLogger(TokenRefreshScheduler.class);
+
+	//在过期前多久刷新（毫秒）
+	private long refreshAhead = 600000;
+	//刷新时间的随机提前量上限（毫秒），小于等于0表示不打散
+	private long jitter = 300000;
+	//每批最多刷新的 Token 数
+	private int batchSize = 50;
+	//两批之间的间隔（毫秒）
+	private long batchInterval = 1000;
+	//刷新失败后的重试间隔（毫秒）
+	private long retryDelay = 60000;
+	//最多登记的 Token 数，小于等于0表示不限制
+	private int maxEntries = 100000;
+	//自首次登记起持续续期的最长时间（毫秒），小于等于0表示不限制
+	private long maxLifetime = 86400000;
+	private List<TokenRefreshListener> listeners = new CopyOnWriteArrayList<TokenRefreshListener>();
+
+	private final Map<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+	private final DelayQueue<Entry> queue = new DelayQueue<Entry>();
+	private ScheduledExecutorService scheduler;
+
+	@Override
+	public void init() {
+		start();
+	}
+
+	/**
+	 * 启动后台刷新
+	 */
+	public synchronized void start() {
+		if (scheduler != null) {
+			return;
+		}
+		scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "oauth2-token-refresh");
+			thread.setDaemon(true);
+			return thread;
+		});
+		scheduler.scheduleWithFixedDelay(this::refreshBatch, batchInterval, batchInterval, TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public synchronized void destroy() {
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+			scheduler = null;
+		}
+	}
+
+	/**
+	 * 登记需要续期的 Token，同一个键只保留最新登记的 Token；没有 refresh_token 或 expires_in 时不登记，并取消该键已登记的 Token
+	 * @param key 唯一标识，如 qq#openid
+	 * @param accessToken 需要续期的 Token
+	 * @param refresher 执行刷新的服务
+	 * @return 是否已登记
+	 */
+	public boolean register(String key, OAuth2AccessToken accessToken, OAuth2TokenRefresher refresher) {
+		return register(key, accessToken, refresher, System.currentTimeMillis());
+	}
+
+	/**
+	 * @param since 首次登记的时间，续期后沿用，用于判断 {@link #setMaxLifetime(long)}
+	 */
+	protected boolean register(String key, OAuth2AccessToken accessToken, OAuth2TokenRefresher refresher, long since) {
+		if (accessToken.getRefreshToken() == null || accessToken.getExpiresAt() == null
+				|| (maxLifetime > 0 && System.currentTimeMillis() - since >= maxLifetime)) {
+			unregister(key);
+			return false;
+		}
+		if (maxEntries > 0 && entries.size() >= maxEntries && !entries.containsKey(key)) {
+			LOG.warn("Token refresh registry is full ({} entries), not refreshing : {}", maxEntries, key);
+			return false;
+		}
+		start();
+		Entry entry = new Entry(key, accessToken, refresher, nextRefreshTime(accessToken), since);
+		Entry previous = entries.put(key, entry);
+		if (previous != null) {
+			previous.cancelled = true;
+		}
+		queue.offer(entry);
+		return true;
+	}
+
+	/**
+	 * 登记使用的键：认证服务器类型#openid，响应中没有 openid 时为 认证服务器类型#access_token
+	 */
+	public static String key(String provider, String subject) {
+		return provider + "#" + subject;
+	}
+
+	/**
+	 * 取消续期，如用户退出或解除绑定时
+	 */
+	public void unregister(String key) {
+		Entry entry = entries.remove(key);
+		if (entry != null) {
+			//已取消的登记在到期出队时丢弃，队列中的条目不超过一个 Token 有效期内的登记数
+			entry.cancelled = true;
+		}
+	}
+
+	/**
+	 * 获取当前有效的 Token；未登记时返回 null
+	 */
+	public OAuth2AccessToken getToken(String key) {
+		Entry entry = entries.get(key);
+		return entry == null ? null : entry.accessToken;
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	protected long nextRefreshTime(OAuth2AccessToken accessToken) {
+		long now = System.currentTimeMillis();
+		long expiresAt = accessToken.getExpiresAt();
+		long refreshAt = expiresAt - refreshAhead - random(jitter);
+		if (refreshAt < now) {
+			//已进入刷新窗口：在剩余有效期与打散范围内随机选择刷新时间
+			refreshAt = now + random(Math.min(jitter, expiresAt - now));
+		}
+		return refreshAt;
+	}
+
+	private static long random(long bound) {
+		return bound > 0 ? ThreadLocalRandom.current().nextLong(bound) : 0;
+	}
+
+	/**
+	 * 刷新一批已到期的 Token
+	 */
+	protected void refreshBatch() {
+		List<Entry> batch = new ArrayList<Entry>(batchSize);
+		queue.drainTo(batch, batchSize);
+		for (Entry entry : batch) {
+			if (entry.cancelled) {
+				continue;
+			}
+			try {
+				refresh(entry);
+			} catch (Throwable e) {
+				LOG.error("Unexpected error while refreshing access token : " + entry.key, e);
+			}
+		}
+	}
+
+	protected void refresh(Entry entry) {
+		try {
+			OAuth2AccessToken refreshed = entry.refresher.refreshAccessToken(entry.accessToken);
+			LOG.debug("Refreshed access token : {}", entry.key);
+			if (!entry.cancelled && !register(entry.key, refreshed, entry.refresher, entry.since)) {
+				//新 Token 无法继续续期：移除旧的登记，不再保留过期的 Token
+				entries.remove(entry.key, entry);
+			}
+			for (TokenRefreshListener listener : listeners) {
+				listener.onRefreshed(entry.key, refreshed);
+			}
+		} catch (Exception e) {
+			long now = System.currentTimeMillis();
+			if (entry.accessToken.getExpiresAt() > now) {
+				LOG.warn("Failed to refresh access token : " + entry.key + ", retry in " + retryDelay + " ms", e);
+				entry.refreshAt = now + retryDelay + random(Math.min(jitter, retryDelay));
+				queue.offer(entry);
+			} else {
+				LOG.warn("Failed to refresh expired access token : " + entry.key + ", giving up", e);
+				entries.remove(entry.key, entry);
+			}
+			for (TokenRefreshListener listener : listeners) {
+				listener.onRefreshFailure(entry.key, entry.accessToken, e);
+			}
+		}
+	}
+
+	public long getRefreshAhead() {
+		return refreshAhead;
+	}
+
+	public void setRefreshAhead(long refreshAhead) {
+		this.refreshAhead = refreshAhead;
+	}
+
+	public long getJitter() {
+		return jitter;
+	}
+
+	public void setJitter(long jitter) {
+		this.jitter = jitter;
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	public long getBatchInterval() {
+		return batchInterval;
+	}
+
+	public void setBatchInterval(long batchInterval) {
+		this.batchInterval = batchInterval;
+	}
+
+	public long getRetryDelay() {
+		return retryDelay;
+	}
+
+	public void setRetryDelay(long retryDelay) {
+		this.retryDelay = retryDelay;
+	}
+
+	public int getMaxEntries() {
+		return maxEntries;
+	}
+
+	public void setMaxEntries(int maxEntries) {
+		this.maxEntries = maxEntries;
+	}
+
+	public long getMaxLifetime() {
+		return maxLifetime;
+	}
+
+	public void setMaxLifetime(long maxLifetime) {
+		this.maxLifetime = maxLifetime;
+	}
+
+	public List<TokenRefreshListener> getListeners() {
+		return listeners;
+	}
+
+	public void setListeners(List<TokenRefreshListener> listeners) {
+		this.listeners = new CopyOnWriteArrayList<TokenRefreshListener>(listeners);
+	}
+
+	protected static class Entry implements Delayed {
+
+		private final String key;
+		private final OAuth2AccessToken accessToken;
+		private final OAuth2TokenRefresher refresher;
+		private final long since;
+		private volatile long refreshAt;
+		private volatile boolean cancelled;
+
+		Entry(String key, OAuth2AccessToken accessToken, OAuth2TokenRefresher refresher, long refreshAt, long since) {
+			this.key = key;
+			this.accessToken = accessToken;
+			this.refresher = refresher;
+			this.refreshAt = refreshAt;
+			this.since = since;
+		}
+
+		@Override
+		public long getDelay(TimeUnit unit) {
+			return unit.convert(refreshAt - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+		}
+
+		@Override
+		public int compareTo(Delayed other) {
+			return Long.compare(refreshAt, ((Entry) other).refreshAt);
+		}
+
+	}
+
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright (c) 2017, vindell (https://github.com/vindell).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.oauth.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.shiro.cache.Cache;
+import org.apache.shiro.cache.CacheException;
+
+/**
+ * 有容量上限且支持单条过期时间的 Shiro {@link Cache} 实现
+ * <p>按 LRU 顺序淘汰超出容量的条目，每个条目可以单独指定存活时间（例如取自认证服务器返回的 expires_in），
+ * 并统计命中、未命中、淘汰与过期次数。</p>
+ * @author 		： <a href="https://github.com/vindell">vindell</a>
+ */
+public class ExpiringMapCache<K, V> implements Cache<K, V> {
+
+	private final String name;
+	/** 最大条目数 */
+	private final int maxSize;
+	/** 默认存活时间（毫秒），小于等于0表示不过期 */
+	private final long defaultTtl;
+	private final LinkedHashMap<K, CacheEntry<V>> map;
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	private final LongAdder expirations = new LongAdder();
+
+	public ExpiringMapCache(String name, int maxSize, long defaultTtl) {
+		this.name = name;
+		this.maxSize = maxSize;
+		this.defaultTtl = defaultTtl;
+		this.map = new LinkedHashMap<K, CacheEntry<V>>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<K, CacheEntry<V>> eldest) {
+				if (size() > ExpiringMapCache.this.maxSize) {
+					evictions.increment();
+					return true;
+				}
+				return false;
+			}
+
+		};
+	}
+
+	@Override
+	public V get(K key) throws CacheException {
+		if (key == null) {
+			return null;
+		}
+		synchronized (map) {
+			CacheEntry<V> entry = map.get(key);
+			if (entry == null) {
+				misses.increment();
+				return null;
+			}
+			if (entry.isExpired(System.currentTimeMillis())) {
+				map.remove(key);
+				expirations.increment();
+				misses.increment();
+				return null;
+			}
+			hits.increment();
+			return entry.value;
+		}
+	}
+
+	@Override
+	public V put(K key, V value) throws CacheException {
+		return put(key, value, defaultTtl);
+	}
+
+	/**
+	 * 写入缓存并指定该条目的存活时间
+	 * @param ttl 存活时间（毫秒），小于等于0表示不过期
+	 */
+	public V put(K key, V value, long ttl) throws CacheException {
+		long expiresAt = ttl > 0 ? System.currentTimeMillis() + ttl : Long.MAX_VALUE;
+		synchronized (map) {
+			CacheEntry<V> previous = map.put(key, new CacheEntry<V>(value, expiresAt));
+			return previous == null ? null : previous.value;
+		}
+	}
+
+	@Override
+	public V remove(K key) throws CacheException {
+		synchronized (map) {
+			CacheEntry<V> previous = map.remove(key);
+			return previous == null ? null : previous.value;
+		}
+	}
+
+	@Override
+	public void clear() throws CacheException {
+		synchronized (map) {
+			map.clear();
+		}
+	}
+
+	@Override
+	public int size() {
+		synchronized (map) {
+			return map.size();
+		}
+	}
+
+	@Override
+	public Set<K> keys() {
+		synchronized (map) {
+			return new LinkedHashSet<K>(map.keySet());
+		}
+	}
+
+	@Override
+	public Collection<V> values() {
+		long now = System.currentTimeMillis();
+		synchronized (map) {
+			List<V> values = new ArrayList<V>(map.size());
+			for (CacheEntry<V> entry : map.values()) {
+				if (!entry.isExpired(now)) {
+					values.add(entry.value);
+				}
+			}
+			return values;
+		}
+	}
+
+	/**
+	 * 清理已过期的条目
+	 */
+	public void cleanUp() {
+		long now = System.currentTimeMillis();
+		synchronized (map) {
+			Iterator<CacheEntry<V>> ite = map.values().iterator();
+			while (ite.hasNext()) {
+				if (ite.next().isExpired(now)) {
+					ite.remove();
+					expirations.increment();
+				}
+			}
+		}
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	public long getHitCount() {
+		return hits.sum();
+	}
+
+	public long getMissCount() {
+		return misses.sum();
+	}
+
+	public long getEvictionCount() {
+		return evictions.sum();
+	}
+
+	public long getExpirationCount() {
+		return expirations.sum();
+	}
+
+	public double getHitRatio() {
+		long hit = hits.sum();
+		long total = hit + misses.sum();
+		return total == 0 ? 0d : (double) hit / total;
+	}
+
+	@Override
+	public String toString() {
+		return "ExpiringMapCache [name=" + name + ", size=" + size() + ", maxSize=" + maxSize + ", hits=" + getHitCount()
+				+ ", misses=" + getMissCount() + ", evictions=" + getEvictionCount() + ", expirations="
+				+ getExpirationCount() + "]";
+	}
+
+	private static final class CacheEntry<V> {
+
+		private final V value;
+		private final long expiresAt;
+
+		CacheEntry(V value, long expiresAt) {
+			this.value = value;
+			this.expiresAt = expiresAt;
+		}
+
+		boolean isExpired(long now) {
+			return now >= expiresAt;
+		}
+
+	}
+
+}
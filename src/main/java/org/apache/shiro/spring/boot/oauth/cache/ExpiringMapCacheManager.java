@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2017, vindell (https://github.com/vindell).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.oauth.cache;
+
+import org.apache.shiro.cache.AbstractCacheManager;
+import org.apache.shiro.cache.Cache;
+import org.apache.shiro.cache.CacheException;
+
+/**
+ * 创建 {@link ExpiringMapCache} 的 Shiro CacheManager，所有缓存使用相同的容量上限与默认存活时间
+ * @author 		： <a href="https://github.com/vindell">vindell</a>
+ */
+public class ExpiringMapCacheManager extends AbstractCacheManager {
+
+	/** 每个缓存的最大条目数 */
+	private int maxSize = 10000;
+	/** 默认存活时间（毫秒），小于等于0表示不过期 */
+	private long defaultTtl = 0;
+
+	public ExpiringMapCacheManager() {
+	}
+
+	public ExpiringMapCacheManager(int maxSize, long defaultTtl) {
+		this.maxSize = maxSize;
+		this.defaultTtl = defaultTtl;
+	}
+
+	@Override
+	@SuppressWarnings("rawtypes")
+	protected Cache createCache(String name) throws CacheException {
+		return new ExpiringMapCache<Object, Object>(name, maxSize, defaultTtl);
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	public void setMaxSize(int maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	public long getDefaultTtl() {
+		return defaultTtl;
+	}
+
+	public void setDefaultTtl(long defaultTtl) {
+		this.defaultTtl = defaultTtl;
+	}
+
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2017, vindell (https://github.com/vindell).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.oauth.cache;
+
+import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.shiro.cache.Cache;
+import org.apache.shiro.cache.CacheManager;
+
+/**
+ * 以 Access Token 为键的用户信息缓存
+ * <p>每个条目的存活时间取自认证服务器返回的 expires_in（并减去一个安全余量），Token 有效期内重复解析用户信息只需一次缓存查找；
+ * 底层缓存通过 Shiro {@link CacheManager} 获取，容量与淘汰策略由具体的 CacheManager 决定，默认使用有界的 {@link ExpiringMapCacheManager}。</p>
+ * @author 		： <a href="https://github.com/vindell">vindell</a>
+ */
+public class OAuth2TokenCache {
+
+	public static final String DEFAULT_CACHE_NAME = "SHIRO_OAUTH2_TOKEN";
+
+	private final CacheManager cacheManager;
+	private String cacheName = DEFAULT_CACHE_NAME;
+	/** 认证服务器未返回 expires_in 时使用的存活时间（秒） */
+	private long defaultExpiresIn = 300;
+	/** 从 expires_in 中扣除的安全余量（秒），避免使用即将过期的 Token 对应的缓存 */
+	private long expiresInSkew = 60;
+
+	private volatile Cache<String, CachedValue> cache;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+	public OAuth2TokenCache() {
+		this(new ExpiringMapCacheManager());
+	}
+
+	public OAuth2TokenCache(CacheManager cacheManager) {
+		this.cacheManager = cacheManager;
+	}
+
+	protected Cache<String, CachedValue> getCache() {
+		Cache<String, CachedValue> cache = this.cache;
+		if (cache == null) {
+			synchronized (this) {
+				cache = this.cache;
+				if (cache == null) {
+					cache = this.cache = cacheManager.getCache(cacheName);
+				}
+			}
+		}
+		return cache;
+	}
+
+	@SuppressWarnings("unchecked")
+	public <V> V get(String key) {
+		Cache<String, CachedValue> cache = getCache();
+		CachedValue cached = cache.get(key);
+		if (cached == null) {
+			misses.increment();
+			return null;
+		}
+		if (cached.isExpired(System.currentTimeMillis())) {
+			cache.remove(key);
+			misses.increment();
+			return null;
+		}
+		hits.increment();
+		return (V) cached.getValue();
+	}
+
+	/**
+	 * 写入缓存
+	 * @param key 缓存键，通常包含 Access Token
+	 * @param value 缓存值，需可序列化以便使用分布式 CacheManager
+	 * @param expiresIn 认证服务器返回的 expires_in（秒），为空时使用默认值
+	 */
+	public void put(String key, Object value, Long expiresIn) {
+		if (value == null) {
+			return;
+		}
+		long ttl = TimeUnit.SECONDS.toMillis(getTimeToLive(expiresIn));
+		if (ttl <= 0) {
+			return;
+		}
+		CachedValue cached = new CachedValue(value, System.currentTimeMillis() + ttl);
+		Cache<String, CachedValue> cache = getCache();
+		if (cache instanceof ExpiringMapCache) {
+			((ExpiringMapCache<String, CachedValue>) cache).put(key, cached, ttl);
+		} else {
+			cache.put(key, cached);
+		}
+	}
+
+	public void remove(String key) {
+		getCache().remove(key);
+	}
+
+	protected long getTimeToLive(Long expiresIn) {
+		if (expiresIn == null || expiresIn <= 0) {
+			return defaultExpiresIn;
+		}
+		return expiresIn - expiresInSkew;
+	}
+
+	public long getHitCount() {
+		return hits.sum();
+	}
+
+	public long getMissCount() {
+		return misses.sum();
+	}
+
+	public double getHitRatio() {
+		long hit = hits.sum();
+		long total = hit + misses.sum();
+		return total == 0 ? 0d : (double) hit / total;
+	}
+
+	public int size() {
+		return getCache().size();
+	}
+
+	public CacheManager getCacheManager() {
+		return cacheManager;
+	}
+
+	public String getCacheName() {
+		return cacheName;
+	}
+
+	public void setCacheName(String cacheName) {
+		this.cacheName = cacheName;
+	}
+
+	public long getDefaultExpiresIn() {
+		return defaultExpiresIn;
+	}
+
+	public void setDefaultExpiresIn(long defaultExpiresIn) {
+		this.defaultExpiresIn = defaultExpiresIn;
+	}
+
+	public long getExpiresInSkew() {
+		return expiresInSkew;
+	}
+
+	public void setExpiresInSkew(long expiresInSkew) {
+		this.expiresInSkew = expiresInSkew;
+	}
+
+	@SuppressWarnings("serial")
+	public static class CachedValue implements Serializable {
+
+		private final Object value;
+		private final long expiresAt;
+
+		public CachedValue(Object value, long expiresAt) {
+			this.value = value;
+			this.expiresAt = expiresAt;
+		}
+
+		public Object getValue() {
+			return value;
+		}
+
+		public long getExpiresAt() {
+			return expiresAt;
+		}
+
+		public boolean isExpired(long now) {
+			return now >= expiresAt;
+		}
+
+	}
+
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) 2017, vindell (https://github.com/vindell).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.oauth.cache;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import org.apache.shiro.cache.Cache;
+import org.apache.shiro.cache.CacheException;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+/**
+ * 基于 Redis 协议的远程 Shiro {@link Cache} 实现，所有节点共享
+ * <p>键统一加上缓存名称前缀；值的序列化方式由传入的 {@link RedisTemplate} 决定，缓存对象需可序列化。
+ * 遍历键（clear、size、keys、values）使用 SCAN 分批进行，不使用会阻塞 Redis 的 KEYS。</p>
+ * @author 		： <a href="https://github.com/vindell">vindell</a>
+ */
+public class RedisCache<K, V> implements Cache<K, V> {
+
+	private final String name;
+	private final RedisTemplate<Object, Object> redisTemplate;
+	private final String keyPrefix;
+	/** 存活时间（毫秒），小于等于0表示不过期 */
+	private final long ttl;
+	/** SCAN 每批的键数 */
+	private int scanCount = 1000;
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+	public RedisCache(String name, RedisTemplate<Object, Object> redisTemplate, long ttl) {
+		this.name = name;
+		this.redisTemplate = redisTemplate;
+		this.keyPrefix = name + ":";
+		this.ttl = ttl;
+	}
+
+	protected String getRedisKey(K key) {
+		return keyPrefix + key;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public V get(K key) throws CacheException {
+		try {
+			V value = (V) redisTemplate.opsForValue().get(getRedisKey(key));
+			if (value == null) {
+				misses.increment();
+			} else {
+				hits.increment();
+			}
+			return value;
+		} catch (RuntimeException e) {
+			throw new CacheException(e);
+		}
+	}
+
+	@Override
+	public V put(K key, V value) throws CacheException {
+		try {
+			if (ttl > 0) {
+				redisTemplate.opsForValue().set(getRedisKey(key), value, ttl, TimeUnit.MILLISECONDS);
+			} else {
+				redisTemplate.opsForValue().set(getRedisKey(key), value);
+			}
+			return null;
+		} catch (RuntimeException e) {
+			throw new CacheException(e);
+		}
+	}
+
+	@Override
+	public V remove(K key) throws CacheException {
+		try {
+			redisTemplate.delete(getRedisKey(key));
+			return null;
+		} catch (RuntimeException e) {
+			throw new CacheException(e);
+		}
+	}
+
+	@Override
+	public void clear() throws CacheException {
+		try {
+			scan(keys -> redisTemplate.delete(keys));
+		} catch (RuntimeException e) {
+			throw new CacheException(e);
+		}
+	}
+
+	@Override
+	public int size() {
+		return scanKeys().size();
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public Set<K> keys() {
+		Set<Object> keys = scanKeys();
+		if (keys.isEmpty()) {
+			return Collections.emptySet();
+		}
+		Set<K> result = new LinkedHashSet<K>(keys.size());
+		for (Object key : keys) {
+			result.add((K) String.valueOf(key).substring(keyPrefix.length()));
+		}
+		return result;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public Collection<V> values() {
+		List<Object> keys = new ArrayList<Object>(scanKeys());
+		if (keys.isEmpty()) {
+			return Collections.emptyList();
+		}
+		List<V> values = new ArrayList<V>(keys.size());
+		try {
+			for (int from = 0; from < keys.size(); from += scanCount) {
+				List<Object> batch = redisTemplate.opsForValue().multiGet(keys.subList(from, Math.min(keys.size(), from + scanCount)));
+				for (Object value : batch) {
+					if (value != null) {
+						values.add((V) value);
+					}
+				}
+			}
+		} catch (RuntimeException e) {
+			throw new CacheException(e);
+		}
+		return values;
+	}
+
+	/**
+	 * 以 SCAN 取得本缓存的全部键并去重（SCAN 可能重复返回同一个键）
+	 */
+	protected Set<Object> scanKeys() {
+		Set<Object> keys = new LinkedHashSet<Object>();
+		try {
+			scan(keys::addAll);
+		} catch (RuntimeException e) {
+			throw new CacheException(e);
+		}
+		return keys;
+	}
+
+	/**
+	 * 以 SCAN 分批遍历本缓存的键，每批最多 {@link #getScanCount()} 个；不使用 KEYS，遍历大量键时不会阻塞 Redis。
+	 * 匹配模式按字符串传给 Redis，与 KEYS 一样要求键以字符串形式序列化
+	 */
+	protected void scan(Consumer<List<Object>> consumer) {
+		final RedisSerializer<?> keySerializer = redisTemplate.getKeySerializer();
+		final ScanOptions options = ScanOptions.scanOptions().match(escapePattern(keyPrefix) + "*").count(scanCount).build();
+		redisTemplate.execute((RedisCallback<Void>) connection -> {
+			List<Object> batch = new ArrayList<Object>();
+			try (Cursor<byte[]> cursor = connection.scan(options)) {
+				while (cursor.hasNext()) {
+					byte[] rawKey = cursor.next();
+					batch.add(keySerializer == null ? rawKey : keySerializer.deserialize(rawKey));
+					if (batch.size() >= scanCount) {
+						consumer.accept(batch);
+						batch = new ArrayList<Object>();
+					}
+				}
+			} catch (IOException e) {
+				throw new CacheException(e);
+			}
+			if (!batch.isEmpty()) {
+				consumer.accept(batch);
+			}
+			return null;
+		});
+	}
+
+	/**
+	 * 转义 glob 模式中的特殊字符，缓存名称按字面匹配
+	 */
+	protected static String escapePattern(String value) {
+		StringBuilder builder = new StringBuilder(value.length() + 4);
+		for (int i = 0; i < value.length(); i++) {
+			char ch = value.charAt(i);
+			if (ch == '*' || ch == '?' || ch == '[' || ch == ']' || ch == '\\') {
+				builder.append('\\');
+			}
+			builder.append(ch);
+		}
+		return builder.toString();
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getScanCount() {
+		return scanCount;
+	}
+
+	/**
+	 * 每次 SCAN 返回的建议键数，同时作为批量删除与批量读取的大小
+	 */
+	public void setScanCount(int scanCount) {
+		this.scanCount = Math.max(1, scanCount);
+	}
+
+	public long getHitCount() {
+		return hits.sum();
+	}
+
+	public long getMissCount() {
+		return misses.sum();
+	}
+
+	public double getHitRatio() {
+		long hit = hits.sum();
+		long total = hit + misses.sum();
+		return total == 0 ? 0d : (double) hit / total;
+	}
+
+}
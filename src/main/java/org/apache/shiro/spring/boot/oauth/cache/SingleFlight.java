@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2017, vindell (https://github.com/vindell).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.oauth.cache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 请求合并：相同键的并发调用只执行一次，其余调用等待并共享第一次调用的结果或异常
+ * <p>用于授权码交换：浏览器重复提交回调时，重复的请求不再向认证服务器发起第二次交换。
+ * 设置了完成后保留时间时，调用完成后的结果或异常在该时间内（条目数有界）继续返回给相同键的调用，
+ * 用户在交换完成后刷新 ?code=... 页面也不会以 invalid_grant 失败。</p>
+ * @author 		： <a href="https://github.com/vindell">vindell</a>
+ */
+public class SingleFlight<K, V> {
+
+	private final ConcurrentMap<K, CompletableFuture<V>> inflight = new ConcurrentHashMap<K, CompletableFuture<V>>();
+	//已完成的调用，为空时调用结束后立即移除
+	private final ExpiringMapCache<K, CompletableFuture<V>> completed;
+	private final LongAdder coalesced = new LongAdder();
+	//等待进行中调用的最长时间（毫秒）
+	private long awaitTimeout = 30000;
+
+	/**
+	 * 只合并进行中的调用，不保留结果
+	 */
+	public SingleFlight() {
+		this(0, 0);
+	}
+
+	/**
+	 * @param completedTtl 调用完成后结果与异常的保留时间（毫秒），小于等于0表示不保留
+	 * @param maxCompleted 保留的最大条目数
+	 */
+	public SingleFlight(long completedTtl, int maxCompleted) {
+		this.completed = completedTtl > 0 && maxCompleted > 0
+				? new ExpiringMapCache<K, CompletableFuture<V>>("single-flight", maxCompleted, completedTtl) : null;
+	}
+
+	/**
+	 * 执行调用；若相同键的调用正在进行或刚刚完成，则返回其结果
+	 * @param key 合并键，例如 Provider + 授权码
+	 * @param loader 实际的远程调用，抛出的运行时异常会原样传递给所有等待者
+	 */
+	public V execute(K key, Supplier<V> loader) {
+		if (completed != null) {
+			CompletableFuture<V> done = completed.get(key);
+			if (done != null) {
+				coalesced.increment();
+				return await(done);
+			}
+		}
+		CompletableFuture<V> future = new CompletableFuture<V>();
+		CompletableFuture<V> existing = inflight.putIfAbsent(key, future);
+		if (existing != null) {
+			coalesced.increment();
+			return await(existing);
+		}
+		try {
+			V value = loader.get();
+			future.complete(value);
+			return value;
+		} catch (RuntimeException | Error e) {
+			future.completeExceptionally(e);
+			throw e;
+		} finally {
+			// 先放入已完成的调用再移除，相同键的调用不会在两者之间重新发起
+			if (completed != null) {
+				completed.put(key, future);
+			}
+			inflight.remove(key, future);
+		}
+	}
+
+	protected V await(CompletableFuture<V> future) {
+		try {
+			return future.get(awaitTimeout, TimeUnit.MILLISECONDS);
+		} catch (TimeoutException e) {
+			throw new IllegalStateException("Timed out after " + awaitTimeout + " ms waiting for in-flight request", e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for in-flight request", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IllegalStateException(cause);
+		}
+	}
+
+	/**
+	 * 当前正在进行的调用数
+	 */
+	public int getInflightCount() {
+		return inflight.size();
+	}
+
+	/**
+	 * 被合并（未发起远程调用）的重复请求数
+	 */
+	public long getCoalescedCount() {
+		return coalesced.sum();
+	}
+
+	public long getAwaitTimeout() {
+		return awaitTimeout;
+	}
+
+	public void setAwaitTimeout(long awaitTimeout) {
+		this.awaitTimeout = awaitTimeout;
+	}
+
+}
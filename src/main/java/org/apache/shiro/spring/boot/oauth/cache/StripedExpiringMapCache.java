@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2017, vindell (https://github.com/vindell).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.oauth.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.shiro.cache.Cache;
+import org.apache.shiro.cache.CacheException;
+
+/**
+ * 分段加锁的 {@link ExpiringMapCache}：按键的哈希值分到多个独立加锁的分段，每个分段各自按 LRU 淘汰
+ * <p>{@link ExpiringMapCache} 的访问顺序 LinkedHashMap 在每次读取时都要调整链表，只能整体加锁；
+ * 分段后并发读取落在不同的锁上，适合内省结果这类每个请求都要读取的热点缓存。总容量平均分配到各分段，淘汰为近似 LRU。</p>
+ * @author 		： <a href="https://github.com/vindell">vindell</a>
+ */
+public class StripedExpiringMapCache<K, V> implements Cache<K, V> {
+
+	private final String name;
+	private final int maxSize;
+	private final ExpiringMapCache<K, V>[] segments;
+	private final int mask;
+
+	/**
+	 * 分段数取 CPU 核数的4倍（向上取2的幂）
+	 */
+	public StripedExpiringMapCache(String name, int maxSize, long defaultTtl) {
+		this(name, maxSize, defaultTtl, Runtime.getRuntime().availableProcessors() * 4);
+	}
+
+	/**
+	 * @param concurrency 期望的并发访问线程数，分段数取不小于该值的2的幂，且每个分段至少容纳一个条目
+	 */
+	@SuppressWarnings("unchecked")
+	public StripedExpiringMapCache(String name, int maxSize, long defaultTtl, int concurrency) {
+		this.name = name;
+		this.maxSize = maxSize;
+		int count = 1;
+		while (count < concurrency && count * 2 <= Math.max(1, maxSize)) {
+			count <<= 1;
+		}
+		this.segments = new ExpiringMapCache[count];
+		this.mask = count - 1;
+		int segmentSize = Math.max(1, (maxSize + count - 1) / count);
+		for (int i = 0; i < count; i++) {
+			segments[i] = new ExpiringMapCache<K, V>(name + "#" + i, segmentSize, defaultTtl);
+		}
+	}
+
+	protected ExpiringMapCache<K, V> segmentFor(Object key) {
+		int h = key.hashCode();
+		return segments[(h ^ (h >>> 16)) & mask];
+	}
+
+	@Override
+	public V get(K key) throws CacheException {
+		return key == null ? null : segmentFor(key).get(key);
+	}
+
+	@Override
+	public V put(K key, V value) throws CacheException {
+		return segmentFor(key).put(key, value);
+	}
+
+	/**
+	 * 写入缓存并指定该条目的存活时间
+	 * @param ttl 存活时间（毫秒），小于等于0表示不过期
+	 */
+	public V put(K key, V value, long ttl) throws CacheException {
+		return segmentFor(key).put(key, value, ttl);
+	}
+
+	@Override
+	public V remove(K key) throws CacheException {
+		return key == null ? null : segmentFor(key).remove(key);
+	}
+
+	@Override
+	public void clear() throws CacheException {
+		for (ExpiringMapCache<K, V> segment : segments) {
+			segment.clear();
+		}
+	}
+
+	@Override
+	public int size() {
+		int size = 0;
+		for (ExpiringMapCache<K, V> segment : segments) {
+			size += segment.size();
+		}
+		return size;
+	}
+
+	@Override
+	public Set<K> keys() {
+		Set<K> keys = new LinkedHashSet<K>();
+		for (ExpiringMapCache<K, V> segment : segments) {
+			keys.addAll(segment.keys());
+		}
+		return keys;
+	}
+
+	@Override
+	public Collection<V> values() {
+		List<V> values = new ArrayList<V>();
+		for (ExpiringMapCache<K, V> segment : segments) {
+			values.addAll(segment.values());
+		}
+		return values;
+	}
+
+	/**
+	 * 清理已过期的条目，逐个分段加锁
+	 */
+	public void cleanUp() {
+		for (ExpiringMapCache<K, V> segment : segments) {
+			segment.cleanUp();
+		}
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	public int getSegmentCount() {
+		return segments.length;
+	}
+
+	public long getHitCount() {
+		long count = 0;
+		for (ExpiringMapCache<K, V> segment : segments) {
+			count += segment.getHitCount();
+		}
+		return count;
+	}
+
+	public long getMissCount() {
+		long count = 0;
+		for (ExpiringMapCache<K, V> segment : segments) {
+			count += segment.getMissCount();
+		}
+		return count;
+	}
+
+	public long getEvictionCount() {
+		long count = 0;
+		for (ExpiringMapCache<K, V> segment : segments) {
+			count += segment.getEvictionCount();
+		}
+		return count;
+	}
+
+	public double getHitRatio() {
+		long hit = getHitCount();
+		long total = hit + getMissCount();
+		return total == 0 ? 0d : (double) hit / total;
+	}
+
+	@Override
+	public String toString() {
+		return "StripedExpiringMapCache [name=" + name + ", segments=" + segments.length + ", size=" + size()
+				+ ", maxSize=" + maxSize + ", hits=" + getHitCount() + ", misses=" + getMissCount() + ", evictions="
+				+ getEvictionCount() + "]";
+	}
+
+}
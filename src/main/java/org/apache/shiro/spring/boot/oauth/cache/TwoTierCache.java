@@ -0,0 +1,220 @@
+/*
+ * Copyright (c) 2017, vindell (https://github.com/vindell).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.oauth.cache;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.shiro.cache.Cache;
+import org.apache.shiro.cache.CacheException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+
+/**
+ * 两级缓存：本节点有界的近端缓存 + 所有节点共享的远程缓存
+ * <p>读取时先查近端缓存，未命中再查远程缓存并回填近端；写入与删除同时作用于两级缓存，
+ * 并通过 Redis 发布/订阅广播失效消息，其他节点收到后清除各自的近端条目，从而保持两级缓存一致。
+ * 近端条目同时设置较短的存活时间，作为失效消息丢失时的兜底。</p>
+ * <p>远程读取期间若有写入、删除或失效消息，本次读到的值可能已过期，此时不回填近端缓存；
+ * 因此近端缓存的不一致时间只取决于失效消息是否送达，消息丢失时以近端存活时间为上限。</p>
+ * @author 		： <a href="https://github.com/vindell">vindell</a>
+ */
+public class TwoTierCache<K, V> implements Cache<K, V>, MessageListener {
+
+	private static final Logger LOG = LoggerFactory.getLogger(TwoTierCache.class);
+	/** 失效消息格式：节点ID + 分隔符 + 缓存键；清空全部时缓存键为空 */
+	private static final String SEPARATOR = "|";
+
+	private final String nodeId = UUID.randomUUID().toString();
+	private final ExpiringMapCache<K, V> nearCache;
+	private final Cache<K, V> remoteCache;
+	private final RedisTemplate<Object, Object> redisTemplate;
+	private final String channel;
+
+	private final LongAdder nearHits = new LongAdder();
+	private final LongAdder remoteHits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	/** 每次写入、删除或收到失效消息时递增，用于判断远程读取期间是否发生过变更 */
+	private final AtomicLong version = new AtomicLong();
+
+	public TwoTierCache(ExpiringMapCache<K, V> nearCache, Cache<K, V> remoteCache,
+			RedisTemplate<Object, Object> redisTemplate, String channel) {
+		this.nearCache = nearCache;
+		this.remoteCache = remoteCache;
+		this.redisTemplate = redisTemplate;
+		this.channel = channel;
+	}
+
+	@Override
+	public V get(K key) throws CacheException {
+		V value = nearCache.get(key);
+		if (value != null) {
+			nearHits.increment();
+			return value;
+		}
+		long readVersion = version.get();
+		try {
+			value = remoteCache.get(key);
+		} catch (CacheException e) {
+			// 远程缓存不可用时按未命中处理，由 Realm 回源
+			LOG.warn("Remote cache unavailable, falling back to origin : {}", e.getMessage());
+			value = null;
+		}
+		if (value != null) {
+			remoteHits.increment();
+			if (version.get() == readVersion) {
+				nearCache.put(key, value);
+			}
+			return value;
+		}
+		misses.increment();
+		return null;
+	}
+
+	@Override
+	public V put(K key, V value) throws CacheException {
+		version.incrementAndGet();
+		try {
+			remoteCache.put(key, value);
+		} finally {
+			nearCache.put(key, value);
+			publishInvalidation(String.valueOf(key));
+		}
+		return null;
+	}
+
+	@Override
+	public V remove(K key) throws CacheException {
+		version.incrementAndGet();
+		V previous = nearCache.remove(key);
+		try {
+			remoteCache.remove(key);
+		} finally {
+			publishInvalidation(String.valueOf(key));
+		}
+		return previous;
+	}
+
+	@Override
+	public void clear() throws CacheException {
+		version.incrementAndGet();
+		nearCache.clear();
+		try {
+			remoteCache.clear();
+		} finally {
+			publishInvalidation("");
+		}
+	}
+
+	@Override
+	public int size() {
+		return remoteCache.size();
+	}
+
+	@Override
+	public Set<K> keys() {
+		return remoteCache.keys();
+	}
+
+	@Override
+	public Collection<V> values() {
+		return remoteCache.values();
+	}
+
+	protected void publishInvalidation(String key) {
+		try {
+			redisTemplate.convertAndSend(channel, nodeId + SEPARATOR + key);
+		} catch (RuntimeException e) {
+			LOG.warn("Failed to publish cache invalidation for key [" + key + "] on channel " + channel, e);
+		}
+	}
+
+	/**
+	 * 收到其他节点的失效消息：清除本节点对应的近端缓存条目
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public void onMessage(Message message, byte[] pattern) {
+		Object body = redisTemplate.getValueSerializer().deserialize(message.getBody());
+		if (body == null) {
+			return;
+		}
+		String text = String.valueOf(body);
+		int index = text.indexOf(SEPARATOR);
+		if (index < 0 || nodeId.equals(text.substring(0, index))) {
+			return;
+		}
+		String key = text.substring(index + 1);
+		version.incrementAndGet();
+		if (key.isEmpty()) {
+			nearCache.clear();
+		} else {
+			// 近端缓存的键在写入时已转为字符串
+			nearCache.remove((K) key);
+		}
+	}
+
+	public String getNodeId() {
+		return nodeId;
+	}
+
+	public String getChannel() {
+		return channel;
+	}
+
+	public ExpiringMapCache<K, V> getNearCache() {
+		return nearCache;
+	}
+
+	public Cache<K, V> getRemoteCache() {
+		return remoteCache;
+	}
+
+	public long getNearHitCount() {
+		return nearHits.sum();
+	}
+
+	public long getRemoteHitCount() {
+		return remoteHits.sum();
+	}
+
+	public long getMissCount() {
+		return misses.sum();
+	}
+
+	/**
+	 * 近端缓存命中率：近端命中数 / 总请求数
+	 */
+	public double getNearHitRatio() {
+		long total = nearHits.sum() + remoteHits.sum() + misses.sum();
+		return total == 0 ? 0d : (double) nearHits.sum() / total;
+	}
+
+	/**
+	 * 远程缓存命中率：远程命中数 / 到达远程缓存的请求数
+	 */
+	public double getRemoteHitRatio() {
+		long total = remoteHits.sum() + misses.sum();
+		return total == 0 ? 0d : (double) remoteHits.sum() / total;
+	}
+
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2017, vindell (https://github.com/vindell).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.oauth.concurrent;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 执行认证服务器阻塞 I/O 的线程池工厂
+ * <p>运行时支持虚拟线程（JDK 21+）时可为每个任务创建一个虚拟线程，等待认证服务器响应时不占用平台线程，
+ * 无需按认证服务器延迟来估算线程池大小；否则回退为有界的平台线程池。
+ * 项目以 Java 8 为编译目标，虚拟线程相关 API 通过反射调用。</p>
+ * @author 		： <a href="https://github.com/vindell">vindell</a>
+ */
+public final class IdpExecutors {
+
+	private static final Logger LOG = LoggerFactory.getLogger(IdpExecutors.class);
+
+	private IdpExecutors() {
+	}
+
+	/**
+	 * 当前运行时是否支持虚拟线程
+	 */
+	public static boolean isVirtualThreadSupported() {
+		try {
+			Thread.class.getMethod("ofVirtual");
+			return true;
+		} catch (NoSuchMethodException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * 创建执行认证服务器调用的线程池
+	 * @param virtualThreads 是否优先使用虚拟线程
+	 * @param namePrefix 线程名称前缀
+	 * @param poolSize 回退为平台线程池时的线程数
+	 * @param queueCapacity 回退为平台线程池时的等待队列长度，队列满时拒绝任务
+	 * <p>使用虚拟线程时同时执行的任务数限制为 poolSize + queueCapacity，与平台线程池可接纳的任务总数一致。</p>
+	 */
+	public static ExecutorService newExecutor(boolean virtualThreads, String namePrefix, int poolSize, int queueCapacity) {
+		if (virtualThreads) {
+			ExecutorService executor = newVirtualThreadExecutor(namePrefix, poolSize + queueCapacity);
+			if (executor != null) {
+				return executor;
+			}
+			LOG.info("Virtual threads are not supported by this runtime, falling back to a bounded pool of {} threads", poolSize);
+		}
+		return newBoundedExecutor(namePrefix, poolSize, queueCapacity);
+	}
+
+	/**
+	 * 每个任务一个虚拟线程，并用信号量限制同时执行的任务数，超出时抛出 RejectedExecutionException
+	 * @param maxConcurrency 最大并发任务数
+	 * @return 运行时不支持虚拟线程时返回 null
+	 */
+	public static ExecutorService newVirtualThreadExecutor(String namePrefix, int maxConcurrency) {
+		ExecutorService executor = newVirtualThreadExecutor(namePrefix);
+		return executor == null ? null : new SemaphoreBoundedExecutor(executor, maxConcurrency);
+	}
+
+	/**
+	 * 每个任务一个虚拟线程（不限制并发数）：等价于 Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(prefix, 1).factory())
+	 * @return 运行时不支持虚拟线程时返回 null
+	 */
+	public static ExecutorService newVirtualThreadExecutor(String namePrefix) {
+		if (!isVirtualThreadSupported()) {
+			return null;
+		}
+		try {
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+			builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 1L);
+			ThreadFactory factory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+			Method newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+			return (ExecutorService) newThreadPerTaskExecutor.invoke(null, factory);
+		} catch (Exception e) {
+			LOG.warn("Failed to create virtual thread executor : {}", e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * 有界的平台线程池：固定线程数 + 有界队列，队列满时抛出 RejectedExecutionException，不阻塞调用线程
+	 */
+	public static ExecutorService newBoundedExecutor(final String namePrefix, int poolSize, int queueCapacity) {
+		final AtomicInteger threadNumber = new AtomicInteger(1);
+		ThreadFactory threadFactory = new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, namePrefix + threadNumber.getAndIncrement());
+				thread.setDaemon(true);
+				return thread;
+			}
+		};
+		return new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<Runnable>(queueCapacity), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+	}
+
+}
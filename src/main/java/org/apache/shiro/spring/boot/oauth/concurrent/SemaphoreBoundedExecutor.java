@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2017, vindell (https://github.com/vindell).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.oauth.concurrent;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 限制并发任务数的线程池包装
+ * <p>虚拟线程池本身不限制并发数，认证服务器变慢时会无限堆积请求；这里用信号量限制同时执行的任务数，
+ * 许可耗尽时立即抛出 RejectedExecutionException，与有界平台线程池的 AbortPolicy 行为一致。</p>
+ * @author 		： <a href="https://github.com/vindell">vindell</a>
+ */
+public class SemaphoreBoundedExecutor extends AbstractExecutorService {
+
+	private final ExecutorService delegate;
+	private final Semaphore permits;
+	private final int maxConcurrency;
+
+	public SemaphoreBoundedExecutor(ExecutorService delegate, int maxConcurrency) {
+		if (delegate == null) {
+			throw new IllegalArgumentException("delegate executor must not be null");
+		}
+		if (maxConcurrency <= 0) {
+			throw new IllegalArgumentException("maxConcurrency must be greater than 0");
+		}
+		this.delegate = delegate;
+		this.maxConcurrency = maxConcurrency;
+		this.permits = new Semaphore(maxConcurrency);
+	}
+
+	@Override
+	public void execute(final Runnable command) {
+		if (command == null) {
+			throw new NullPointerException();
+		}
+		if (!permits.tryAcquire()) {
+			throw new RejectedExecutionException("Too many concurrent tasks, limit is " + maxConcurrency);
+		}
+		try {
+			delegate.execute(() -> {
+				try {
+					command.run();
+				} finally {
+					permits.release();
+				}
+			});
+		} catch (RuntimeException e) {
+			permits.release();
+			throw e;
+		}
+	}
+
+	/**
+	 * 当前正在执行的任务数
+	 */
+	public int getActiveCount() {
+		return maxConcurrency - permits.availablePermits();
+	}
+
+	public int getMaxConcurrency() {
+		return maxConcurrency;
+	}
+
+	@Override
+	public void shutdown() {
+		delegate.shutdown();
+	}
+
+	@Override
+	public List<Runnable> shutdownNow() {
+		return delegate.shutdownNow();
+	}
+
+	@Override
+	public boolean isShutdown() {
+		return delegate.isShutdown();
+	}
+
+	@Override
+	public boolean isTerminated() {
+		return delegate.isTerminated();
+	}
+
+	@Override
+	public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+		return delegate.awaitTermination(timeout, unit);
+	}
+
+}
@@ -20,6 +20,10 @@ import org.apache.shiro.authc.AuthenticationException;
 @SuppressWarnings("serial")
 public class OAuth2AuthenticationException extends AuthenticationException {
 
+    public OAuth2AuthenticationException(String message) {
+        super(message);
+    }
+
     public OAuth2AuthenticationException(Throwable cause) {
         super(cause);
     }
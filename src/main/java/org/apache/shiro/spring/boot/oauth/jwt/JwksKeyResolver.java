@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2017, vindell (https://github.com/vindell).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.oauth.jwt;
+
+import java.math.BigInteger;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.spec.RSAPublicKeySpec;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.oltu.oauth2.client.HttpClient;
+import org.apache.oltu.oauth2.client.OAuthClient;
+import org.apache.oltu.oauth2.client.URLConnectionClient;
+import org.apache.oltu.oauth2.client.request.OAuthClientRequest;
+import org.apache.oltu.oauth2.client.response.OAuthResourceResponse;
+import org.apache.oltu.oauth2.common.OAuth;
+import org.apache.shiro.util.Destroyable;
+import org.apache.shiro.util.Initializable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+
+/**
+ * 从 JWKS 地址加载认证服务器公钥，并按 kid 缓存
+ * <p>后台按固定间隔刷新公钥；遇到未知 kid（认证服务器轮换密钥）时立即刷新一次，
+ * 两次刷新之间至少间隔 {@link #setMinRefreshInterval(long)}，避免伪造的 kid 导致频繁请求 JWKS 地址。
+ * 刷新失败时继续使用已缓存的公钥。目前支持 RSA 公钥（RS256/RS384/RS512）。</p>
+ * @author 		： <a href="https://github.com/vindell">vindell</a>
+ */
+public class JwksKeyResolver implements Initializable, Destroyable {
+
+	private static final Logger LOG = LoggerFactory.getLogger(JwksKeyResolver.class);
+
+	private String jwksUrl;
+	//访问 JWKS 地址使用的HttpClient，建议注入共享的连接池实现
+	private HttpClient httpClient = new URLConnectionClient();
+	//后台刷新间隔（毫秒），小于等于0表示不在后台刷新
+	private long refreshInterval = 3600000;
+	//两次刷新之间的最小间隔（毫秒）
+	private long minRefreshInterval = 60000;
+
+	private volatile Map<String, PublicKey> keys = Collections.emptyMap();
+	private final AtomicLong lastRefresh = new AtomicLong();
+	private ScheduledExecutorService scheduler;
+
+	public JwksKeyResolver() {
+	}
+
+	public JwksKeyResolver(String jwksUrl) {
+		this.jwksUrl = jwksUrl;
+	}
+
+	@Override
+	public void init() {
+		start();
+	}
+
+	/**
+	 * 启动后台刷新
+	 */
+	public synchronized void start() {
+		if (scheduler != null || refreshInterval <= 0) {
+			return;
+		}
+		scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "jwks-refresh");
+			thread.setDaemon(true);
+			return thread;
+		});
+		scheduler.scheduleWithFixedDelay(this::refreshIfAllowed, 0, refreshInterval, TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public synchronized void destroy() {
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+			scheduler = null;
+		}
+	}
+
+	/**
+	 * 根据 kid 获取公钥；缓存中不存在时在频率限制内刷新一次
+	 * @param kid JWT 头部的 kid，为空时仅在只有一个公钥时返回该公钥
+	 * @return 找不到时返回 null
+	 */
+	public PublicKey getKey(String kid) {
+		PublicKey key = lookup(kid);
+		if (key == null && refreshIfAllowed()) {
+			key = lookup(kid);
+		}
+		return key;
+	}
+
+	protected PublicKey lookup(String kid) {
+		Map<String, PublicKey> keys = this.keys;
+		if (kid == null) {
+			return keys.size() == 1 ? keys.values().iterator().next() : null;
+		}
+		return keys.get(kid);
+	}
+
+	/**
+	 * 距上次刷新超过最小间隔时刷新公钥
+	 * @return 是否执行了刷新
+	 */
+	protected boolean refreshIfAllowed() {
+		long now = System.currentTimeMillis();
+		long last = lastRefresh.get();
+		if (now - last < minRefreshInterval || !lastRefresh.compareAndSet(last, now)) {
+			return false;
+		}
+		try {
+			refresh();
+			return true;
+		} catch (Exception e) {
+			LOG.warn("Failed to refresh JWKS from : " + jwksUrl + ", keeping " + keys.size() + " cached keys", e);
+			return false;
+		}
+	}
+
+	protected void refresh() throws Exception {
+		OAuthClientRequest request = OAuthClientRequest.authorizationLocation(jwksUrl).buildQueryMessage();
+		OAuthResourceResponse response = new OAuthClient(httpClient).resource(request, OAuth.HttpMethod.GET,
+				OAuthResourceResponse.class);
+		Map<String, PublicKey> keys = parseKeys(response.getBody());
+		if (!keys.isEmpty()) {
+			this.keys = keys;
+			LOG.debug("Loaded {} keys from : {}", keys.size(), jwksUrl);
+		}
+	}
+
+	protected Map<String, PublicKey> parseKeys(String body) throws Exception {
+		Map<String, PublicKey> keys = new ConcurrentHashMap<String, PublicKey>();
+		JSONArray array = JSONObject.parseObject(body).getJSONArray("keys");
+		if (array == null) {
+			return keys;
+		}
+		KeyFactory keyFactory = KeyFactory.getInstance("RSA");
+		for (int i = 0; i < array.size(); i++) {
+			JSONObject jwk = array.getJSONObject(i);
+			if (!"RSA".equals(jwk.getString("kty")) || "enc".equals(jwk.getString("use"))) {
+				continue;
+			}
+			BigInteger modulus = new BigInteger(1, Base64.getUrlDecoder().decode(jwk.getString("n")));
+			BigInteger exponent = new BigInteger(1, Base64.getUrlDecoder().decode(jwk.getString("e")));
+			PublicKey key = keyFactory.generatePublic(new RSAPublicKeySpec(modulus, exponent));
+			String kid = jwk.getString("kid");
+			keys.put(kid == null ? "" : kid, key);
+		}
+		return keys;
+	}
+
+	public int getKeyCount() {
+		return keys.size();
+	}
+
+	public long getLastRefresh() {
+		return lastRefresh.get();
+	}
+
+	public String getJwksUrl() {
+		return jwksUrl;
+	}
+
+	public void setJwksUrl(String jwksUrl) {
+		this.jwksUrl = jwksUrl;
+	}
+
+	public HttpClient getHttpClient() {
+		return httpClient;
+	}
+
+	public void setHttpClient(HttpClient httpClient) {
+		this.httpClient = httpClient;
+	}
+
+	public long getRefreshInterval() {
+		return refreshInterval;
+	}
+
+	public void setRefreshInterval(long refreshInterval) {
+		this.refreshInterval = refreshInterval;
+	}
+
+	public long getMinRefreshInterval() {
+		return minRefreshInterval;
+	}
+
+	public void setMinRefreshInterval(long minRefreshInterval) {
+		this.minRefreshInterval = minRefreshInterval;
+	}
+
+}
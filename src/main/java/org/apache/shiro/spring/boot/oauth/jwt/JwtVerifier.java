@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2017, vindell (https://github.com/vindell).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.oauth.jwt;
+
+import java.nio.charset.StandardCharsets;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.shiro.spring.boot.oauth.exception.OAuth2AuthenticationException;
+
+import com.alibaba.fastjson.JSONObject;
+
+/**
+ * 在本地校验认证服务器签发的 JWT Access Token，无需调用 userinfo 地址
+ * <p>校验签名（RS256/RS384/RS512，公钥由 {@link JwksKeyResolver} 按 kid 提供）、有效期（必须包含 exp，nbf 可选，允许时钟偏差），
+ * 以及签发者（iss）与受众（aud）；未设置签发者与受众时使用调用方（Realm）提供的认证服务器签发者与 clientId，
+ * 两者都没有时拒绝 Token。校验失败时抛出 {@link OAuth2AuthenticationException}。</p>
+ * @author 		： <a href="https://github.com/vindell">vindell</a>
+ */
+public class JwtVerifier {
+
+	private static final Map<String, String> ALGORITHMS = new HashMap<String, String>();
+
+	static {
+		ALGORITHMS.put("RS256", "SHA256withRSA");
+		ALGORITHMS.put("RS384", "SHA384withRSA");
+		ALGORITHMS.put("RS512", "SHA512withRSA");
+	}
+
+	private JwksKeyResolver keyResolver;
+	//期望的签发者，为空时使用调用方提供的默认值
+	private String issuer;
+	//期望的受众，为空时使用调用方提供的默认值（clientId）
+	private String audience;
+	//允许的时钟偏差（秒）
+	private long clockSkew = 60;
+	//作为用户名的声明
+	private String principalClaim = "sub";
+
+	public JwtVerifier() {
+	}
+
+	public JwtVerifier(JwksKeyResolver keyResolver) {
+		this.keyResolver = keyResolver;
+	}
+
+	/**
+	 * 校验 JWT 并返回其中的声明
+	 */
+	public JSONObject verify(String token) {
+		return verify(token, null, null);
+	}
+
+	/**
+	 * 校验 JWT 并返回其中的声明
+	 * @param defaultIssuer 未设置 {@link #setIssuer(String)} 时期望的签发者，一般为 Realm 对应的认证服务器
+	 * @param defaultAudience 未设置 {@link #setAudience(String)} 时期望的受众，一般为 Realm 的 clientId
+	 */
+	public JSONObject verify(String token, String defaultIssuer, String defaultAudience) {
+		String[] parts = token == null ? new String[0] : token.split("\\.");
+		if (parts.length != 3) {
+			throw new OAuth2AuthenticationException("Access token is not a signed JWT");
+		}
+		JSONObject header;
+		JSONObject claims;
+		byte[] signature;
+		try {
+			header = JSONObject.parseObject(decode(parts[0]));
+			claims = JSONObject.parseObject(decode(parts[1]));
+			signature = Base64.getUrlDecoder().decode(parts[2]);
+		} catch (RuntimeException e) {
+			throw new OAuth2AuthenticationException(e);
+		}
+		if (header == null || claims == null) {
+			throw new OAuth2AuthenticationException("Malformed JWT");
+		}
+
+		String algorithm = ALGORITHMS.get(header.getString("alg"));
+		if (algorithm == null) {
+			throw new OAuth2AuthenticationException("Unsupported JWT algorithm : " + header.getString("alg"));
+		}
+		PublicKey key = keyResolver.getKey(header.getString("kid"));
+		if (key == null) {
+			throw new OAuth2AuthenticationException("No public key found for kid : " + header.getString("kid"));
+		}
+		try {
+			Signature verifier = Signature.getInstance(algorithm);
+			verifier.initVerify(key);
+			verifier.update((parts[0] + "." + parts[1]).getBytes(StandardCharsets.US_ASCII));
+			if (!verifier.verify(signature)) {
+				throw new OAuth2AuthenticationException("Invalid JWT signature");
+			}
+		} catch (OAuth2AuthenticationException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new OAuth2AuthenticationException(e);
+		}
+
+		validateClaims(claims, issuer != null ? issuer : defaultIssuer, audience != null ? audience : defaultAudience);
+		return claims;
+	}
+
+	protected void validateClaims(JSONObject claims, String expectedIssuer, String expectedAudience) {
+		if (expectedIssuer == null || expectedAudience == null) {
+			throw new OAuth2AuthenticationException("JWT issuer and audience must be configured");
+		}
+		long now = System.currentTimeMillis() / 1000;
+		Long exp = claims.getLong("exp");
+		if (exp == null) {
+			throw new OAuth2AuthenticationException("JWT has no exp claim");
+		}
+		if (now - clockSkew >= exp) {
+			throw new OAuth2AuthenticationException("JWT expired at : " + exp);
+		}
+		Long nbf = claims.getLong("nbf");
+		if (nbf != null && now + clockSkew < nbf) {
+			throw new OAuth2AuthenticationException("JWT not valid before : " + nbf);
+		}
+		if (!expectedIssuer.equals(claims.getString("iss"))) {
+			throw new OAuth2AuthenticationException("Unexpected JWT issuer : " + claims.getString("iss"));
+		}
+		if (!hasAudience(claims.get("aud"), expectedAudience)) {
+			throw new OAuth2AuthenticationException("JWT audience does not contain : " + expectedAudience);
+		}
+	}
+
+	protected boolean hasAudience(Object aud, String expectedAudience) {
+		if (aud instanceof Collection) {
+			return ((Collection<?>) aud).contains(expectedAudience);
+		}
+		return expectedAudience.equals(aud);
+	}
+
+	/**
+	 * 校验 JWT 并返回 {@link #setPrincipalClaim(String)} 指定的声明作为用户名
+	 */
+	public String extractPrincipal(String token) {
+		return extractPrincipal(token, null, null);
+	}
+
+	/**
+	 * 校验 JWT 并返回 {@link #setPrincipalClaim(String)} 指定的声明作为用户名
+	 * @see #verify(String, String, String)
+	 */
+	public String extractPrincipal(String token, String defaultIssuer, String defaultAudience) {
+		String principal = verify(token, defaultIssuer, defaultAudience).getString(principalClaim);
+		if (principal == null || principal.isEmpty()) {
+			throw new OAuth2AuthenticationException("JWT has no claim : " + principalClaim);
+		}
+		return principal;
+	}
+
+	protected String decode(String part) {
+		return new String(Base64.getUrlDecoder().decode(part), StandardCharsets.UTF_8);
+	}
+
+	public JwksKeyResolver getKeyResolver() {
+		return keyResolver;
+	}
+
+	public void setKeyResolver(JwksKeyResolver keyResolver) {
+		this.keyResolver = keyResolver;
+	}
+
+	public String getIssuer() {
+		return issuer;
+	}
+
+	public void setIssuer(String issuer) {
+		this.issuer = issuer;
+	}
+
+	public String getAudience() {
+		return audience;
+	}
+
+	public void setAudience(String audience) {
+		this.audience = audience;
+	}
+
+	public long getClockSkew() {
+		return clockSkew;
+	}
+
+	public void setClockSkew(long clockSkew) {
+		this.clockSkew = clockSkew;
+	}
+
+	public String getPrincipalClaim() {
+		return principalClaim;
+	}
+
+	public void setPrincipalClaim(String principalClaim) {
+		this.principalClaim = principalClaim;
+	}
+
+}
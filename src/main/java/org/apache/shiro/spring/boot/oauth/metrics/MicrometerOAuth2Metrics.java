@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2017, vindell (https://github.com/vindell).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.oauth.metrics;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * 基于 Micrometer 的 {@link OAuth2Metrics} 实现
+ * <ul>
+ * <li>shiro.oauth2.stage（Timer）：各阶段耗时，标签 provider、stage、outcome</li>
+ * <li>shiro.oauth2.stage.errors（Counter）：各阶段失败次数，标签 provider、stage、exception</li>
+ * </ul>
+ * <p>Timer 与 Counter 按标签组合缓存，每次记录不再经过 builder 与注册表查找。</p>
+ * @author 		： <a href="https://github.com/vindell">vindell</a>
+ */
+public class MicrometerOAuth2Metrics implements OAuth2Metrics {
+
+	public static final String TIMER_NAME = "shiro.oauth2.stage";
+	public static final String ERROR_COUNTER_NAME = "shiro.oauth2.stage.errors";
+
+	private final MeterRegistry registry;
+	private final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<String, Timer>();
+	private final ConcurrentMap<String, Counter> errorCounters = new ConcurrentHashMap<String, Counter>();
+
+	public MicrometerOAuth2Metrics(MeterRegistry registry) {
+		this.registry = registry;
+	}
+
+	@Override
+	public void record(String provider, String stage, long durationNanos, Throwable error) {
+		String outcome = error == null ? OUTCOME_SUCCESS : OUTCOME_FAILURE;
+		timer(provider, stage, outcome).record(durationNanos, TimeUnit.NANOSECONDS);
+		if (error != null) {
+			errorCounter(provider, stage, error.getClass().getSimpleName()).increment();
+		}
+	}
+
+	protected Timer timer(String provider, String stage, String outcome) {
+		String key = provider + '|' + stage + '|' + outcome;
+		Timer timer = timers.get(key);
+		if (timer == null) {
+			timer = timers.computeIfAbsent(key, k -> Timer.builder(TIMER_NAME)
+				.description("Duration of OAuth exchange stages")
+				.tag("provider", provider)
+				.tag("stage", stage)
+				.tag("outcome", outcome)
+				.register(registry));
+		}
+		return timer;
+	}
+
+	protected Counter errorCounter(String provider, String stage, String exception) {
+		String key = provider + '|' + stage + '|' + exception;
+		Counter counter = errorCounters.get(key);
+		if (counter == null) {
+			counter = errorCounters.computeIfAbsent(key, k -> Counter.builder(ERROR_COUNTER_NAME)
+				.description("Failed OAuth exchange stages")
+				.tag("provider", provider)
+				.tag("stage", stage)
+				.tag("exception", exception)
+				.register(registry));
+		}
+		return counter;
+	}
+
+	public MeterRegistry getRegistry() {
+		return registry;
+	}
+
+}
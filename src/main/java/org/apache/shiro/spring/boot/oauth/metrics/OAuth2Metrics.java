@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2017, vindell (https://github.com/vindell).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.oauth.metrics;
+
+/**
+ * OAuth 交换各阶段的耗时与结果记录接口
+ * <p>Provider、Service 与 Oltu 模板在每个远程调用阶段结束时调用 {@link #record(String, String, long, Throwable)}；
+ * 默认使用 {@link #NOOP}，存在 MeterRegistry 时自动配置为 {@link MicrometerOAuth2Metrics}。</p>
+ * @author 		： <a href="https://github.com/vindell">vindell</a>
+ */
+public interface OAuth2Metrics {
+
+	/** 通过 Authorization Code 获取 Access Token */
+	String STAGE_ACCESS_TOKEN = "access_token";
+	/** 通过 Access Token 获取 OpenID（QQ）或 uid（新浪微博） */
+	String STAGE_OPENID = "openid";
+	/** 通过 Access Token 获取用户信息 */
+	String STAGE_USERINFO = "userinfo";
+	/** 从用户信息响应中解析 Profile */
+	String STAGE_PROFILE = "profile";
+	/** Oltu Realm 完整的 code → token → userinfo 交换 */
+	String STAGE_EXCHANGE = "exchange";
+	/** 通过令牌内省地址（RFC 7662）校验 Bearer Token */
+	String STAGE_INTROSPECT = "introspect";
+	/** 查找第三方账号绑定的本地账号 */
+	String STAGE_BINDING = "binding";
+
+	String OUTCOME_SUCCESS = "success";
+	String OUTCOME_FAILURE = "failure";
+
+	OAuth2Metrics NOOP = new OAuth2Metrics() {
+
+		@Override
+		public void record(String provider, String stage, long durationNanos, Throwable error) {
+		}
+
+	};
+
+	/**
+	 * 记录一次阶段调用
+	 * @param provider 认证服务提供方，例如 QQProvider、WeixinProvider、Oltu Realm 名称
+	 * @param stage 阶段名称，见 STAGE_* 常量
+	 * @param durationNanos 耗时（纳秒）
+	 * @param error 调用失败时的异常，成功时为空
+	 */
+	void record(String provider, String stage, long durationNanos, Throwable error);
+
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2017, vindell (https://github.com/vindell).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.oauth.oltu;
+
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.oltu.oauth2.client.HttpClient;
+import org.apache.oltu.oauth2.client.URLConnectionClient;
+import org.apache.shiro.spring.boot.oauth.oltu.client.OltuOauth2Template;
+import org.apache.shiro.spring.boot.oauth.oltu.filter.OltuOauth2AuthenticationFilter;
+import org.apache.shiro.spring.boot.oauth.oltu.realm.OltuOauth2ExternalAuthorizingRealm;
+import org.apache.shiro.spring.boot.oauth.oltu.realm.OltuOauth2InternalAuthorizingRealm;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+
+/**
+ * 让 {@link OltuOauth2AuthenticationFilter} 与 Oltu Realm 使用同一个 {@link OltuOauth2Template}：
+ * 过滤器未设置模板时，取容器中唯一的 Oltu Realm 的模板，保证异步登录与同步登录的 clientId、JWT 校验、熔断与缓存一致
+ * <p>Oltu Realm 的模板仍使用默认的 {@link URLConnectionClient} 时，改为使用容器中共享的连接池 {@link HttpClient}
+ * （名为 {@value #HTTP_CLIENT_BEAN_NAME} 的 Bean，没有时取唯一的 HttpClient）；已调用 setHttpClient 的 Realm 保持不变。</p>
+ * @author 		： <a href="https://github.com/vindell">vindell</a>
+ */
+public class OltuOauth2BeanPostProcessor implements BeanPostProcessor, BeanFactoryAware {
+
+	private static final Logger LOG = LoggerFactory.getLogger(OltuOauth2BeanPostProcessor.class);
+
+	public static final String HTTP_CLIENT_BEAN_NAME = "oltuHttpClient";
+
+	private ListableBeanFactory beanFactory;
+
+	@Override
+	public void setBeanFactory(BeanFactory beanFactory) throws BeansException {
+		if (beanFactory instanceof ListableBeanFactory) {
+			this.beanFactory = (ListableBeanFactory) beanFactory;
+		}
+	}
+
+	@Override
+	public Object postProcessBeforeInitialization(Object bean, String beanName) throws BeansException {
+		return bean;
+	}
+
+	@Override
+	public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+		Object target = bean instanceof FilterRegistrationBean ? ((FilterRegistrationBean) bean).getFilter() : bean;
+		if (target instanceof OltuOauth2AuthenticationFilter) {
+			OltuOauth2AuthenticationFilter filter = (OltuOauth2AuthenticationFilter) target;
+			if (filter.getTemplate() == null) {
+				filter.setTemplate(findRealmTemplate(beanName));
+			}
+		} else if (bean instanceof OltuOauth2InternalAuthorizingRealm) {
+			useSharedHttpClient(((OltuOauth2InternalAuthorizingRealm) bean).getTemplate(), beanName);
+		} else if (bean instanceof OltuOauth2ExternalAuthorizingRealm) {
+			useSharedHttpClient(((OltuOauth2ExternalAuthorizingRealm) bean).getTemplate(), beanName);
+		}
+		return bean;
+	}
+
+	protected void useSharedHttpClient(OltuOauth2Template template, String realmName) {
+		if (template == null || !(template.getHttpClient() instanceof URLConnectionClient)) {
+			return;
+		}
+		HttpClient httpClient = findSharedHttpClient();
+		if (httpClient != null) {
+			LOG.debug("Oltu realm '{}' uses the shared HttpClient", realmName);
+			template.setHttpClient(httpClient);
+		}
+	}
+
+	protected HttpClient findSharedHttpClient() {
+		if (beanFactory == null) {
+			return null;
+		}
+		if (beanFactory.containsBean(HTTP_CLIENT_BEAN_NAME) && beanFactory.isTypeMatch(HTTP_CLIENT_BEAN_NAME, HttpClient.class)) {
+			return beanFactory.getBean(HTTP_CLIENT_BEAN_NAME, HttpClient.class);
+		}
+		Map<String, HttpClient> httpClients = beanFactory.getBeansOfType(HttpClient.class);
+		return httpClients.size() == 1 ? httpClients.values().iterator().next() : null;
+	}
+
+	protected OltuOauth2Template findRealmTemplate(String filterName) {
+		if (beanFactory == null) {
+			return null;
+		}
+		Set<OltuOauth2Template> templates = new LinkedHashSet<OltuOauth2Template>();
+		for (OltuOauth2InternalAuthorizingRealm realm : beanFactory.getBeansOfType(OltuOauth2InternalAuthorizingRealm.class).values()) {
+			templates.add(realm.getTemplate());
+		}
+		for (OltuOauth2ExternalAuthorizingRealm realm : beanFactory.getBeansOfType(OltuOauth2ExternalAuthorizingRealm.class).values()) {
+			templates.add(realm.getTemplate());
+		}
+		if (templates.size() == 1) {
+			return templates.iterator().next();
+		}
+		if (templates.size() > 1) {
+			LOG.warn("Found {} Oltu realm templates, set the template of filter '{}' explicitly to enable async login", templates.size(), filterName);
+		}
+		return null;
+	}
+
+}
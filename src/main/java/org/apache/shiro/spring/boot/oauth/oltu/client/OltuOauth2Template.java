@@ -0,0 +1,438 @@
+/*
+ * Copyright (c) 2017, vindell (https://github.com/vindell).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.oauth.oltu.client;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.oltu.oauth2.client.HttpClient;
+import org.apache.oltu.oauth2.client.OAuthClient;
+import org.apache.oltu.oauth2.client.URLConnectionClient;
+import org.apache.oltu.oauth2.client.request.OAuthBearerClientRequest;
+import org.apache.oltu.oauth2.client.request.OAuthClientRequest;
+import org.apache.oltu.oauth2.client.response.OAuthAccessTokenResponse;
+import org.apache.oltu.oauth2.client.response.OAuthResourceResponse;
+import org.apache.oltu.oauth2.common.OAuth;
+import org.apache.oltu.oauth2.common.error.OAuthError;
+import org.apache.oltu.oauth2.common.exception.OAuthProblemException;
+import org.apache.oltu.oauth2.common.message.types.GrantType;
+import org.apache.shiro.spring.boot.oauth.cache.OAuth2TokenCache;
+import org.apache.shiro.spring.boot.oauth.cache.SingleFlight;
+import org.apache.shiro.spring.boot.oauth.exception.OAuth2AuthenticationException;
+import org.apache.shiro.spring.boot.oauth.exception.ProviderRejectedException;
+import org.apache.shiro.spring.boot.oauth.jwt.JwtVerifier;
+import org.apache.shiro.spring.boot.oauth.metrics.OAuth2Metrics;
+import org.apache.shiro.spring.boot.oauth.resilience.HedgedRetryPolicy;
+import org.apache.shiro.spring.boot.oauth.resilience.ProviderGuard;
+import org.scribe.up.provider.exception.HttpException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Oltu OAuth2 授权码交换模板：code → access token → userinfo
+ * <p>Realm 与 {@link org.apache.shiro.spring.boot.oauth.oltu.filter.OltuOauth2AuthenticationFilter} 共享该对象，
+ * 同步登录时由 Realm 调用；异步登录时由过滤器在独立线程池中调用 {@link #prepareLogin(String)}，
+ * 交换结果只保存在模板内，由 Realm 在随后的 subject.login 中按授权码取走一次。
+ * 设置了 {@link JwtVerifier} 时，Access Token 作为 JWT 在本地校验并从声明中取得用户名，不再请求 userinfo 地址。</p>
+ * @author 		： <a href="https://github.com/vindell">vindell</a>
+ */
+public class OltuOauth2Template {
+
+	private static final Logger LOG = LoggerFactory.getLogger(OltuOauth2Template.class);
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+	private String clientId;
+	private String clientSecret;
+	private String accessTokenUrl;
+	private String userInfoUrl;
+	private String redirectUrl;
+	//访问认证服务器使用的HttpClient；容器中的 Oltu Realm 未设置时由 OltuOauth2BeanPostProcessor 注入共享的连接池
+	private HttpClient httpClient = new URLConnectionClient();
+	//以 Access Token 为键的用户信息缓存，存活时间取自 expires_in；为空时不缓存
+	private OAuth2TokenCache tokenCache;
+	//合并同一授权码的交换请求，完成后的结果保留 30 秒供刷新回调页面的请求使用
+	private final SingleFlight<String, OAuthAccessTokenResponse> exchanges = new SingleFlight<String, OAuthAccessTokenResponse>(30000, 1000);
+	//异步登录已完成交换的用户名，按授权码保存，只能被取走一次
+	private final ConcurrentMap<String, PreparedLogin> preparedLogins = new ConcurrentHashMap<String, PreparedLogin>();
+	private long preparedLoginTtl = 60000;
+	private int maxPreparedLogins = 10000;
+	//各阶段耗时记录，默认不记录
+	private OAuth2Metrics metrics = OAuth2Metrics.NOOP;
+	//耗时记录中的 provider 标签
+	private String provider = "oltu";
+	//舱壁 + 熔断器；为空时不做保护
+	private ProviderGuard guard;
+	//获取用户信息的对冲与重试；为空时不对冲、不重试
+	private HedgedRetryPolicy retryPolicy;
+	//JWT 模式：本地校验 Access Token 并从声明中取得用户名；为空时请求 userinfo 地址
+	private JwtVerifier jwtVerifier;
+	//认证服务器的签发者标识（JWT 的 iss），JwtVerifier 未设置 issuer 时使用；受众默认为 clientId
+	private String issuer;
+
+	/**
+	 * Step1：通过 Authorization Code 获取 Access Token
+	 * <p>同一授权码的重复回调（重复提交、刷新页面）在交换进行中或完成后 30 秒内共享第一次交换的结果，而不是再次请求认证服务器。</p>
+	 */
+	public OAuthAccessTokenResponse getAccessToken(final String code) {
+		return exchanges.execute(accessTokenUrl + "#" + code, () -> doGetAccessToken(code));
+	}
+
+	protected OAuthAccessTokenResponse doGetAccessToken(String code) {
+		long start = System.nanoTime();
+		Throwable error = null;
+		try {
+			OAuthClientRequest accessTokenRequest = OAuthClientRequest
+					.tokenLocation(accessTokenUrl)
+					.setGrantType(GrantType.AUTHORIZATION_CODE)
+					.setClientId(clientId)
+					.setClientSecret(clientSecret)
+					.setCode(code)
+					.setRedirectURI(redirectUrl)
+					.buildQueryMessage();
+			return guarded(() -> {
+				StatusAwareTokenResponse response = new OAuthClient(httpClient)
+						.accessToken(accessTokenRequest, OAuth.HttpMethod.POST, StatusAwareTokenResponse.class);
+				if (response.isServerError()) {
+					throw new HttpException(response.getStatus(), response.getErrorBody());
+				}
+				return response;
+			});
+		} catch (OAuth2AuthenticationException e) {
+			error = e;
+			throw e;
+		} catch (Exception e) {
+			error = e;
+			LOG.error("Failed to get access token from : " + accessTokenUrl, e);
+			throw new OAuth2AuthenticationException(e);
+		} finally {
+			metrics.record(provider, OAuth2Metrics.STAGE_ACCESS_TOKEN, System.nanoTime() - start, error);
+		}
+	}
+
+	/**
+	 * Step2：使用 Access Token 获取用户信息
+	 */
+	public String getUserInfo(String accessToken) {
+		return getUserInfo(accessToken, null);
+	}
+
+	/**
+	 * Step2：使用 Access Token 获取用户信息；配置了缓存时，Token 有效期内直接返回缓存结果
+	 * @param expiresIn 认证服务器返回的 expires_in（秒），作为缓存存活时间
+	 */
+	public String getUserInfo(String accessToken, Long expiresIn) {
+		String cacheKey = userInfoUrl + "#" + accessToken;
+		if (tokenCache != null) {
+			String cached = tokenCache.get(cacheKey);
+			if (cached != null) {
+				return cached;
+			}
+		}
+		long start = System.nanoTime();
+		Throwable error = null;
+		try {
+			OAuthClientRequest userInfoRequest = new OAuthBearerClientRequest(userInfoUrl)
+					.setAccessToken(accessToken).buildQueryMessage();
+			//状态检查放在重试内部：5xx 抛出 HttpException 才能触发重试与对冲
+			String userInfo = idempotent(() -> guarded(() -> checkUserInfo(new OAuthClient(httpClient)
+					.resource(userInfoRequest, OAuth.HttpMethod.GET, OAuthResourceResponse.class))));
+			if (tokenCache != null) {
+				tokenCache.put(cacheKey, userInfo, expiresIn);
+			}
+			return userInfo;
+		} catch (OAuth2AuthenticationException e) {
+			error = e;
+			throw e;
+		} catch (Exception e) {
+			error = e;
+			LOG.error("Failed to get user info from : " + userInfoUrl, e);
+			throw new OAuth2AuthenticationException(e);
+		} finally {
+			metrics.record(provider, OAuth2Metrics.STAGE_USERINFO, System.nanoTime() - start, error);
+		}
+	}
+
+	/**
+	 * 检查用户信息响应：5xx 时抛出 {@link HttpException}，计为认证服务器失败；
+	 * 其余非 2xx、响应体为空或为 OAuth 错误（包含 error 字段）时抛出 {@link OAuthProblemException}，
+	 * 错误响应不会被缓存，也不会被当作用户信息返回
+	 */
+	protected String checkUserInfo(OAuthResourceResponse response) throws OAuthProblemException, HttpException {
+		int code = response.getResponseCode();
+		String body = response.getBody();
+		if (code >= 500) {
+			throw new HttpException(code, body);
+		}
+		if (code < 200 || code >= 300) {
+			throw OAuthProblemException.error("http_" + code, body).responseStatus(code);
+		}
+		if (body == null || body.trim().isEmpty()) {
+			throw OAuthProblemException.error("empty_response", "User info response has no body").responseStatus(code);
+		}
+		String error = readError(body);
+		if (error != null) {
+			throw OAuthProblemException.error(error, body).responseStatus(code);
+		}
+		return body;
+	}
+
+	/**
+	 * 读取 JSON 响应顶层的 error 字段；响应不是 JSON 对象或没有该字段时返回 null
+	 */
+	protected String readError(String body) {
+		try (JsonParser parser = JSON_FACTORY.createParser(body)) {
+			if (parser.nextToken() != JsonToken.START_OBJECT) {
+				return null;
+			}
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String name = parser.getCurrentName();
+				JsonToken token = parser.nextToken();
+				if (token.isStructStart()) {
+					parser.skipChildren();
+				} else if (OAuthError.OAUTH_ERROR.equals(name) && token != JsonToken.VALUE_NULL) {
+					return parser.getText();
+				}
+			}
+			return null;
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * 在舱壁与熔断器保护下执行远程调用；认证服务器返回的 OAuth 错误（如 invalid_grant）不计为失败，
+	 * 5xx 由调用方转换为 {@link HttpException}，计为失败
+	 */
+	protected <T> T guarded(ProviderGuard.GuardedCall<T, Exception> call) throws Exception {
+		if (guard == null) {
+			return call.call();
+		}
+		return guard.execute(call, e -> !(e instanceof OAuthProblemException));
+	}
+
+	/**
+	 * 按对冲与重试策略执行幂等的 GET 请求；授权码只能使用一次，换取 Access Token 时不可使用。
+	 * 只重试连接失败与 {@link HttpException}（5xx），OAuth 错误与舱壁、熔断器的拒绝不重试；
+	 * 传入的调用应自行经过 {@link #guarded}，使每次尝试与对冲各占一个许可
+	 */
+	protected <T> T idempotent(ProviderGuard.GuardedCall<T, Exception> call) throws Exception {
+		if (retryPolicy == null) {
+			return call.call();
+		}
+		return retryPolicy.execute(provider, call,
+				e -> !(e instanceof OAuthProblemException) && !(e instanceof ProviderRejectedException));
+	}
+
+	/**
+	 * Step2：根据 Access Token 获取用户名；JWT 模式下在本地校验，否则请求 userinfo 地址
+	 */
+	public String resolveUsername(OAuthAccessTokenResponse tokenResponse) {
+		if (jwtVerifier != null) {
+			return jwtVerifier.extractPrincipal(tokenResponse.getAccessToken(), issuer, clientId);
+		}
+		return getUserInfo(tokenResponse.getAccessToken(), tokenResponse.getExpiresIn());
+	}
+
+	/**
+	 * 异步登录：完成交换并保存结果，随后的 {@link #extractUsername(String)} 直接取走该结果而不再访问认证服务器
+	 */
+	public void prepareLogin(String code) {
+		String username = doExtractUsername(code);
+		long now = System.currentTimeMillis();
+		if (preparedLogins.size() >= maxPreparedLogins) {
+			purgePreparedLogins(now);
+		}
+		if (preparedLogins.size() < maxPreparedLogins) {
+			preparedLogins.put(code, new PreparedLogin(username, now + preparedLoginTtl));
+		}
+	}
+
+	private void purgePreparedLogins(long now) {
+		for (Iterator<Map.Entry<String, PreparedLogin>> it = preparedLogins.entrySet().iterator(); it.hasNext();) {
+			if (it.next().getValue().expiresAt <= now) {
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * 返回授权码对应的用户名：优先取走 {@link #prepareLogin(String)} 保存的结果，否则同步完成 code → token → userinfo 的完整交换
+	 */
+	public String extractUsername(String code) {
+		PreparedLogin prepared = code == null ? null : preparedLogins.remove(code);
+		if (prepared != null && prepared.expiresAt > System.currentTimeMillis()) {
+			return prepared.username;
+		}
+		return doExtractUsername(code);
+	}
+
+	protected String doExtractUsername(String code) {
+		long start = System.nanoTime();
+		Throwable error = null;
+		try {
+			return resolveUsername(getAccessToken(code));
+		} catch (RuntimeException e) {
+			error = e;
+			throw e;
+		} finally {
+			metrics.record(provider, OAuth2Metrics.STAGE_EXCHANGE, System.nanoTime() - start, error);
+		}
+	}
+
+	private static final class PreparedLogin {
+
+		private final String username;
+		private final long expiresAt;
+
+		PreparedLogin(String username, long expiresAt) {
+			this.username = username;
+			this.expiresAt = expiresAt;
+		}
+
+	}
+
+	public long getPreparedLoginTtl() {
+		return preparedLoginTtl;
+	}
+
+	public void setPreparedLoginTtl(long preparedLoginTtl) {
+		this.preparedLoginTtl = preparedLoginTtl;
+	}
+
+	public int getMaxPreparedLogins() {
+		return maxPreparedLogins;
+	}
+
+	public void setMaxPreparedLogins(int maxPreparedLogins) {
+		this.maxPreparedLogins = maxPreparedLogins;
+	}
+
+	public String getClientId() {
+		return clientId;
+	}
+
+	public void setClientId(String clientId) {
+		this.clientId = clientId;
+	}
+
+	public String getClientSecret() {
+		return clientSecret;
+	}
+
+	public void setClientSecret(String clientSecret) {
+		this.clientSecret = clientSecret;
+	}
+
+	public String getAccessTokenUrl() {
+		return accessTokenUrl;
+	}
+
+	public void setAccessTokenUrl(String accessTokenUrl) {
+		this.accessTokenUrl = accessTokenUrl;
+	}
+
+	public String getUserInfoUrl() {
+		return userInfoUrl;
+	}
+
+	public void setUserInfoUrl(String userInfoUrl) {
+		this.userInfoUrl = userInfoUrl;
+	}
+
+	public String getRedirectUrl() {
+		return redirectUrl;
+	}
+
+	public void setRedirectUrl(String redirectUrl) {
+		this.redirectUrl = redirectUrl;
+	}
+
+	public HttpClient getHttpClient() {
+		return httpClient;
+	}
+
+	public void setHttpClient(HttpClient httpClient) {
+		this.httpClient = httpClient;
+	}
+
+	public SingleFlight<String, OAuthAccessTokenResponse> getExchanges() {
+		return exchanges;
+	}
+
+	public OAuth2Metrics getMetrics() {
+		return metrics;
+	}
+
+	public void setMetrics(OAuth2Metrics metrics) {
+		this.metrics = metrics == null ? OAuth2Metrics.NOOP : metrics;
+	}
+
+	public String getProvider() {
+		return provider;
+	}
+
+	public void setProvider(String provider) {
+		this.provider = provider;
+	}
+
+	public ProviderGuard getGuard() {
+		return guard;
+	}
+
+	public void setGuard(ProviderGuard guard) {
+		this.guard = guard;
+	}
+
+	public HedgedRetryPolicy getRetryPolicy() {
+		return retryPolicy;
+	}
+
+	public void setRetryPolicy(HedgedRetryPolicy retryPolicy) {
+		this.retryPolicy = retryPolicy;
+	}
+
+	public JwtVerifier getJwtVerifier() {
+		return jwtVerifier;
+	}
+
+	public void setJwtVerifier(JwtVerifier jwtVerifier) {
+		this.jwtVerifier = jwtVerifier;
+	}
+
+	public String getIssuer() {
+		return issuer;
+	}
+
+	public void setIssuer(String issuer) {
+		this.issuer = issuer;
+	}
+
+	public OAuth2TokenCache getTokenCache() {
+		return tokenCache;
+	}
+
+	public void setTokenCache(OAuth2TokenCache tokenCache) {
+		this.tokenCache = tokenCache;
+	}
+
+}
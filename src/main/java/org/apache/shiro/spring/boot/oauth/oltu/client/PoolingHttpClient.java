@@ -0,0 +1,280 @@
+/*
+ * Copyright (c) 2017, vindell (https://github.com/vindell).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.oauth.oltu.client;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpDelete;
+import org.apache.http.client.methods.HttpEntityEnclosingRequestBase;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpHead;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpPut;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.DnsResolver;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
+import org.apache.oltu.oauth2.client.HttpClient;
+import org.apache.oltu.oauth2.client.request.OAuthClientRequest;
+import org.apache.oltu.oauth2.client.response.OAuthClientResponse;
+import org.apache.oltu.oauth2.client.response.OAuthClientResponseFactory;
+import org.apache.oltu.oauth2.common.OAuth;
+import org.apache.oltu.oauth2.common.exception.OAuthProblemException;
+import org.apache.oltu.oauth2.common.exception.OAuthSystemException;
+import org.apache.oltu.oauth2.common.utils.OAuthUtils;
+
+/**
+ * 基于 HttpComponents 连接池的 Oltu {@link HttpClient} 实现
+ * <p>替代每次登录都新建连接的 {@link org.apache.oltu.oauth2.client.URLConnectionClient}：连接按路由池化并保持 keep-alive，
+ * 获取 token 与获取用户信息两次调用复用同一条 TCP/TLS 连接；空闲连接由后台线程定期回收。</p>
+ * <p>该对象是线程安全的，应作为单例在多个 Realm 以及 QQ、微信、新浪微博的 {@link org.apache.shiro.spring.boot.oauth.buji.scribe.http.HttpComponentsTransport} 之间共享。</p>
+ * @author 		： <a href="https://github.com/vindell">vindell</a>
+ */
+public class PoolingHttpClient implements HttpClient {
+
+	/** 每个路由（host:port）最大连接数 */
+	private int maxConnectionsPerRoute = 20;
+	/** 连接池最大连接数 */
+	private int maxConnectionsTotal = 200;
+	/** 建立连接超时时间（毫秒） */
+	private int connectTimeout = 5000;
+	/** 读取数据超时时间（毫秒） */
+	private int readTimeout = 10000;
+	/** 从连接池获取连接的超时时间（毫秒） */
+	private int connectionRequestTimeout = 2000;
+	/** 空闲连接回收时间（毫秒）：空闲超过该时间的连接会被关闭 */
+	private long maxIdleTime = 30000;
+	/** 域名解析，为空时使用系统默认的解析 */
+	private DnsResolver dnsResolver;
+
+	private volatile CloseableHttpClient httpClient;
+	private PoolingHttpClientConnectionManager connectionManager;
+
+	public PoolingHttpClient() {
+	}
+
+	/**
+	 * 底层的连接池 HttpClient，第一次调用时创建
+	 */
+	public CloseableHttpClient getHttpClient() {
+		CloseableHttpClient client = this.httpClient;
+		if (client == null) {
+			synchronized (this) {
+				client = this.httpClient;
+				if (client == null) {
+					client = this.httpClient = createHttpClient();
+				}
+			}
+		}
+		return client;
+	}
+
+	protected CloseableHttpClient createHttpClient() {
+
+		this.connectionManager = getDnsResolver() == null ? new PoolingHttpClientConnectionManager()
+				: new PoolingHttpClientConnectionManager(RegistryBuilder.<ConnectionSocketFactory>create()
+						.register("http", PlainConnectionSocketFactory.getSocketFactory())
+						.register("https", SSLConnectionSocketFactory.getSocketFactory())
+						.build(), getDnsResolver());
+		this.connectionManager.setMaxTotal(getMaxConnectionsTotal());
+		this.connectionManager.setDefaultMaxPerRoute(getMaxConnectionsPerRoute());
+		// 连接空闲一段时间后再次使用前先校验其有效性，避免使用已被服务端关闭的连接
+		this.connectionManager.setValidateAfterInactivity(1000);
+
+		RequestConfig requestConfig = RequestConfig.custom()
+				.setConnectTimeout(getConnectTimeout())
+				.setSocketTimeout(getReadTimeout())
+				.setConnectionRequestTimeout(getConnectionRequestTimeout())
+				.build();
+
+		return HttpClients.custom()
+				.setConnectionManager(this.connectionManager)
+				.setDefaultRequestConfig(requestConfig)
+				.setKeepAliveStrategy(DefaultConnectionKeepAliveStrategy.INSTANCE)
+				.evictExpiredConnections()
+				.evictIdleConnections(getMaxIdleTime(), TimeUnit.MILLISECONDS)
+				.build();
+	}
+
+	@Override
+	public <T extends OAuthClientResponse> T execute(OAuthClientRequest request, Map<String, String> headers,
+			String requestMethod, Class<T> responseClass) throws OAuthSystemException, OAuthProblemException {
+
+		HttpRequestBase httpRequest = createRequest(request.getLocationUri(), requestMethod);
+		if (headers != null && !headers.isEmpty()) {
+			for (Map.Entry<String, String> header : headers.entrySet()) {
+				httpRequest.addHeader(header.getKey(), header.getValue());
+			}
+		}
+		if (request.getHeaders() != null) {
+			for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+				httpRequest.addHeader(header.getKey(), header.getValue());
+			}
+		}
+		if (httpRequest instanceof HttpEntityEnclosingRequestBase && !OAuthUtils.isEmpty(request.getBody())) {
+			ContentType contentType = httpRequest.containsHeader(OAuth.HeaderType.CONTENT_TYPE) ? null
+					: ContentType.create(OAuth.ContentType.URL_ENCODED, "UTF-8");
+			StringEntity entity = contentType == null ? new StringEntity(request.getBody(), "UTF-8")
+					: new StringEntity(request.getBody(), contentType);
+			((HttpEntityEnclosingRequestBase) httpRequest).setEntity(entity);
+		}
+
+		try (CloseableHttpResponse response = getHttpClient().execute(httpRequest)) {
+
+			String responseBody = null;
+			String contentType = null;
+			HttpEntity entity = response.getEntity();
+			if (entity != null) {
+				// 读取完整响应体，连接才能被归还到连接池中复用
+				responseBody = EntityUtils.toString(entity, "UTF-8");
+				contentType = entity.getContentType() != null ? entity.getContentType().getValue() : null;
+			}
+
+			Map<String, List<String>> responseHeaders = new HashMap<String, List<String>>();
+			for (Header header : response.getAllHeaders()) {
+				List<String> values = responseHeaders.get(header.getName());
+				if (values == null) {
+					values = new ArrayList<String>(1);
+					responseHeaders.put(header.getName(), values);
+				}
+				values.add(header.getValue());
+			}
+
+			return OAuthClientResponseFactory.createCustomResponse(responseBody, contentType,
+					response.getStatusLine().getStatusCode(), responseHeaders, responseClass);
+		} catch (IOException e) {
+			throw new OAuthSystemException(e);
+		}
+	}
+
+	/**
+	 * 预先建立到指定地址的连接：发送 HEAD 请求并读完响应，完成 DNS 解析与 TLS 握手的连接归还到连接池
+	 * @return 响应状态码
+	 */
+	public int preconnect(String uri) throws IOException {
+		try (CloseableHttpResponse response = getHttpClient().execute(new HttpHead(uri))) {
+			EntityUtils.consume(response.getEntity());
+			return response.getStatusLine().getStatusCode();
+		}
+	}
+
+	protected HttpRequestBase createRequest(String uri, String requestMethod) {
+		if (OAuth.HttpMethod.POST.equals(requestMethod)) {
+			return new HttpPost(uri);
+		} else if (OAuth.HttpMethod.PUT.equals(requestMethod)) {
+			return new HttpPut(uri);
+		} else if (OAuth.HttpMethod.DELETE.equals(requestMethod)) {
+			return new HttpDelete(uri);
+		}
+		return new HttpGet(uri);
+	}
+
+	@Override
+	public void shutdown() {
+		CloseableHttpClient client = this.httpClient;
+		if (client != null) {
+			try {
+				client.close();
+			} catch (IOException e) {
+				// ignore
+			} finally {
+				this.httpClient = null;
+			}
+		}
+	}
+
+	/**
+	 * 当前连接池状态，便于监控：leased/pending/available/max
+	 */
+	public String getPoolStats() {
+		return connectionManager == null ? "" : connectionManager.getTotalStats().toString();
+	}
+
+	public int getMaxConnectionsPerRoute() {
+		return maxConnectionsPerRoute;
+	}
+
+	public void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+		this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+	}
+
+	public int getMaxConnectionsTotal() {
+		return maxConnectionsTotal;
+	}
+
+	public void setMaxConnectionsTotal(int maxConnectionsTotal) {
+		this.maxConnectionsTotal = maxConnectionsTotal;
+	}
+
+	public int getConnectTimeout() {
+		return connectTimeout;
+	}
+
+	public void setConnectTimeout(int connectTimeout) {
+		this.connectTimeout = connectTimeout;
+	}
+
+	public int getReadTimeout() {
+		return readTimeout;
+	}
+
+	public void setReadTimeout(int readTimeout) {
+		this.readTimeout = readTimeout;
+	}
+
+	public int getConnectionRequestTimeout() {
+		return connectionRequestTimeout;
+	}
+
+	public void setConnectionRequestTimeout(int connectionRequestTimeout) {
+		this.connectionRequestTimeout = connectionRequestTimeout;
+	}
+
+	public long getMaxIdleTime() {
+		return maxIdleTime;
+	}
+
+	public void setMaxIdleTime(long maxIdleTime) {
+		this.maxIdleTime = maxIdleTime;
+	}
+
+	public DnsResolver getDnsResolver() {
+		return dnsResolver;
+	}
+
+	public void setDnsResolver(DnsResolver dnsResolver) {
+		this.dnsResolver = dnsResolver;
+	}
+
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2017, vindell (https://github.com/vindell).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.oauth.oltu.client;
+
+import org.apache.oltu.oauth2.client.response.OAuthJSONAccessTokenResponse;
+import org.apache.oltu.oauth2.common.exception.OAuthProblemException;
+
+/**
+ * 记录状态码的 Token 响应：5xx 响应不按 JSON 解析，由调用方据状态码抛出 {@link org.scribe.up.provider.exception.HttpException}
+ * <p>Oltu 默认将无法解析的 5xx 响应体转换为 {@link OAuthProblemException}，与认证服务器正常返回的 OAuth 错误无法区分。</p>
+ * @author 		： <a href="https://github.com/vindell">vindell</a>
+ */
+public class StatusAwareTokenResponse extends OAuthJSONAccessTokenResponse {
+
+	private int status;
+	private String errorBody;
+
+	@Override
+	protected void init(String body, String contentType, int responseCode) throws OAuthProblemException {
+		this.status = responseCode;
+		if (responseCode >= 500) {
+			this.errorBody = body;
+			return;
+		}
+		super.init(body, contentType, responseCode);
+	}
+
+	/**
+	 * 认证服务器是否返回了 5xx
+	 */
+	public boolean isServerError() {
+		return status >= 500;
+	}
+
+	public int getStatus() {
+		return status;
+	}
+
+	public String getErrorBody() {
+		return errorBody;
+	}
+
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2017, vindell (https://github.com/vindell).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.oauth.oltu.client;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * 令牌内省（RFC 7662）结果中的有效 Token 信息
+ * @author 		： <a href="https://github.com/vindell">vindell</a>
+ */
+@SuppressWarnings("serial")
+public class TokenIntrospection implements Serializable {
+
+	private final String principal;
+	private final String clientId;
+	private final Set<String> scopes;
+	/** 过期时间（秒级时间戳），认证服务器未返回时为空 */
+	private final Long expiresAt;
+
+	public TokenIntrospection(String principal, String clientId, Set<String> scopes, Long expiresAt) {
+		this.principal = principal;
+		this.clientId = clientId;
+		this.scopes = scopes == null ? Collections.<String>emptySet() : Collections.unmodifiableSet(scopes);
+		this.expiresAt = expiresAt;
+	}
+
+	public String getPrincipal() {
+		return principal;
+	}
+
+	public String getClientId() {
+		return clientId;
+	}
+
+	public Set<String> getScopes() {
+		return scopes;
+	}
+
+	public Long getExpiresAt() {
+		return expiresAt;
+	}
+
+	@Override
+	public String toString() {
+		return principal;
+	}
+
+}
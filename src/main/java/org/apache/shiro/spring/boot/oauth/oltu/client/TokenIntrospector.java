@@ -0,0 +1,277 @@
+/*
+ * Copyright (c) 2017, vindell (https://github.com/vindell).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.oauth.oltu.client;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.oltu.oauth2.client.HttpClient;
+import org.apache.oltu.oauth2.client.URLConnectionClient;
+import org.apache.oltu.oauth2.client.request.OAuthClientRequest;
+import org.apache.oltu.oauth2.client.response.OAuthResourceResponse;
+import org.apache.oltu.oauth2.common.OAuth;
+import org.apache.shiro.spring.boot.oauth.cache.SingleFlight;
+import org.apache.shiro.spring.boot.oauth.cache.StripedExpiringMapCache;
+import org.apache.shiro.spring.boot.oauth.exception.OAuth2AuthenticationException;
+import org.apache.shiro.spring.boot.oauth.metrics.OAuth2Metrics;
+import org.apache.shiro.spring.boot.oauth.resilience.ProviderGuard;
+import org.scribe.up.provider.exception.HttpException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.alibaba.fastjson.JSONObject;
+
+/**
+ * 通过令牌内省地址（RFC 7662）校验 Bearer Token
+ * <p>有效 Token 的内省结果写入分段加锁的有界缓存，存活时间取 Token 剩余有效期与 {@link #setMaxCacheTtl(long)} 中的较小值；
+ * 认证服务器以 200 明确答复 active:false 的 Token 写入短时间的否定缓存，避免重复提交同一个无效 Token 时反复请求认证服务器。
+ * 同一 Token 的并发内省请求合并为一次远程调用。</p>
+ * @author 		： <a href="https://github.com/vindell">vindell</a>
+ */
+public class TokenIntrospector {
+
+	private static final Logger LOG = LoggerFactory.getLogger(TokenIntrospector.class);
+
+	private String introspectionUrl;
+	//调用内省地址的客户端凭证，使用 HTTP Basic 认证
+	private String clientId;
+	private String clientSecret;
+	//作为用户名的字段，缺失时使用 sub
+	private String principalClaim = "username";
+	//访问认证服务器使用的HttpClient，建议注入共享的连接池实现
+	private HttpClient httpClient = new URLConnectionClient();
+	//缓存最大条目数
+	private int cacheMaxSize = 10000;
+	//有效 Token 的最长缓存时间（毫秒）
+	private long maxCacheTtl = 300000;
+	//无效 Token 的缓存时间（毫秒），小于等于0表示不缓存
+	private long negativeCacheTtl = 30000;
+	//各阶段耗时记录，默认不记录
+	private OAuth2Metrics metrics = OAuth2Metrics.NOOP;
+	//舱壁 + 熔断器；为空时不做保护
+	private ProviderGuard guard;
+
+	private volatile StripedExpiringMapCache<String, TokenIntrospection> activeCache;
+	private volatile StripedExpiringMapCache<String, Boolean> inactiveCache;
+	private final SingleFlight<String, TokenIntrospection> inflight = new SingleFlight<String, TokenIntrospection>();
+
+	/**
+	 * 校验 Token，返回内省结果；Token 无效或内省失败时抛出 {@link OAuth2AuthenticationException}
+	 */
+	public TokenIntrospection introspect(final String token) {
+		initCaches();
+		TokenIntrospection introspection = activeCache.get(token);
+		if (introspection != null) {
+			return introspection;
+		}
+		if (inactiveCache.get(token) != null) {
+			throw new OAuth2AuthenticationException("Inactive access token");
+		}
+		return inflight.execute(token, () -> doIntrospect(token));
+	}
+
+	protected TokenIntrospection doIntrospect(String token) {
+		long start = System.nanoTime();
+		Throwable error = null;
+		try {
+			JSONObject json = JSONObject.parseObject(requestIntrospection(token));
+			if (json == null || !(json.get("active") instanceof Boolean)) {
+				throw new OAuth2AuthenticationException("Malformed introspection response");
+			}
+			if (!json.getBooleanValue("active")) {
+				//只有认证服务器明确答复 active:false 时才写入否定缓存
+				if (negativeCacheTtl > 0) {
+					inactiveCache.put(token, Boolean.TRUE, negativeCacheTtl);
+				}
+				throw new OAuth2AuthenticationException("Inactive access token");
+			}
+			TokenIntrospection introspection = toIntrospection(json);
+			long ttl = maxCacheTtl;
+			if (introspection.getExpiresAt() != null) {
+				ttl = Math.min(ttl, TimeUnit.SECONDS.toMillis(introspection.getExpiresAt()) - System.currentTimeMillis());
+			}
+			if (ttl > 0) {
+				activeCache.put(token, introspection, ttl);
+			}
+			return introspection;
+		} catch (OAuth2AuthenticationException e) {
+			error = e;
+			throw e;
+		} catch (Exception e) {
+			error = e;
+			LOG.error("Failed to introspect access token at : " + introspectionUrl, e);
+			throw new OAuth2AuthenticationException(e);
+		} finally {
+			metrics.record("introspection", OAuth2Metrics.STAGE_INTROSPECT, System.nanoTime() - start, error);
+		}
+	}
+
+	/**
+	 * 请求内省地址并返回响应体；状态码不是 200（401、429、5xx 等）时抛出 {@link HttpException}，
+	 * 由舱壁与熔断器计为失败，不会被解析为 active:false 写入否定缓存
+	 */
+	protected String requestIntrospection(String token) throws Exception {
+		final OAuthClientRequest request = OAuthClientRequest.authorizationLocation(introspectionUrl)
+				.setParameter("token", token)
+				.setParameter("token_type_hint", "access_token")
+				.buildBodyMessage();
+		final Map<String, String> headers = new HashMap<String, String>();
+		headers.put(OAuth.HeaderType.CONTENT_TYPE, OAuth.ContentType.URL_ENCODED);
+		if (clientId != null) {
+			String credentials = clientId + ":" + (clientSecret == null ? "" : clientSecret);
+			headers.put(OAuth.HeaderType.AUTHORIZATION,
+					"Basic " + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8)));
+		}
+		ProviderGuard.GuardedCall<String, Exception> call = () -> {
+			OAuthResourceResponse response = httpClient.execute(request, headers, OAuth.HttpMethod.POST,
+					OAuthResourceResponse.class);
+			if (response.getResponseCode() != 200) {
+				throw new HttpException(response.getResponseCode(), response.getBody());
+			}
+			return response.getBody();
+		};
+		return guard == null ? call.call() : guard.execute(call, null);
+	}
+
+	protected TokenIntrospection toIntrospection(JSONObject json) {
+		String principal = json.getString(principalClaim);
+		if (principal == null || principal.isEmpty()) {
+			principal = json.getString("sub");
+		}
+		if (principal == null || principal.isEmpty()) {
+			throw new OAuth2AuthenticationException("Introspection response has no principal");
+		}
+		Set<String> scopes = new LinkedHashSet<String>();
+		String scope = json.getString("scope");
+		if (scope != null) {
+			for (String item : scope.trim().split("\\s+")) {
+				if (!item.isEmpty()) {
+					scopes.add(item);
+				}
+			}
+		}
+		return new TokenIntrospection(principal, json.getString("client_id"), scopes, json.getLong("exp"));
+	}
+
+	protected void initCaches() {
+		if (activeCache == null) {
+			synchronized (this) {
+				if (activeCache == null) {
+					inactiveCache = new StripedExpiringMapCache<String, Boolean>("SHIRO_OAUTH2_INACTIVE_TOKEN", cacheMaxSize, negativeCacheTtl);
+					activeCache = new StripedExpiringMapCache<String, TokenIntrospection>("SHIRO_OAUTH2_INTROSPECTION", cacheMaxSize, maxCacheTtl);
+				}
+			}
+		}
+	}
+
+	/**
+	 * 令牌被吊销时主动清除缓存
+	 */
+	public void evict(String token) {
+		initCaches();
+		activeCache.remove(token);
+	}
+
+	public double getCacheHitRatio() {
+		return activeCache == null ? 0d : activeCache.getHitRatio();
+	}
+
+	public String getIntrospectionUrl() {
+		return introspectionUrl;
+	}
+
+	public void setIntrospectionUrl(String introspectionUrl) {
+		this.introspectionUrl = introspectionUrl;
+	}
+
+	public String getClientId() {
+		return clientId;
+	}
+
+	public void setClientId(String clientId) {
+		this.clientId = clientId;
+	}
+
+	public String getClientSecret() {
+		return clientSecret;
+	}
+
+	public void setClientSecret(String clientSecret) {
+		this.clientSecret = clientSecret;
+	}
+
+	public String getPrincipalClaim() {
+		return principalClaim;
+	}
+
+	public void setPrincipalClaim(String principalClaim) {
+		this.principalClaim = principalClaim;
+	}
+
+	public HttpClient getHttpClient() {
+		return httpClient;
+	}
+
+	public void setHttpClient(HttpClient httpClient) {
+		this.httpClient = httpClient;
+	}
+
+	public int getCacheMaxSize() {
+		return cacheMaxSize;
+	}
+
+	public void setCacheMaxSize(int cacheMaxSize) {
+		this.cacheMaxSize = cacheMaxSize;
+	}
+
+	public long getMaxCacheTtl() {
+		return maxCacheTtl;
+	}
+
+	public void setMaxCacheTtl(long maxCacheTtl) {
+		this.maxCacheTtl = maxCacheTtl;
+	}
+
+	public long getNegativeCacheTtl() {
+		return negativeCacheTtl;
+	}
+
+	public void setNegativeCacheTtl(long negativeCacheTtl) {
+		this.negativeCacheTtl = negativeCacheTtl;
+	}
+
+	public OAuth2Metrics getMetrics() {
+		return metrics;
+	}
+
+	public void setMetrics(OAuth2Metrics metrics) {
+		this.metrics = metrics == null ? OAuth2Metrics.NOOP : metrics;
+	}
+
+	public ProviderGuard getGuard() {
+		return guard;
+	}
+
+	public void setGuard(ProviderGuard guard) {
+		this.guard = guard;
+	}
+
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2017, vindell (https://github.com/vindell).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.oauth.oltu.filter;
+
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.shiro.authc.AuthenticationException;
+import org.apache.shiro.authc.AuthenticationToken;
+import org.apache.shiro.biz.utils.StringUtils;
+import org.apache.shiro.spring.boot.oauth.oltu.token.OltuBearerToken;
+import org.apache.shiro.subject.Subject;
+import org.apache.shiro.subject.support.DefaultSubjectContext;
+import org.apache.shiro.web.filter.authc.AuthenticatingFilter;
+import org.apache.shiro.web.util.WebUtils;
+
+/**
+ * 无状态的 Bearer Token 认证过滤器，用于 REST API
+ * <p>每个请求从 Authorization: Bearer 请求头中读取 Access Token 并登录，不创建 HTTP 会话；
+ * Token 缺失或无效时返回 401 与 WWW-Authenticate 响应头（RFC 6750），不重定向。
+ * 配合 {@link org.apache.shiro.spring.boot.oauth.oltu.realm.OltuBearerTokenRealm} 使用，重复请求由内省缓存处理。</p>
+ */
+public class OltuBearerTokenFilter extends AuthenticatingFilter {
+
+    private static final String BEARER = "Bearer";
+
+    //WWW-Authenticate 响应头中的 realm
+    private String applicationName = "application";
+
+    public void setApplicationName(String applicationName) {
+        this.applicationName = applicationName;
+    }
+
+    public String getApplicationName() {
+        return applicationName;
+    }
+
+    @Override
+    protected boolean onPreHandle(ServletRequest request, ServletResponse response, Object mappedValue) throws Exception {
+        //无状态：禁止为该请求创建会话，登录结果也不会写入会话
+        request.setAttribute(DefaultSubjectContext.SESSION_CREATION_ENABLED, Boolean.FALSE);
+        return super.onPreHandle(request, response, mappedValue);
+    }
+
+    @Override
+    protected AuthenticationToken createToken(ServletRequest request, ServletResponse response) throws Exception {
+        return new OltuBearerToken(getBearerToken(request));
+    }
+
+    protected String getBearerToken(ServletRequest request) {
+        String authorization = WebUtils.toHttp(request).getHeader(AUTHORIZATION_HEADER);
+        if (authorization == null || authorization.length() <= BEARER.length()
+                || !authorization.regionMatches(true, 0, BEARER, 0, BEARER.length())) {
+            return null;
+        }
+        return authorization.substring(BEARER.length()).trim();
+    }
+
+    @Override
+    protected boolean onAccessDenied(ServletRequest request, ServletResponse response) throws Exception {
+        if (StringUtils.isEmpty(getBearerToken(request))) {
+            return sendChallenge(response, null);
+        }
+        return executeLogin(request, response);
+    }
+
+    @Override
+    protected boolean onLoginSuccess(AuthenticationToken token, Subject subject, ServletRequest request,
+                                     ServletResponse response) throws Exception {
+        return true;
+    }
+
+    @Override
+    protected boolean onLoginFailure(AuthenticationToken token, AuthenticationException e, ServletRequest request,
+                                     ServletResponse response) {
+        return sendChallenge(response, "invalid_token");
+    }
+
+    protected boolean sendChallenge(ServletResponse response, String error) {
+        HttpServletResponse httpResponse = WebUtils.toHttp(response);
+        httpResponse.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+        String challenge = BEARER + " realm=\"" + applicationName + "\"";
+        if (error != null) {
+            challenge += ", error=\"" + error + "\"";
+        }
+        httpResponse.setHeader(AUTHENTICATE_HEADER, challenge);
+        return false;
+    }
+
+    protected static final String AUTHORIZATION_HEADER = "Authorization";
+    protected static final String AUTHENTICATE_HEADER = "WWW-Authenticate";
+
+}
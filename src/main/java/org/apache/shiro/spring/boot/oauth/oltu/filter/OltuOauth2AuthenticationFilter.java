@@ -16,7 +16,15 @@
 package org.apache.shiro.spring.boot.oauth.oltu.filter;
 
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 import javax.servlet.ServletRequest;
 import javax.servlet.ServletResponse;
 import javax.servlet.http.HttpServletRequest;
@@ -24,6 +32,9 @@ import javax.servlet.http.HttpServletRequest;
 import org.apache.shiro.authc.AuthenticationException;
 import org.apache.shiro.authc.AuthenticationToken;
 import org.apache.shiro.biz.utils.StringUtils;
+import org.apache.shiro.spring.boot.oauth.concurrent.IdpExecutors;
+import org.apache.shiro.spring.boot.oauth.exception.OAuth2AuthenticationException;
+import org.apache.shiro.spring.boot.oauth.oltu.client.OltuOauth2Template;
 import org.apache.shiro.spring.boot.oauth.oltu.token.OltuOauth2Token;
 import org.apache.shiro.subject.Subject;
 import org.apache.shiro.web.filter.authc.AuthenticatingFilter;
@@ -42,6 +53,21 @@ public class OltuOauth2AuthenticationFilter extends AuthenticatingFilter {
 
     private String failureUrl;
 
+    //异步登录：释放容器线程，code → token → userinfo 交换在独立的有界线程池中执行（需要 Servlet 3 异步支持）
+    private boolean asyncEnabled = false;
+    //异步登录超时时间（毫秒），超时后重定向到失败地址
+    private long asyncTimeout = 30000;
+    //异步登录线程池大小
+    private int asyncPoolSize = 32;
+    //异步登录等待队列长度，队列满时直接登录失败而不是阻塞容器线程
+    private int asyncQueueCapacity = 1000;
+    //异步登录使用虚拟线程执行阻塞的认证服务器调用（需要 JDK 21+），不支持时回退为上面的有界线程池
+    private boolean asyncVirtualThreads = false;
+    //与 Realm 共享的交换模板，异步模式下必须设置；未设置时由 OltuOauth2BeanPostProcessor 取自容器中的 Oltu Realm
+    private OltuOauth2Template template;
+    private ExecutorService executor;
+    private boolean executorOwner = false;
+
     public void setAuthcCodeParam(String authcCodeParam) {
         this.authcCodeParam = authcCodeParam;
     }
@@ -62,6 +88,50 @@ public class OltuOauth2AuthenticationFilter extends AuthenticatingFilter {
         this.failureUrl = failureUrl;
     }
 
+    public void setAsyncEnabled(boolean asyncEnabled) {
+        this.asyncEnabled = asyncEnabled;
+    }
+
+    public void setAsyncTimeout(long asyncTimeout) {
+        this.asyncTimeout = asyncTimeout;
+    }
+
+    public void setAsyncPoolSize(int asyncPoolSize) {
+        this.asyncPoolSize = asyncPoolSize;
+    }
+
+    public void setAsyncQueueCapacity(int asyncQueueCapacity) {
+        this.asyncQueueCapacity = asyncQueueCapacity;
+    }
+
+    public void setAsyncVirtualThreads(boolean asyncVirtualThreads) {
+        this.asyncVirtualThreads = asyncVirtualThreads;
+    }
+
+    public OltuOauth2Template getTemplate() {
+        return template;
+    }
+
+    public void setTemplate(OltuOauth2Template template) {
+        this.template = template;
+    }
+
+    /**
+     * 设置异步登录使用的线程池；外部传入的线程池由调用方负责关闭
+     */
+    public void setExecutor(ExecutorService executor) {
+        this.executor = executor;
+        this.executorOwner = false;
+    }
+
+    protected synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = IdpExecutors.newExecutor(asyncVirtualThreads, "oltu-oauth2-login-", asyncPoolSize, asyncQueueCapacity);
+            executorOwner = true;
+        }
+        return executor;
+    }
+
     @Override
     protected AuthenticationToken createToken(ServletRequest request, ServletResponse response) throws Exception {
         HttpServletRequest httpRequest = (HttpServletRequest) request;
@@ -94,9 +164,102 @@ public class OltuOauth2AuthenticationFilter extends AuthenticatingFilter {
             }
         }
 
+        if (isAsyncLogin(request)) {
+            return executeAsyncLogin(request, response);
+        }
+
         return executeLogin(request, response);
     }
 
+    protected boolean isAsyncLogin(ServletRequest request) {
+        return asyncEnabled && template != null && request.isAsyncSupported()
+                && !StringUtils.isEmpty(request.getParameter(authcCodeParam));
+    }
+
+    /**
+     * 异步登录：启动 AsyncContext 后立即归还容器线程；token 交换与 userinfo 请求在独立线程池中执行，
+     * 结果保存在与 Realm 共享的模板中，随后在原 Subject 上执行 Shiro 登录并重定向。
+     */
+    protected boolean executeAsyncLogin(final ServletRequest request, final ServletResponse response) throws Exception {
+
+        final OltuOauth2Token token = (OltuOauth2Token) createToken(request, response);
+        final Subject subject = getSubject(request, response);
+        final AsyncContext asyncContext = request.startAsync(request, response);
+        final AtomicBoolean finished = new AtomicBoolean(false);
+
+        asyncContext.setTimeout(asyncTimeout);
+        asyncContext.addListener(new AsyncListener() {
+
+            @Override
+            public void onTimeout(AsyncEvent event) throws IOException {
+                if (finished.compareAndSet(false, true)) {
+                    final AuthenticationException ae = new AuthenticationException("OAuth2 login timed out after " + asyncTimeout + " ms");
+                    try {
+                        subject.execute(() -> { onLoginFailure(token, ae, request, response); });
+                    } finally {
+                        asyncContext.complete();
+                    }
+                }
+            }
+
+            @Override
+            public void onError(AsyncEvent event) throws IOException {
+                finished.set(true);
+            }
+
+            @Override
+            public void onComplete(AsyncEvent event) throws IOException {
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) throws IOException {
+            }
+
+        });
+
+        try {
+            ExecutorService executor = getExecutor();
+            CompletableFuture
+                .runAsync(() -> template.prepareLogin(token.getAuthCode()), executor)
+                .whenComplete((ignored, ex) -> {
+                    if (!finished.compareAndSet(false, true)) {
+                        return;
+                    }
+                    try {
+                        // 在原 Subject 上下文中恢复登录：SavedRequest 等依赖线程绑定的 Subject
+                        subject.execute(() -> resumeLogin(token, ex, subject, request, response));
+                    } finally {
+                        asyncContext.complete();
+                    }
+                });
+        } catch (RejectedExecutionException e) {
+            if (finished.compareAndSet(false, true)) {
+                onLoginFailure(token, new OAuth2AuthenticationException(e), request, response);
+                asyncContext.complete();
+            }
+        }
+        return false;
+    }
+
+    protected void resumeLogin(OltuOauth2Token token, Throwable ex, Subject subject,
+                               ServletRequest request, ServletResponse response) {
+        if (ex == null) {
+            try {
+                subject.login(token);
+                onLoginSuccess(token, subject, request, response);
+                return;
+            } catch (Exception e) {
+                ex = e;
+            }
+        }
+        if (ex instanceof CompletionException && ex.getCause() != null) {
+            ex = ex.getCause();
+        }
+        AuthenticationException ae = ex instanceof AuthenticationException ? (AuthenticationException) ex
+                : new OAuth2AuthenticationException(ex);
+        onLoginFailure(token, ae, request, response);
+    }
+
     @Override
     protected boolean onLoginSuccess(AuthenticationToken token, Subject subject, ServletRequest request,
                                      ServletResponse response) throws Exception {
@@ -124,4 +287,12 @@ public class OltuOauth2AuthenticationFilter extends AuthenticatingFilter {
         return false;
     }
 
+    @Override
+    public void destroy() {
+        if (executorOwner && executor != null) {
+            executor.shutdown();
+        }
+        super.destroy();
+    }
+
 }
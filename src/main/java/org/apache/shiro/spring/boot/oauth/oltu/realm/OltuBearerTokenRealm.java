@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2017, vindell (https://github.com/vindell).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.oauth.oltu.realm;
+
+import org.apache.shiro.authc.AuthenticationException;
+import org.apache.shiro.authc.AuthenticationInfo;
+import org.apache.shiro.authc.AuthenticationToken;
+import org.apache.shiro.authc.SimpleAuthenticationInfo;
+import org.apache.shiro.authc.credential.AllowAllCredentialsMatcher;
+import org.apache.shiro.authz.AuthorizationInfo;
+import org.apache.shiro.authz.SimpleAuthorizationInfo;
+import org.apache.shiro.realm.AuthorizingRealm;
+import org.apache.shiro.spring.boot.oauth.oltu.client.TokenIntrospection;
+import org.apache.shiro.spring.boot.oauth.oltu.client.TokenIntrospector;
+import org.apache.shiro.spring.boot.oauth.oltu.token.OltuBearerToken;
+import org.apache.shiro.subject.PrincipalCollection;
+import org.apache.shiro.subject.SimplePrincipalCollection;
+
+/**
+ * 校验 Bearer Token 的 Realm：通过 {@link TokenIntrospector} 内省 Token，主身份为内省结果中的用户名
+ * <p>内省结果同时放入身份集合，Token 的 scope 作为权限字符串返回，可直接用于 perms 拦截器。
+ * Token 已由认证服务器校验，因此使用 {@link AllowAllCredentialsMatcher}；每次请求的身份集合都不同且没有登出，
+ * 因此不缓存认证信息与授权信息（授权信息直接取自内省结果）。</p>
+ */
+public class OltuBearerTokenRealm extends AuthorizingRealm {
+
+    private TokenIntrospector introspector = new TokenIntrospector();
+
+    public OltuBearerTokenRealm() {
+        setCredentialsMatcher(new AllowAllCredentialsMatcher());
+        setAuthenticationCachingEnabled(false);
+        setAuthorizationCachingEnabled(false);
+    }
+
+    public TokenIntrospector getIntrospector() {
+        return introspector;
+    }
+
+    public void setIntrospector(TokenIntrospector introspector) {
+        this.introspector = introspector;
+    }
+
+    @Override
+    public boolean supports(AuthenticationToken token) {
+        return token instanceof OltuBearerToken;//表示此Realm只支持Bearer Token类型
+    }
+
+    @Override
+    protected AuthenticationInfo doGetAuthenticationInfo(AuthenticationToken token) throws AuthenticationException {
+        OltuBearerToken bearerToken = (OltuBearerToken) token;
+        TokenIntrospection introspection = introspector.introspect(bearerToken.getAccessToken());
+
+        SimplePrincipalCollection principals = new SimplePrincipalCollection(introspection.getPrincipal(), getName());
+        principals.add(introspection, getName());
+        return new SimpleAuthenticationInfo(principals, bearerToken.getAccessToken());
+    }
+
+    @Override
+    protected AuthorizationInfo doGetAuthorizationInfo(PrincipalCollection principals) {
+        SimpleAuthorizationInfo authorizationInfo = new SimpleAuthorizationInfo();
+        TokenIntrospection introspection = principals.oneByType(TokenIntrospection.class);
+        if (introspection != null) {
+            authorizationInfo.addStringPermissions(introspection.getScopes());
+        }
+        return authorizationInfo;
+    }
+
+}
@@ -15,14 +15,7 @@
  */
 package org.apache.shiro.spring.boot.oauth.oltu.realm;
 
-import org.apache.oltu.oauth2.client.OAuthClient;
-import org.apache.oltu.oauth2.client.URLConnectionClient;
-import org.apache.oltu.oauth2.client.request.OAuthBearerClientRequest;
-import org.apache.oltu.oauth2.client.request.OAuthClientRequest;
-import org.apache.oltu.oauth2.client.response.OAuthAccessTokenResponse;
-import org.apache.oltu.oauth2.client.response.OAuthResourceResponse;
-import org.apache.oltu.oauth2.common.OAuth;
-import org.apache.oltu.oauth2.common.message.types.GrantType;
+import org.apache.oltu.oauth2.client.HttpClient;
 import org.apache.shiro.authc.AuthenticationException;
 import org.apache.shiro.authc.AuthenticationInfo;
 import org.apache.shiro.authc.AuthenticationToken;
@@ -30,36 +23,93 @@ import org.apache.shiro.authc.SimpleAuthenticationInfo;
 import org.apache.shiro.authz.AuthorizationInfo;
 import org.apache.shiro.authz.SimpleAuthorizationInfo;
 import org.apache.shiro.biz.realm.ExternalAuthorizingRealm;
-import org.apache.shiro.spring.boot.oauth.exception.OAuth2AuthenticationException;
+import org.apache.shiro.spring.boot.oauth.cache.OAuth2TokenCache;
+import org.apache.shiro.spring.boot.oauth.jwt.JwtVerifier;
+import org.apache.shiro.spring.boot.oauth.metrics.OAuth2Metrics;
+import org.apache.shiro.spring.boot.oauth.oltu.client.OltuOauth2Template;
 import org.apache.shiro.spring.boot.oauth.oltu.token.OltuOauth2Token;
+import org.apache.shiro.spring.boot.oauth.resilience.HedgedRetryPolicy;
+import org.apache.shiro.spring.boot.oauth.resilience.ProviderGuard;
 import org.apache.shiro.subject.PrincipalCollection;
 
 public class OltuOauth2ExternalAuthorizingRealm extends ExternalAuthorizingRealm {
 
-    private String clientId;
-    private String clientSecret;
-    private String accessTokenUrl;
-    private String userInfoUrl;
-    private String redirectUrl;
+    //code → token → userinfo 交换模板，可与 OltuOauth2AuthenticationFilter 共享
+    private OltuOauth2Template template = new OltuOauth2Template();
 
     public void setClientId(String clientId) {
-        this.clientId = clientId;
+        template.setClientId(clientId);
     }
 
     public void setClientSecret(String clientSecret) {
-        this.clientSecret = clientSecret;
+        template.setClientSecret(clientSecret);
     }
 
     public void setAccessTokenUrl(String accessTokenUrl) {
-        this.accessTokenUrl = accessTokenUrl;
+        template.setAccessTokenUrl(accessTokenUrl);
     }
 
     public void setUserInfoUrl(String userInfoUrl) {
-        this.userInfoUrl = userInfoUrl;
+        template.setUserInfoUrl(userInfoUrl);
     }
 
     public void setRedirectUrl(String redirectUrl) {
-        this.redirectUrl = redirectUrl;
+        template.setRedirectUrl(redirectUrl);
+    }
+
+    public void setHttpClient(HttpClient httpClient) {
+        template.setHttpClient(httpClient);
+    }
+
+    public void setTokenCache(OAuth2TokenCache tokenCache) {
+        template.setTokenCache(tokenCache);
+    }
+
+    public void setMetrics(OAuth2Metrics metrics) {
+        template.setMetrics(metrics);
+    }
+
+    public void setGuard(ProviderGuard guard) {
+        template.setGuard(guard);
+    }
+
+    /**
+     * 获取用户信息的请求可对冲与重试；换取 Access Token 的请求不受影响
+     */
+    public void setRetryPolicy(HedgedRetryPolicy retryPolicy) {
+        template.setRetryPolicy(retryPolicy);
+    }
+
+    /**
+     * JWT 模式：在本地校验 Access Token 签名并从声明中取得用户名，不再请求 userInfoUrl
+     */
+    public void setJwtVerifier(JwtVerifier jwtVerifier) {
+        template.setJwtVerifier(jwtVerifier);
+    }
+
+    /**
+     * 认证服务器的签发者标识：JWT 模式下校验 iss，受众（aud）默认校验 clientId
+     */
+    public void setIssuer(String issuer) {
+        template.setIssuer(issuer);
+    }
+
+    /**
+     * 耗时记录中的 provider 标签，默认 oltu
+     */
+    public void setProvider(String provider) {
+        template.setProvider(provider);
+    }
+
+    public OltuOauth2Template getTemplate() {
+        return template;
+    }
+
+    /**
+     * 设置共享的交换模板；注意：会替换之前通过 setClientId 等方法设置的属性
+     */
+    public void setTemplate(OltuOauth2Template template) {
+        this.template = template;
     }
 
     @Override
@@ -77,6 +127,7 @@ public class OltuOauth2ExternalAuthorizingRealm extends ExternalAuthorizingRealm
     protected AuthenticationInfo doGetAuthenticationInfo(AuthenticationToken token) throws AuthenticationException {
         OltuOauth2Token oAuth2Token = (OltuOauth2Token) token;
         String code = oAuth2Token.getAuthCode();
+        //异步登录时过滤器已通过同一个模板完成交换，模板按授权码直接返回结果
         String username = extractUsername(code);
 
         SimpleAuthenticationInfo authenticationInfo =
@@ -85,34 +136,7 @@ public class OltuOauth2ExternalAuthorizingRealm extends ExternalAuthorizingRealm
     }
 
     private String extractUsername(String code) {
-
-        try {
-            OAuthClient oAuthClient = new OAuthClient(new URLConnectionClient());
-
-            OAuthClientRequest accessTokenRequest = OAuthClientRequest
-                    .tokenLocation(accessTokenUrl)
-                    .setGrantType(GrantType.AUTHORIZATION_CODE)
-                    .setClientId(clientId)
-                    .setClientSecret(clientSecret)
-                    .setCode(code)
-                    .setRedirectURI(redirectUrl)
-                    .buildQueryMessage();
-
-            OAuthAccessTokenResponse oAuthResponse = oAuthClient.accessToken(accessTokenRequest, OAuth.HttpMethod.POST);
-
-            String accessToken = oAuthResponse.getAccessToken();
-            Long expiresIn = oAuthResponse.getExpiresIn();
-
-            OAuthClientRequest userInfoRequest = new OAuthBearerClientRequest(userInfoUrl)
-                    .setAccessToken(accessToken).buildQueryMessage();
-
-            OAuthResourceResponse resourceResponse = oAuthClient.resource(userInfoRequest, OAuth.HttpMethod.GET, OAuthResourceResponse.class);
-            String username = resourceResponse.getBody();
-            return username;
-        } catch (Exception e) {
-            e.printStackTrace();
-            throw new OAuth2AuthenticationException(e);
-        }
+        return template.extractUsername(code);
     }
 
 	@Override
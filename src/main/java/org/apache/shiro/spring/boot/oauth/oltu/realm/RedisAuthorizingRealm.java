@@ -15,56 +15,161 @@
  */
 package org.apache.shiro.spring.boot.oauth.oltu.realm;
 
+import org.apache.shiro.authz.AuthorizationInfo;
+import org.apache.shiro.realm.AuthorizingRealm;
+import org.apache.shiro.spring.boot.oauth.cache.ExpiringMapCache;
+import org.apache.shiro.spring.boot.oauth.cache.RedisCache;
+import org.apache.shiro.spring.boot.oauth.cache.TwoTierCache;
+import org.apache.shiro.subject.PrincipalCollection;
+import org.apache.shiro.util.Destroyable;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
 /**
- * 
+ *
  * @className	： RedisAuthorizingRealm
- * @description	： TODO(描述这个类的作用)
+ * @description	： 使用两级缓存存储授权信息的 Realm 基类：本节点有界近端缓存 + Redis 远程缓存
+ * <p>授权信息的查找沿用 {@link AuthorizingRealm#getAuthorizationInfo(PrincipalCollection)}，只是将授权缓存替换为 {@link TwoTierCache}：
+ * 近端未命中时先查 Redis，都未命中才回源调用 {@link #doGetAuthorizationInfo(PrincipalCollection)}；
+ * 通过 {@link #clearCachedAuthorizationInfo(PrincipalCollection)} 清除缓存时，会经由 Redis 发布/订阅通知所有节点清除近端条目。</p>
  * @author 		： <a href="https://github.com/vindell">vindell</a>
  * @date		： 2017年9月12日 下午10:47:42
  * @version 	V1.0
  */
-public class RedisAuthorizingRealm {
-
-	/*protected AuthorizationInfo getAuthorizationInfo(PrincipalCollection principals) {    
-        
-        if (principals == null) {    
-            return null;    
-        }    
-    
-        AuthorizationInfo info = null;    
-    
-        if (log.isTraceEnabled()) {    
-            log.trace("Retrieving AuthorizationInfo for principals [" + principals + "]");    
-        }    
-    
-        Cache<Object, AuthorizationInfo> cache = getAvailableAuthorizationCache();    
-        if (cache != null) {    
-            if (log.isTraceEnabled()) {    
-                log.trace("Attempting to retrieve the AuthorizationInfo from cache.");    
-            }    
-            Object key = getAuthorizationCacheKey(principals);    
-            info = cache.get(key);    
-            if (log.isTraceEnabled()) {    
-                if (info == null) {    
-                    log.trace("No AuthorizationInfo found in cache for principals [" + principals + "]");    
-                } else {    
-                    log.trace("AuthorizationInfo found in cache for principals [" + principals + "]");    
-                }    
-            }    
-        }    
-        if (info == null) {    
-            // Call template method if the info was not found in a cache     
-            info = doGetAuthorizationInfo(principals);    
-            // If the info is not null and the cache has been created, then cache the authorization info.     
-            if (info != null && cache != null) {    
-                if (log.isTraceEnabled()) {    
-                    log.trace("Caching authorization info for principals: [" + principals + "].");    
-                }    
-                Object key = getAuthorizationCacheKey(principals);    
-                cache.put(key, info);    
-            }    
-        }    
-        return info;    
-    } 
-	*/
+public abstract class RedisAuthorizingRealm extends AuthorizingRealm implements Destroyable {
+
+	public static final String DEFAULT_INVALIDATION_CHANNEL = "shiro:authz:invalidation";
+
+	private RedisTemplate<Object, Object> redisTemplate;
+	/** 订阅失效消息的监听容器；未设置时使用 redisTemplate 的连接工厂自动创建 */
+	private RedisMessageListenerContainer listenerContainer;
+	private boolean listenerContainerOwner = false;
+	/** 失效消息频道 */
+	private String invalidationChannel = DEFAULT_INVALIDATION_CHANNEL;
+	/** 近端缓存最大条目数 */
+	private int nearCacheMaxSize = 10000;
+	/** 近端缓存存活时间（毫秒）：失效消息丢失时的最长不一致时间 */
+	private long nearCacheTtl = 60000;
+	/** 远程缓存存活时间（毫秒），小于等于0表示不过期 */
+	private long remoteCacheTtl = 1800000;
+
+	private TwoTierCache<Object, AuthorizationInfo> twoTierCache;
+
+	@Override
+	protected void onInit() {
+		if (redisTemplate != null && isAuthorizationCachingEnabled()) {
+			setAuthorizationCache(createAuthorizationCache());
+		}
+		super.onInit();
+	}
+
+	protected TwoTierCache<Object, AuthorizationInfo> createAuthorizationCache() {
+
+		String cacheName = getAuthorizationCacheName();
+		ExpiringMapCache<Object, AuthorizationInfo> nearCache = new ExpiringMapCache<Object, AuthorizationInfo>(cacheName,
+				nearCacheMaxSize, nearCacheTtl);
+		RedisCache<Object, AuthorizationInfo> remoteCache = new RedisCache<Object, AuthorizationInfo>(cacheName,
+				redisTemplate, remoteCacheTtl);
+		twoTierCache = new TwoTierCache<Object, AuthorizationInfo>(nearCache, remoteCache, redisTemplate,
+				invalidationChannel);
+
+		if (listenerContainer == null) {
+			listenerContainer = new RedisMessageListenerContainer();
+			listenerContainer.setConnectionFactory(redisTemplate.getConnectionFactory());
+			listenerContainer.afterPropertiesSet();
+			listenerContainer.start();
+			listenerContainerOwner = true;
+		}
+		listenerContainer.addMessageListener(twoTierCache, new ChannelTopic(invalidationChannel));
+
+		return twoTierCache;
+	}
+
+	/**
+	 * 远程缓存与失效消息都以字符串作为键：Realm 名称 + 主身份
+	 */
+	@Override
+	protected Object getAuthorizationCacheKey(PrincipalCollection principals) {
+		return getName() + ":" + principals.getPrimaryPrincipal();
+	}
+
+	@Override
+	public void destroy() throws Exception {
+		if (listenerContainer != null) {
+			if (twoTierCache != null) {
+				listenerContainer.removeMessageListener(twoTierCache);
+			}
+			if (listenerContainerOwner) {
+				listenerContainer.destroy();
+			}
+		}
+	}
+
+	/**
+	 * 近端缓存命中率
+	 */
+	public double getNearCacheHitRatio() {
+		return twoTierCache == null ? 0d : twoTierCache.getNearHitRatio();
+	}
+
+	/**
+	 * 远程缓存命中率（仅统计近端未命中的请求）
+	 */
+	public double getRemoteCacheHitRatio() {
+		return twoTierCache == null ? 0d : twoTierCache.getRemoteHitRatio();
+	}
+
+	public TwoTierCache<Object, AuthorizationInfo> getTwoTierCache() {
+		return twoTierCache;
+	}
+
+	public RedisTemplate<Object, Object> getRedisTemplate() {
+		return redisTemplate;
+	}
+
+	public void setRedisTemplate(RedisTemplate<Object, Object> redisTemplate) {
+		this.redisTemplate = redisTemplate;
+	}
+
+	public RedisMessageListenerContainer getListenerContainer() {
+		return listenerContainer;
+	}
+
+	public void setListenerContainer(RedisMessageListenerContainer listenerContainer) {
+		this.listenerContainer = listenerContainer;
+	}
+
+	public String getInvalidationChannel() {
+		return invalidationChannel;
+	}
+
+	public void setInvalidationChannel(String invalidationChannel) {
+		this.invalidationChannel = invalidationChannel;
+	}
+
+	public int getNearCacheMaxSize() {
+		return nearCacheMaxSize;
+	}
+
+	public void setNearCacheMaxSize(int nearCacheMaxSize) {
+		this.nearCacheMaxSize = nearCacheMaxSize;
+	}
+
+	public long getNearCacheTtl() {
+		return nearCacheTtl;
+	}
+
+	public void setNearCacheTtl(long nearCacheTtl) {
+		this.nearCacheTtl = nearCacheTtl;
+	}
+
+	public long getRemoteCacheTtl() {
+		return remoteCacheTtl;
+	}
+
+	public void setRemoteCacheTtl(long remoteCacheTtl) {
+		this.remoteCacheTtl = remoteCacheTtl;
+	}
+
 }
@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2017, vindell (https://github.com/vindell).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.oauth.oltu.token;
+
+import org.apache.shiro.authc.AuthenticationToken;
+
+/**
+ * 请求头 Authorization: Bearer 中携带的 Access Token
+ */
+@SuppressWarnings("serial")
+public class OltuBearerToken implements AuthenticationToken {
+
+    public OltuBearerToken(String accessToken) {
+        this.accessToken = accessToken;
+    }
+
+    private String accessToken;
+
+    public String getAccessToken() {
+        return accessToken;
+    }
+
+    public void setAccessToken(String accessToken) {
+        this.accessToken = accessToken;
+    }
+
+    @Override
+    public Object getPrincipal() {
+        return accessToken;
+    }
+
+    @Override
+    public Object getCredentials() {
+        return accessToken;
+    }
+}
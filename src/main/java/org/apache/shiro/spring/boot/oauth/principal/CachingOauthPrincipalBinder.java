@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2017, vindell (https://github.com/vindell).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.oauth.principal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.shiro.spring.boot.oauth.cache.ExpiringMapCache;
+
+/**
+ * 带缓存的 {@link OauthPrincipalBinder} 装饰器：登录时的绑定关系查询大多命中内存，不必每次登录都查询数据库
+ * <p>已绑定的关系缓存 {@link #setTtl(long)}，未绑定的结果缓存较短的 {@link #setNegativeTtl(long)}；
+ * 经由本装饰器绑定或解绑时同步更新缓存，其他途径修改绑定关系时最多延迟一个存活时间生效。</p>
+ * @author 		： <a href="https://github.com/vindell">vindell</a>
+ */
+public class CachingOauthPrincipalBinder implements OauthPrincipalBinder {
+
+	/** 未绑定结果在缓存中的占位值 */
+	private static final String UNBOUND = "";
+
+	private final OauthPrincipalBinder delegate;
+	private final ExpiringMapCache<String, String> cache;
+	//已绑定关系的存活时间（毫秒）
+	private long ttl = 600000;
+	//未绑定结果的存活时间（毫秒），小于等于0表示不缓存
+	private long negativeTtl = 60000;
+
+	public CachingOauthPrincipalBinder(OauthPrincipalBinder delegate) {
+		this(delegate, 10000);
+	}
+
+	public CachingOauthPrincipalBinder(OauthPrincipalBinder delegate, int maxSize) {
+		this.delegate = delegate;
+		this.cache = new ExpiringMapCache<String, String>("SHIRO_OAUTH2_PRINCIPAL_BINDING", maxSize, ttl);
+	}
+
+	@Override
+	public String getUsername(String provider, String openid) {
+		String key = cacheKey(provider, openid);
+		String username = cache.get(key);
+		if (username != null) {
+			return UNBOUND.equals(username) ? null : username;
+		}
+		username = delegate.getUsername(provider, openid);
+		cacheResult(key, username);
+		return username;
+	}
+
+	@Override
+	public Map<String, String> getUsernames(String provider, Collection<String> openids) {
+		Map<String, String> usernames = new HashMap<String, String>();
+		List<String> misses = new ArrayList<String>();
+		for (String openid : openids) {
+			String username = cache.get(cacheKey(provider, openid));
+			if (username == null) {
+				misses.add(openid);
+			} else if (!UNBOUND.equals(username)) {
+				usernames.put(openid, username);
+			}
+		}
+		if (!misses.isEmpty()) {
+			Map<String, String> loaded = delegate.getUsernames(provider, misses);
+			for (String openid : misses) {
+				String username = loaded == null ? null : loaded.get(openid);
+				cacheResult(cacheKey(provider, openid), username);
+				if (username != null) {
+					usernames.put(openid, username);
+				}
+			}
+		}
+		return usernames;
+	}
+
+	@Override
+	public void bind(String provider, String openid, String username) {
+		delegate.bind(provider, openid, username);
+		cache.put(cacheKey(provider, openid), username, ttl);
+	}
+
+	@Override
+	public void unbind(String provider, String openid) {
+		delegate.unbind(provider, openid);
+		cache.remove(cacheKey(provider, openid));
+	}
+
+	protected void cacheResult(String key, String username) {
+		if (username != null) {
+			cache.put(key, username, ttl);
+		} else if (negativeTtl > 0) {
+			cache.put(key, UNBOUND, negativeTtl);
+		}
+	}
+
+	protected String cacheKey(String provider, String openid) {
+		return provider + "#" + openid;
+	}
+
+	public OauthPrincipalBinder getDelegate() {
+		return delegate;
+	}
+
+	public ExpiringMapCache<String, String> getCache() {
+		return cache;
+	}
+
+	public long getTtl() {
+		return ttl;
+	}
+
+	public void setTtl(long ttl) {
+		this.ttl = ttl;
+	}
+
+	public long getNegativeTtl() {
+		return negativeTtl;
+	}
+
+	public void setNegativeTtl(long negativeTtl) {
+		this.negativeTtl = negativeTtl;
+	}
+
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2017, vindell (https://github.com/vindell).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.oauth.principal;
+
+import java.io.Serializable;
+
+import org.apache.shiro.spring.boot.oauth.buji.scribe.OAuth2Constants;
+import org.scribe.up.profile.UserProfile;
+
+/**
+ * 放入会话的精简身份：只包含认证服务器类型与 openid，完整的 Profile 由 {@link OAuthProfileResolver} 按需加载
+ * @author 		： <a href="https://github.com/vindell">vindell</a>
+ */
+public final class OAuthPrincipal implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/** 认证服务器类型，如 QQProvider */
+	private final String provider;
+	/** 第三方账号的唯一标识 */
+	private final String openid;
+
+	public OAuthPrincipal(String provider, String openid) {
+		this.provider = provider;
+		this.openid = openid;
+	}
+
+	/**
+	 * 由 Profile 创建精简身份
+	 * @param provider 认证服务器类型
+	 */
+	public static OAuthPrincipal of(String provider, UserProfile profile) {
+		String openid = getOpenId(profile);
+		return provider == null || openid == null ? null : new OAuthPrincipal(provider, openid);
+	}
+
+	/**
+	 * 第三方账号的唯一标识：优先取属性中的 openid，否则取 Profile 的 id
+	 */
+	public static String getOpenId(UserProfile profile) {
+		Object openid = profile.getAttributes().get(OAuth2Constants.OPENID);
+		if (openid == null) {
+			openid = profile.getId();
+		}
+		return openid == null ? null : String.valueOf(openid);
+	}
+
+	public String getProvider() {
+		return provider;
+	}
+
+	public String getOpenid() {
+		return openid;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof OAuthPrincipal)) {
+			return false;
+		}
+		OAuthPrincipal other = (OAuthPrincipal) obj;
+		return provider.equals(other.provider) && openid.equals(other.openid);
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * provider.hashCode() + openid.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return provider + "#" + openid;
+	}
+
+}
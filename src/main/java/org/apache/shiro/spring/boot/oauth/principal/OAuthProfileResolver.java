@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2017, vindell (https://github.com/vindell).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.oauth.principal;
+
+import org.apache.shiro.spring.boot.oauth.cache.ExpiringMapCache;
+import org.apache.shiro.subject.PrincipalCollection;
+import org.scribe.up.profile.UserProfile;
+import org.springframework.util.ClassUtils;
+
+/**
+ * 按 {@link OAuthPrincipal} 加载完整的 Profile：先查有界的内存缓存，未命中时查询 {@link OauthPrincipalRepository#getProfile(String, String)}
+ * <p>登录时由 Realm 放入缓存，注销或会话过期时由 {@link ProfileResolverCleanupListener} 移除；缓存满或过期后从仓库重新加载。
+ * 缓存条目随时可能被淘汰，因此仓库必须实现 {@link OauthPrincipalRepository#getProfile(String, String)}，
+ * 否则 {@link #setRepository(OauthPrincipalRepository)} 拒绝该仓库，避免 Profile 过期后静默丢失。</p>
+ * @author 		： <a href="https://github.com/vindell">vindell</a>
+ */
+public class OAuthProfileResolver {
+
+	private final ExpiringMapCache<OAuthPrincipal, UserProfile> cache;
+	private OauthPrincipalRepository repository;
+
+	public OAuthProfileResolver() {
+		this(10000, 1800000);
+	}
+
+	/**
+	 * @param maxSize 缓存的 Profile 数量上限
+	 * @param ttl Profile 在缓存中的存活时间（毫秒），一般与会话超时时间一致
+	 */
+	public OAuthProfileResolver(int maxSize, long ttl) {
+		this.cache = new ExpiringMapCache<OAuthPrincipal, UserProfile>("SHIRO_OAUTH2_PROFILE", maxSize, ttl);
+	}
+
+	/**
+	 * 登录成功后缓存完整的 Profile
+	 */
+	public void put(OAuthPrincipal principal, UserProfile profile) {
+		if (principal != null && profile != null) {
+			cache.put(principal, profile);
+		}
+	}
+
+	/**
+	 * 加载完整的 Profile
+	 * @return 缓存与仓库中都不存在时返回 null
+	 */
+	public UserProfile resolve(OAuthPrincipal principal) {
+		if (principal == null) {
+			return null;
+		}
+		UserProfile profile = cache.get(principal);
+		if (profile == null && repository != null) {
+			profile = repository.getProfile(principal.getProvider(), principal.getOpenid());
+			put(principal, profile);
+		}
+		return profile;
+	}
+
+	/**
+	 * 从身份集合中取得完整的 Profile：集合中直接包含 Profile 时返回该 Profile，否则按 {@link OAuthPrincipal} 加载
+	 */
+	public UserProfile resolve(PrincipalCollection principals) {
+		if (principals == null) {
+			return null;
+		}
+		UserProfile profile = principals.oneByType(UserProfile.class);
+		return profile != null ? profile : resolve(principals.oneByType(OAuthPrincipal.class));
+	}
+
+	/**
+	 * 登出或账号变更时移除缓存的 Profile
+	 */
+	public void evict(OAuthPrincipal principal) {
+		cache.remove(principal);
+	}
+
+	public ExpiringMapCache<OAuthPrincipal, UserProfile> getCache() {
+		return cache;
+	}
+
+	public OauthPrincipalRepository getRepository() {
+		return repository;
+	}
+
+	/**
+	 * @throws IllegalArgumentException 仓库未实现 {@link OauthPrincipalRepository#getProfile(String, String)}
+	 */
+	public void setRepository(OauthPrincipalRepository repository) {
+		if (repository != null && !canLoadProfiles(repository)) {
+			throw new IllegalArgumentException("Thin principals require an OauthPrincipalRepository that implements getProfile(provider, openid) : "
+					+ repository.getClass().getName());
+		}
+		this.repository = repository;
+	}
+
+	/**
+	 * 仓库是否覆盖了 {@link OauthPrincipalRepository#getProfile(String, String)} 的默认实现
+	 */
+	public static boolean canLoadProfiles(OauthPrincipalRepository repository) {
+		try {
+			Class<?> declaring = ClassUtils.getUserClass(repository).getMethod("getProfile", String.class, String.class)
+					.getDeclaringClass();
+			return declaring != OauthPrincipalRepository.class;
+		} catch (NoSuchMethodException e) {
+			return false;
+		}
+	}
+
+}
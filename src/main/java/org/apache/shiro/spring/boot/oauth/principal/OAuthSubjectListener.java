@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2017, vindell (https://github.com/vindell).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.oauth.principal;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.shiro.authc.AuthenticationException;
+import org.apache.shiro.authc.AuthenticationInfo;
+import org.apache.shiro.authc.AuthenticationListener;
+import org.apache.shiro.authc.AuthenticationToken;
+import org.apache.shiro.session.Session;
+import org.apache.shiro.session.SessionListenerAdapter;
+import org.apache.shiro.spring.boot.oauth.buji.scribe.provider.AbstractOAuth20Provider;
+import org.apache.shiro.subject.PrincipalCollection;
+import org.apache.shiro.subject.support.DefaultSubjectContext;
+import org.scribe.up.profile.UserProfile;
+import org.scribe.up.provider.OAuthProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 第三方账号的会话结束监听：用户注销、会话停止或过期时，对身份集合中的每个第三方账号调用 {@link #onSubjectEnd(OAuthPrincipal, UserProfile)}
+ * <p>身份集合中的 {@link OAuthPrincipal} 直接使用；完整的 Profile 按 {@link AbstractOAuth20Provider#getProfileType()} 找到所属的 Provider。
+ * 由 {@link OAuthSubjectListenerRegistrar} 注册到 SecurityManager 的 Authenticator 与 SessionManager。</p>
+ * @author 		： <a href="https://github.com/vindell">vindell</a>
+ */
+public abstract class OAuthSubjectListener extends SessionListenerAdapter implements AuthenticationListener {
+
+	private static final Logger LOG = LoggerFactory.getLogger(OAuthSubjectListener.class);
+
+	private final List<AbstractOAuth20Provider> providers = new ArrayList<AbstractOAuth20Provider>();
+
+	public OAuthSubjectListener(List<? extends OAuthProvider> providers) {
+		if (providers != null) {
+			for (OAuthProvider provider : providers) {
+				if (provider instanceof AbstractOAuth20Provider) {
+					this.providers.add((AbstractOAuth20Provider) provider);
+				}
+			}
+		}
+	}
+
+	/**
+	 * 第三方账号的会话已结束；同一账号可能因注销与会话停止各收到一次通知，实现需要幂等
+	 * @param principal 第三方账号
+	 * @param profile 身份集合中的完整 Profile，精简身份模式下为 null
+	 */
+	protected abstract void onSubjectEnd(OAuthPrincipal principal, UserProfile profile);
+
+	@Override
+	public void onSuccess(AuthenticationToken token, AuthenticationInfo info) {
+	}
+
+	@Override
+	public void onFailure(AuthenticationToken token, AuthenticationException ae) {
+	}
+
+	@Override
+	public void onLogout(PrincipalCollection principals) {
+		handle(principals);
+	}
+
+	@Override
+	public void onStop(Session session) {
+		handle(session);
+	}
+
+	@Override
+	public void onExpiration(Session session) {
+		handle(session);
+	}
+
+	protected void handle(Session session) {
+		Object principals = session.getAttribute(DefaultSubjectContext.PRINCIPALS_SESSION_KEY);
+		if (principals instanceof PrincipalCollection) {
+			handle((PrincipalCollection) principals);
+		}
+	}
+
+	protected void handle(PrincipalCollection principals) {
+		if (principals == null || principals.isEmpty()) {
+			return;
+		}
+		for (Object principal : principals.asList()) {
+			try {
+				if (principal instanceof OAuthPrincipal) {
+					onSubjectEnd((OAuthPrincipal) principal, null);
+				} else if (principal instanceof UserProfile) {
+					UserProfile profile = (UserProfile) principal;
+					OAuthPrincipal oauthPrincipal = OAuthPrincipal.of(getProviderType(profile), profile);
+					if (oauthPrincipal != null) {
+						onSubjectEnd(oauthPrincipal, profile);
+					}
+				}
+			} catch (RuntimeException e) {
+				//清理失败不影响注销
+				LOG.warn("Failed to clean up OAuth principal : " + principal, e);
+			}
+		}
+	}
+
+	/**
+	 * @return Profile 所属 Provider 的类型，无法识别时返回 null
+	 */
+	protected String getProviderType(UserProfile profile) {
+		for (AbstractOAuth20Provider provider : providers) {
+			Class<? extends UserProfile> profileType = provider.getProfileType();
+			if (profileType != null && profileType.isInstance(profile)) {
+				return provider.getType();
+			}
+		}
+		return null;
+	}
+
+}
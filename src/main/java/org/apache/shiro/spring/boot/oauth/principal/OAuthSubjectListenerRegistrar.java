@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2017, vindell (https://github.com/vindell).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.oauth.principal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.shiro.authc.AbstractAuthenticator;
+import org.apache.shiro.authc.Authenticator;
+import org.apache.shiro.mgt.AuthenticatingSecurityManager;
+import org.apache.shiro.mgt.SecurityManager;
+import org.apache.shiro.mgt.SessionsSecurityManager;
+import org.apache.shiro.session.mgt.AbstractNativeSessionManager;
+import org.apache.shiro.session.mgt.SessionManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+
+/**
+ * 容器启动完成后把 {@link OAuthSubjectListener} 注册到 SecurityManager：Authenticator 负责注销通知，
+ * 原生 SessionManager 负责会话停止与过期通知；使用 Servlet 容器会话时只能收到注销通知
+ * @author 		： <a href="https://github.com/vindell">vindell</a>
+ */
+public class OAuthSubjectListenerRegistrar implements SmartInitializingSingleton {
+
+	private static final Logger LOG = LoggerFactory.getLogger(OAuthSubjectListenerRegistrar.class);
+
+	private final ObjectProvider<SecurityManager> securityManagerProvider;
+	private final List<OAuthSubjectListener> listeners;
+
+	public OAuthSubjectListenerRegistrar(ObjectProvider<SecurityManager> securityManagerProvider,
+			List<OAuthSubjectListener> listeners) {
+		this.securityManagerProvider = securityManagerProvider;
+		this.listeners = listeners;
+	}
+
+	@Override
+	public void afterSingletonsInstantiated() {
+		SecurityManager securityManager = securityManagerProvider.getIfAvailable();
+		if (securityManager == null || listeners == null || listeners.isEmpty()) {
+			return;
+		}
+		if (securityManager instanceof AuthenticatingSecurityManager) {
+			Authenticator authenticator = ((AuthenticatingSecurityManager) securityManager).getAuthenticator();
+			if (authenticator instanceof AbstractAuthenticator) {
+				AbstractAuthenticator abstractAuthenticator = (AbstractAuthenticator) authenticator;
+				abstractAuthenticator.setAuthenticationListeners(merge(abstractAuthenticator.getAuthenticationListeners()));
+			}
+		}
+		if (securityManager instanceof SessionsSecurityManager) {
+			SessionManager sessionManager = ((SessionsSecurityManager) securityManager).getSessionManager();
+			if (sessionManager instanceof AbstractNativeSessionManager) {
+				AbstractNativeSessionManager nativeSessionManager = (AbstractNativeSessionManager) sessionManager;
+				nativeSessionManager.setSessionListeners(merge(nativeSessionManager.getSessionListeners()));
+			} else {
+				LOG.debug("Session manager {} does not publish session events, OAuth principals are cleaned up on logout only", sessionManager);
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private <L> Collection<L> merge(Collection<L> existing) {
+		List<L> merged = existing == null ? new ArrayList<L>() : new ArrayList<L>(existing);
+		for (OAuthSubjectListener listener : listeners) {
+			if (!merged.contains(listener)) {
+				merged.add((L) listener);
+			}
+		}
+		return merged;
+	}
+
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2017, vindell (https://github.com/vindell).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.oauth.principal;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * 第三方账号（认证服务器类型 + openid）与本地账号的绑定关系
+ * @author 		： <a href="https://github.com/vindell">vindell</a>
+ */
+public interface OauthPrincipalBinder {
+
+	/**
+	 * 查找绑定的本地账号
+	 * @param provider 认证服务器类型，如 QQProvider
+	 * @param openid 第三方账号的唯一标识
+	 * @return 本地用户名，未绑定时返回 null
+	 */
+	String getUsername(String provider, String openid);
+
+	/**
+	 * 批量查找绑定的本地账号
+	 * @return openid 到本地用户名的映射，只包含已绑定的 openid
+	 */
+	Map<String, String> getUsernames(String provider, Collection<String> openids);
+
+	/**
+	 * 将第三方账号绑定到本地账号
+	 */
+	void bind(String provider, String openid, String username);
+
+	/**
+	 * 解除绑定
+	 */
+	void unbind(String provider, String openid);
+
+}
@@ -16,7 +16,23 @@
 package org.apache.shiro.spring.boot.oauth.principal;
 
 import org.apache.shiro.biz.principal.PrincipalRepository;
+import org.scribe.up.profile.UserProfile;
 
+/**
+ * OAuth 登录使用的账号仓库
+ * <p>第三方账号与本地账号的绑定关系由可选的 {@link OauthPrincipalBinder} 单独提供，已有的仓库实现无需改动；
+ * 需要绑定时，仓库可以同时实现该接口，或另行声明一个 Bean，登录时由 {@link CachingOauthPrincipalBinder} 包装以缓存查询结果。</p>
+ */
 public interface OauthPrincipalRepository extends PrincipalRepository {
 
+	/**
+	 * 加载第三方账号的完整 Profile，供精简身份模式下 {@link OAuthProfileResolver} 缓存未命中时使用
+	 * @param provider 认证服务器类型，如 QQProvider
+	 * @param openid 第三方账号的唯一标识
+	 * @return 未保存 Profile 时返回 null
+	 */
+	default UserProfile getProfile(String provider, String openid) {
+		return null;
+	}
+
 }
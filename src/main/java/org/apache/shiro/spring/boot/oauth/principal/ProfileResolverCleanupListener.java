@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2017, vindell (https://github.com/vindell).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.oauth.principal;
+
+import java.util.List;
+
+import org.scribe.up.profile.UserProfile;
+import org.scribe.up.provider.OAuthProvider;
+
+/**
+ * 用户注销或会话过期时从 {@link OAuthProfileResolver} 中移除该账号缓存的 Profile
+ * @author 		： <a href="https://github.com/vindell">vindell</a>
+ */
+public class ProfileResolverCleanupListener extends OAuthSubjectListener {
+
+	private final OAuthProfileResolver profileResolver;
+
+	public ProfileResolverCleanupListener(OAuthProfileResolver profileResolver, List<? extends OAuthProvider> providers) {
+		super(providers);
+		this.profileResolver = profileResolver;
+	}
+
+	@Override
+	protected void onSubjectEnd(OAuthPrincipal principal, UserProfile profile) {
+		profileResolver.evict(principal);
+	}
+
+}
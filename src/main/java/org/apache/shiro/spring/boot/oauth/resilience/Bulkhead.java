@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2017, vindell (https://github.com/vindell).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.oauth.resilience;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 舱壁：限制同一认证服务器的并发远程调用数，避免一个变慢的认证服务器占满 Servlet 线程
+ * @author 		： <a href="https://github.com/vindell">vindell</a>
+ */
+public class Bulkhead {
+
+	/** 最大并发调用数 */
+	private final int maxConcurrentCalls;
+	/** 无可用许可时的最长等待时间（毫秒），0 表示立即拒绝 */
+	private final long maxWaitDuration;
+	private final Semaphore semaphore;
+
+	public Bulkhead(int maxConcurrentCalls, long maxWaitDuration) {
+		this.maxConcurrentCalls = Math.max(1, maxConcurrentCalls);
+		this.maxWaitDuration = maxWaitDuration;
+		this.semaphore = new Semaphore(this.maxConcurrentCalls, true);
+	}
+
+	public boolean tryAcquire() {
+		if (maxWaitDuration <= 0) {
+			return semaphore.tryAcquire();
+		}
+		try {
+			return semaphore.tryAcquire(maxWaitDuration, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	public void release() {
+		semaphore.release();
+	}
+
+	public int getMaxConcurrentCalls() {
+		return maxConcurrentCalls;
+	}
+
+	public long getMaxWaitDuration() {
+		return maxWaitDuration;
+	}
+
+	public int getAvailablePermits() {
+		return semaphore.availablePermits();
+	}
+
+	/**
+	 * 当前正在进行的调用数
+	 */
+	public int getActiveCalls() {
+		return maxConcurrentCalls - semaphore.availablePermits();
+	}
+
+}
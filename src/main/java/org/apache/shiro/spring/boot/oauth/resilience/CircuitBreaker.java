@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2017, vindell (https://github.com/vindell).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.oauth.resilience;
+
+/**
+ * 熔断器：连续失败达到阈值后打开，打开期间直接拒绝调用；
+ * 打开时间结束后进入半开状态，放行少量试探调用，成功则关闭，失败则重新打开
+ * @author 		： <a href="https://github.com/vindell">vindell</a>
+ */
+public class CircuitBreaker {
+
+	public enum State {
+		CLOSED, OPEN, HALF_OPEN
+	}
+
+	/** 打开熔断器的连续失败次数 */
+	private final int failureThreshold;
+	/** 打开状态持续时间（毫秒） */
+	private final long openDuration;
+	/** 半开状态允许的试探调用数 */
+	private final int halfOpenMaxCalls;
+
+	private State state = State.CLOSED;
+	private int consecutiveFailures;
+	private long openedAt;
+	private int halfOpenCalls;
+
+	public CircuitBreaker(int failureThreshold, long openDuration, int halfOpenMaxCalls) {
+		this.failureThreshold = Math.max(1, failureThreshold);
+		this.openDuration = openDuration;
+		this.halfOpenMaxCalls = Math.max(1, halfOpenMaxCalls);
+	}
+
+	/**
+	 * 申请一次调用许可；返回 false 表示熔断器打开（或半开状态的试探名额已用完）
+	 */
+	public synchronized boolean tryAcquire() {
+		if (state == State.OPEN) {
+			if (System.currentTimeMillis() - openedAt < openDuration) {
+				return false;
+			}
+			state = State.HALF_OPEN;
+			halfOpenCalls = 0;
+		}
+		if (state == State.HALF_OPEN) {
+			if (halfOpenCalls >= halfOpenMaxCalls) {
+				return false;
+			}
+			halfOpenCalls++;
+		}
+		return true;
+	}
+
+	/**
+	 * 释放未实际执行的调用许可
+	 */
+	public synchronized void release() {
+		if (state == State.HALF_OPEN && halfOpenCalls > 0) {
+			halfOpenCalls--;
+		}
+	}
+
+	public synchronized void onSuccess() {
+		consecutiveFailures = 0;
+		state = State.CLOSED;
+	}
+
+	public synchronized void onFailure() {
+		consecutiveFailures++;
+		if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+			state = State.OPEN;
+			openedAt = System.currentTimeMillis();
+		}
+	}
+
+	public synchronized State getState() {
+		if (state == State.OPEN && System.currentTimeMillis() - openedAt >= openDuration) {
+			return State.HALF_OPEN;
+		}
+		return state;
+	}
+
+	public synchronized int getConsecutiveFailures() {
+		return consecutiveFailures;
+	}
+
+	public int getFailureThreshold() {
+		return failureThreshold;
+	}
+
+	public long getOpenDuration() {
+		return openDuration;
+	}
+
+	public int getHalfOpenMaxCalls() {
+		return halfOpenMaxCalls;
+	}
+
+}
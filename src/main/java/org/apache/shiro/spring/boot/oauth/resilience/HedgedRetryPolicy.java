@@ -0,0 +1,339 @@
+/*
+ * Copyright (c) 2017, vindell (https://github.com/vindell).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.oauth.resilience;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+import org.apache.shiro.spring.boot.oauth.concurrent.IdpExecutors;
+import org.apache.shiro.spring.boot.oauth.exception.OAuth2AuthenticationException;
+import org.apache.shiro.util.Destroyable;
+
+/**
+ * 幂等请求（获取用户信息、OpenID 等 GET 请求）的对冲与重试策略
+ * <p>请求超过该认证服务器近期耗时的 {@link #setHedgePercentile(double)} 分位仍未返回时，再发出一个相同的请求，
+ * 采用先返回的结果；失败时按指数退避重试。对冲与重试都消耗全局的 {@link RetryBudget}，额度耗尽时不再额外发出请求，
+ * 避免在认证服务器故障时放大请求量。</p>
+ * <p>授权码只能使用一次，换取 Access Token 的请求不能使用本策略。</p>
+ * @author 		： <a href="https://github.com/vindell">vindell</a>
+ */
+public class HedgedRetryPolicy implements Destroyable {
+
+	//最多尝试次数（含首次）
+	private int maxAttempts = 3;
+	//首次重试前的等待时间（毫秒）
+	private long initialBackoff = 100;
+	//重试等待时间上限（毫秒）
+	private long maxBackoff = 2000;
+	//重试等待时间的增长倍数
+	private double backoffMultiplier = 2.0;
+	//是否发送对冲请求
+	private boolean hedgeEnabled = true;
+	//对冲请求的等待时间取近期耗时的分位数
+	private double hedgePercentile = 0.95;
+	//样本不足时对冲请求的等待时间（毫秒）
+	private long hedgeDelay = 200;
+	//对冲请求的最短等待时间（毫秒）
+	private long minHedgeDelay = 20;
+	//计算分位数所需的最少样本数
+	private int minSamples = 20;
+	//每个认证服务器保留的耗时样本数
+	private int latencySamples = 256;
+	//执行对冲请求的线程数
+	private int poolSize = 32;
+	//全局重试额度
+	private RetryBudget retryBudget = new RetryBudget();
+
+	private final ConcurrentMap<String, LatencyTracker> trackers = new ConcurrentHashMap<String, LatencyTracker>();
+	private volatile ExecutorService executor;
+
+	private final LongAdder hedges = new LongAdder();
+	private final LongAdder hedgeWins = new LongAdder();
+	private final LongAdder retries = new LongAdder();
+
+	/**
+	 * 执行幂等请求
+	 * @param name 认证服务器名称，耗时按名称分别统计
+	 * @param call 远程调用
+	 * @param retryable 判断异常是否可以重试，为空时所有异常都重试
+	 */
+	public <T, E extends Exception> T execute(String name, ProviderGuard.GuardedCall<T, E> call,
+			Predicate<Throwable> retryable) throws E {
+		retryBudget.onRequest();
+		LatencyTracker tracker = getTracker(name);
+		long backoff = initialBackoff;
+		for (int attempt = 1;; attempt++) {
+			try {
+				return hedgeEnabled ? hedged(call, tracker) : timed(call, tracker);
+			} catch (Exception e) {
+				if (attempt >= maxAttempts || (retryable != null && !retryable.test(e)) || !retryBudget.tryRetry()) {
+					throw e;
+				}
+				retries.increment();
+				if (!sleep(backoff + ThreadLocalRandom.current().nextLong(backoff / 2 + 1))) {
+					throw e;
+				}
+				backoff = Math.min(maxBackoff, (long) (backoff * backoffMultiplier));
+			}
+		}
+	}
+
+	protected <T, E extends Exception> T timed(ProviderGuard.GuardedCall<T, E> call, LatencyTracker tracker) throws E {
+		long start = System.nanoTime();
+		T result = call.call();
+		tracker.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+		return result;
+	}
+
+	/**
+	 * 发出请求，超过对冲等待时间仍未返回时再发出一个相同的请求，返回先成功的结果；全部失败时抛出最后一个异常
+	 */
+	protected <T, E extends Exception> T hedged(final ProviderGuard.GuardedCall<T, E> call, LatencyTracker tracker) throws E {
+		CompletionService<T> completion = new ExecutorCompletionService<T>(getExecutor());
+		List<Future<T>> futures = new ArrayList<Future<T>>(2);
+		long start = System.nanoTime();
+		try {
+			futures.add(completion.submit(call::call));
+		} catch (RejectedExecutionException e) {
+			//线程池已满：在当前线程直接执行，不对冲
+			return timed(call, tracker);
+		}
+		try {
+			Future<T> done = completion.poll(getHedgeDelay(tracker), TimeUnit.MILLISECONDS);
+			if (done == null) {
+				if (retryBudget.tryRetry()) {
+					try {
+						futures.add(completion.submit(call::call));
+						hedges.increment();
+					} catch (RejectedExecutionException e) {
+						//线程池已满：只等待第一个请求
+					}
+				}
+				done = completion.take();
+			}
+			int outstanding = futures.size();
+			while (true) {
+				outstanding--;
+				try {
+					T result = done.get();
+					tracker.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+					if (done != futures.get(0)) {
+						hedgeWins.increment();
+					}
+					return result;
+				} catch (ExecutionException e) {
+					if (outstanding == 0) {
+						throw HedgedRetryPolicy.<E>rethrow(e.getCause());
+					}
+					done = completion.take();
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new OAuth2AuthenticationException(e);
+		} finally {
+			for (Future<T> future : futures) {
+				future.cancel(true);
+			}
+		}
+	}
+
+	/**
+	 * 对冲请求的等待时间：样本足够时取耗时分位数，否则取 {@link #setHedgeDelay(long)}
+	 */
+	protected long getHedgeDelay(LatencyTracker tracker) {
+		if (tracker.getCount() < minSamples) {
+			return hedgeDelay;
+		}
+		return Math.max(minHedgeDelay, tracker.percentile(hedgePercentile));
+	}
+
+	protected LatencyTracker getTracker(String name) {
+		LatencyTracker tracker = trackers.get(name);
+		if (tracker == null) {
+			LatencyTracker created = new LatencyTracker(latencySamples);
+			tracker = trackers.putIfAbsent(name, created);
+			if (tracker == null) {
+				tracker = created;
+			}
+		}
+		return tracker;
+	}
+
+	protected ExecutorService getExecutor() {
+		if (executor == null) {
+			synchronized (this) {
+				if (executor == null) {
+					executor = IdpExecutors.newBoundedExecutor("oauth2-hedge-", poolSize, poolSize * 4);
+				}
+			}
+		}
+		return executor;
+	}
+
+	/**
+	 * @return 等待期间被中断时返回 false
+	 */
+	private static boolean sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+			return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	/**
+	 * 抛出异步执行中的异常；该异常来自 {@link ProviderGuard.GuardedCall#call()}，只可能是 E 或非受检异常
+	 */
+	@SuppressWarnings("unchecked")
+	private static <E extends Exception> E rethrow(Throwable e) throws E {
+		if (e instanceof Error) {
+			throw (Error) e;
+		}
+		throw (E) e;
+	}
+
+	@Override
+	public synchronized void destroy() {
+		if (executor != null) {
+			executor.shutdownNow();
+			executor = null;
+		}
+	}
+
+	public long getHedgeCount() {
+		return hedges.sum();
+	}
+
+	public long getHedgeWinCount() {
+		return hedgeWins.sum();
+	}
+
+	public long getRetryCount() {
+		return retries.sum();
+	}
+
+	public int getMaxAttempts() {
+		return maxAttempts;
+	}
+
+	public void setMaxAttempts(int maxAttempts) {
+		this.maxAttempts = maxAttempts;
+	}
+
+	public long getInitialBackoff() {
+		return initialBackoff;
+	}
+
+	public void setInitialBackoff(long initialBackoff) {
+		this.initialBackoff = initialBackoff;
+	}
+
+	public long getMaxBackoff() {
+		return maxBackoff;
+	}
+
+	public void setMaxBackoff(long maxBackoff) {
+		this.maxBackoff = maxBackoff;
+	}
+
+	public double getBackoffMultiplier() {
+		return backoffMultiplier;
+	}
+
+	public void setBackoffMultiplier(double backoffMultiplier) {
+		this.backoffMultiplier = backoffMultiplier;
+	}
+
+	public boolean isHedgeEnabled() {
+		return hedgeEnabled;
+	}
+
+	public void setHedgeEnabled(boolean hedgeEnabled) {
+		this.hedgeEnabled = hedgeEnabled;
+	}
+
+	public double getHedgePercentile() {
+		return hedgePercentile;
+	}
+
+	public void setHedgePercentile(double hedgePercentile) {
+		this.hedgePercentile = hedgePercentile;
+	}
+
+	public long getHedgeDelay() {
+		return hedgeDelay;
+	}
+
+	public void setHedgeDelay(long hedgeDelay) {
+		this.hedgeDelay = hedgeDelay;
+	}
+
+	public long getMinHedgeDelay() {
+		return minHedgeDelay;
+	}
+
+	public void setMinHedgeDelay(long minHedgeDelay) {
+		this.minHedgeDelay = minHedgeDelay;
+	}
+
+	public int getMinSamples() {
+		return minSamples;
+	}
+
+	public void setMinSamples(int minSamples) {
+		this.minSamples = minSamples;
+	}
+
+	public int getLatencySamples() {
+		return latencySamples;
+	}
+
+	public void setLatencySamples(int latencySamples) {
+		this.latencySamples = latencySamples;
+	}
+
+	public int getPoolSize() {
+		return poolSize;
+	}
+
+	public void setPoolSize(int poolSize) {
+		this.poolSize = poolSize;
+	}
+
+	public RetryBudget getRetryBudget() {
+		return retryBudget;
+	}
+
+	public void setRetryBudget(RetryBudget retryBudget) {
+		this.retryBudget = retryBudget;
+	}
+
+}
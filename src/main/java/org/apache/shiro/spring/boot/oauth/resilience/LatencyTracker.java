@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2017, vindell (https://github.com/vindell).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.oauth.resilience;
+
+import java.util.Arrays;
+
+/**
+ * 记录最近若干次调用的耗时，用于计算对冲请求的等待时间
+ * @author 		： <a href="https://github.com/vindell">vindell</a>
+ */
+public class LatencyTracker {
+
+	private final long[] samples;
+	private int index;
+	private int count;
+
+	public LatencyTracker(int size) {
+		this.samples = new long[Math.max(1, size)];
+	}
+
+	/**
+	 * 记录一次成功调用的耗时（毫秒）
+	 */
+	public synchronized void record(long millis) {
+		samples[index] = millis;
+		index = (index + 1) % samples.length;
+		if (count < samples.length) {
+			count++;
+		}
+	}
+
+	/**
+	 * 计算耗时分位数
+	 * @param percentile 0 ~ 1 之间的分位，如 0.95
+	 * @return 没有样本时返回 -1
+	 */
+	public long percentile(double percentile) {
+		long[] copy;
+		synchronized (this) {
+			if (count == 0) {
+				return -1;
+			}
+			copy = Arrays.copyOf(samples, count);
+		}
+		Arrays.sort(copy);
+		int rank = (int) Math.ceil(percentile * copy.length) - 1;
+		return copy[Math.max(0, Math.min(rank, copy.length - 1))];
+	}
+
+	public synchronized int getCount() {
+		return count;
+	}
+
+}
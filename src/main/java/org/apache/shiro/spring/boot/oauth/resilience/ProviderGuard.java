@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2017, vindell (https://github.com/vindell).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.oauth.resilience;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+import org.apache.shiro.spring.boot.oauth.exception.ProviderRejectedException;
+
+/**
+ * 单个认证服务器的调用保护：舱壁 + 熔断器
+ * <p>熔断器打开或舱壁已满时立即抛出 {@link ProviderRejectedException}，不再等待远程调用超时。
+ * 是否计为失败由调用方传入的判断条件决定：认证服务器正常返回的业务错误（如 invalid_grant）不应打开熔断器。</p>
+ * @author 		： <a href="https://github.com/vindell">vindell</a>
+ */
+public class ProviderGuard {
+
+	/**
+	 * 受保护的调用
+	 */
+	public interface GuardedCall<T, E extends Exception> {
+
+		T call() throws E;
+
+	}
+
+	private final String name;
+	private final CircuitBreaker circuitBreaker;
+	private final Bulkhead bulkhead;
+
+	private final LongAdder breakerRejections = new LongAdder();
+	private final LongAdder bulkheadRejections = new LongAdder();
+
+	public ProviderGuard(String name, CircuitBreaker circuitBreaker, Bulkhead bulkhead) {
+		this.name = name;
+		this.circuitBreaker = circuitBreaker;
+		this.bulkhead = bulkhead;
+	}
+
+	/**
+	 * 执行受保护的调用
+	 * @param call 远程调用
+	 * @param failurePredicate 判断异常是否表示认证服务器不可用
+	 */
+	public <T, E extends Exception> T execute(GuardedCall<T, E> call, Predicate<Throwable> failurePredicate) throws E {
+		if (!circuitBreaker.tryAcquire()) {
+			breakerRejections.increment();
+			throw new ProviderRejectedException("Circuit breaker is open for provider : " + name);
+		}
+		if (!bulkhead.tryAcquire()) {
+			circuitBreaker.release();
+			bulkheadRejections.increment();
+			throw new ProviderRejectedException("Too many concurrent calls to provider : " + name);
+		}
+		try {
+			T result = call.call();
+			circuitBreaker.onSuccess();
+			return result;
+		} catch (Throwable e) {
+			if (failurePredicate == null || failurePredicate.test(e)) {
+				circuitBreaker.onFailure();
+			} else {
+				circuitBreaker.onSuccess();
+			}
+			throw e;
+		} finally {
+			bulkhead.release();
+		}
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public CircuitBreaker getCircuitBreaker() {
+		return circuitBreaker;
+	}
+
+	public Bulkhead getBulkhead() {
+		return bulkhead;
+	}
+
+	public CircuitBreaker.State getState() {
+		return circuitBreaker.getState();
+	}
+
+	public long getBreakerRejections() {
+		return breakerRejections.sum();
+	}
+
+	public long getBulkheadRejections() {
+		return bulkheadRejections.sum();
+	}
+
+	@Override
+	public String toString() {
+		return "ProviderGuard[" + name + ", state=" + getState() + ", activeCalls=" + bulkhead.getActiveCalls()
+				+ ", consecutiveFailures=" + circuitBreaker.getConsecutiveFailures() + ", breakerRejections="
+				+ getBreakerRejections() + ", bulkheadRejections=" + getBulkheadRejections() + "]";
+	}
+
+}
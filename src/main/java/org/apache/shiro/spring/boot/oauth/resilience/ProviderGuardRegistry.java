@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2017, vindell (https://github.com/vindell).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.oauth.resilience;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 按认证服务器名称创建并持有 {@link ProviderGuard}，每个认证服务器使用独立的舱壁与熔断器
+ * @author 		： <a href="https://github.com/vindell">vindell</a>
+ */
+public class ProviderGuardRegistry {
+
+	private final ConcurrentMap<String, ProviderGuard> guards = new ConcurrentHashMap<String, ProviderGuard>();
+
+	/** 每个认证服务器的最大并发调用数 */
+	private int maxConcurrentCalls = 50;
+	/** 舱壁已满时的最长等待时间（毫秒），0 表示立即拒绝 */
+	private long maxWaitDuration = 0;
+	/** 打开熔断器的连续失败次数 */
+	private int failureThreshold = 5;
+	/** 熔断器打开状态持续时间（毫秒） */
+	private long openDuration = 30000;
+	/** 半开状态允许的试探调用数 */
+	private int halfOpenMaxCalls = 1;
+
+	public ProviderGuard getGuard(String name) {
+		ProviderGuard guard = guards.get(name);
+		if (guard == null) {
+			ProviderGuard created = createGuard(name);
+			guard = guards.putIfAbsent(name, created);
+			if (guard == null) {
+				guard = created;
+			}
+		}
+		return guard;
+	}
+
+	protected ProviderGuard createGuard(String name) {
+		return new ProviderGuard(name, new CircuitBreaker(failureThreshold, openDuration, halfOpenMaxCalls),
+				new Bulkhead(maxConcurrentCalls, maxWaitDuration));
+	}
+
+	/**
+	 * 所有认证服务器当前的熔断状态，供监控使用
+	 */
+	public Map<String, CircuitBreaker.State> getStates() {
+		Map<String, CircuitBreaker.State> states = new LinkedHashMap<String, CircuitBreaker.State>();
+		for (ProviderGuard guard : guards.values()) {
+			states.put(guard.getName(), guard.getState());
+		}
+		return states;
+	}
+
+	public Map<String, ProviderGuard> getGuards() {
+		return Collections.unmodifiableMap(guards);
+	}
+
+	public int getMaxConcurrentCalls() {
+		return maxConcurrentCalls;
+	}
+
+	public void setMaxConcurrentCalls(int maxConcurrentCalls) {
+		this.maxConcurrentCalls = maxConcurrentCalls;
+	}
+
+	public long getMaxWaitDuration() {
+		return maxWaitDuration;
+	}
+
+	public void setMaxWaitDuration(long maxWaitDuration) {
+		this.maxWaitDuration = maxWaitDuration;
+	}
+
+	public int getFailureThreshold() {
+		return failureThreshold;
+	}
+
+	public void setFailureThreshold(int failureThreshold) {
+		this.failureThreshold = failureThreshold;
+	}
+
+	public long getOpenDuration() {
+		return openDuration;
+	}
+
+	public void setOpenDuration(long openDuration) {
+		this.openDuration = openDuration;
+	}
+
+	public int getHalfOpenMaxCalls() {
+		return halfOpenMaxCalls;
+	}
+
+	public void setHalfOpenMaxCalls(int halfOpenMaxCalls) {
+		this.halfOpenMaxCalls = halfOpenMaxCalls;
+	}
+
+}
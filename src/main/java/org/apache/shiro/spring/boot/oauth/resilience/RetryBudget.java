@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2017, vindell (https://github.com/vindell).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.oauth.resilience;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 全局重试额度：每个请求积累 {@link #setRatio(double)} 次重试额度，每次重试或对冲请求消耗一次
+ * <p>另外每秒保底允许 {@link #setMinRetriesPerSecond(int)} 次，保证低流量时仍可重试。
+ * 认证服务器整体故障时额度很快耗尽，重试不会把请求量放大数倍而加剧故障。</p>
+ * @author 		： <a href="https://github.com/vindell">vindell</a>
+ */
+public class RetryBudget {
+
+	//每个请求积累的重试额度
+	private double ratio = 0.1;
+	//每秒保底的重试次数
+	private int minRetriesPerSecond = 10;
+	//最多积累的重试额度
+	private double maxBalance = 100;
+
+	private double balance;
+	private long reserveSecond;
+	private int reserveUsed;
+
+	private final LongAdder withdrawn = new LongAdder();
+	private final LongAdder rejected = new LongAdder();
+
+	/**
+	 * 记录一次请求，积累重试额度
+	 */
+	public synchronized void onRequest() {
+		balance = Math.min(maxBalance, balance + ratio);
+	}
+
+	/**
+	 * 尝试消耗一次重试额度
+	 * @return 额度不足时返回 false，调用方不应再重试
+	 */
+	public boolean tryRetry() {
+		synchronized (this) {
+			if (balance >= 1) {
+				balance -= 1;
+				withdrawn.increment();
+				return true;
+			}
+			long second = System.currentTimeMillis() / 1000;
+			if (second != reserveSecond) {
+				reserveSecond = second;
+				reserveUsed = 0;
+			}
+			if (reserveUsed < minRetriesPerSecond) {
+				reserveUsed++;
+				withdrawn.increment();
+				return true;
+			}
+		}
+		rejected.increment();
+		return false;
+	}
+
+	public synchronized double getBalance() {
+		return balance;
+	}
+
+	public long getWithdrawnCount() {
+		return withdrawn.sum();
+	}
+
+	public long getRejectedCount() {
+		return rejected.sum();
+	}
+
+	public double getRatio() {
+		return ratio;
+	}
+
+	public void setRatio(double ratio) {
+		this.ratio = ratio;
+	}
+
+	public int getMinRetriesPerSecond() {
+		return minRetriesPerSecond;
+	}
+
+	public void setMinRetriesPerSecond(int minRetriesPerSecond) {
+		this.minRetriesPerSecond = minRetriesPerSecond;
+	}
+
+	public double getMaxBalance() {
+		return maxBalance;
+	}
+
+	public void setMaxBalance(double maxBalance) {
+		this.maxBalance = maxBalance;
+	}
+
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2017, vindell (https://github.com/vindell).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.oauth.warmup;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.http.conn.DnsResolver;
+import org.apache.http.impl.conn.SystemDefaultDnsResolver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 缓存解析结果的 {@link DnsResolver}
+ * <p>过期后重新解析失败时继续使用上一次的结果，DNS 短暂故障不会影响登录。</p>
+ * @author 		： <a href="https://github.com/vindell">vindell</a>
+ */
+public class CachingDnsResolver implements DnsResolver {
+
+	private static final Logger LOG = LoggerFactory.getLogger(CachingDnsResolver.class);
+
+	private final DnsResolver delegate;
+	private final ConcurrentMap<String, Entry> cache = new ConcurrentHashMap<String, Entry>();
+	//解析结果的有效期（毫秒）
+	private long ttl = 300000;
+
+	public CachingDnsResolver() {
+		this(SystemDefaultDnsResolver.INSTANCE);
+	}
+
+	public CachingDnsResolver(DnsResolver delegate) {
+		this.delegate = delegate;
+	}
+
+	@Override
+	public InetAddress[] resolve(String host) throws UnknownHostException {
+		long now = System.currentTimeMillis();
+		Entry entry = cache.get(host);
+		if (entry != null && entry.expiresAt > now) {
+			return entry.addresses.clone();
+		}
+		try {
+			InetAddress[] addresses = delegate.resolve(host);
+			cache.put(host, new Entry(addresses, now + ttl));
+			return addresses.clone();
+		} catch (UnknownHostException e) {
+			if (entry == null) {
+				throw e;
+			}
+			LOG.warn("Failed to resolve host : {}, using stale addresses", host);
+			return entry.addresses.clone();
+		}
+	}
+
+	/**
+	 * 清除缓存的解析结果
+	 */
+	public void clear() {
+		cache.clear();
+	}
+
+	public int size() {
+		return cache.size();
+	}
+
+	public long getTtl() {
+		return ttl;
+	}
+
+	public void setTtl(long ttl) {
+		this.ttl = ttl;
+	}
+
+	private static class Entry {
+
+		private final InetAddress[] addresses;
+		private final long expiresAt;
+
+		Entry(InetAddress[] addresses, long expiresAt) {
+			this.addresses = addresses;
+			this.expiresAt = expiresAt;
+		}
+
+	}
+
+}
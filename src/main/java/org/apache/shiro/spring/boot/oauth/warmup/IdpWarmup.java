@@ -0,0 +1,322 @@
+/*
+ * Copyright (c) 2017, vindell (https://github.com/vindell).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.oauth.warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.oltu.oauth2.client.HttpClient;
+import org.apache.oltu.oauth2.client.response.OAuthClientResponseFactory;
+import org.apache.oltu.oauth2.client.response.OAuthJSONAccessTokenResponse;
+import org.apache.oltu.oauth2.common.OAuth;
+import org.apache.shiro.realm.Realm;
+import org.apache.shiro.spring.boot.oauth.buji.scribe.provider.AbstractOAuth20Provider;
+import org.apache.shiro.spring.boot.oauth.concurrent.IdpExecutors;
+import org.apache.shiro.spring.boot.oauth.oltu.client.OltuOauth2Template;
+import org.apache.shiro.spring.boot.oauth.oltu.client.PoolingHttpClient;
+import org.apache.shiro.spring.boot.oauth.oltu.realm.OltuBearerTokenRealm;
+import org.apache.shiro.spring.boot.oauth.oltu.realm.OltuOauth2ExternalAuthorizingRealm;
+import org.apache.shiro.spring.boot.oauth.oltu.realm.OltuOauth2InternalAuthorizingRealm;
+import org.scribe.up.provider.OAuthProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationListener;
+
+/**
+ * 应用启动完成后预热认证服务器的访问路径，降低部署或扩容后首批登录的耗时
+ * <p>在 {@link ApplicationReadyEvent} 后于后台线程中解析认证服务器域名、预先建立连接，并用示例响应执行一次解析代码。
+ * 预热失败只记录日志，不影响启动；预热结束或超时后 {@link #isCompleted()} 返回 true。</p>
+ * @author 		： <a href="https://github.com/vindell">vindell</a>
+ */
+public class IdpWarmup implements ApplicationListener<ApplicationReadyEvent> {
+
+	private static final Logger LOG = LoggerFactory.getLogger(IdpWarmup.class);
+	private static final String SAMPLE_TOKEN_RESPONSE = "{\"access_token\":\"warmup\",\"token_type\":\"Bearer\",\"expires_in\":3600,\"refresh_token\":\"warmup\",\"scope\":\"openid\"}";
+
+	//解析域名使用的 DNS 缓存；为空时使用 JVM 的 DNS 缓存
+	private CachingDnsResolver dnsResolver;
+	//需要额外预热的地址
+	private List<String> urls = Collections.emptyList();
+	//每个域名预先建立的连接数
+	private int connectionsPerHost = 2;
+	//预热请求的连接超时时间（毫秒）
+	private int connectTimeout = 3000;
+	//预热请求的读取超时时间（毫秒）
+	private int readTimeout = 3000;
+	//预热的最长时间（毫秒），超过后不再等待，直接标记为完成
+	private long timeout = 30000;
+	//执行预热的线程数
+	private int poolSize = 8;
+
+	private volatile boolean completed;
+
+	@Override
+	public void onApplicationEvent(ApplicationReadyEvent event) {
+		final ApplicationContext context = event.getApplicationContext();
+		Thread thread = new Thread(() -> warmUp(context), "oauth2-warmup");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * 执行预热，完成后标记为就绪
+	 */
+	public void warmUp(ApplicationContext context) {
+		long start = System.currentTimeMillis();
+		try {
+			List<AbstractOAuth20Provider> providers = new ArrayList<AbstractOAuth20Provider>();
+			for (OAuthProvider provider : context.getBeansOfType(OAuthProvider.class).values()) {
+				if (provider instanceof AbstractOAuth20Provider) {
+					providers.add((AbstractOAuth20Provider) provider);
+				}
+			}
+			warmUpParsers(providers);
+			warmUpConnections(collectTargets(providers, context.getBeansOfType(Realm.class).values()));
+		} catch (Exception e) {
+			LOG.warn("OAuth2 warm-up failed", e);
+		} finally {
+			completed = true;
+			LOG.info("OAuth2 warm-up completed in {} ms", System.currentTimeMillis() - start);
+		}
+	}
+
+	/**
+	 * 用示例响应执行 Token 与 Profile 的解析代码
+	 */
+	protected void warmUpParsers(List<AbstractOAuth20Provider> providers) {
+		for (AbstractOAuth20Provider provider : providers) {
+			try {
+				provider.warmUp();
+			} catch (Exception e) {
+				LOG.warn("Failed to warm up provider : " + provider.getType(), e);
+			}
+		}
+		try {
+			OAuthClientResponseFactory.createCustomResponse(SAMPLE_TOKEN_RESPONSE, OAuth.ContentType.JSON, 200,
+					new HashMap<String, List<String>>(), OAuthJSONAccessTokenResponse.class);
+		} catch (Exception e) {
+			LOG.warn("Failed to warm up token response parsing", e);
+		}
+	}
+
+	/**
+	 * 收集需要预热的地址，同一 scheme://host:port 只保留一个；Oltu 使用连接池的地址优先
+	 */
+	protected Collection<Target> collectTargets(List<AbstractOAuth20Provider> providers, Iterable<Realm> realms) {
+		Map<String, Target> targets = new LinkedHashMap<String, Target>();
+		for (Realm realm : realms) {
+			if (realm instanceof OltuOauth2ExternalAuthorizingRealm) {
+				addTemplate(targets, ((OltuOauth2ExternalAuthorizingRealm) realm).getTemplate());
+			} else if (realm instanceof OltuOauth2InternalAuthorizingRealm) {
+				addTemplate(targets, ((OltuOauth2InternalAuthorizingRealm) realm).getTemplate());
+			} else if (realm instanceof OltuBearerTokenRealm && ((OltuBearerTokenRealm) realm).getIntrospector() != null) {
+				addTarget(targets, ((OltuBearerTokenRealm) realm).getIntrospector().getIntrospectionUrl(),
+						((OltuBearerTokenRealm) realm).getIntrospector().getHttpClient(), null);
+			}
+		}
+		for (AbstractOAuth20Provider provider : providers) {
+			addTarget(targets, provider.getWarmupUrl(), null, provider);
+		}
+		for (String url : urls) {
+			addTarget(targets, url, null, null);
+		}
+		return targets.values();
+	}
+
+	private void addTemplate(Map<String, Target> targets, OltuOauth2Template template) {
+		if (template != null) {
+			addTarget(targets, template.getAccessTokenUrl(), template.getHttpClient(), null);
+			addTarget(targets, template.getUserInfoUrl(), template.getHttpClient(), null);
+		}
+	}
+
+	private void addTarget(Map<String, Target> targets, String url, HttpClient httpClient, AbstractOAuth20Provider provider) {
+		if (url == null || url.isEmpty()) {
+			return;
+		}
+		try {
+			URI uri = URI.create(url);
+			if (uri.getHost() == null) {
+				return;
+			}
+			String origin = uri.getScheme() + "://" + uri.getHost() + ":" + uri.getPort();
+			PoolingHttpClient pool = httpClient instanceof PoolingHttpClient ? (PoolingHttpClient) httpClient : null;
+			Target existing = targets.get(origin);
+			if (existing == null || (existing.pool == null && pool != null)) {
+				targets.put(origin, new Target(url, uri.getHost(), pool, provider));
+			}
+		} catch (IllegalArgumentException e) {
+			LOG.warn("Ignoring invalid warm-up url : {}", url);
+		}
+	}
+
+	/**
+	 * 并行解析域名并建立连接，最多等待 {@link #setTimeout(long)}
+	 */
+	protected void warmUpConnections(Collection<Target> targets) throws InterruptedException {
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+		for (final Target target : targets) {
+			for (int i = 0; i < connectionsPerHost; i++) {
+				tasks.add(() -> {
+					connect(target);
+					return null;
+				});
+			}
+		}
+		if (tasks.isEmpty()) {
+			return;
+		}
+		ExecutorService executor = IdpExecutors.newBoundedExecutor("oauth2-warmup-", poolSize, tasks.size());
+		try {
+			executor.invokeAll(tasks, timeout, TimeUnit.MILLISECONDS);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	protected void connect(Target target) {
+		long start = System.currentTimeMillis();
+		try {
+			resolve(target.host);
+			int code = target.pool != null ? target.pool.preconnect(target.url)
+					: target.provider != null ? target.provider.preconnect() : preconnect(target.url);
+			LOG.debug("Warmed up {} ({}) in {} ms", target.url, code, System.currentTimeMillis() - start);
+		} catch (Exception e) {
+			LOG.warn("Failed to warm up connection to : " + target.url, e);
+		}
+	}
+
+	protected InetAddress[] resolve(String host) throws IOException {
+		return dnsResolver != null ? dnsResolver.resolve(host) : InetAddress.getAllByName(host);
+	}
+
+	/**
+	 * 额外配置的地址：通过 {@link HttpURLConnection} 发送 HEAD 请求并读完响应，连接进入 keep-alive 缓存
+	 */
+	protected int preconnect(String url) throws IOException {
+		HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+		connection.setRequestMethod("HEAD");
+		connection.setConnectTimeout(connectTimeout);
+		connection.setReadTimeout(readTimeout);
+		int code = connection.getResponseCode();
+		InputStream stream = code >= 400 ? connection.getErrorStream() : connection.getInputStream();
+		if (stream != null) {
+			try (InputStream in = stream) {
+				byte[] buffer = new byte[1024];
+				while (in.read(buffer) != -1) {
+					//读完响应体，连接才能复用
+				}
+			}
+		}
+		return code;
+	}
+
+	/**
+	 * 预热是否已经结束
+	 */
+	public boolean isCompleted() {
+		return completed;
+	}
+
+	public CachingDnsResolver getDnsResolver() {
+		return dnsResolver;
+	}
+
+	public void setDnsResolver(CachingDnsResolver dnsResolver) {
+		this.dnsResolver = dnsResolver;
+	}
+
+	public List<String> getUrls() {
+		return urls;
+	}
+
+	public void setUrls(List<String> urls) {
+		this.urls = urls == null ? Collections.<String>emptyList() : urls;
+	}
+
+	public int getConnectionsPerHost() {
+		return connectionsPerHost;
+	}
+
+	public void setConnectionsPerHost(int connectionsPerHost) {
+		this.connectionsPerHost = connectionsPerHost;
+	}
+
+	public int getConnectTimeout() {
+		return connectTimeout;
+	}
+
+	public void setConnectTimeout(int connectTimeout) {
+		this.connectTimeout = connectTimeout;
+	}
+
+	public int getReadTimeout() {
+		return readTimeout;
+	}
+
+	public void setReadTimeout(int readTimeout) {
+		this.readTimeout = readTimeout;
+	}
+
+	public long getTimeout() {
+		return timeout;
+	}
+
+	public void setTimeout(long timeout) {
+		this.timeout = timeout;
+	}
+
+	public int getPoolSize() {
+		return poolSize;
+	}
+
+	public void setPoolSize(int poolSize) {
+		this.poolSize = poolSize;
+	}
+
+	protected static class Target {
+
+		private final String url;
+		private final String host;
+		private final PoolingHttpClient pool;
+		private final AbstractOAuth20Provider provider;
+
+		Target(String url, String host, PoolingHttpClient pool, AbstractOAuth20Provider provider) {
+			this.url = url;
+			this.host = host;
+			this.pool = pool;
+			this.provider = provider;
+		}
+
+	}
+
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2017, vindell (https://github.com/vindell).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.oauth.warmup;
+
+import org.springframework.boot.actuate.health.AbstractHealthIndicator;
+import org.springframework.boot.actuate.health.Health;
+
+/**
+ * 预热状态健康检查：预热结束前为 OUT_OF_SERVICE，就绪探针据此推迟接收流量
+ * @author 		： <a href="https://github.com/vindell">vindell</a>
+ */
+public class WarmupHealthIndicator extends AbstractHealthIndicator {
+
+	private final IdpWarmup warmup;
+
+	public WarmupHealthIndicator(IdpWarmup warmup) {
+		this.warmup = warmup;
+	}
+
+	@Override
+	protected void doHealthCheck(Health.Builder builder) throws Exception {
+		if (warmup.isCompleted()) {
+			builder.up();
+		} else {
+			builder.outOfService().withDetail("reason", "OAuth2 warm-up in progress");
+		}
+	}
+
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2017, vindell (https://github.com/vindell).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.oauth.buji.scribe.profile;
+
+import java.util.Map;
+
+import org.apache.shiro.spring.boot.oauth.buji.scribe.profile.qq.QQProfile;
+import org.scribe.up.profile.UserProfile;
+
+/**
+ * 会话复制场景下 {@link CompactOAuthProfile} 的序列化基准：与按默认 Java 序列化写出 HashMap 属性的 {@link UserProfile} 对比
+ * 序列化后的字节数与往返耗时
+ * <p>不由 surefire 执行，直接运行 main 方法：<code>java ... CompactOAuthProfileBenchmark [iterations]</code></p>
+ * @author 		： <a href="https://github.com/vindell">vindell</a>
+ */
+public class CompactOAuthProfileBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+		QQProfile compact = CompactOAuthProfileTest.newProfile();
+		compact.addRole("user");
+		UserProfile plain = new UserProfile();
+		plain.setId(compact.getId());
+		for (Map.Entry<String, Object> entry : compact.getAttributes().entrySet()) {
+			plain.addAttribute(entry.getKey(), entry.getValue());
+		}
+		plain.addRole("user");
+
+		System.out.println("compact bytes : " + CompactOAuthProfileTest.serialize(compact).length);
+		System.out.println("plain bytes   : " + CompactOAuthProfileTest.serialize(plain).length);
+		//预热
+		run(compact, iterations / 10);
+		run(plain, iterations / 10);
+		System.out.printf("compact round trip : %.1f ns/op%n", run(compact, iterations));
+		System.out.printf("plain round trip   : %.1f ns/op%n", run(plain, iterations));
+	}
+
+	private static double run(Object profile, int iterations) throws Exception {
+		long sink = 0;
+		long start = System.nanoTime();
+		for (int i = 0; i < iterations; i++) {
+			Object copy = CompactOAuthProfileTest.roundTrip(profile);
+			sink += copy.hashCode();
+		}
+		long elapsed = System.nanoTime() - start;
+		if (sink == 42) {
+			System.out.println();
+		}
+		return (double) elapsed / iterations;
+	}
+
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2017, vindell (https://github.com/vindell).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.oauth.buji.scribe.profile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.StreamCorruptedException;
+import java.util.Arrays;
+
+import org.apache.shiro.spring.boot.oauth.buji.scribe.profile.qq.QQAttributesDefinition;
+import org.apache.shiro.spring.boot.oauth.buji.scribe.profile.qq.QQProfile;
+import org.junit.Test;
+
+/**
+ * {@link CompactOAuthProfile} 二进制格式的往返测试
+ * @author 		： <a href="https://github.com/vindell">vindell</a>
+ */
+public class CompactOAuthProfileTest {
+
+	@Test
+	public void roundTripKeepsIdAndAttributes() throws Exception {
+		QQProfile profile = newProfile();
+		QQProfile copy = roundTrip(profile);
+		assertEquals(profile.getId(), copy.getId());
+		assertEquals(profile.getAttributes(), copy.getAttributes());
+		assertEquals(12, copy.getInt(QQAttributesDefinition.LEVEL, -1));
+		assertEquals("extra", copy.get("unknown"));
+	}
+
+	@Test
+	public void roundTripKeepsRolesPermissionsAndRemembered() throws Exception {
+		QQProfile profile = newProfile();
+		profile.addRoles(Arrays.asList("admin", "user"));
+		profile.addPermissions(Arrays.asList("user:read", "user:write"));
+		profile.setRemembered(true);
+		QQProfile copy = roundTrip(profile);
+		assertEquals(Arrays.asList("admin", "user"), copy.getRoles());
+		assertEquals(Arrays.asList("user:read", "user:write"), copy.getPermissions());
+		assertTrue(copy.isRemembered());
+	}
+
+	@Test
+	public void roundTripKeepsStringsLongerThan64K() throws Exception {
+		StringBuilder builder = new StringBuilder();
+		while (builder.length() < 70000) {
+			builder.append("昵称nickname");
+		}
+		String nickname = builder.toString();
+		QQProfile profile = newProfile();
+		profile.addAttribute(QQAttributesDefinition.NICK_NAME, nickname);
+		profile.addRole(nickname);
+		QQProfile copy = roundTrip(profile);
+		assertEquals(nickname, copy.get(QQAttributesDefinition.NICK_NAME));
+		assertEquals(Arrays.asList(nickname), copy.getRoles());
+	}
+
+	@Test
+	public void roundTripConvertsLazyAttributes() throws Exception {
+		QQProfile profile = new QQProfile();
+		profile.setLazy(true);
+		profile.setId("openid-1");
+		profile.addAttribute(QQAttributesDefinition.LEVEL, "7");
+		QQProfile copy = roundTrip(profile);
+		assertEquals(Integer.valueOf(7), copy.get(QQAttributesDefinition.LEVEL));
+		assertFalse(copy.isLazy());
+	}
+
+	@Test
+	public void readsVersion1Data() throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeByte(1);
+			out.writeBoolean(true);
+			out.writeUTF("openid-1");
+			out.writeShort(2);
+			out.writeUTF(QQAttributesDefinition.NICK_NAME);
+			out.writeByte(1);
+			out.writeUTF("nick");
+			out.writeUTF(QQAttributesDefinition.LEVEL);
+			out.writeByte(2);
+			out.writeInt(3);
+		}
+		QQProfile profile = new QQProfile();
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			profile.readExternal(in);
+		}
+		assertEquals("openid-1", profile.getId());
+		assertEquals("nick", profile.get(QQAttributesDefinition.NICK_NAME));
+		assertEquals(3, profile.getInt(QQAttributesDefinition.LEVEL, -1));
+		assertTrue(profile.getRoles().isEmpty());
+	}
+
+	@Test
+	public void rejectsStringsLongerThanTheLimit() throws Exception {
+		QQProfile profile = newProfile();
+		profile.addAttribute(QQAttributesDefinition.NICK_NAME, "nickname-longer-than-limit");
+		byte[] bytes = serialize(profile);
+		int limit = CompactOAuthProfile.getMaxStringLength();
+		CompactOAuthProfile.setMaxStringLength(16);
+		try {
+			deserialize(bytes);
+			fail("StreamCorruptedException expected");
+		} catch (StreamCorruptedException e) {
+			assertTrue(e.getMessage().contains("max : 16"));
+		} finally {
+			CompactOAuthProfile.setMaxStringLength(limit);
+		}
+	}
+
+	@Test
+	public void rejectsForgedElementCountWithoutAllocating() throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeByte(2);
+			out.writeBoolean(false);
+			out.writeBoolean(false);
+			out.writeInt(Integer.MAX_VALUE);
+		}
+		QQProfile profile = new QQProfile();
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			profile.readExternal(in);
+			fail("StreamCorruptedException expected");
+		} catch (StreamCorruptedException e) {
+			assertTrue(e.getMessage().contains(String.valueOf(Integer.MAX_VALUE)));
+		}
+	}
+
+	static QQProfile newProfile() {
+		QQProfile profile = new QQProfile();
+		profile.setId("openid-1");
+		profile.addAttribute(QQAttributesDefinition.OPEN_ID, "openid-1");
+		profile.addAttribute(QQAttributesDefinition.NICK_NAME, "nick");
+		profile.addAttribute(QQAttributesDefinition.GENDER, "男");
+		profile.addAttribute(QQAttributesDefinition.FIGUREURL_QQ_1, "http://q.qlogo.cn/qqapp/100/40");
+		profile.addAttribute(QQAttributesDefinition.LEVEL, "12");
+		profile.addAttribute(QQAttributesDefinition.VIP, "1");
+		profile.setValue("unknown", "extra");
+		return profile;
+	}
+
+	static byte[] serialize(Object value) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(value);
+		}
+		return bytes.toByteArray();
+	}
+
+	static Object deserialize(byte[] bytes) throws IOException, ClassNotFoundException {
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+			return in.readObject();
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	static <T> T roundTrip(T value) throws IOException, ClassNotFoundException {
+		return (T) deserialize(serialize(value));
+	}
+
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2017, vindell (https://github.com/vindell).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.oauth.buji.scribe.profile;
+
+import java.util.Map;
+
+import org.apache.shiro.spring.boot.oauth.buji.scribe.profile.qq.QQProfile;
+import org.scribe.up.profile.UserProfile;
+
+/**
+ * {@link CompactOAuthProfile} 的堆内存占用基准：分别持有 N 个属性相同的 {@link QQProfile} 与按 HashMap 保存属性的
+ * {@link UserProfile}，比较每个 Profile 平均占用的堆内存
+ * <p>不由 surefire 执行，直接运行 main 方法：<code>java -Xmx1g ... ProfileHeapBenchmark [count]</code>；
+ * 属性值字符串在两组 Profile 间共享，差值只反映属性容器本身的开销</p>
+ * @author 		： <a href="https://github.com/vindell">vindell</a>
+ */
+public class ProfileHeapBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		int count = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+		QQProfile template = CompactOAuthProfileTest.newProfile();
+		String[] ids = new String[count];
+		for (int i = 0; i < count; i++) {
+			ids[i] = "openid-" + i;
+		}
+
+		long base = usedHeap();
+		Object[] compact = new Object[count];
+		for (int i = 0; i < count; i++) {
+			QQProfile profile = new QQProfile();
+			profile.setId(ids[i]);
+			for (Map.Entry<String, Object> entry : template.getAttributes().entrySet()) {
+				profile.addAttribute(entry.getKey(), entry.getValue());
+			}
+			compact[i] = profile;
+		}
+		long compactBytes = usedHeap() - base;
+		System.out.printf("compact : %d bytes/profile%n", compactBytes / count);
+		compact = null;
+
+		base = usedHeap();
+		Object[] plain = new Object[count];
+		for (int i = 0; i < count; i++) {
+			UserProfile profile = new UserProfile();
+			profile.setId(ids[i]);
+			for (Map.Entry<String, Object> entry : template.getAttributes().entrySet()) {
+				profile.addAttribute(entry.getKey(), entry.getValue());
+			}
+			plain[i] = profile;
+		}
+		long plainBytes = usedHeap() - base;
+		System.out.printf("plain   : %d bytes/profile%n", plainBytes / count);
+		//保持 plain 可达，直到测量结束
+		if (plain.length == 0) {
+			System.out.println();
+		}
+	}
+
+	private static long usedHeap() throws InterruptedException {
+		Runtime runtime = Runtime.getRuntime();
+		long used = Long.MAX_VALUE;
+		//多次 GC 取最小值，减少未回收垃圾带来的误差
+		for (int i = 0; i < 5; i++) {
+			System.gc();
+			Thread.sleep(50);
+			used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+		}
+		return used;
+	}
+
+}
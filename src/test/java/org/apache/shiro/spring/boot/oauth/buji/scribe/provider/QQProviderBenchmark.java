@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2017, vindell (https://github.com/vindell).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.oauth.buji.scribe.provider;
+
+import java.lang.management.ManagementFactory;
+
+import org.apache.shiro.spring.boot.oauth.buji.scribe.OAuth2Constants;
+import org.apache.shiro.spring.boot.oauth.buji.scribe.profile.qq.QQAttributesDefinition;
+import org.apache.shiro.spring.boot.oauth.buji.scribe.profile.qq.QQProfile;
+import org.scribe.model.OAuthConstants;
+import org.scribe.up.profile.JsonHelper;
+
+import com.alibaba.fastjson.JSONObject;
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * QQ 用户信息解析的耗时与内存分配基准：对比 {@link QQProvider} 的拼接 + 流式解析与原先的
+ * fastjson 解析、重新序列化 + Jackson 对象树读取
+ * <p>不由 surefire 执行，直接运行 main 方法：<code>java ... QQProviderBenchmark [iterations]</code>；
+ * 每次操作分配的字节数来自 com.sun.management.ThreadMXBean，运行时不支持时输出 n/a</p>
+ * @author 		： <a href="https://github.com/vindell">vindell</a>
+ */
+public class QQProviderBenchmark {
+
+	private static final String BODY = "{\"ret\":0,\"msg\":\"\",\"is_lost\":0,\"nickname\":\"qq-user\",\"gender\":\"男\","
+			+ "\"province\":\"广东\",\"city\":\"深圳\",\"year\":\"1990\",\"constellation\":\"\","
+			+ "\"figureurl\":\"http://qzapp.qlogo.cn/qzapp/100000000/ABCDEF/30\","
+			+ "\"figureurl_1\":\"http://qzapp.qlogo.cn/qzapp/100000000/ABCDEF/50\","
+			+ "\"figureurl_2\":\"http://qzapp.qlogo.cn/qzapp/100000000/ABCDEF/100\","
+			+ "\"figureurl_qq_1\":\"http://thirdqq.qlogo.cn/g?b=oidb&k=abcdef&s=40\","
+			+ "\"figureurl_qq_2\":\"http://thirdqq.qlogo.cn/g?b=oidb&k=abcdef&s=100\","
+			+ "\"is_yellow_vip\":\"0\",\"vip\":\"0\",\"yellow_vip_level\":\"0\",\"level\":\"0\",\"is_yellow_year_vip\":\"0\"}";
+	private static final String OPENID = "0123456789ABCDEF0123456789ABCDEF";
+	private static final String ACCESS_TOKEN = "FEDCBA9876543210FEDCBA9876543210";
+	private static final QQAttributesDefinition QQ_ATTRIBUTES = new QQAttributesDefinition();
+
+	private interface Operation {
+
+		Object run();
+
+	}
+
+	public static void main(String[] args) {
+		int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+		final QQProvider provider = new QQProvider();
+		Operation streaming = () -> provider.doExtractUserProfile(QQProvider.prependFields(BODY, OPENID, ACCESS_TOKEN));
+		Operation legacy = () -> legacyExtract(legacyRewrite(BODY));
+		//预热
+		run(streaming, iterations / 10);
+		run(legacy, iterations / 10);
+		report("streaming", streaming, iterations);
+		report("legacy", legacy, iterations);
+	}
+
+	/** 原先的做法：fastjson 解析后追加两个字段并重新序列化 */
+	private static String legacyRewrite(String body) {
+		JSONObject json = JSONObject.parseObject(body);
+		json.put(OAuth2Constants.OPENID, OPENID);
+		json.put(OAuthConstants.ACCESS_TOKEN, ACCESS_TOKEN);
+		return json.toString();
+	}
+
+	/** 原先的做法：构建 Jackson 对象树后逐个读取属性 */
+	private static QQProfile legacyExtract(String body) {
+		QQProfile profile = new QQProfile();
+		JsonNode json = JsonHelper.getFirstNode(body);
+		if (json != null) {
+			profile.setId(JsonHelper.get(json, OAuth2Constants.OPENID));
+			profile.setAccessToken(String.valueOf(JsonHelper.get(json, OAuthConstants.ACCESS_TOKEN)));
+			for (String attribute : QQ_ATTRIBUTES.getPrincipalAttributes()) {
+				profile.addAttribute(attribute, JsonHelper.get(json, attribute));
+			}
+		}
+		return profile;
+	}
+
+	private static void report(String name, Operation operation, int iterations) {
+		long allocatedBefore = allocatedBytes();
+		double nanos = run(operation, iterations);
+		long allocatedAfter = allocatedBytes();
+		String bytes = allocatedBefore < 0 ? "n/a" : String.valueOf((allocatedAfter - allocatedBefore) / iterations);
+		System.out.printf("%-9s : %.1f ns/op, %s bytes/op%n", name, nanos, bytes);
+	}
+
+	private static double run(Operation operation, int iterations) {
+		long sink = 0;
+		long start = System.nanoTime();
+		for (int i = 0; i < iterations; i++) {
+			sink += operation.run().hashCode();
+		}
+		long elapsed = System.nanoTime() - start;
+		if (sink == 42) {
+			System.out.println();
+		}
+		return (double) elapsed / iterations;
+	}
+
+	private static long allocatedBytes() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return -1;
+	}
+
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2017, vindell (https://github.com/vindell).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.oauth.buji.scribe.provider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.apache.shiro.spring.boot.oauth.buji.scribe.profile.sina.SinaAttributesDefinition;
+import org.apache.shiro.spring.boot.oauth.buji.scribe.profile.sina.SinaProfile;
+import org.apache.shiro.spring.boot.oauth.buji.scribe.token.OAuth2AccessToken;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.scribe.model.Token;
+import org.scribe.up.provider.exception.HttpException;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * {@link SinaWeiboProvider} 轻量模式测试：get_token_info 与 users/show 由本地的桩服务返回
+ * @author 		： <a href="https://github.com/vindell">vindell</a>
+ */
+public class SinaWeiboProviderTest {
+
+	private static final String USERS_SHOW_BODY = "{\"id\":12345,\"idstr\":\"12345\",\"screen_name\":\"nick\",\"name\":\"nick\","
+			+ "\"location\":\"北京\",\"url\":\"http://blog.example.com\",\"followers_count\":10,"
+			+ "\"status\":{\"text\":\"latest weibo\",\"user\":{\"name\":\"nested\"}}}";
+
+	private HttpServer server;
+	private final Map<String, Stub> stubs = new ConcurrentHashMap<String, Stub>();
+	private final List<String> requests = new CopyOnWriteArrayList<String>();
+	private SinaWeiboProvider provider;
+	private String base;
+
+	private static final class Stub {
+
+		private final int code;
+		private final String body;
+
+		Stub(int code, String body) {
+			this.code = code;
+			this.body = body;
+		}
+
+	}
+
+	@Before
+	public void setUp() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/", this::handle);
+		server.start();
+		base = "http://127.0.0.1:" + server.getAddress().getPort();
+		provider = new SinaWeiboProvider();
+		provider.setLightweight(true);
+		provider.setUsersShowUrl(base + "/2/users/show.json");
+		provider.setTokenInfoUrl(base + "/oauth2/get_token_info");
+		stubs.put("/oauth2/get_token_info", new Stub(200, "{\"uid\":\"12345\",\"appkey\":\"app\",\"expire_in\":3600}"));
+		stubs.put("/2/users/show.json", new Stub(200, USERS_SHOW_BODY));
+	}
+
+	@After
+	public void tearDown() {
+		server.stop(0);
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		String path = exchange.getRequestURI().getPath();
+		requests.add(exchange.getRequestMethod() + " " + exchange.getRequestURI());
+		Stub stub = stubs.get(path);
+		byte[] body = (stub == null ? "{}" : stub.body).getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().add("Content-Type", "application/json;charset=UTF-8");
+		exchange.sendResponseHeaders(stub == null ? 404 : stub.code, body.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(body);
+		}
+	}
+
+	@Test
+	public void lightweightModeIsOptIn() {
+		assertFalse(new SinaWeiboProvider().isLightweight());
+	}
+
+	@Test
+	public void looksUpUidThenProjectsUsersShow() throws Exception {
+		String body = provider.doSendRequestForData(new Token("token-1", ""), provider.getProfileUrl());
+		assertEquals(2, requests.size());
+		assertTrue(requests.get(0).startsWith("POST /oauth2/get_token_info"));
+		assertTrue(requests.get(1).contains("uid=12345"));
+		assertTrue(requests.get(1).contains("access_token=token-1"));
+
+		SinaProfile profile = (SinaProfile) provider.doExtractUserProfile(body);
+		assertEquals("12345", profile.getId());
+		assertEquals("nick", profile.get(SinaAttributesDefinition.NAME));
+		assertEquals("北京", profile.get(SinaAttributesDefinition.LOCATION));
+		assertNull(profile.get("status"));
+		assertNull(profile.get("screen_name"));
+	}
+
+	@Test
+	public void usesUidFromTokenResponse() throws Exception {
+		OAuth2AccessToken token = OAuth2AccessToken.parse("{\"access_token\":\"token-1\",\"expires_in\":3600,\"uid\":\"12345\"}");
+		provider.doSendRequestForData(token, provider.getProfileUrl());
+		assertEquals(1, requests.size());
+		assertTrue(requests.get(0).startsWith("GET /2/users/show.json"));
+	}
+
+	@Test
+	public void timelineModeSignsRequestThroughTransport() throws Exception {
+		SinaWeiboProvider timeline = new SinaWeiboProvider();
+		timeline.setKey("app");
+		timeline.setSecret("secret");
+		timeline.setCallbackUrl("http://127.0.0.1/callback");
+		timeline.init();
+		stubs.put("/2/statuses/user_timeline.json", new Stub(503, "{\"error\":\"busy\"}"));
+		try {
+			timeline.doSendRequestForData(new Token("token-1", ""), base + "/2/statuses/user_timeline.json");
+			fail("HttpException expected");
+		} catch (HttpException e) {
+			assertEquals(503, e.getCode());
+		}
+		assertEquals(1, requests.size());
+		assertTrue(requests.get(0).contains("access_token=token-1"));
+	}
+
+	@Test
+	public void serverErrorSurfacesAsHttpException() throws Exception {
+		stubs.put("/2/users/show.json", new Stub(503, "{\"error\":\"busy\"}"));
+		try {
+			provider.doSendRequestForData(new Token("token-1", ""), provider.getProfileUrl());
+			fail("HttpException expected");
+		} catch (HttpException e) {
+			assertEquals(503, e.getCode());
+			assertTrue(provider.isProviderFailure(e));
+		}
+	}
+
+	@Test
+	public void tokenInfoErrorSurfacesAsHttpException() throws Exception {
+		stubs.put("/oauth2/get_token_info", new Stub(401, "{\"error\":\"invalid_access_token\"}"));
+		try {
+			provider.doSendRequestForData(new Token("token-1", ""), provider.getProfileUrl());
+			fail("HttpException expected");
+		} catch (HttpException e) {
+			assertEquals(401, e.getCode());
+			assertFalse(provider.isProviderFailure(e));
+		}
+	}
+
+}
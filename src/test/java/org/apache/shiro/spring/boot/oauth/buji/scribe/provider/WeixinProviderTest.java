@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2017, vindell (https://github.com/vindell).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.oauth.buji.scribe.provider;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+
+import org.apache.shiro.spring.boot.oauth.buji.scribe.profile.weixin.WeiXinAttributesDefinition;
+import org.apache.shiro.spring.boot.oauth.buji.scribe.profile.weixin.WeiXinProfile;
+import org.junit.Test;
+
+/**
+ * {@link WeixinProvider} 用户信息解析测试：延迟转换与立即转换得到相同的属性
+ * @author 		： <a href="https://github.com/vindell">vindell</a>
+ */
+public class WeixinProviderTest {
+
+	private static final String BODY = "{\"openid\":\"openid-1\",\"nickname\":\"nick\",\"sex\":1,\"province\":\"广东\","
+			+ "\"city\":\"深圳\",\"country\":\"中国\",\"headimgurl\":\"http://wx.qlogo.cn/mmopen/0\","
+			+ "\"privilege\":[\"PRIVILEGE1\",\"PRIVILEGE2\"],\"unionid\":\"unionid-1\"}";
+
+	@Test
+	public void lazyExtractionKeepsArrayAttributes() {
+		WeiXinProfile profile = extract(true);
+		assertEquals("openid-1", profile.getId());
+		assertEquals(Arrays.asList("PRIVILEGE1", "PRIVILEGE2"), profile.get(WeiXinAttributesDefinition.PRIVILEGE));
+		assertEquals(1, profile.getInt(WeiXinAttributesDefinition.SEX, -1));
+	}
+
+	@Test
+	public void lazyAndEagerExtractionAgree() {
+		assertEquals(extract(false).getAttributes(), extract(true).getAttributes());
+	}
+
+	private static WeiXinProfile extract(boolean lazy) {
+		WeixinProvider provider = new WeixinProvider();
+		provider.setLazyProfile(lazy);
+		return provider.doExtractUserProfile(BODY);
+	}
+
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2017, vindell (https://github.com/vindell).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.oauth.cache;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanCursor;
+import org.springframework.data.redis.core.ScanIteration;
+import org.springframework.data.redis.core.ScanOptions;
+
+/**
+ * 测试用的内存 Redis：以动态代理实现 {@link RedisConnection} 中 {@link RedisCache} 用到的命令
+ * <p>支持 GET、SET、SETEX、PSETEX、MGET、DEL、SCAN 与 PUBLISH；SCAN 按 COUNT 分页并按 glob 模式匹配，
+ * PUBLISH 同步投递给所有 {@link #subscribe(MessageListener) 订阅者}（包括发布者自己），与 Redis 的行为一致。
+ * 其他命令（包括 KEYS）一律抛出 {@link UnsupportedOperationException}，测试据此确认没有使用阻塞命令。</p>
+ * @author 		： <a href="https://github.com/vindell">vindell</a>
+ */
+class InMemoryRedis {
+
+	private final Map<String, byte[]> data = new ConcurrentSkipListMap<String, byte[]>();
+	private final AtomicInteger scanPages = new AtomicInteger();
+	private final List<MessageListener> listeners = new CopyOnWriteArrayList<MessageListener>();
+	private final List<byte[]> published = new CopyOnWriteArrayList<byte[]>();
+
+	RedisConnectionFactory connectionFactory() {
+		final RedisConnection connection = (RedisConnection) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] { RedisConnection.class }, new ConnectionHandler());
+		return (RedisConnectionFactory) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] { RedisConnectionFactory.class }, (proxy, method, args) -> {
+					switch (method.getName()) {
+					case "getConnection":
+						return connection;
+					case "getConvertPipelineAndTxResults":
+						return Boolean.FALSE;
+					case "translateExceptionIfPossible":
+						return null;
+					default:
+						return objectMethod(proxy, method, args);
+					}
+				});
+	}
+
+	int size() {
+		return data.size();
+	}
+
+	void subscribe(MessageListener listener) {
+		listeners.add(listener);
+	}
+
+	/**
+	 * 已发布消息的原始内容，按发布顺序排列
+	 */
+	List<byte[]> getPublished() {
+		return published;
+	}
+
+	/**
+	 * SCAN 被调用的次数（每页一次）
+	 */
+	int getScanPages() {
+		return scanPages.get();
+	}
+
+	private static String key(byte[] raw) {
+		return new String(raw, StandardCharsets.ISO_8859_1);
+	}
+
+	private static byte[] raw(String key) {
+		return key.getBytes(StandardCharsets.ISO_8859_1);
+	}
+
+	private static Object objectMethod(Object proxy, Method method, Object[] args) {
+		switch (method.getName()) {
+		case "equals":
+			return proxy == args[0];
+		case "hashCode":
+			return System.identityHashCode(proxy);
+		case "toString":
+			return "InMemoryRedis";
+		default:
+			throw new UnsupportedOperationException(method.getName());
+		}
+	}
+
+	/**
+	 * 把 Redis 的 glob 模式转换为正则表达式
+	 */
+	static Pattern toRegex(String glob) {
+		StringBuilder regex = new StringBuilder();
+		for (int i = 0; i < glob.length(); i++) {
+			char ch = glob.charAt(i);
+			if (ch == '\\' && i + 1 < glob.length()) {
+				regex.append(Pattern.quote(String.valueOf(glob.charAt(++i))));
+			} else if (ch == '*') {
+				regex.append(".*");
+			} else if (ch == '?') {
+				regex.append('.');
+			} else if (ch == '[' || ch == ']') {
+				regex.append(ch);
+			} else {
+				regex.append(Pattern.quote(String.valueOf(ch)));
+			}
+		}
+		return Pattern.compile(regex.toString(), Pattern.DOTALL);
+	}
+
+	private class ConnectionHandler implements InvocationHandler {
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) {
+			switch (method.getName()) {
+			case "get":
+				return data.get(key((byte[]) args[0]));
+			case "set":
+				data.put(key((byte[]) args[0]), (byte[]) args[1]);
+				return Boolean.TRUE;
+			case "setEx":
+			case "pSetEx":
+				data.put(key((byte[]) args[0]), (byte[]) args[2]);
+				return Boolean.TRUE;
+			case "mGet":
+				List<byte[]> values = new ArrayList<byte[]>();
+				for (byte[] raw : (byte[][]) args[0]) {
+					values.add(data.get(key(raw)));
+				}
+				return values;
+			case "del":
+				long removed = 0;
+				for (byte[] raw : (byte[][]) args[0]) {
+					if (data.remove(key(raw)) != null) {
+						removed++;
+					}
+				}
+				return removed;
+			case "scan":
+				return scan((ScanOptions) args[0]);
+			case "publish":
+				published.add((byte[]) args[1]);
+				for (MessageListener listener : listeners) {
+					listener.onMessage(new DefaultMessage((byte[]) args[0], (byte[]) args[1]), null);
+				}
+				return Long.valueOf(listeners.size());
+			case "isPipelined":
+			case "isQueueing":
+			case "isClosed":
+				return Boolean.FALSE;
+			case "close":
+				return null;
+			default:
+				return objectMethod(proxy, method, args);
+			}
+		}
+
+		private Cursor<byte[]> scan(ScanOptions options) {
+			final Pattern pattern = options.getPattern() == null ? null : toRegex(options.getPattern());
+			final int count = options.getCount() == null ? 10 : options.getCount().intValue();
+			return new ScanCursor<byte[]>(options) {
+
+				@Override
+				protected ScanIteration<byte[]> doScan(long cursorId, ScanOptions scanOptions) {
+					scanPages.incrementAndGet();
+					List<String> keys = new ArrayList<String>(data.keySet());
+					int from = (int) cursorId;
+					int to = Math.min(keys.size(), from + count);
+					List<byte[]> page = new ArrayList<byte[]>();
+					for (String key : keys.subList(Math.min(from, to), to)) {
+						if (pattern == null || pattern.matcher(key).matches()) {
+							page.add(raw(key));
+						}
+					}
+					return new ScanIteration<byte[]>(to >= keys.size() ? 0 : to, page);
+				}
+
+			}.open();
+		}
+
+	}
+
+}
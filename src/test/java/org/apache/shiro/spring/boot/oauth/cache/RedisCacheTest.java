@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2017, vindell (https://github.com/vindell).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.oauth.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+
+/**
+ * {@link RedisCache} 测试：使用 {@link InMemoryRedis} 代替 Redis 服务，遍历键只能使用 SCAN
+ * @author 		： <a href="https://github.com/vindell">vindell</a>
+ */
+public class RedisCacheTest {
+
+	private InMemoryRedis redis;
+	private RedisTemplate<Object, Object> redisTemplate;
+
+	@Before
+	public void setUp() {
+		redis = new InMemoryRedis();
+		redisTemplate = new RedisTemplate<Object, Object>();
+		redisTemplate.setConnectionFactory(redis.connectionFactory());
+		redisTemplate.setKeySerializer(new StringRedisSerializer());
+		redisTemplate.afterPropertiesSet();
+	}
+
+	private RedisCache<String, String> newCache(String name) {
+		RedisCache<String, String> cache = new RedisCache<String, String>(name, redisTemplate, 60000);
+		cache.setScanCount(100);
+		return cache;
+	}
+
+	@Test
+	public void putGetRemove() {
+		RedisCache<String, String> cache = newCache("profile");
+		cache.put("openid-1", "nick");
+		assertEquals("nick", cache.get("openid-1"));
+		cache.remove("openid-1");
+		assertNull(cache.get("openid-1"));
+		assertEquals(1, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+	}
+
+	@Test
+	public void keysSizeAndValuesSpanSeveralScanPages() {
+		RedisCache<String, String> cache = newCache("profile");
+		RedisCache<String, String> other = newCache("token");
+		Set<String> expected = new HashSet<String>();
+		for (int i = 0; i < 250; i++) {
+			cache.put("k" + i, "v" + i);
+			other.put("k" + i, "t" + i);
+			expected.add("k" + i);
+		}
+		assertEquals(expected, cache.keys());
+		assertEquals(250, cache.size());
+		assertEquals(250, cache.values().size());
+		assertTrue(cache.values().contains("v249"));
+		assertTrue(redis.getScanPages() > 3);
+	}
+
+	@Test
+	public void clearRemovesOnlyOwnKeys() {
+		RedisCache<String, String> cache = newCache("profile");
+		RedisCache<String, String> other = newCache("profile2");
+		for (int i = 0; i < 250; i++) {
+			cache.put("k" + i, "v" + i);
+		}
+		other.put("k", "v");
+		cache.clear();
+		assertEquals(0, cache.size());
+		assertEquals("v", other.get("k"));
+		assertEquals(1, redis.size());
+	}
+
+	@Test
+	public void cacheNameIsMatchedLiterally() {
+		RedisCache<String, String> cache = newCache("cache[1]*");
+		RedisCache<String, String> other = newCache("cache1x");
+		cache.put("a", "1");
+		other.put("b", "2");
+		assertEquals(1, cache.size());
+		cache.clear();
+		assertEquals("2", other.get("b"));
+	}
+
+}
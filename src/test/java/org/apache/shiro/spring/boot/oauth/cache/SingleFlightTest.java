@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2017, vindell (https://github.com/vindell).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.oauth.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * {@link SingleFlight} 测试：完成后的结果与异常在保留时间内复用
+ * @author 		： <a href="https://github.com/vindell">vindell</a>
+ */
+public class SingleFlightTest {
+
+	@Test
+	public void reusesCompletedResultWithinGraceWindow() {
+		SingleFlight<String, String> flight = new SingleFlight<String, String>(60000, 10);
+		AtomicInteger calls = new AtomicInteger();
+		assertEquals("token-1", flight.execute("qq#code", () -> "token-" + calls.incrementAndGet()));
+		assertEquals("token-1", flight.execute("qq#code", () -> "token-" + calls.incrementAndGet()));
+		assertEquals(1, calls.get());
+		assertEquals(1, flight.getCoalescedCount());
+	}
+
+	@Test
+	public void replaysCompletedErrorWithinGraceWindow() {
+		SingleFlight<String, String> flight = new SingleFlight<String, String>(60000, 10);
+		AtomicInteger calls = new AtomicInteger();
+		for (int i = 0; i < 2; i++) {
+			try {
+				flight.execute("qq#code", () -> {
+					calls.incrementAndGet();
+					throw new IllegalStateException("invalid_grant");
+				});
+				fail("error should be replayed");
+			} catch (IllegalStateException e) {
+				assertEquals("invalid_grant", e.getMessage());
+			}
+		}
+		assertEquals(1, calls.get());
+	}
+
+	@Test
+	public void doesNotKeepResultsWithoutGraceWindow() {
+		SingleFlight<String, String> flight = new SingleFlight<String, String>();
+		AtomicInteger calls = new AtomicInteger();
+		flight.execute("qq#code", () -> "token-" + calls.incrementAndGet());
+		assertEquals("token-2", flight.execute("qq#code", () -> "token-" + calls.incrementAndGet()));
+		assertEquals(0, flight.getInflightCount());
+	}
+
+	@Test
+	public void expiresCompletedResults() throws Exception {
+		SingleFlight<String, String> flight = new SingleFlight<String, String>(50, 10);
+		AtomicInteger calls = new AtomicInteger();
+		flight.execute("qq#code", () -> "token-" + calls.incrementAndGet());
+		Thread.sleep(100);
+		assertEquals("token-2", flight.execute("qq#code", () -> "token-" + calls.incrementAndGet()));
+	}
+
+}
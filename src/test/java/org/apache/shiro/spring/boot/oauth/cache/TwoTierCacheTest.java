@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2017, vindell (https://github.com/vindell).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.oauth.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.shiro.authc.AuthenticationException;
+import org.apache.shiro.authc.AuthenticationInfo;
+import org.apache.shiro.authc.AuthenticationToken;
+import org.apache.shiro.authz.AuthorizationInfo;
+import org.apache.shiro.authz.SimpleAuthorizationInfo;
+import org.apache.shiro.cache.Cache;
+import org.apache.shiro.spring.boot.oauth.oltu.realm.RedisAuthorizingRealm;
+import org.apache.shiro.subject.PrincipalCollection;
+import org.apache.shiro.subject.SimplePrincipalCollection;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+
+/**
+ * {@link TwoTierCache} 测试：两个节点共享同一个 {@link InMemoryRedis}，失效消息经由 PUBLISH 同步投递
+ * @author 		： <a href="https://github.com/vindell">vindell</a>
+ */
+public class TwoTierCacheTest {
+
+	private static final String CHANNEL = "test:invalidation";
+
+	private InMemoryRedis redis;
+	private RedisTemplate<Object, Object> redisTemplate;
+
+	@Before
+	public void setUp() {
+		redis = new InMemoryRedis();
+		redisTemplate = new RedisTemplate<Object, Object>();
+		redisTemplate.setConnectionFactory(redis.connectionFactory());
+		redisTemplate.setKeySerializer(new StringRedisSerializer());
+		redisTemplate.afterPropertiesSet();
+	}
+
+	private TwoTierCache<String, String> newNode(Cache<String, String> remoteCache) {
+		TwoTierCache<String, String> node = new TwoTierCache<String, String>(
+				new ExpiringMapCache<String, String>("profile", 100, 60000), remoteCache, redisTemplate, CHANNEL);
+		redis.subscribe(node);
+		return node;
+	}
+
+	private TwoTierCache<String, String> newNode() {
+		return newNode(new RedisCache<String, String>("profile", redisTemplate, 60000));
+	}
+
+	private String lastPublished() {
+		List<byte[]> published = redis.getPublished();
+		return (String) redisTemplate.getValueSerializer().deserialize(published.get(published.size() - 1));
+	}
+
+	@Test
+	public void putRemoveAndClearPublishNodeIdAndKey() {
+		TwoTierCache<String, String> node = newNode();
+		node.put("openid-1", "nick");
+		assertEquals(node.getNodeId() + "|openid-1", lastPublished());
+		node.remove("openid-1");
+		assertEquals(node.getNodeId() + "|openid-1", lastPublished());
+		node.clear();
+		assertEquals(node.getNodeId() + "|", lastPublished());
+		assertEquals(3, redis.getPublished().size());
+	}
+
+	@Test
+	public void writeOnOneNodeEvictsNearTierOnTheOther() {
+		TwoTierCache<String, String> a = newNode();
+		TwoTierCache<String, String> b = newNode();
+		a.put("openid-1", "v1");
+		assertEquals("v1", b.get("openid-1"));
+		assertEquals("v1", b.getNearCache().get("openid-1"));
+
+		a.put("openid-1", "v2");
+		assertNull(b.getNearCache().get("openid-1"));
+		assertEquals("v2", b.get("openid-1"));
+
+		a.clear();
+		assertEquals(0, b.getNearCache().size());
+		assertNull(b.get("openid-1"));
+	}
+
+	@Test
+	public void nodeIgnoresItsOwnMessages() {
+		TwoTierCache<String, String> a = newNode();
+		a.put("openid-1", "v1");
+		assertEquals("v1", a.getNearCache().get("openid-1"));
+		assertEquals("v1", a.get("openid-1"));
+		assertEquals(1, a.getNearHitCount());
+		assertEquals(0, a.getRemoteHitCount());
+	}
+
+	@Test
+	public void skipsBackfillWhenInvalidatedDuringRemoteRead() {
+		final TwoTierCache<String, String> b = newNode();
+		TwoTierCache<String, String> a = newNode(new RedisCache<String, String>("profile", redisTemplate, 60000) {
+
+			@Override
+			public String get(String key) {
+				String value = super.get(key);
+				// 读到旧值之后、回填近端之前，另一个节点写入了新值
+				b.put(key, "v2");
+				return value;
+			}
+
+		});
+		b.put("openid-1", "v1");
+		assertEquals("v1", a.get("openid-1"));
+		assertNull(a.getNearCache().get("openid-1"));
+	}
+
+	@Test
+	public void realmReportsHitRatioPerTier() {
+		AtomicInteger loads = new AtomicInteger();
+		TestRealm node1 = newRealm(loads);
+		TestRealm node2 = newRealm(loads);
+		PrincipalCollection principals = new SimplePrincipalCollection("alice", "redis");
+
+		assertTrue(node1.hasRole(principals, "admin"));
+		assertTrue(node1.hasRole(principals, "admin"));
+		assertTrue(node2.hasRole(principals, "admin"));
+		assertTrue(node2.hasRole(principals, "admin"));
+
+		assertEquals(1, loads.get());
+		assertEquals(0.5d, node1.getNearCacheHitRatio(), 0.0001d);
+		assertEquals(0d, node1.getRemoteCacheHitRatio(), 0.0001d);
+		assertEquals(0.5d, node2.getNearCacheHitRatio(), 0.0001d);
+		assertEquals(1d, node2.getRemoteCacheHitRatio(), 0.0001d);
+	}
+
+	private TestRealm newRealm(AtomicInteger loads) {
+		TestRealm realm = new TestRealm(loads);
+		realm.setName("redis");
+		realm.setRedisTemplate(redisTemplate);
+		realm.setInvalidationChannel(CHANNEL);
+		// 未启动的监听容器：失效消息由 InMemoryRedis 直接投递
+		realm.setListenerContainer(new RedisMessageListenerContainer());
+		realm.init();
+		redis.subscribe(realm.getTwoTierCache());
+		return realm;
+	}
+
+	private static class TestRealm extends RedisAuthorizingRealm {
+
+		private final AtomicInteger loads;
+
+		TestRealm(AtomicInteger loads) {
+			this.loads = loads;
+		}
+
+		@Override
+		protected AuthorizationInfo doGetAuthorizationInfo(PrincipalCollection principals) {
+			loads.incrementAndGet();
+			return new SimpleAuthorizationInfo(Collections.singleton("admin"));
+		}
+
+		@Override
+		protected AuthenticationInfo doGetAuthenticationInfo(AuthenticationToken token) throws AuthenticationException {
+			return null;
+		}
+
+	}
+
+}
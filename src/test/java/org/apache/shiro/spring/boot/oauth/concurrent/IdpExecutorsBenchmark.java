@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2017, vindell (https://github.com/vindell).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.oauth.concurrent;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 认证服务器响应缓慢时 {@link IdpExecutors} 的吞吐量基准：每个任务休眠模拟一次 IdP 调用，
+ * 对比有界平台线程池与（运行时支持时）受信号量限制的虚拟线程池完成的登录数、拒绝数与每秒吞吐量
+ * <p>不由 surefire 执行，直接运行 main 方法：<code>java ... IdpExecutorsBenchmark [logins] [latencyMillis] [poolSize] [queueCapacity]</code></p>
+ * @author 		： <a href="https://github.com/vindell">vindell</a>
+ */
+public class IdpExecutorsBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		int logins = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+		long latency = args.length > 1 ? Long.parseLong(args[1]) : 500;
+		int poolSize = args.length > 2 ? Integer.parseInt(args[2]) : 32;
+		int queueCapacity = args.length > 3 ? Integer.parseInt(args[3]) : 1000;
+
+		System.out.println("logins : " + logins + ", idp latency : " + latency + " ms, poolSize : " + poolSize
+				+ ", queueCapacity : " + queueCapacity);
+		run("bounded pool", IdpExecutors.newBoundedExecutor("bench-pool-", poolSize, queueCapacity), logins, latency);
+		ExecutorService virtual = IdpExecutors.newVirtualThreadExecutor("bench-virtual-", poolSize + queueCapacity);
+		if (virtual == null) {
+			System.out.println("virtual threads : not supported by this runtime");
+		} else {
+			run("virtual threads", virtual, logins, latency);
+		}
+	}
+
+	private static void run(String name, ExecutorService executor, int logins, final long latency) throws Exception {
+		final CountDownLatch done = new CountDownLatch(logins);
+		final AtomicInteger completed = new AtomicInteger();
+		int rejected = 0;
+		long start = System.nanoTime();
+		for (int i = 0; i < logins; i++) {
+			try {
+				executor.execute(() -> {
+					try {
+						Thread.sleep(latency);
+						completed.incrementAndGet();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					} finally {
+						done.countDown();
+					}
+				});
+			} catch (RejectedExecutionException e) {
+				rejected++;
+				done.countDown();
+			}
+		}
+		done.await();
+		long elapsed = System.nanoTime() - start;
+		executor.shutdown();
+		System.out.printf("%-16s : completed %d, rejected %d, %.1f s, %.1f logins/s%n", name, completed.get(), rejected,
+				elapsed / 1e9, completed.get() / (elapsed / 1e9));
+	}
+
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2017, vindell (https://github.com/vindell).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.shiro.spring.boot.oauth.jwt;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.util.Base64;
+
+import org.apache.shiro.spring.boot.oauth.exception.OAuth2AuthenticationException;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.alibaba.fastjson.JSONObject;
+
+/**
+ * {@link JwtVerifier} 声明校验测试：exp 必须存在，签发者与受众默认取自调用方
+ * @author 		： <a href="https://github.com/vindell">vindell</a>
+ */
+public class JwtVerifierTest {
+
+	private static final String ISSUER = "https://idp.example.com";
+	private static final String CLIENT_ID = "client-1";
+
+	private KeyPair keyPair;
+	private JwtVerifier verifier;
+
+	@Before
+	public void setUp() throws Exception {
+		KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+		generator.initialize(2048);
+		keyPair = generator.generateKeyPair();
+		verifier = new JwtVerifier(new JwksKeyResolver() {
+
+			@Override
+			public PublicKey getKey(String kid) {
+				return keyPair.getPublic();
+			}
+
+		});
+	}
+
+	@Test
+	public void acceptsTokenMatchingRealmDefaults() throws Exception {
+		assertEquals("alice", verifier.extractPrincipal(sign(claims()), ISSUER, CLIENT_ID));
+	}
+
+	@Test
+	public void rejectsTokenWithoutExp() throws Exception {
+		JSONObject claims = claims();
+		claims.remove("exp");
+		assertRejected(sign(claims), ISSUER, CLIENT_ID);
+	}
+
+	@Test
+	public void rejectsExpiredToken() throws Exception {
+		JSONObject claims = claims();
+		claims.put("exp", System.currentTimeMillis() / 1000 - 3600);
+		assertRejected(sign(claims), ISSUER, CLIENT_ID);
+	}
+
+	@Test
+	public void rejectsOtherIssuerAndAudience() throws Exception {
+		String token = sign(claims());
+		assertRejected(token, "https://other.example.com", CLIENT_ID);
+		assertRejected(token, ISSUER, "client-2");
+	}
+
+	@Test
+	public void rejectsWhenIssuerOrAudienceIsNotConfigured() throws Exception {
+		String token = sign(claims());
+		assertRejected(token, null, CLIENT_ID);
+		assertRejected(token, ISSUER, null);
+	}
+
+	@Test
+	public void configuredValuesTakePrecedenceOverDefaults() throws Exception {
+		verifier.setIssuer("https://other.example.com");
+		assertRejected(sign(claims()), ISSUER, CLIENT_ID);
+	}
+
+	private void assertRejected(String token, String issuer, String audience) {
+		try {
+			verifier.verify(token, issuer, audience);
+			fail("token should be rejected");
+		} catch (OAuth2AuthenticationException e) {
+			// expected
+		}
+	}
+
+	private static JSONObject claims() {
+		JSONObject claims = new JSONObject();
+		claims.put("sub", "alice");
+		claims.put("iss", ISSUER);
+		claims.put("aud", CLIENT_ID);
+		claims.put("exp", System.currentTimeMillis() / 1000 + 3600);
+		return claims;
+	}
+
+	private String sign(JSONObject claims) throws Exception {
+		Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+		String header = encoder.encodeToString("{\"alg\":\"RS256\",\"kid\":\"k1\"}".getBytes(StandardCharsets.UTF_8));
+		String payload = encoder.encodeToString(claims.toJSONString().getBytes(StandardCharsets.UTF_8));
+		Signature signature = Signature.getInstance("SHA256withRSA");
+		signature.initSign(keyPair.getPrivate());
+		signature.update((header + "." + payload).getBytes(StandardCharsets.US_ASCII));
+		return header + "." + payload + "." + encoder.encodeToString(signature.sign());
+	}
+
+}